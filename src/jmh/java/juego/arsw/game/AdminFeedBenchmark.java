@@ -0,0 +1,87 @@
+package juego.arsw.game;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+
+import juego.arsw.config.GameProperties;
+
+/**
+ * Coste de avisar a los admins cuando entra un bus en una sala grande: se mide solo el
+ * primer mensaje del bus, que es el que lo da de alta y avisa a los admins suscritos. La
+ * conexión y la baja, que difunden el estado a toda la sala, quedan fuera de la medida.
+ * Lo que crezca con {@code players} es lo que paga cada alta por los admins.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AdminFeedBenchmark {
+
+    @Param({ "100", "1000" })
+    private int players;
+
+    // Referencia fuerte: java.util.logging solo guarda los loggers con referencias débiles
+    private final Logger gameLogger = Logger.getLogger("juego.arsw");
+    private GameRoom room;
+    private BenchmarkSession admin;
+    private BenchmarkSession visitor;
+    private final TextMessage hello = new TextMessage("{\"name\":\"Visitor\",\"x\":0,\"y\":0}");
+    private int next;
+
+    @Setup
+    public void setUp() {
+        gameLogger.setLevel(java.util.logging.Level.WARNING);
+        GameProperties properties = new GameProperties();
+        properties.getTick().setRateHz(1);
+        room = new GameRoom("bench", properties, Runnable::run, Runnable::run);
+        for (int i = 0; i < players; i++) {
+            BenchmarkSession session = new BenchmarkSession("bench-" + i, null);
+            room.join(session);
+            room.handleTextMessage(session, new TextMessage("{\"name\":\"Bus " + i + "\",\"x\":" + i + ",\"y\":0}"));
+        }
+        admin = new BenchmarkSession("bench-admin", null);
+        room.join(admin);
+        room.handleTextMessage(admin, new TextMessage("{\"role\":\"admin\"}"));
+        room.getTickLoop().stop();
+    }
+
+    @TearDown
+    public void tearDown() {
+        room.close();
+    }
+
+    @Setup(Level.Invocation)
+    public void connect() {
+        visitor = new BenchmarkSession("visitor-" + next++, null);
+        room.join(visitor);
+    }
+
+    @TearDown(Level.Invocation)
+    public void disconnect() {
+        room.leave(visitor, CloseStatus.NORMAL);
+    }
+
+    @Benchmark
+    public long join() {
+        room.handleTextMessage(visitor, hello);
+        return admin.bytes;
+    }
+}
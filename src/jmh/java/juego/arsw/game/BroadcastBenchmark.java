@@ -0,0 +1,96 @@
+package juego.arsw.game;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.socket.TextMessage;
+
+import juego.arsw.config.GameProperties;
+
+/**
+ * Un tick de difusión en una sala con N jugadores conectados: codificar el snapshot de
+ * posiciones y pasarlo por la cola de salida de cada sesión. Un bus se mueve antes de cada
+ * tick para que haya algo que difundir; ese mensaje cuesta lo mismo en todos los casos y
+ * lo que crece con N es la codificación y el fan-out.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BroadcastBenchmark {
+
+    @Param({ "10", "100", "1000" })
+    private int players;
+
+    @Param({ "json", "binary" })
+    private String protocol;
+
+    // Referencia fuerte: java.util.logging solo guarda los loggers con referencias débiles
+    private final Logger gameLogger = Logger.getLogger("juego.arsw");
+    private GameRoom room;
+    private BenchmarkSession[] sessions;
+    private final TextMessage[] moves = new TextMessage[64];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        // Cada alta difunde el estado a toda la sala; sin esto el setup escribe N² líneas de log
+        gameLogger.setLevel(Level.WARNING);
+        GameProperties properties = new GameProperties();
+        properties.getTick().setRateHz(1);
+        room = new GameRoom("bench", properties, Runnable::run, Runnable::run);
+        String accepted = "binary".equals(protocol) ? BinaryPositionEncoder.PROTOCOL : null;
+        sessions = new BenchmarkSession[players];
+        for (int i = 0; i < players; i++) {
+            sessions[i] = new BenchmarkSession("bench-" + i, accepted);
+            room.join(sessions[i]);
+            room.handleTextMessage(sessions[i],
+                    new TextMessage("{\"name\":\"Bus " + i + "\",\"x\":" + i * 7 % 1000 + ",\"y\":" + i * 13 % 700 + "}"));
+        }
+        // Los ticks los da el benchmark, no el planificador de la sala
+        room.getTickLoop().stop();
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = new TextMessage("{\"x\":" + (100 + i) + ",\"y\":200,\"direction\":\"right\"}");
+        }
+        for (BenchmarkSession session : sessions) {
+            session.messages = 0;
+            session.bytes = 0;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        long messages = 0;
+        long bytes = 0;
+        for (BenchmarkSession session : sessions) {
+            messages += session.messages;
+            bytes += session.bytes;
+        }
+        System.out.printf("%n%d messages, %.0f bytes per message%n", messages, (double) bytes / Math.max(messages, 1));
+        room.close();
+        gameLogger.setLevel(null);
+    }
+
+    @Benchmark
+    public long tick() {
+        room.handleTextMessage(sessions[0], moves[next++ & (moves.length - 1)]);
+        GameTickLoop tickLoop = room.getTickLoop();
+        tickLoop.runTick();
+        return tickLoop.getTickCount();
+    }
+}
@@ -0,0 +1,143 @@
+package juego.arsw.game;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import juego.arsw.config.GameProperties;
+
+/**
+ * Coste del diario en el camino de un mensaje de movimiento: la sala procesa el mismo
+ * mensaje sin diario y con diario (escribiendo de verdad en un directorio temporal, con su
+ * fsync por lote en otro hilo). La diferencia entre los dos es lo que añade anotar cada
+ * comando. {@code replay} mide cuánto tarda en reconstruirse el estado desde un diario
+ * grabado, que es también una carga repetible para comparar versiones.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameJournalBenchmark {
+
+    @State(Scope.Thread)
+    public static class Room {
+        @Param({ "false", "true" })
+        private boolean journaled;
+
+        @Param({ "20" })
+        private long syncIntervalMillis;
+
+        private Path directory;
+        private GameJournal journal;
+        private GameRoom room;
+        private final WebSocketSession session = new BenchmarkSession("bench-session", null);
+        private final TextMessage[] moves = new TextMessage[64];
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            GameProperties properties = new GameProperties();
+            properties.getTick().setRateHz(1);
+            if (journaled) {
+                directory = Files.createTempDirectory("journal-bench");
+                properties.getJournal().setSyncIntervalMillis(syncIntervalMillis);
+                journal = GameJournal.open(directory, properties.getJournal());
+            }
+            room = new GameRoom("bench", properties, Runnable::run, Runnable::run, journal);
+            room.join(session);
+            room.handleTextMessage(session, new TextMessage("{\"name\":\"Bus\",\"x\":0,\"y\":0}"));
+            // Con el nombre el frame no se agrupa en el hueco de movimientos: se aplica (y anota) en el acto
+            for (int i = 0; i < moves.length; i++) {
+                moves[i] = new TextMessage("{\"name\":\"Bus\",\"x\":" + (100 + i) + ",\"y\":" + (200 + i)
+                        + ",\"direction\":\"" + (i % 2 == 0 ? "left" : "up") + "\"}");
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            room.close();
+            if (journal != null) {
+                journal.close();
+                deleteRecursively(directory);
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Recorded {
+        @Param({ "100000" })
+        private int entries;
+
+        private Path directory;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            directory = Files.createTempDirectory("journal-replay");
+            GameProperties.Journal properties = new GameProperties.Journal();
+            properties.setSyncIntervalMillis(0);
+            properties.setMaxPendingEntries(entries + 1_000);
+            try (GameJournal journal = GameJournal.open(directory, properties)) {
+                // Diez salas con 50 buses cada una, casi todo movimientos, como una partida real
+                for (int i = 0; i < entries; i++) {
+                    String roomId = "room-" + i % 10;
+                    String playerId = "P" + i % 500;
+                    if (i < 500) {
+                        journal.append(new JournalEntry.PlayerJoined(roomId, playerId, playerId));
+                    } else if (i % 100 == 0) {
+                        journal.append(new JournalEntry.CargoChanged(roomId, playerId, (byte) (i % 3)));
+                    } else {
+                        journal.append(new JournalEntry.PlayerMoved(roomId, playerId, i % 1000, i % 700, (byte) 1));
+                    }
+                }
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            deleteRecursively(directory);
+        }
+    }
+
+    @Benchmark
+    public int move(Room state) {
+        state.room.handleTextMessage(state.session, state.moves[state.next++ & (state.moves.length - 1)]);
+        return state.room.getPlayerCount();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 5)
+    public List<RoomState> replay(Recorded recorded) throws IOException {
+        return JournalReplayer.replay(recorded.directory);
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package juego.arsw.game;
+
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Decodificación de un mensaje entrante: el árbol de org.json con la cadena de
+ * {@code has(...)} de antes (y el segundo parseo de las actualizaciones de carga) frente a
+ * una pasada de streaming de {@link InboundMessageDecoder}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InboundMessageDecoderBenchmark {
+
+    @Param({ "move", "cargo", "ack" })
+    private String kind;
+
+    private String payload;
+    private final InboundMessageDecoder decoder = new InboundMessageDecoder();
+
+    @Setup
+    public void setUp() {
+        payload = switch (kind) {
+            case "move" -> "{\"x\":312.5,\"y\":148.25,\"direction\":\"right\",\"name\":\"Player_ABC-123\"}";
+            case "cargo" -> "{\"id\":\"ABC-123\",\"hasPerson\":\"1\"}";
+            default -> "{\"type\":\"ack\",\"tick\":123456}";
+        };
+    }
+
+    @Benchmark
+    public void orgJsonDom(Blackhole blackhole) {
+        JSONObject data = new JSONObject(payload);
+        blackhole.consume(data.optString("role", "user"));
+        blackhole.consume(data.optString("name", "Player"));
+        if ("ack".equals(data.optString("type")) && data.has("tick")) {
+            blackhole.consume(data.getLong("tick"));
+            return;
+        }
+        if (data.has("personId") && data.has("active")) {
+            blackhole.consume(data.getBoolean("active"));
+            return;
+        }
+        if (data.has("type") && data.getString("type").equals("collectPerson")) {
+            blackhole.consume(data.getString("personId"));
+            return;
+        }
+        if ((data.has("playerId") || data.has("id")) && data.has("hasPerson")) {
+            // El manejador de carga volvía a parsear el mensaje entero
+            JSONObject again = new JSONObject(payload);
+            blackhole.consume(again.has("id") ? again.getString("id") : again.getString("playerId"));
+            blackhole.consume(again.get("hasPerson"));
+            return;
+        }
+        if (data.has("x")) {
+            blackhole.consume(data.getDouble("x"));
+        }
+        if (data.has("y")) {
+            blackhole.consume(data.getDouble("y"));
+        }
+        if (data.has("direction")) {
+            blackhole.consume(data.getString("direction"));
+        }
+    }
+
+    @Benchmark
+    public InboundMessageDecoder.Frame jacksonStreaming() throws Exception {
+        return decoder.decode(payload);
+    }
+}
@@ -0,0 +1,95 @@
+package juego.arsw.game;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import juego.arsw.model.EntityPerson;
+
+/**
+ * Consulta "quién está cerca" con el índice por celdas frente a recorrer todo el mapa.
+ * La densidad es fija (una persona cada cuatro tiles), así que al crecer el número de
+ * personas crece el mapa: la consulta por celdas debe quedarse plana y el recorrido
+ * completo crecer de forma lineal.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PersonGridBenchmark {
+    private static final int RADIUS = 4;
+
+    @Param({ "1000", "10000", "100000" })
+    private int persons;
+
+    private PersonGrid grid;
+    private Map<String, EntityPerson> map;
+    private int[] queryX;
+    private int[] queryY;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        int side = (int) Math.ceil(Math.sqrt(persons * 4.0));
+        SplittableRandom random = new SplittableRandom(42);
+        grid = new PersonGrid(4);
+        map = new ConcurrentHashMap<>();
+        for (int i = 0; i < persons; i++) {
+            EntityPerson person = new EntityPerson("p" + i, random.nextInt(side), random.nextInt(side), "tombo.png");
+            grid.add(person);
+            map.put(person.getId(), person);
+        }
+        queryX = new int[1024];
+        queryY = new int[1024];
+        for (int i = 0; i < queryX.length; i++) {
+            queryX[i] = random.nextInt(side);
+            queryY[i] = random.nextInt(side);
+        }
+    }
+
+    @Benchmark
+    public void gridQuery(Blackhole blackhole) {
+        int i = next++ & 1023;
+        grid.forEachWithin(queryX[i], queryY[i], RADIUS, blackhole::consume);
+    }
+
+    @Benchmark
+    public List<EntityPerson> fullScan() {
+        int i = next++ & 1023;
+        int x = queryX[i];
+        int y = queryY[i];
+        List<EntityPerson> result = new ArrayList<>();
+        for (EntityPerson person : map.values()) {
+            if (Math.abs(person.getX() - x) <= RADIUS && Math.abs(person.getY() - y) <= RADIUS) {
+                result.add(person);
+            }
+        }
+        return result;
+    }
+
+    @Benchmark
+    public void addAndRemove() {
+        int i = next++ & 1023;
+        EntityPerson person = new EntityPerson("bench", queryX[i], queryY[i], "tombo.png");
+        grid.add(person);
+        grid.remove("bench");
+    }
+}
@@ -0,0 +1,101 @@
+package juego.arsw.game;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import juego.arsw.model.User;
+
+/**
+ * Un tick simulado sobre todos los jugadores: cada bus avanza un paso y después se
+ * codifica el snapshot binario completo. Compara el mapa de {@link User} por placa de
+ * antes (con la búsqueda del índice por jugador) frente a los arrays de
+ * {@link PlayerStore}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlayerStoreBenchmark {
+    private static final String[] DIRECTIONS = { "up", "down", "left", "right" };
+
+    @Param({ "10000" })
+    private int players;
+
+    private Map<String, User> map;
+    private PlayerIndexAllocator mapIndexes;
+    private PlayerStore store;
+    private final BinaryPositionEncoder encoder = new BinaryPositionEncoder(1);
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        map = new HashMap<>();
+        mapIndexes = new PlayerIndexAllocator(1 << 16);
+        store = new PlayerStore(new PlayerIndexAllocator(1 << 16));
+        for (int i = 0; i < players; i++) {
+            String id = String.format("P%05d", i);
+            double x = random.nextInt(1000);
+            double y = random.nextInt(1000);
+            String direction = DIRECTIONS[random.nextInt(DIRECTIONS.length)];
+
+            map.put(id, new User(id, x, y, direction, false));
+            mapIndexes.acquire(id);
+
+            int slot = store.add(id, id);
+            store.setPosition(slot, (float) x, (float) y);
+            store.setDirection(slot, BinaryPositionEncoder.encodeDirection(direction));
+        }
+    }
+
+    @Benchmark
+    public byte[] userMapTick() {
+        for (User player : map.values()) {
+            switch (player.getDirection()) {
+                case "up" -> player.setY(player.getY() - 1);
+                case "down" -> player.setY(player.getY() + 1);
+                case "left" -> player.setX(player.getX() - 1);
+                default -> player.setX(player.getX() + 1);
+            }
+        }
+        encoder.begin(1, SnapshotTracker.FULL_SNAPSHOT);
+        map.forEach((id, player) -> encoder.addPlayer(mapIndexes.indexOf(id), player.getX(), player.getY(),
+                player.getDirection()));
+        return encoder.finish();
+    }
+
+    @Benchmark
+    public byte[] playerStoreTick() {
+        int size = store.size();
+        for (int i = 0; i < size; i++) {
+            int slot = store.slotAt(i);
+            switch (store.direction(slot)) {
+                case BinaryPositionEncoder.DIRECTION_UP -> store.setY(slot, store.y(slot) - 1);
+                case BinaryPositionEncoder.DIRECTION_DOWN -> store.setY(slot, store.y(slot) + 1);
+                case BinaryPositionEncoder.DIRECTION_LEFT -> store.setX(slot, store.x(slot) - 1);
+                default -> store.setX(slot, store.x(slot) + 1);
+            }
+        }
+        encoder.begin(1, SnapshotTracker.FULL_SNAPSHOT);
+        for (int i = 0; i < size; i++) {
+            int slot = store.slotAt(i);
+            encoder.addPlayer(slot, store.x(slot), store.y(slot), store.direction(slot));
+        }
+        return encoder.finish();
+    }
+}
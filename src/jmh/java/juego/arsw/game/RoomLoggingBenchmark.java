@@ -0,0 +1,126 @@
+package juego.arsw.game;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.logging.SimpleFormatter;
+import java.util.logging.StreamHandler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.socket.TextMessage;
+
+import juego.arsw.config.GameProperties;
+
+/**
+ * Tiempo de manejo en la sala de los mensajes que más escriben en el log: la actualización
+ * de carga y el cambio de estado de una persona, que difunden a toda la sala. El log va a
+ * un handler de java.util.logging que formatea de verdad y tira el resultado, como haría
+ * uno de consola sin el coste del terminal; {@code System.out} también se descarta.
+ *
+ * <p>Los eventos pasan por un {@link GameEventLog} asíncrono con la configuración por
+ * defecto, como en el servidor: con estos ritmos casi todos caen en el límite por segundo.
+ * Antes de este log, cada difusión escribía una línea INFO por destinatario.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoomLoggingBenchmark {
+
+    @Param({ "10", "100" })
+    private int sessions;
+
+    // Referencia fuerte: java.util.logging solo guarda los loggers con referencias débiles
+    private final Logger rootLogger = Logger.getLogger("");
+    private Handler[] originalHandlers;
+    private final Handler discard = new StreamHandler(OutputStream.nullOutputStream(), new SimpleFormatter());
+    private PrintStream originalOut;
+    private GameEventLog events;
+    private GameRoom room;
+    private BenchmarkSession mover;
+    private TextMessage[] cargo;
+    private final TextMessage personState = new TextMessage("{\"personId\":\"p2\",\"active\":true}");
+    private final TextMessage move = new TextMessage("{\"x\":120,\"y\":200,\"direction\":\"right\"}");
+    private int next;
+
+    @Setup
+    public void setUp() {
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        originalHandlers = rootLogger.getHandlers();
+        for (Handler handler : originalHandlers) {
+            rootLogger.removeHandler(handler);
+        }
+        rootLogger.addHandler(discard);
+        events = GameEventLog.start(new GameProperties.Logging());
+
+        GameProperties properties = new GameProperties();
+        properties.getTick().setRateHz(1);
+        room = new GameRoom("bench", properties, Runnable::run, Runnable::run);
+        for (int i = 0; i < sessions; i++) {
+            BenchmarkSession session = new BenchmarkSession("bench-" + i, null);
+            room.join(session);
+            room.handleTextMessage(session, new TextMessage("{\"name\":\"Bus " + i + "\",\"x\":" + i + ",\"y\":0}"));
+            if (mover == null) {
+                mover = session;
+            }
+        }
+        room.getTickLoop().stop();
+        String plate = null;
+        for (Map.Entry<String, SessionOutbox> entry : room.getOutboxes().entrySet()) {
+            if (entry.getValue().getSession() == mover) {
+                plate = entry.getKey();
+            }
+        }
+        cargo = new TextMessage[] {
+                new TextMessage("{\"id\":\"" + plate + "\",\"hasPerson\":\"1\"}"),
+                new TextMessage("{\"id\":\"" + plate + "\",\"hasPerson\":\"0\"}") };
+    }
+
+    @TearDown
+    public void tearDown() {
+        room.close();
+        events.close();
+        rootLogger.removeHandler(discard);
+        for (Handler handler : originalHandlers) {
+            rootLogger.addHandler(handler);
+        }
+        System.setOut(originalOut);
+    }
+
+    @Benchmark
+    public int cargoUpdate() {
+        room.handleTextMessage(mover, cargo[next++ & 1]);
+        return room.getPlayerCount();
+    }
+
+    @Benchmark
+    public int personState() {
+        room.handleTextMessage(mover, personState);
+        return room.getPlayerCount();
+    }
+
+    /** Control: un movimiento no escribe nada en el log. */
+    @Benchmark
+    public int move() {
+        room.handleTextMessage(mover, move);
+        return room.getPlayerCount();
+    }
+}
@@ -0,0 +1,87 @@
+package juego.arsw.security;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.jsonwebtoken.Claims;
+
+/**
+ * Lo que cuesta un login aparte de comprobar la contraseña: firmar el token, verificarlo
+ * y la cuenta de intentos fallidos. Los fallos se reparten entre {@code users} usuarios
+ * distintos, como un ataque de fuerza bruta contra muchas cuentas, y se miden también con
+ * varios hilos para ver la contención del mapa compartido.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoginBenchmark {
+
+    @Param({ "1000", "100000" })
+    private int users;
+
+    private final JwtTokens tokens = new JwtTokens();
+    private final LoginAttempts attempts = new LoginAttempts();
+    private String token;
+    private String[] names;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Setup
+    public void setUp() {
+        token = tokens.issue("andres", "user");
+        names = new String[users];
+        for (int i = 0; i < users; i++) {
+            names[i] = "user-" + i;
+        }
+    }
+
+    private String nextName(Cursor cursor) {
+        cursor.next = (cursor.next + 7919) % users;
+        return names[cursor.next];
+    }
+
+    @Benchmark
+    public String signToken() {
+        return tokens.issue("andres", "user");
+    }
+
+    @Benchmark
+    public Claims parseToken() {
+        return tokens.parse(token);
+    }
+
+    /** Un login fallido: mirar si está bloqueado y apuntar el fallo. */
+    @Benchmark
+    public boolean failedLogin(Cursor cursor) {
+        String name = nextName(cursor);
+        boolean blocked = attempts.isBlocked(name);
+        if (!blocked) {
+            attempts.registerFailure(name);
+        }
+        return blocked;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean failedLoginContended(Cursor cursor) {
+        return failedLogin(cursor);
+    }
+}
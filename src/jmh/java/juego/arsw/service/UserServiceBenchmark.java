@@ -0,0 +1,130 @@
+package juego.arsw.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import juego.arsw.model.User;
+
+/**
+ * Búsqueda, upsert y listado de usuarios con el {@link UserService} indexado frente a la
+ * lista con recorridos lineales que había antes ({@link ListUserService}, copiada aquí
+ * tal cual). Con 100k usuarios la lista debe crecer de forma lineal y el mapa quedarse
+ * plano.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserServiceBenchmark {
+
+    @Param({ "1000", "100000" })
+    private int users;
+
+    private UserService indexed;
+    private ListUserService list;
+    private String[] ids;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        indexed = new UserService();
+        list = new ListUserService();
+        ids = new String[users];
+        for (int i = 0; i < users; i++) {
+            ids[i] = "user-" + i;
+            indexed.createUser(new User(ids[i]));
+            list.createUser(new User(ids[i]));
+        }
+    }
+
+    private String nextId() {
+        next = (next + 7919) % users;
+        return ids[next];
+    }
+
+    @Benchmark
+    public Optional<User> indexedLookup() {
+        return indexed.getUserById(nextId());
+    }
+
+    @Benchmark
+    public Optional<User> listLookup() {
+        return list.getUserById(nextId());
+    }
+
+    @Benchmark
+    public User indexedUpsert() {
+        return indexed.processUser(new User(nextId()));
+    }
+
+    @Benchmark
+    public User listUpsert() {
+        return list.processUser(new User(nextId()));
+    }
+
+    /** Listados sin cambios entre medias, como varios clientes pidiendo la lista. */
+    @Benchmark
+    public List<User> indexedGetAll() {
+        return indexed.getAllUsers();
+    }
+
+    @Benchmark
+    public List<User> listGetAll() {
+        return list.getAllUsers();
+    }
+
+    /** El servicio de antes, con una lista y recorridos lineales. */
+    static class ListUserService {
+        private final List<User> users = new ArrayList<>();
+
+        User createUser(User user) {
+            users.add(user);
+            return user;
+        }
+
+        Optional<User> getUserById(String id) {
+            return users.stream()
+                    .filter(user -> user.getId().equals(id))
+                    .findFirst();
+        }
+
+        List<User> getAllUsers() {
+            return new ArrayList<>(users);
+        }
+
+        User updateUser(String id, User updatedUser) {
+            for (int i = 0; i < users.size(); i++) {
+                User user = users.get(i);
+                if (user.getId().equals(id)) {
+                    updatedUser.setId(id);
+                    users.set(i, updatedUser);
+                    return updatedUser;
+                }
+            }
+            return null;
+        }
+
+        User processUser(User user) {
+            if (getUserById(user.getId()).isPresent()) {
+                return updateUser(user.getId(), user);
+            }
+            return createUser(user);
+        }
+    }
+}
@@ -0,0 +1,726 @@
+package juego.arsw.config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Ajustes del servidor de juego, enlazados desde las propiedades {@code game.*}.
+ */
+@ConfigurationProperties(prefix = "game")
+public class GameProperties {
+
+    private final Tick tick = new Tick();
+    private final Snapshot snapshot = new Snapshot();
+    private final Protocol protocol = new Protocol();
+    private final Outbound outbound = new Outbound();
+    private final Interest interest = new Interest();
+    private final Persons persons = new Persons();
+    private final Rooms rooms = new Rooms();
+    private final Threads threads = new Threads();
+    private final Persistence persistence = new Persistence();
+    private final State state = new State();
+    private final Journal journal = new Journal();
+    private final Recording recording = new Recording();
+    private final Logging logging = new Logging();
+    private final Admin admin = new Admin();
+    private final Readiness readiness = new Readiness();
+    private final Input input = new Input();
+
+    public Tick getTick() {
+        return tick;
+    }
+
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public Protocol getProtocol() {
+        return protocol;
+    }
+
+    public Outbound getOutbound() {
+        return outbound;
+    }
+
+    public Interest getInterest() {
+        return interest;
+    }
+
+    public Persons getPersons() {
+        return persons;
+    }
+
+    public Rooms getRooms() {
+        return rooms;
+    }
+
+    public Threads getThreads() {
+        return threads;
+    }
+
+    public Persistence getPersistence() {
+        return persistence;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public Journal getJournal() {
+        return journal;
+    }
+
+    public Recording getRecording() {
+        return recording;
+    }
+
+    public Logging getLogging() {
+        return logging;
+    }
+
+    public Admin getAdmin() {
+        return admin;
+    }
+
+    public Readiness getReadiness() {
+        return readiness;
+    }
+
+    public Input getInput() {
+        return input;
+    }
+
+    public static class Tick {
+
+        /** Frecuencia del tick autoritativo del servidor, en ticks por segundo. */
+        private int rateHz = 30;
+
+        public int getRateHz() {
+            return rateHz;
+        }
+
+        public void setRateHz(int rateHz) {
+            this.rateHz = rateHz;
+        }
+    }
+
+    public static class Snapshot {
+
+        /** Envía solo los jugadores que cambiaron desde el último snapshot confirmado por cada cliente. */
+        private boolean deltaEnabled = false;
+
+        /** Ticks de atraso a partir de los cuales un cliente vuelve a recibir el snapshot completo. */
+        private int maxDeltaTicks = 90;
+
+        public boolean isDeltaEnabled() {
+            return deltaEnabled;
+        }
+
+        public void setDeltaEnabled(boolean deltaEnabled) {
+            this.deltaEnabled = deltaEnabled;
+        }
+
+        public int getMaxDeltaTicks() {
+            return maxDeltaTicks;
+        }
+
+        public void setMaxDeltaTicks(int maxDeltaTicks) {
+            this.maxDeltaTicks = maxDeltaTicks;
+        }
+    }
+
+    public static class Protocol {
+
+        /** Ofrece el subprotocolo binario de posiciones en el handshake de /game. */
+        private boolean binaryEnabled = true;
+
+        /** Unidades cuantizadas por unidad de posición en el frame binario. */
+        private int positionScale = 8;
+
+        public boolean isBinaryEnabled() {
+            return binaryEnabled;
+        }
+
+        public void setBinaryEnabled(boolean binaryEnabled) {
+            this.binaryEnabled = binaryEnabled;
+        }
+
+        public int getPositionScale() {
+            return positionScale;
+        }
+
+        public void setPositionScale(int positionScale) {
+            this.positionScale = positionScale;
+        }
+    }
+
+    public static class Outbound {
+
+        /** Tiempo máximo que puede tardar un envío antes de desconectar la sesión. */
+        private int sendTimeLimitMillis = 5000;
+
+        /** Bytes encolados por sesión a partir de los cuales se descartan posiciones y luego se desconecta. */
+        private int bufferSizeLimit = 512 * 1024;
+
+        public int getSendTimeLimitMillis() {
+            return sendTimeLimitMillis;
+        }
+
+        public void setSendTimeLimitMillis(int sendTimeLimitMillis) {
+            this.sendTimeLimitMillis = sendTimeLimitMillis;
+        }
+
+        public int getBufferSizeLimit() {
+            return bufferSizeLimit;
+        }
+
+        public void setBufferSizeLimit(int bufferSizeLimit) {
+            this.bufferSizeLimit = bufferSizeLimit;
+        }
+    }
+
+    public static class Interest {
+
+        /** Cada sesión recibe solo los jugadores y personas cercanos a su bus. */
+        private boolean enabled = false;
+
+        /** Mapa de tiles del que salen las celdas. */
+        private String map = "static/maps/map01.txt";
+
+        /** Tamaño de un tile en las unidades de posición de los jugadores (píxeles del frontend). */
+        private double tileSize = 78;
+
+        /** Radio de la vista, en tiles alrededor del tile del bus. */
+        private int radiusTiles = 4;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getMap() {
+            return map;
+        }
+
+        public void setMap(String map) {
+            this.map = map;
+        }
+
+        public double getTileSize() {
+            return tileSize;
+        }
+
+        public void setTileSize(double tileSize) {
+            this.tileSize = tileSize;
+        }
+
+        public int getRadiusTiles() {
+            return radiusTiles;
+        }
+
+        public void setRadiusTiles(int radiusTiles) {
+            this.radiusTiles = radiusTiles;
+        }
+    }
+
+    public static class Persons {
+
+        /** Lado de cada celda del índice espacial de personas, en tiles. */
+        private int gridCellTiles = 4;
+
+        /**
+         * Distancia máxima, en tiles por eje, entre el tile del bus y la persona que recoge.
+         * La posición del bus se pasa a tiles con {@code game.interest.tile-size}.
+         */
+        private int collectRadiusTiles = 1;
+
+        public int getGridCellTiles() {
+            return gridCellTiles;
+        }
+
+        public void setGridCellTiles(int gridCellTiles) {
+            this.gridCellTiles = gridCellTiles;
+        }
+
+        public int getCollectRadiusTiles() {
+            return collectRadiusTiles;
+        }
+
+        public void setCollectRadiusTiles(int collectRadiusTiles) {
+            this.collectRadiusTiles = collectRadiusTiles;
+        }
+    }
+
+    public static class Rooms {
+
+        /** Salas abiertas a la vez como máximo; una sala nueva por encima se rechaza. */
+        private int maxRooms = 1000;
+
+        /** Hilos que comparten los bucles de eventos de todas las salas; por defecto uno por núcleo. */
+        private int loopThreads = Runtime.getRuntime().availableProcessors();
+
+        /** Comandos que ejecuta una sala seguidos antes de ceder su hilo a otra. */
+        private int loopBatchSize = 256;
+
+        public int getMaxRooms() {
+            return maxRooms;
+        }
+
+        public void setMaxRooms(int maxRooms) {
+            this.maxRooms = maxRooms;
+        }
+
+        public int getLoopThreads() {
+            return loopThreads;
+        }
+
+        public void setLoopThreads(int loopThreads) {
+            this.loopThreads = loopThreads;
+        }
+
+        public int getLoopBatchSize() {
+            return loopBatchSize;
+        }
+
+        public void setLoopBatchSize(int loopBatchSize) {
+            this.loopBatchSize = loopBatchSize;
+        }
+    }
+
+    public static class Threads {
+
+        /**
+         * Envíos por sesión en hilos virtuales. Va junto con
+         * {@code spring.threads.virtual.enabled}, que pasa a hilos virtuales el manejo de
+         * los mensajes entrantes en Tomcat.
+         */
+        private boolean virtual = false;
+
+        public boolean isVirtual() {
+            return virtual;
+        }
+
+        public void setVirtual(boolean virtual) {
+            this.virtual = virtual;
+        }
+    }
+
+    public static class Persistence {
+
+        /** Guarda los usuarios en MongoDB; sin esto el estado solo vive en memoria. */
+        private boolean enabled = false;
+
+        /** Cada cuánto se vuelcan los cambios pendientes a la base de datos. */
+        private long flushIntervalMillis = 1000;
+
+        /** Usuarios pendientes que adelantan el volcado sin esperar al intervalo. */
+        private int flushThreshold = 500;
+
+        /** Operaciones como máximo en cada escritura masiva. */
+        private int maxBatchSize = 1000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getFlushIntervalMillis() {
+            return flushIntervalMillis;
+        }
+
+        public void setFlushIntervalMillis(long flushIntervalMillis) {
+            this.flushIntervalMillis = flushIntervalMillis;
+        }
+
+        public int getFlushThreshold() {
+            return flushThreshold;
+        }
+
+        public void setFlushThreshold(int flushThreshold) {
+            this.flushThreshold = flushThreshold;
+        }
+
+        public int getMaxBatchSize() {
+            return maxBatchSize;
+        }
+
+        public void setMaxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+        }
+    }
+
+    public static class State {
+
+        /** Guarda snapshots del estado de las salas y los restaura al arrancar. */
+        private boolean enabled = false;
+
+        /** Fichero mapeado en memoria con los dos últimos snapshots. */
+        private String file = "data/game-state.bin";
+
+        /** Cada cuánto se guarda un snapshot. */
+        private long intervalMillis = 5000;
+
+        /** Bytes por snapshot como máximo; el fichero ocupa el doble. */
+        private int slotCapacityBytes = 16 * 1024 * 1024;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getFile() {
+            return file;
+        }
+
+        public void setFile(String file) {
+            this.file = file;
+        }
+
+        public long getIntervalMillis() {
+            return intervalMillis;
+        }
+
+        public void setIntervalMillis(long intervalMillis) {
+            this.intervalMillis = intervalMillis;
+        }
+
+        public int getSlotCapacityBytes() {
+            return slotCapacityBytes;
+        }
+
+        public void setSlotCapacityBytes(int slotCapacityBytes) {
+            this.slotCapacityBytes = slotCapacityBytes;
+        }
+    }
+
+    public static class Journal {
+
+        /** Anota cada comando aceptado en un diario de solo añadir. */
+        private boolean enabled = false;
+
+        /** Directorio de los segmentos del diario. */
+        private String directory = "data/journal";
+
+        /** Tamaño a partir del cual se empieza un segmento nuevo. */
+        private long segmentBytes = 64L * 1024 * 1024;
+
+        /**
+         * Segmentos que se conservan; los más viejos se borran (0 los guarda todos). Cada
+         * segmento empieza con un checkpoint del estado, así que borrar no pierde salas.
+         */
+        private int maxSegments = 16;
+
+        /** Cada cuánto se escribe lo encolado y se hace fsync; es lo que puede perderse en un corte. */
+        private long syncIntervalMillis = 20;
+
+        /** Entradas encoladas como máximo antes de descartar las nuevas. */
+        private int maxPendingEntries = 100_000;
+
+        /** Reconstruye las salas reproduciendo el diario al arrancar. */
+        private boolean replayOnStartup = false;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+
+        public long getSegmentBytes() {
+            return segmentBytes;
+        }
+
+        public void setSegmentBytes(long segmentBytes) {
+            this.segmentBytes = segmentBytes;
+        }
+
+        public int getMaxSegments() {
+            return maxSegments;
+        }
+
+        public void setMaxSegments(int maxSegments) {
+            this.maxSegments = maxSegments;
+        }
+
+        public long getSyncIntervalMillis() {
+            return syncIntervalMillis;
+        }
+
+        public void setSyncIntervalMillis(long syncIntervalMillis) {
+            this.syncIntervalMillis = syncIntervalMillis;
+        }
+
+        public int getMaxPendingEntries() {
+            return maxPendingEntries;
+        }
+
+        public void setMaxPendingEntries(int maxPendingEntries) {
+            this.maxPendingEntries = maxPendingEntries;
+        }
+
+        public boolean isReplayOnStartup() {
+            return replayOnStartup;
+        }
+
+        public void setReplayOnStartup(boolean replayOnStartup) {
+            this.replayOnStartup = replayOnStartup;
+        }
+    }
+
+    public static class Recording {
+
+        /** Graba los frames entrantes de /game para reproducirlos con el generador de carga. */
+        private boolean enabled = false;
+
+        /** Directorio donde se crea un fichero por arranque. */
+        private String directory = "data/recordings";
+
+        /** Cada cuánto se escribe lo encolado. */
+        private long flushIntervalMillis = 200;
+
+        /** Eventos encolados como máximo antes de descartar los nuevos. */
+        private int maxPendingEvents = 100_000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+
+        public long getFlushIntervalMillis() {
+            return flushIntervalMillis;
+        }
+
+        public void setFlushIntervalMillis(long flushIntervalMillis) {
+            this.flushIntervalMillis = flushIntervalMillis;
+        }
+
+        public int getMaxPendingEvents() {
+            return maxPendingEvents;
+        }
+
+        public void setMaxPendingEvents(int maxPendingEvents) {
+            this.maxPendingEvents = maxPendingEvents;
+        }
+    }
+
+    public static class Logging {
+
+        /** Escribe los eventos de juego en un hilo propio; si no, en el hilo que los genera. */
+        private boolean async = true;
+
+        /** Cada cuánto se escriben los eventos encolados. */
+        private long flushIntervalMillis = 50;
+
+        /** Eventos encolados como máximo antes de descartar los nuevos. */
+        private int maxPendingEvents = 10_000;
+
+        /** Eventos por segundo como máximo en cada categoría; el resto se cuenta y se omite. */
+        private int maxEventsPerSecond = 50;
+
+        /** Muestreo por categoría ({@code room}, {@code cargo}...): escribe uno de cada N. */
+        private Map<String, Integer> sampleEvery = new HashMap<>();
+
+        public boolean isAsync() {
+            return async;
+        }
+
+        public void setAsync(boolean async) {
+            this.async = async;
+        }
+
+        public long getFlushIntervalMillis() {
+            return flushIntervalMillis;
+        }
+
+        public void setFlushIntervalMillis(long flushIntervalMillis) {
+            this.flushIntervalMillis = flushIntervalMillis;
+        }
+
+        public int getMaxPendingEvents() {
+            return maxPendingEvents;
+        }
+
+        public void setMaxPendingEvents(int maxPendingEvents) {
+            this.maxPendingEvents = maxPendingEvents;
+        }
+
+        public int getMaxEventsPerSecond() {
+            return maxEventsPerSecond;
+        }
+
+        public void setMaxEventsPerSecond(int maxEventsPerSecond) {
+            this.maxEventsPerSecond = maxEventsPerSecond;
+        }
+
+        public Map<String, Integer> getSampleEvery() {
+            return sampleEvery;
+        }
+
+        public void setSampleEvery(Map<String, Integer> sampleEvery) {
+            this.sampleEvery = sampleEvery;
+        }
+    }
+
+    public static class Admin {
+
+        /** Tiempo mínimo entre dos envíos de altas, bajas y cambios de nombre a los admins. */
+        private long debounceMillis = 250;
+
+        public long getDebounceMillis() {
+            return debounceMillis;
+        }
+
+        public void setDebounceMillis(long debounceMillis) {
+            this.debounceMillis = debounceMillis;
+        }
+    }
+
+    public static class Readiness {
+
+        /** Cada cuánto se recalculan las señales de saturación (0 solo evalúa a mano). */
+        private long intervalMillis = 1000;
+
+        /** Proporción de ticks que se pasan de su periodo a partir de la que el nodo está saturado. */
+        private double maxTickOverrunRatio = 0.2;
+
+        /** Mensajes pendientes de enviar por sesión, de media, a partir de los que el nodo está saturado. */
+        private double maxAverageQueueDepth = 32;
+
+        /**
+         * Sesiones abiertas que admite el nodo; al llegar deja de aceptar jugadores nuevos.
+         * Se comprueba en cada conexión, no solo en cada evaluación.
+         */
+        private int maxSessions = 5000;
+
+        /** Fracción del heap ocupada tras el GC a partir de la que el nodo está saturado. */
+        private double maxHeapUsedRatio = 0.9;
+
+        public long getIntervalMillis() {
+            return intervalMillis;
+        }
+
+        public void setIntervalMillis(long intervalMillis) {
+            this.intervalMillis = intervalMillis;
+        }
+
+        public double getMaxTickOverrunRatio() {
+            return maxTickOverrunRatio;
+        }
+
+        public void setMaxTickOverrunRatio(double maxTickOverrunRatio) {
+            this.maxTickOverrunRatio = maxTickOverrunRatio;
+        }
+
+        public double getMaxAverageQueueDepth() {
+            return maxAverageQueueDepth;
+        }
+
+        public void setMaxAverageQueueDepth(double maxAverageQueueDepth) {
+            this.maxAverageQueueDepth = maxAverageQueueDepth;
+        }
+
+        public int getMaxSessions() {
+            return maxSessions;
+        }
+
+        public void setMaxSessions(int maxSessions) {
+            this.maxSessions = maxSessions;
+        }
+
+        public double getMaxHeapUsedRatio() {
+            return maxHeapUsedRatio;
+        }
+
+        public void setMaxHeapUsedRatio(double maxHeapUsedRatio) {
+            this.maxHeapUsedRatio = maxHeapUsedRatio;
+        }
+    }
+
+    public static class Input {
+
+        /** Cambios de carga ({@code hasPerson}); los de más se agrupan y se aplica la última en el siguiente tick. */
+        private final Limit cargoUpdate = new Limit(10, 10);
+
+        /** Recogidas de personas; las de más se descartan. */
+        private final Limit collectPerson = new Limit(10, 10);
+
+        /** Apariciones y desapariciones de personas; las de más se descartan. */
+        private final Limit personState = new Limit(10, 10);
+
+        public Limit getCargoUpdate() {
+            return cargoUpdate;
+        }
+
+        public Limit getCollectPerson() {
+            return collectPerson;
+        }
+
+        public Limit getPersonState() {
+            return personState;
+        }
+
+        public static class Limit {
+
+            /** Mensajes por segundo sostenidos por sesión (0 sin límite). */
+            private double perSecond;
+
+            /** Mensajes seguidos que se admiten antes de aplicar el ritmo sostenido. */
+            private int burst;
+
+            public Limit() {
+            }
+
+            Limit(double perSecond, int burst) {
+                this.perSecond = perSecond;
+                this.burst = burst;
+            }
+
+            public double getPerSecond() {
+                return perSecond;
+            }
+
+            public void setPerSecond(double perSecond) {
+                this.perSecond = perSecond;
+            }
+
+            public int getBurst() {
+                return burst;
+            }
+
+            public void setBurst(int burst) {
+                this.burst = burst;
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package juego.arsw.config;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import juego.arsw.controller.UserRestController;
+import juego.arsw.game.GameStateSnapshotter;
+import juego.arsw.game.SnapshotFile;
+
+/**
+ * Snapshots del estado de las salas, solo con {@code game.state.enabled=true}. El último
+ * snapshot se restaura al crear el bean, antes de que el servidor acepte conexiones.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "game.state", name = "enabled", havingValue = "true")
+public class GameStateConfig {
+
+    @Bean(destroyMethod = "close")
+    public SnapshotFile gameStateFile(GameProperties gameProperties) throws IOException {
+        GameProperties.State state = gameProperties.getState();
+        return SnapshotFile.open(Path.of(state.getFile()), state.getSlotCapacityBytes());
+    }
+
+    @Bean(destroyMethod = "close")
+    public GameStateSnapshotter gameStateSnapshotter(SnapshotFile gameStateFile, UserRestController userWebSocketHandler,
+            GameProperties gameProperties) {
+        userWebSocketHandler.restore(GameStateSnapshotter.restore(gameStateFile));
+        GameStateSnapshotter snapshotter = new GameStateSnapshotter(gameStateFile, userWebSocketHandler::captureState,
+                gameProperties.getState().getIntervalMillis());
+        snapshotter.start();
+        return snapshotter;
+    }
+}
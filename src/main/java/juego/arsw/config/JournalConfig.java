@@ -0,0 +1,36 @@
+package juego.arsw.config;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import juego.arsw.controller.UserRestController;
+import juego.arsw.game.GameJournal;
+import juego.arsw.game.JournalReplayer;
+
+/**
+ * Diario de comandos, solo con {@code game.journal.enabled=true}. Con
+ * {@code game.journal.replay-on-startup=true} las salas se reconstruyen reproduciéndolo
+ * antes de abrirlo para seguir escribiendo; no conviene combinarlo con la restauración de
+ * {@code game.state}, porque la última en restaurar una sala gana.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "game.journal", name = "enabled", havingValue = "true")
+public class JournalConfig {
+
+    @Bean(destroyMethod = "close")
+    public GameJournal gameJournal(GameProperties gameProperties, UserRestController userWebSocketHandler)
+            throws IOException {
+        GameProperties.Journal properties = gameProperties.getJournal();
+        Path directory = Path.of(properties.getDirectory());
+        if (properties.isReplayOnStartup()) {
+            userWebSocketHandler.restore(JournalReplayer.replay(directory));
+        }
+        GameJournal journal = GameJournal.open(directory, properties);
+        userWebSocketHandler.setJournal(journal);
+        return journal;
+    }
+}
@@ -0,0 +1,19 @@
+package juego.arsw.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import juego.arsw.game.GameEventLog;
+
+/**
+ * Log de eventos de juego asíncrono, con el muestreo y los límites de {@code game.logging}.
+ * Al parar, escribe lo pendiente antes de que se cierre el logging.
+ */
+@Configuration
+public class LoggingConfig {
+
+    @Bean(destroyMethod = "close")
+    public GameEventLog gameEventLog(GameProperties gameProperties) {
+        return GameEventLog.start(gameProperties.getLogging());
+    }
+}
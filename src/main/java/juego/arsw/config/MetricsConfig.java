@@ -0,0 +1,177 @@
+package juego.arsw.config;
+
+import java.util.function.ToIntFunction;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import juego.arsw.controller.UserRestController;
+import juego.arsw.game.GameEventLog;
+import juego.arsw.game.GameJournal;
+import juego.arsw.game.GameMetrics;
+import juego.arsw.game.GameRoom;
+import juego.arsw.game.GameStateSnapshotter;
+import juego.arsw.game.SaturationMonitor;
+import juego.arsw.game.SessionOutbox;
+import juego.arsw.game.TrafficRecorder;
+import juego.arsw.persistence.UserWriteBehind;
+
+/**
+ * Métricas del juego en {@code /actuator/metrics}: los medidores de {@link GameMetrics}
+ * que registran las salas, gauges sobre las sesiones y colas de salida vivas, y los
+ * contadores de los escritores en segundo plano que estén activos.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public GameMetrics gameMetrics(MeterRegistry registry, UserRestController userWebSocketHandler) {
+        GameMetrics metrics = new GameMetrics(registry);
+        userWebSocketHandler.setMetrics(metrics);
+        return metrics;
+    }
+
+    /** Se calculan al leerlas, recorriendo las salas abiertas; nada de esto toca el camino de los mensajes. */
+    @Bean
+    public MeterBinder gameRoomMetrics(UserRestController userWebSocketHandler) {
+        return registry -> {
+            Gauge.builder("game.rooms", userWebSocketHandler, handler -> handler.getRooms().size())
+                    .description("Open game rooms")
+                    .register(registry);
+            Gauge.builder("game.sessions.open", userWebSocketHandler, UserRestController::getSessionCount)
+                    .description("Open /game WebSocket sessions")
+                    .register(registry);
+            Gauge.builder("game.players", userWebSocketHandler,
+                    handler -> sumRooms(handler, GameRoom::getPlayerCount))
+                    .description("Buses in play across all rooms")
+                    .register(registry);
+            Gauge.builder("game.admins", userWebSocketHandler,
+                    handler -> sumRooms(handler, GameRoom::getAdminCount))
+                    .description("Admin sessions across all rooms")
+                    .register(registry);
+            Gauge.builder("game.outbound.queue.depth", userWebSocketHandler,
+                    handler -> sumOutboxes(handler, SessionOutbox::getQueueDepth))
+                    .description("Messages waiting in the per-session outbound queues")
+                    .register(registry);
+            Gauge.builder("game.outbound.queue.max", userWebSocketHandler, MetricsConfig::maxQueueDepth)
+                    .description("Deepest per-session outbound queue")
+                    .register(registry);
+            Gauge.builder("game.outbound.buffered", userWebSocketHandler,
+                    handler -> sumOutboxes(handler, SessionOutbox::getBufferedBytes))
+                    .description("Bytes waiting in the per-session outbound queues")
+                    .baseUnit("bytes")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder backgroundWriterMetrics(ObjectProvider<UserWriteBehind> writeBehind,
+            ObjectProvider<GameStateSnapshotter> snapshotter, ObjectProvider<GameJournal> journal,
+            ObjectProvider<TrafficRecorder> recorder, ObjectProvider<GameEventLog> events,
+            ObjectProvider<SaturationMonitor> saturation) {
+        return registry -> {
+            writeBehind.ifAvailable(writer -> bindWriteBehind(registry, writer));
+            snapshotter.ifAvailable(snapshots -> bindSnapshotter(registry, snapshots));
+            journal.ifAvailable(log -> bindJournal(registry, log));
+            recorder.ifAvailable(traffic -> bindRecorder(registry, traffic));
+            events.ifAvailable(log -> bindEventLog(registry, log));
+            saturation.ifAvailable(monitor -> Gauge.builder("game.ready", monitor, m -> m.isReady() ? 1 : 0)
+                    .description("1 while the node accepts new players, 0 while it is saturated")
+                    .register(registry));
+        };
+    }
+
+    private static void bindWriteBehind(MeterRegistry registry, UserWriteBehind writer) {
+        Gauge.builder("game.persistence.pending", writer, UserWriteBehind::getPendingCount)
+                .description("User changes waiting to be flushed to MongoDB")
+                .register(registry);
+        FunctionCounter.builder("game.persistence.flushes", writer, w -> w.getStats().flushes())
+                .register(registry);
+        FunctionCounter.builder("game.persistence.flushes.failed", writer, w -> w.getStats().failedFlushes())
+                .register(registry);
+        Gauge.builder("game.persistence.flush.max", writer, w -> w.getStats().maxFlushMicros())
+                .baseUnit("microseconds")
+                .register(registry);
+    }
+
+    private static void bindSnapshotter(MeterRegistry registry, GameStateSnapshotter snapshotter) {
+        FunctionCounter.builder("game.state.snapshots", snapshotter, GameStateSnapshotter::getSnapshotCount)
+                .register(registry);
+        FunctionCounter.builder("game.state.snapshots.failed", snapshotter, GameStateSnapshotter::getFailedSnapshots)
+                .register(registry);
+        Gauge.builder("game.state.snapshot.last", snapshotter, GameStateSnapshotter::getLastMicros)
+                .baseUnit("microseconds")
+                .register(registry);
+        Gauge.builder("game.state.snapshot.bytes", snapshotter, GameStateSnapshotter::getLastBytes)
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    private static void bindJournal(MeterRegistry registry, GameJournal journal) {
+        Gauge.builder("game.journal.pending", journal, j -> j.getStats().pending())
+                .description("Journal entries waiting for the next batch")
+                .register(registry);
+        FunctionCounter.builder("game.journal.written", journal, j -> j.getStats().written())
+                .register(registry);
+        FunctionCounter.builder("game.journal.dropped", journal, j -> j.getStats().dropped())
+                .register(registry);
+        FunctionCounter.builder("game.journal.syncs.failed", journal, j -> j.getStats().failedSyncs())
+                .register(registry);
+        Gauge.builder("game.journal.sync.max", journal, j -> j.getStats().maxSyncMicros())
+                .baseUnit("microseconds")
+                .register(registry);
+    }
+
+    private static void bindRecorder(MeterRegistry registry, TrafficRecorder recorder) {
+        FunctionCounter.builder("game.recording.events", recorder, TrafficRecorder::getRecordedCount)
+                .register(registry);
+        FunctionCounter.builder("game.recording.dropped", recorder, TrafficRecorder::getDroppedCount)
+                .register(registry);
+    }
+
+    private static void bindEventLog(MeterRegistry registry, GameEventLog events) {
+        Gauge.builder("game.events.pending", events, GameEventLog::getPendingCount)
+                .description("Game events waiting to be written to the log")
+                .register(registry);
+        FunctionCounter.builder("game.events.written", events, GameEventLog::getWrittenCount)
+                .register(registry);
+        FunctionCounter.builder("game.events.suppressed", events, GameEventLog::getSuppressedCount)
+                .description("Game events skipped by the per-category rate limit")
+                .register(registry);
+        FunctionCounter.builder("game.events.dropped", events, GameEventLog::getDroppedCount)
+                .register(registry);
+    }
+
+    private static double sumRooms(UserRestController handler, ToIntFunction<GameRoom> value) {
+        long sum = 0;
+        for (GameRoom room : handler.getRooms().values()) {
+            sum += value.applyAsInt(room);
+        }
+        return sum;
+    }
+
+    private static double sumOutboxes(UserRestController handler, ToIntFunction<SessionOutbox> value) {
+        long sum = 0;
+        for (GameRoom room : handler.getRooms().values()) {
+            for (SessionOutbox outbox : room.getOutboxes().values()) {
+                sum += value.applyAsInt(outbox);
+            }
+        }
+        return sum;
+    }
+
+    private static double maxQueueDepth(UserRestController handler) {
+        int max = 0;
+        for (GameRoom room : handler.getRooms().values()) {
+            for (SessionOutbox outbox : room.getOutboxes().values()) {
+                max = Math.max(max, outbox.getQueueDepth());
+            }
+        }
+        return max;
+    }
+}
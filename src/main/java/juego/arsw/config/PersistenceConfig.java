@@ -0,0 +1,29 @@
+package juego.arsw.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import juego.arsw.persistence.MongoUserBulkWriter;
+import juego.arsw.persistence.UserBulkWriter;
+import juego.arsw.persistence.UserWriteBehind;
+
+/**
+ * Persistencia de usuarios en MongoDB, solo con {@code game.persistence.enabled=true}.
+ * Sin ella {@link juego.arsw.service.UserService} trabaja solo en memoria, como antes.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "game.persistence", name = "enabled", havingValue = "true")
+public class PersistenceConfig {
+
+    @Bean
+    public UserBulkWriter userBulkWriter(MongoTemplate mongoTemplate) {
+        return new MongoUserBulkWriter(mongoTemplate);
+    }
+
+    @Bean(destroyMethod = "close")
+    public UserWriteBehind userWriteBehind(UserBulkWriter userBulkWriter, GameProperties gameProperties) {
+        return new UserWriteBehind(userBulkWriter, gameProperties.getPersistence());
+    }
+}
@@ -0,0 +1,33 @@
+package juego.arsw.config;
+
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import juego.arsw.controller.UserRestController;
+import juego.arsw.game.SaturationMonitor;
+
+/**
+ * Readiness del nodo según su saturación ({@code game.readiness}). Cuando se satura deja
+ * de aceptar sesiones nuevas, {@code /health/ready} responde 503 y la readiness de Spring
+ * ({@code /actuator/health/readiness}) pasa a {@code REFUSING_TRAFFIC}.
+ */
+@Configuration
+public class ReadinessConfig {
+
+    @Bean(destroyMethod = "close")
+    public SaturationMonitor saturationMonitor(GameProperties gameProperties, UserRestController userWebSocketHandler,
+            ApplicationEventPublisher publisher) {
+        SaturationMonitor monitor = new SaturationMonitor(gameProperties.getReadiness(),
+                () -> new SaturationMonitor.Load(userWebSocketHandler.getTickCount(),
+                        userWebSocketHandler.getLateTickCount(), userWebSocketHandler.getQueuedMessageCount(),
+                        userWebSocketHandler.getSessionCount(), SaturationMonitor.heapUsedAfterGc(),
+                        Runtime.getRuntime().maxMemory()));
+        monitor.setListener(ready -> AvailabilityChangeEvent.publish(publisher, monitor,
+                ready ? ReadinessState.ACCEPTING_TRAFFIC : ReadinessState.REFUSING_TRAFFIC));
+        userWebSocketHandler.setSaturation(monitor);
+        return monitor;
+    }
+}
@@ -0,0 +1,29 @@
+package juego.arsw.config;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import juego.arsw.controller.UserRestController;
+import juego.arsw.game.TrafficRecorder;
+
+/**
+ * Grabación del tráfico de {@code /game}, solo con {@code game.recording.enabled=true}.
+ * Cada arranque escribe su propio fichero, que el generador de carga puede reproducir.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "game.recording", name = "enabled", havingValue = "true")
+public class RecordingConfig {
+
+    @Bean(destroyMethod = "close")
+    public TrafficRecorder trafficRecorder(GameProperties gameProperties, UserRestController userWebSocketHandler)
+            throws IOException {
+        GameProperties.Recording properties = gameProperties.getRecording();
+        TrafficRecorder recorder = TrafficRecorder.start(Path.of(properties.getDirectory()), properties);
+        userWebSocketHandler.setRecorder(recorder);
+        return recorder;
+    }
+}
@@ -1,25 +1,53 @@
 package juego.arsw.config;
 
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistration;
 import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
 
 import juego.arsw.controller.UserRestController;
+import juego.arsw.game.BinaryPositionEncoder;
 
 @Configuration
 @EnableWebSocket
+@EnableConfigurationProperties(GameProperties.class)
 public class WebSocketConfig implements WebSocketConfigurer {
 
+    private final GameProperties gameProperties;
+
+    public WebSocketConfig(GameProperties gameProperties) {
+        this.gameProperties = gameProperties;
+    }
+
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
-        registry.addHandler(userWebSocketHandler(), "/game")
-               .setAllowedOrigins("*");
+        // /game entra en la sala por defecto o en la de ?room=; /game/{sala} elige sala por ruta
+        WebSocketHandlerRegistration registration = registry.addHandler(userWebSocketHandler(), "/game", "/game/*");
+        registration.setHandshakeHandler(gameHandshakeHandler());
+        registration.setAllowedOrigins("*");
     } 
 
     @Bean
     public UserRestController userWebSocketHandler() {
-        return new UserRestController();
+        return new UserRestController(gameProperties);
+    }
+
+    /**
+     * Negocia el formato de posiciones por sesión: el cliente que pide el subprotocolo
+     * binario recibe frames binarios, el resto sigue recibiendo JSON.
+     */
+    @Bean
+    public DefaultHandshakeHandler gameHandshakeHandler() {
+        DefaultHandshakeHandler handshakeHandler = new DefaultHandshakeHandler();
+        if (gameProperties.getProtocol().isBinaryEnabled()) {
+            handshakeHandler.setSupportedProtocols(BinaryPositionEncoder.PROTOCOL, BinaryPositionEncoder.JSON_PROTOCOL);
+        } else {
+            handshakeHandler.setSupportedProtocols(BinaryPositionEncoder.JSON_PROTOCOL);
+        }
+        return handshakeHandler;
     }
-}
\ No newline at end of file
+}
@@ -1,14 +1,50 @@
 package juego.arsw.controller;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import juego.arsw.game.SaturationMonitor;
+
+/**
+ * Sondas para el balanceador. {@code /health} y {@code /health/live} solo dicen que el
+ * proceso responde; {@code /health/ready} responde 503 mientras el nodo está saturado, para
+ * que deje de recibir jugadores nuevos sin reiniciarlo.
+ */
 @RestController
 public class HealthyController {
 
-    @GetMapping("/health")
+    private SaturationMonitor saturation;
+
+    @Autowired(required = false)
+    public void setSaturation(SaturationMonitor saturation) {
+        this.saturation = saturation;
+    }
+
+    @GetMapping({ "/health", "/health/live" })
     public ResponseEntity<String> healthCheck() {
         return ResponseEntity.ok("OK");
     }
+
+    @GetMapping("/health/ready")
+    public ResponseEntity<Map<String, Object>> readiness() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        if (saturation == null) {
+            body.put("ready", true);
+            return ResponseEntity.ok(body);
+        }
+        SaturationMonitor.Status status = saturation.getStatus();
+        body.put("ready", status.ready());
+        body.put("reasons", status.reasons());
+        body.put("tickOverrunRatio", status.tickOverrunRatio());
+        body.put("averageQueueDepth", status.averageQueueDepth());
+        body.put("sessions", status.sessions());
+        body.put("heapUsedRatio", status.heapUsedRatio());
+        return ResponseEntity.status(status.ready() ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE).body(body);
+    }
 }
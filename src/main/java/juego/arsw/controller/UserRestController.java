@@ -1,467 +1,305 @@
 package juego.arsw.controller;
 
-import java.io.IOException;
+import java.net.URI;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
+import java.util.regex.Pattern;
 
-import org.json.JSONObject;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
-
-import com.fasterxml.jackson.databind.ObjectMapper;
-
-import juego.arsw.model.EntityPerson;
-import juego.arsw.model.User;
-import org.json.JSONArray;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import juego.arsw.config.GameProperties;
+import juego.arsw.game.GameEventLog;
+import juego.arsw.game.GameEventLog.Category;
+import juego.arsw.game.GameExecutors;
+import juego.arsw.game.GameJournal;
+import juego.arsw.game.GameMetrics;
+import juego.arsw.game.GameRoom;
+import juego.arsw.game.RoomState;
+import juego.arsw.game.SaturationMonitor;
+import juego.arsw.game.SessionOutbox;
+import juego.arsw.game.TrafficRecorder;
+
+/**
+ * Punto de entrada de {@code /game}. Cada conexión entra en una sala, elegida con
+ * {@code /game/{sala}} o {@code /game?room={sala}} (sin sala va a la sala por defecto).
+ * Las salas se crean con su primera sesión y se cierran cuando sale la última.
+ */
 @RestController
 public class UserRestController extends TextWebSocketHandler {
-    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
-    private final Map<String, User> players = new ConcurrentHashMap<>();
+    public static final String DEFAULT_ROOM = "default";
+    private static final Pattern ROOM_ID = Pattern.compile("[A-Za-z0-9_-]{1,32}");
     private static final Logger logger = Logger.getLogger(UserRestController.class.getName());
-    private final ObjectMapper objectMapper = new ObjectMapper();
-    private final Map<String, EntityPerson> availablePersons = new ConcurrentHashMap<>();
-    private final Map<String, String> sessionRoles = new ConcurrentHashMap<>();
-    private final Map<String, String> sessionToPlayerId = new ConcurrentHashMap<>();
-
-    // Initialize a default EntityPerson object
-
-    @Override
-    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
-        String sessionId = session.getId();
-        String playerId = generatePlate(); // Usar la placa en lugar del sessionId
-
-        // Guardar la sesión con la nueva placa como ID
-        sessions.put(playerId, session);
 
-        // También necesitamos mantener un mapeo entre sessionId y playerId
-        sessionToPlayerId.put(sessionId, playerId);
-
-        String message = "{\"type\":\"PLAYER_ID\",\"playerId\":\"" + playerId + "\"}";
-        session.sendMessage(new TextMessage(message));
-
-        if (availablePersons.isEmpty()) {
-            initializeAvailablePersons();
-        }
-
-        broadcastAvailablePersons();
-        broadcastPlayerStates();
+    private final Map<String, GameRoom> rooms = new ConcurrentHashMap<>();
+    private final Map<String, GameRoom> sessionRooms = new ConcurrentHashMap<>();
+    // Estado restaurado de salas que aún no se han vuelto a abrir
+    private final Map<String, RoomState> restoredRooms = new ConcurrentHashMap<>();
+    private final GameProperties properties;
+    private final Executor outboundExecutor;
+    private final Executor roomExecutor;
+    private final ScheduledExecutorService tickScheduler;
+    private final int maxRooms;
+    private volatile GameJournal journal;
+    private volatile TrafficRecorder recorder;
+    private volatile GameMetrics metrics = GameMetrics.NOOP;
+    private volatile SaturationMonitor saturation;
+    // Ticks de las salas ya cerradas, para que los acumulados no retrocedan al cerrarse una
+    private final AtomicLong closedTicks = new AtomicLong();
+    private final AtomicLong closedLateTicks = new AtomicLong();
+    // Puestos ocupados: sesiones en sessionRooms más las que se están uniendo ahora mismo
+    private final AtomicInteger admittedSessions = new AtomicInteger();
+
+    public UserRestController() {
+        this(new GameProperties());
     }
 
-    @Override
-    public void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
-        String sessionId = session.getId();
-        String playerId = sessionToPlayerId.get(sessionId);
-        String payload = message.getPayload();
-
-        try {
-            JSONObject data = new JSONObject(payload);
-
-            String role = data.optString("role", "user");
-            sessionRoles.put(playerId, role);
-
-            if ("admin".equalsIgnoreCase(role)) {
-                logger.info("Admin connected: " + playerId);
-                sessions.put(playerId, session);
-
-                sendPlayersCountToAdmin(session);
-                return;
-            }
-
-            sessions.put(playerId, session);
-
-            if (!players.containsKey(playerId)) {
-                User newPlayer = new User(playerId);
-                String name = data.optString("name", "Player_" + playerId);
-                newPlayer.setName(name);
-                newPlayer.setHasPerson("0");
-                players.put(playerId, newPlayer);
-                broadcastPlayersCountToAdmins(); // Notificar a admins
-            }
-
-            if (data.has("personId") && data.has("active")) {
-                System.out.println(
-                        "-------------------------------------------------------------------------------------------------------------------------------------------------------------------");
-                handlePersonStateUpdate(data);
-                return;
-
-            }
-
-            if (data.has("type") && data.getString("type").equals("collectPerson")) {
-                String personId = data.getString("personId");
-                handlePersonCollected(playerId, personId);
-                return;
-            }
-
-            if ((data.has("playerId") || data.has("id")) && data.has("hasPerson")) {
-                logger.info("PLAYER UPDATE WORKING: " + payload);
-                handlePersonUpdate(payload);
-                return;
-            }
-            updatePlayer(playerId, data);
-            broadcastPlayerPositions();
-        } catch (Exception e) {
-            logger.severe("Error processing message: " + e.getMessage());
-            sendErrorMessage(session, "Error processing message");
-        }
+    public UserRestController(GameProperties properties) {
+        this(properties, GameExecutors.outbound(properties), GameExecutors.rooms(properties));
     }
 
-    private void handlePersonStateUpdate(JSONObject data) {
-        try {
-            String personId = data.getString("personId");
-            boolean active = data.getBoolean("active");
-
-            EntityPerson person = availablePersons.get(personId);
-            if (person != null) {
-                // Remover la persona si está inactiva
-                if (!active) {
-                    availablePersons.remove(personId);
-                }
-
-                // Broadcast el cambio de estado
-                broadcastPersonStateUpdate(personId, active);
-
-                // Broadcast la lista actualizada de personas disponibles
-                broadcastAvailablePersons();
-
-                logger.info("Updated person state: " + personId + ", active: " + active);
-            } else {
-                logger.warning("Person not found: " + personId);
-            }
-        } catch (Exception e) {
-            logger.severe("Error handling person state update: " + e.getMessage());
-        }
+    public UserRestController(GameProperties properties, Executor outboundExecutor, Executor roomExecutor) {
+        this(properties, outboundExecutor, roomExecutor, GameExecutors.ticks());
     }
 
-    private void broadcastPersonStateUpdate(String personId, boolean active) {
-        try {
-            Map<String, Object> broadcast = new HashMap<>();
-            broadcast.put("type", "personStateUpdate");
-            broadcast.put("personId", personId);
-            broadcast.put("active", active);
+    /** {@code tickScheduler} dispara los ticks de todas las salas; ninguna crea hilos propios. */
+    public UserRestController(GameProperties properties, Executor outboundExecutor, Executor roomExecutor,
+            ScheduledExecutorService tickScheduler) {
+        this.properties = properties;
+        this.outboundExecutor = outboundExecutor;
+        this.roomExecutor = roomExecutor;
+        this.tickScheduler = tickScheduler;
+        this.maxRooms = properties.getRooms().getMaxRooms();
+    }
 
-            String jsonMessage = objectMapper.writeValueAsString(broadcast);
-            TextMessage message = new TextMessage(jsonMessage);
+    /** Salas abiertas por id. */
+    public Map<String, GameRoom> getRooms() {
+        return Collections.unmodifiableMap(rooms);
+    }
 
-            sessions.values().forEach(session -> {
-                try {
-                    if (session.isOpen()) {
-                        session.sendMessage(message);
-                        logger.info("Broadcast person state: " + jsonMessage);
-                    }
-                } catch (IOException e) {
-                    logger.warning("Error broadcasting to session " + session.getId() + ": " + e.getMessage());
-                }
-            });
-        } catch (Exception e) {
-            logger.severe("Error broadcasting person state: " + e.getMessage());
-        }
+    public GameRoom getRoom(String roomId) {
+        return rooms.get(roomId);
     }
 
-    private void initializeAvailablePersons() {
-        availablePersons.put("p1", new EntityPerson("p1", 4, 6, "PersonaCorbata.png"));
-        availablePersons.put("p2", new EntityPerson("p2", 8, 5, "PersonaNaranja.png"));
-        availablePersons.put("p3", new EntityPerson("p3", 10, 3, "mujer.png"));
-        availablePersons.put("p4", new EntityPerson("p4", 12, 7, "mujer1.png"));
-        availablePersons.put("p5", new EntityPerson("p5", 5, 5, "personaCampesino.png"));
-        availablePersons.put("p6", new EntityPerson("p6", 2, 4, "personaEstudiante.png"));
-        availablePersons.put("p7", new EntityPerson("p7", 6, 9, "personaVerde.png"));
-        availablePersons.put("p8", new EntityPerson("p8", 3, 4, "tombo.png"));
-        availablePersons.put("p9", new EntityPerson("p9", 14, 9, "tombo1.png"));
-        availablePersons.put("p10", new EntityPerson("p10", 12, 1, "personaVerde.png"));
-        availablePersons.put("p11", new EntityPerson("p11", 6, 1, "tombo1.png"));
-        availablePersons.put("p12", new EntityPerson("p12", 4, 1, "mujer.png"));
-        availablePersons.put("p13", new EntityPerson("p13", 3, 7, "personaEstudiante.png"));
-        availablePersons.put("p14", new EntityPerson("p14", 2, 6, "personaCampesino.png"));
-        availablePersons.put("p15", new EntityPerson("p15", 5, 9, "mujer1.png"));
-        
+    /** Diario donde anotan sus comandos las salas que se abran a partir de ahora. */
+    public void setJournal(GameJournal journal) {
+        this.journal = journal;
     }
 
-    private void broadcastAvailablePersons() {
-        try {
-            Map<String, Object> broadcast = new HashMap<>();
-            Map<String, Object> personsList = new HashMap<>();
+    /** Grabador del tráfico entrante, o null para dejar de grabar. */
+    public void setRecorder(TrafficRecorder recorder) {
+        this.recorder = recorder;
+    }
 
-            availablePersons.forEach((id, person) -> {
-                Map<String, Object> personData = new HashMap<>();
-                personData.put("id", person.getId());
-                personData.put("x", person.getX());
-                personData.put("y", person.getY());
-                personData.put("file", person.getSpriteFile());
-                personsList.put(id, personData);
-            });
+    /** Métricas que registran las salas que se abran a partir de ahora. */
+    public void setMetrics(GameMetrics metrics) {
+        this.metrics = metrics;
+    }
 
-            broadcast.put("type", "availablePersons");
-            broadcast.put("persons", personsList);
+    /**
+     * Monitor de saturación que decide si se aceptan sesiones nuevas; las ya conectadas no
+     * se ven afectadas. Su límite de sesiones se aplica a cada conexión y el resto de
+     * señales, con lo que midió en la última evaluación. Con null se aceptan siempre (hasta
+     * el límite de salas).
+     */
+    public void setSaturation(SaturationMonitor saturation) {
+        this.saturation = saturation;
+    }
 
-            String jsonMessage = objectMapper.writeValueAsString(broadcast);
-            TextMessage message = new TextMessage(jsonMessage);
+    /** Sesiones de {@code /game} abiertas en todas las salas. */
+    public int getSessionCount() {
+        return sessionRooms.size();
+    }
 
-            sessions.values().forEach(session -> {
-                try {
-                    if (session.isOpen()) {
-                        session.sendMessage(message);
-                    }
-                } catch (IOException e) {
-                    logger.warning("Error broadcasting available persons: " + e.getMessage());
-                }
-            });
-        } catch (Exception e) {
-            logger.severe("Error creating available persons broadcast: " + e.getMessage());
+    /** Ticks que tocaban desde el arranque en todas las salas, ejecutados o saltados. */
+    public long getTickCount() {
+        long ticks = closedTicks.get();
+        for (GameRoom room : rooms.values()) {
+            ticks += room.getTickLoop().getTickCount() + room.getTickLoop().getSkippedCount();
         }
+        return ticks;
     }
 
-    private void handlePersonCollected(String playerId, String personId) {
-        EntityPerson person = availablePersons.remove(personId);
-        if (person != null) {
-            logger.info("Person " + personId + " collected by player " + playerId);
-            broadcastAvailablePersons();
+    /** De {@link #getTickCount()}, los que se pasaron de su periodo o no llegaron a ejecutarse. */
+    public long getLateTickCount() {
+        long late = closedLateTicks.get();
+        for (GameRoom room : rooms.values()) {
+            late += room.getTickLoop().getOverrunCount() + room.getTickLoop().getSkippedCount();
         }
+        return late;
     }
 
-    private void updatePlayer(String playerId, JSONObject data) {
-        User player = players.get(playerId);
-        if (player != null) {
-            if (data.has("x"))
-                player.setX(data.getDouble("x"));
-            if (data.has("y"))
-                player.setY(data.getDouble("y"));
-            if (data.has("direction"))
-                player.setDirection(data.getString("direction"));
+    /** Mensajes pendientes en las colas de salida de todas las sesiones. */
+    public long getQueuedMessageCount() {
+        long queued = 0;
+        for (GameRoom room : rooms.values()) {
+            for (SessionOutbox outbox : room.getOutboxes().values()) {
+                queued += outbox.getQueueDepth();
+            }
         }
+        return queued;
     }
 
-    private void sendErrorMessage(WebSocketSession session, String errorMessage) {
-        try {
-            Map<String, Object> error = new HashMap<>();
-            error.put("type", "error");
-            error.put("message", errorMessage);
-
-            String jsonError = objectMapper.writeValueAsString(error);
-            session.sendMessage(new TextMessage(jsonError));
-        } catch (IOException e) {
-            logger.severe("Error sending error message: " + e.getMessage());
+    /** Estado de un snapshot o del diario; cada sala lo recupera al abrirse con su primera sesión. */
+    public void restore(List<RoomState> states) {
+        for (RoomState state : states) {
+            restoredRooms.put(state.roomId(), state);
         }
     }
 
-    private void broadcastPlayerStates() {
-        JSONObject gameState = new JSONObject();
-        JSONObject playersState = new JSONObject();
-
-        players.forEach((id, player) -> {
-            JSONObject playerData = new JSONObject();
-            playerData.put("x", player.getX());
-            playerData.put("y", player.getY());
-            playerData.put("direction", player.getDirection());
-            playerData.put("hasPerson", String.valueOf(player.getHasPerson()));
-            playersState.put(id, playerData);
-        });
-
-        gameState.put("players", playersState);
-        TextMessage message = new TextMessage(gameState.toString());
-
-        sessions.values().forEach(session -> {
-            try {
-                if (session.isOpen()) {
-                    session.sendMessage(message);
-                    logger.info(message.getPayload());
-                }
-            } catch (IOException e) {
-                logger.warning("Error sending message to " + session.getId() + ": " + e.getMessage());
+    /**
+     * Copia el estado de todas las salas, cada una en su bucle. Incluye las restauradas
+     * que aún no se han abierto, para que otro reinicio no las pierda.
+     */
+    public CompletableFuture<List<RoomState>> captureState() {
+        // Primero las pendientes: una sala que se abre entre medias sale dos veces (y al
+        // restaurar gana la copia viva, que va después) en vez de ninguna
+        List<RoomState> pending = new ArrayList<>(restoredRooms.values());
+        List<CompletableFuture<RoomState>> captures = new ArrayList<>();
+        rooms.values().forEach(room -> captures.add(room.captureState()));
+        return CompletableFuture.allOf(captures.toArray(CompletableFuture[]::new)).thenApply(done -> {
+            List<RoomState> states = new ArrayList<>(pending);
+            for (CompletableFuture<RoomState> capture : captures) {
+                states.add(capture.join());
             }
+            return states;
         });
     }
 
     @Override
-    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
-        String sessionId = session.getId();
-        String playerId = sessionToPlayerId.get(sessionId);
-
-        sessions.remove(playerId);
-        players.remove(playerId);
-        sessionToPlayerId.remove(sessionId);
-
-        logger.info("Player " + playerId + " disconnected");
-        broadcastPlayerStates();
-    }
-
-    private void broadcastPlayerPositions() {
-        try {
-            Map<String, Object> broadcast = new HashMap<>();
-            Map<String, Object> positions = new HashMap<>();
-
-            // Recolectar posiciones de todos los jugadores
-            players.forEach((id, player) -> {
-                Map<String, Object> position = new HashMap<>();
-                position.put("x", player.getX());
-                position.put("y", player.getY());
-                position.put("direction", player.getDirection());
-                positions.put(id, position);
-            });
-
-            broadcast.put("type", "positions");
-            broadcast.put("players", positions);
-
-            // Convertir a JSON y enviar
-            String jsonMessage = objectMapper.writeValueAsString(broadcast);
-            TextMessage message = new TextMessage(jsonMessage);
-
-            // Enviar a todas las sesiones activas
-            sessions.values().forEach(session -> {
-                try {
-                    if (session.isOpen()) {
-                        session.sendMessage(message);
-                    }
-                } catch (IOException e) {
-                    logger.warning("Error broadcasting to session " + session.getId() + ": " + e.getMessage());
-                }
-            });
-        } catch (Exception e) {
-            logger.severe("Error broadcasting positions: " + e.getMessage());
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        SaturationMonitor saturation = this.saturation;
+        if (saturation != null && !saturation.isReady()) {
+            // El balanceador deja de enviar tráfico al ver /health/ready en 503; hasta entonces
+            // se rechaza aquí, según la última evaluación (de hasta un intervalo atrás)
+            GameEventLog.warning(logger, Category.SESSION, "session.rejected", "session", session.getId(), "reason",
+                    "server saturated");
+            session.close(CloseStatus.SERVICE_OVERLOAD.withReason("Server saturated"));
+            return;
+        }
+        String roomId = roomIdOf(session.getUri());
+        if (roomId == null) {
+            GameEventLog.warning(logger, Category.SESSION, "session.rejected", "session", session.getId(), "reason",
+                    "invalid room id");
+            session.close(CloseStatus.BAD_DATA.withReason("Invalid room id"));
+            return;
+        }
+        // Las sesiones no esperan a la evaluación: una ráfaga de conexiones pasaría del límite
+        if (!reserveSession(saturation != null ? saturation.getMaxSessions() : Integer.MAX_VALUE)) {
+            GameEventLog.warning(logger, Category.SESSION, "session.rejected", "session", session.getId(), "reason",
+                    "session limit reached");
+            session.close(CloseStatus.SERVICE_OVERLOAD.withReason("Server saturated"));
+            return;
         }
-    }
-
-    private void handlePersonUpdate(String payload) {
-        try {
-            JSONObject data = new JSONObject(payload);
-            String targetPlayerId;
-            String hasPerson;
-
-            // Handle both frontend formats
-            if (data.has("id")) {
-                targetPlayerId = data.getString("id");
-            } else {
-                targetPlayerId = data.getString("playerId");
-            }
 
-            // Handle both string and integer hasPerson values
-            if (data.has("hasPerson")) {
-                Object hasPersonValue = data.get("hasPerson");
-                if (hasPersonValue instanceof String) {
-                    hasPerson = (String) hasPersonValue;
-                } else if (hasPersonValue instanceof Integer) {
-                    hasPerson = String.valueOf(hasPersonValue);
-                } else {
-                    throw new IllegalArgumentException("Invalid hasPerson value type");
+        // El puesto se reserva dentro del compute para que la sala no se cierre entre medias
+        GameRoom room = rooms.compute(roomId, (id, existing) -> {
+            if (existing == null) {
+                if (rooms.size() >= maxRooms) {
+                    return null;
+                }
+                existing = new GameRoom(id, properties, outboundExecutor, roomExecutor, tickScheduler, journal,
+                        metrics);
+                RoomState restored = restoredRooms.remove(id);
+                if (restored != null) {
+                    existing.restore(restored);
                 }
-            } else {
-                throw new IllegalArgumentException("Missing hasPerson value");
+                GameEventLog.info(logger, Category.ROOM, "room.created", "room", id);
             }
+            existing.addMember();
+            return existing;
+        });
+        if (room == null) {
+            admittedSessions.decrementAndGet();
+            GameEventLog.warning(logger, Category.SESSION, "session.rejected", "session", session.getId(), "reason",
+                    "room limit reached");
+            session.close(CloseStatus.SERVICE_OVERLOAD.withReason("Room limit reached"));
+            return;
+        }
 
-            User player = players.get(targetPlayerId);
-            if (player != null) {
-                player.setHasPerson(hasPerson);
-                broadcastPersonStatus(targetPlayerId, hasPerson);
-                logger.info("Updated hasPerson status for player " + targetPlayerId + " to " + hasPerson);
-            } else {
-                logger.warning("Player not found with ID: " + targetPlayerId);
-            }
-        } catch (Exception e) {
-            logger.severe("Error processing person update: " + e.getMessage());
+        sessionRooms.put(session.getId(), room);
+        TrafficRecorder recorder = this.recorder;
+        if (recorder != null) {
+            recorder.opened(session.getId(), roomId);
         }
+        room.join(session);
     }
 
-    private void broadcastPersonStatus(String playerId, String hasPerson) {
-        try {
-            Map<String, Object> broadcast = new HashMap<>();
-            broadcast.put("type", "personUpdate");
-            broadcast.put("playerId", playerId);
-            broadcast.put("hasPerson", hasPerson);
-
-            String jsonMessage = objectMapper.writeValueAsString(broadcast);
-            TextMessage message = new TextMessage(jsonMessage);
-
-            sessions.values().forEach(session -> {
-                try {
-                    if (session.isOpen()) {
-                        session.sendMessage(message);
-                        logger.info("Broadcast person status: " + jsonMessage);
-                    }
-                } catch (IOException e) {
-                    logger.warning("Error broadcasting to session " + session.getId() + ": " + e.getMessage());
-                }
-            });
-        } catch (Exception e) {
-            logger.severe("Error broadcasting person status: " + e.getMessage());
+    @Override
+    public void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
+        GameRoom room = sessionRooms.get(session.getId());
+        if (room != null) {
+            TrafficRecorder recorder = this.recorder;
+            if (recorder != null) {
+                recorder.frame(session.getId(), message.getPayload());
+            }
+            room.handleTextMessage(session, message);
         }
     }
 
-    private void broadcastPlayersCountToAdmins() {
-        int count = players.size();
-        JSONObject response = new JSONObject();
-        response.put("type", "playersInfo");
-        response.put("count", count);
-
-        JSONArray playersList = new JSONArray();
-        players.forEach((plate, user) -> {
-            JSONObject playerObj = new JSONObject();
-            playerObj.put("plate", plate);
-            playerObj.put("name", user.getName());
-            playersList.put(playerObj);
-        });
-        response.put("players", playersList);
-        TextMessage message = new TextMessage(response.toString());
-
-        sessions.forEach((playerId, sess) -> {
-            String role = sessionRoles.getOrDefault(playerId, "user");
-            if ("admin".equalsIgnoreCase(role) && sess.isOpen()) {
-                try {
-                    sess.sendMessage(message);
-                } catch (IOException e) {
-                    logger.warning("Error enviando Info a admin " + playerId+ ": " + e.getMessage());
-                }
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        GameRoom room = sessionRooms.remove(session.getId());
+        if (room == null) {
+            return;
+        }
+        admittedSessions.decrementAndGet();
+        TrafficRecorder recorder = this.recorder;
+        if (recorder != null) {
+            recorder.closed(session.getId());
+        }
+        room.leave(session, status);
+
+        rooms.computeIfPresent(room.getId(), (id, current) -> {
+            if (current == room && room.removeMember() == 0) {
+                room.close();
+                closedTicks.addAndGet(room.getTickLoop().getTickCount() + room.getTickLoop().getSkippedCount());
+                closedLateTicks.addAndGet(room.getTickLoop().getOverrunCount() + room.getTickLoop().getSkippedCount());
+                GameEventLog.info(logger, Category.ROOM, "room.closed", "room", id);
+                return null;
             }
+            return current;
         });
     }
 
-    private void sendPlayersCountToAdmin(WebSocketSession session) throws IOException {
-        JSONObject response = new JSONObject();
-        response.put("type", "playersInfo");
-        response.put("count", players.size());
-
-        JSONArray playersList = new JSONArray();
-        players.forEach((plate, user) -> {
-            JSONObject playerObj = new JSONObject();
-            playerObj.put("plate", plate);
-            playerObj.put("name", user.getName());
-            playersList.put(playerObj);
-        });
-
-        response.put("players", playersList);
-
-        if (session.isOpen()) {
-            session.sendMessage(new TextMessage(response.toString()));
-        } else {
-            logger.info("Sesión admin no abierta, no se envió info");
-        }
+    /** Ocupa un puesto si quedan por debajo de {@code limit}; sin locks, con un CAS. */
+    private boolean reserveSession(int limit) {
+        int admitted;
+        do {
+            admitted = admittedSessions.get();
+            if (admitted >= limit) {
+                return false;
+            }
+        } while (!admittedSessions.compareAndSet(admitted, admitted + 1));
+        return true;
     }
 
-    private String generatePlate() {
-        String letters = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
-        String numbers = "0123456789";
-        StringBuilder plate = new StringBuilder();
-
-        // Genera 3 letras
-        Random random = new Random();
-        for (int i = 0; i < 3; i++) {
-            plate.append(letters.charAt(random.nextInt(letters.length())));
+    /** Id de sala de la URI de conexión, la sala por defecto si no trae, o null si no es válido. */
+    static String roomIdOf(URI uri) {
+        if (uri == null) {
+            return DEFAULT_ROOM;
         }
-
-        // Añade el separador
-        plate.append("-");
-
-        // Genera 3 números
-        for (int i = 0; i < 3; i++) {
-            plate.append(numbers.charAt(random.nextInt(numbers.length())));
+        String roomId = UriComponentsBuilder.fromUri(uri).build().getQueryParams().getFirst("room");
+        String path = uri.getPath();
+        if (roomId == null && path != null && path.startsWith("/game/")) {
+            roomId = path.substring("/game/".length());
         }
-
-        return plate.toString();
+        if (roomId == null || roomId.isEmpty()) {
+            return DEFAULT_ROOM;
+        }
+        return ROOM_ID.matcher(roomId).matches() ? roomId : null;
     }
-}
\ No newline at end of file
+}
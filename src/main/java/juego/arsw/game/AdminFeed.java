@@ -0,0 +1,92 @@
+package juego.arsw.game;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cambios de jugadores pendientes de contar a los admins de una sala. Las altas, bajas y
+ * cambios de nombre se acumulan y se envían juntos como mucho una vez por
+ * {@code debounceNanos}; lo que se anula dentro de la ventana (entrar y salir) no llega a
+ * enviarse. Cada cambio cuesta una entrada en un mapa, sin importar cuántos jugadores
+ * tenga la sala.
+ *
+ * <p>El cliente aplica {@code left} y luego {@code joined} y {@code renamed} como
+ * altas o sustituciones por placa, así que recibir un cambio que ya estaba en su snapshot
+ * no lo descuadra. Vive en el bucle de la sala y no es seguro entre hilos.
+ */
+public class AdminFeed {
+
+    public record Player(String plate, String name) {
+    }
+
+    /** Lo acumulado en una ventana, en el orden en que pasó. */
+    public record Delta(List<Player> joined, List<Player> renamed, List<String> left) {
+    }
+
+    private final long debounceNanos;
+    private final Map<String, String> joined = new LinkedHashMap<>();
+    private final Map<String, String> renamed = new LinkedHashMap<>();
+    private final Set<String> left = new LinkedHashSet<>();
+    private long lastDrainNanos;
+    private boolean drained;
+
+    public AdminFeed(long debounceNanos) {
+        this.debounceNanos = debounceNanos;
+    }
+
+    public void joined(String plate, String name) {
+        if (left.remove(plate)) {
+            // Salió y volvió en la misma ventana: para el admin solo puede cambiar el nombre
+            renamed.put(plate, name);
+        } else {
+            joined.put(plate, name);
+        }
+    }
+
+    public void renamed(String plate, String name) {
+        if (joined.containsKey(plate)) {
+            joined.put(plate, name);
+        } else {
+            renamed.put(plate, name);
+        }
+    }
+
+    public void left(String plate) {
+        renamed.remove(plate);
+        if (joined.remove(plate) == null) {
+            left.add(plate);
+        }
+    }
+
+    public boolean isEmpty() {
+        return joined.isEmpty() && renamed.isEmpty() && left.isEmpty();
+    }
+
+    /** Si hay cambios y ya pasó la ventana desde el último envío. */
+    public boolean isDue(long nowNanos) {
+        return !isEmpty() && (!drained || nowNanos - lastDrainNanos >= debounceNanos);
+    }
+
+    /** Entrega lo acumulado y empieza una ventana nueva. */
+    public Delta drain(long nowNanos) {
+        Delta delta = new Delta(players(joined), players(renamed), new ArrayList<>(left));
+        joined.clear();
+        renamed.clear();
+        left.clear();
+        lastDrainNanos = nowNanos;
+        drained = true;
+        return delta;
+    }
+
+    private static List<Player> players(Map<String, String> changes) {
+        List<Player> players = new ArrayList<>(changes.size());
+        for (Map.Entry<String, String> change : changes.entrySet()) {
+            players.add(new Player(change.getKey(), change.getValue()));
+        }
+        return players;
+    }
+}
@@ -0,0 +1,189 @@
+package juego.arsw.game;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Codifica snapshots de posiciones en un frame binario de tamaño fijo por jugador.
+ *
+ * <pre>
+ * u8  tipo (1 = posiciones)
+ * u8  flags (bit 0 = snapshot completo, bit 1 = lleva secuencias de entrada)
+ * i32 tick
+ * i32 tick base del delta (-1 si es completo)
+ * u16 número de jugadores, seguido de cada jugador:
+ *     u16 índice, i16 x, i16 y (cuantizados por la escala), u8 dirección
+ * u16 número de bajas, seguido de cada índice u16
+ * solo con el bit 1: u16 número de secuencias, seguido de cada
+ *     u16 índice, u32 último número de entrada del cliente aplicado a ese jugador
+ * </pre>
+ *
+ * Las secuencias van al final para que los clientes que no las usan lean el frame igual;
+ * solo aparecen para los jugadores del frame cuyo cliente manda {@code seq}.
+ *
+ * Todo en big-endian. No es thread-safe: reutiliza su buffer entre frames.
+ */
+public class BinaryPositionEncoder {
+    public static final String PROTOCOL = "game.binary.v1";
+    public static final String JSON_PROTOCOL = "game.json.v1";
+
+    public static final byte TYPE_POSITIONS = 1;
+    public static final byte FLAG_FULL = 1;
+    public static final byte FLAG_INPUT_SEQUENCES = 2;
+    public static final int HEADER_SIZE = 12;
+    public static final int PLAYER_SIZE = 7;
+
+    public static final byte DIRECTION_NONE = 0;
+    public static final byte DIRECTION_UP = 1;
+    public static final byte DIRECTION_DOWN = 2;
+    public static final byte DIRECTION_LEFT = 3;
+    public static final byte DIRECTION_RIGHT = 4;
+
+    private static final int FLAGS_OFFSET = 1;
+    private static final int PLAYER_COUNT_OFFSET = 10;
+    private static final int SEQUENCE_SIZE = 6;
+
+    private final double scale;
+    private ByteBuffer buffer = ByteBuffer.allocate(1024);
+    private int playerCount;
+    private int removedCount;
+    private int removedCountOffset = -1;
+    // Secuencias de los jugadores añadidos, que se escriben al cerrar el frame
+    private int[] sequenceIndexes = new int[64];
+    private int[] sequences = new int[64];
+    private int sequenceCount;
+
+    public BinaryPositionEncoder(int positionScale) {
+        if (positionScale <= 0) {
+            throw new IllegalArgumentException("Position scale must be positive: " + positionScale);
+        }
+        this.scale = positionScale;
+    }
+
+    public void begin(long tick, long baseline) {
+        buffer.clear();
+        playerCount = 0;
+        removedCount = 0;
+        removedCountOffset = -1;
+        sequenceCount = 0;
+
+        buffer.put(TYPE_POSITIONS);
+        buffer.put(baseline < 0 ? FLAG_FULL : 0);
+        buffer.putInt((int) tick);
+        buffer.putInt((int) baseline);
+        buffer.putShort((short) 0);
+    }
+
+    public void addPlayer(int index, double x, double y, String direction) {
+        addPlayer(index, x, y, encodeDirection(direction));
+    }
+
+    public void addPlayer(int index, double x, double y, byte direction) {
+        if (removedCountOffset >= 0) {
+            throw new IllegalStateException("Players must be added before removals");
+        }
+        ensureCapacity(PLAYER_SIZE);
+        buffer.putShort((short) index);
+        buffer.putShort(quantize(x));
+        buffer.putShort(quantize(y));
+        buffer.put(direction);
+        playerCount++;
+    }
+
+    /** Como {@link #addPlayer(int, double, double, byte)}, con su secuencia de entrada (0 si no tiene). */
+    public void addPlayer(int index, double x, double y, byte direction, long inputSequence) {
+        addPlayer(index, x, y, direction);
+        if (inputSequence > 0) {
+            if (sequenceCount == sequences.length) {
+                sequenceIndexes = Arrays.copyOf(sequenceIndexes, sequenceCount * 2);
+                sequences = Arrays.copyOf(sequences, sequenceCount * 2);
+            }
+            sequenceIndexes[sequenceCount] = index;
+            sequences[sequenceCount] = (int) inputSequence;
+            sequenceCount++;
+        }
+    }
+
+    public void addRemoved(int index) {
+        startRemovals();
+        ensureCapacity(2);
+        buffer.putShort((short) index);
+        removedCount++;
+    }
+
+    public boolean isEmpty() {
+        return playerCount == 0 && removedCount == 0;
+    }
+
+    public byte[] finish() {
+        startRemovals();
+        buffer.putShort(PLAYER_COUNT_OFFSET, (short) playerCount);
+        buffer.putShort(removedCountOffset, (short) removedCount);
+        if (sequenceCount > 0) {
+            buffer.put(FLAGS_OFFSET, (byte) (buffer.get(FLAGS_OFFSET) | FLAG_INPUT_SEQUENCES));
+            ensureCapacity(2 + sequenceCount * SEQUENCE_SIZE);
+            buffer.putShort((short) sequenceCount);
+            for (int i = 0; i < sequenceCount; i++) {
+                buffer.putShort((short) sequenceIndexes[i]);
+                buffer.putInt(sequences[i]);
+            }
+        }
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    public static byte encodeDirection(String direction) {
+        if (direction == null) {
+            return DIRECTION_NONE;
+        }
+        switch (direction) {
+            case "up":
+                return DIRECTION_UP;
+            case "down":
+                return DIRECTION_DOWN;
+            case "left":
+                return DIRECTION_LEFT;
+            case "right":
+                return DIRECTION_RIGHT;
+            default:
+                return DIRECTION_NONE;
+        }
+    }
+
+    /** Inversa de {@link #encodeDirection}; {@link #DIRECTION_NONE} vuelve como null. */
+    public static String decodeDirection(byte direction) {
+        switch (direction) {
+            case DIRECTION_UP:
+                return "up";
+            case DIRECTION_DOWN:
+                return "down";
+            case DIRECTION_LEFT:
+                return "left";
+            case DIRECTION_RIGHT:
+                return "right";
+            default:
+                return null;
+        }
+    }
+
+    private void startRemovals() {
+        if (removedCountOffset < 0) {
+            ensureCapacity(2);
+            removedCountOffset = buffer.position();
+            buffer.putShort((short) 0);
+        }
+    }
+
+    private short quantize(double value) {
+        long scaled = Math.round(value * scale);
+        return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, scaled));
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (buffer.remaining() < bytes) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+            buffer.flip();
+            bigger.put(buffer);
+            buffer = bigger;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package juego.arsw.game;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Evento JFR de un fan-out de la sala: cuánto tardó en codificarse y cuánto en encolarse
+ * para cada destinatario. El envío real por el socket va aparte, en
+ * {@link OutboundSendEvent}.
+ */
+@Name("juego.arsw.Broadcast")
+@Label("Broadcast")
+@Category({ "Game", "WebSocket" })
+@Description("A message fanned out to the sessions of a game room")
+@StackTrace(false)
+public class BroadcastEvent extends jdk.jfr.Event {
+
+    @Label("Room")
+    public String room;
+
+    @Label("Kind")
+    public String kind;
+
+    @Label("Recipients")
+    public int recipients;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+
+    @Label("Encode Time")
+    @Timespan
+    public long encodeTime;
+
+    @Label("Send Time")
+    @Description("Time spent handing the message to the outbound queues")
+    @Timespan
+    public long sendTime;
+
+    /** Un evento ya empezado, para abrirlo en la misma línea que se toma el tiempo inicial. */
+    static BroadcastEvent started() {
+        BroadcastEvent event = new BroadcastEvent();
+        event.begin();
+        return event;
+    }
+}
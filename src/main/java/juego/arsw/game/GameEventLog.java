@@ -0,0 +1,317 @@
+package juego.arsw.game;
+
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import juego.arsw.config.GameProperties;
+
+/**
+ * Log de eventos de juego: una línea {@code evento clave=valor ...} por cosa que pasa en
+ * una sala (altas, bajas, personas, carga, admins, errores). El hilo que juega solo decide
+ * si el evento se escribe y encola sus campos; el texto se arma y se entrega a
+ * java.util.logging en un hilo propio, así que un appender lento no frena el bucle de la
+ * sala.
+ *
+ * <p>Cada {@link Category} tiene su muestreo (uno de cada {@code sampleEvery}) y su límite
+ * de eventos por segundo. Lo que el límite corta se cuenta, y el primer evento escrito de
+ * la categoría en el segundo siguiente dice cuántos se omitieron. Decidir no reserva
+ * memoria ni toma locks: un contador y un CAS por categoría.
+ *
+ * <p>Los payloads de los mensajes no pasan por aquí: van a FINE en el logger de la clase,
+ * con un {@code Supplier} para que no se formateen si FINE no está activo.
+ *
+ * <p>Fuera de Spring se usa {@link #DIRECT}, que escribe en el mismo hilo con los límites
+ * por defecto; {@code LoggingConfig} instala el asíncrono configurado.
+ */
+public class GameEventLog implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger(GameEventLog.class.getName());
+
+    /** Escribe en el hilo que llama, con la configuración por defecto. */
+    public static final GameEventLog DIRECT = new GameEventLog(direct(), System::nanoTime);
+
+    private static volatile GameEventLog current = DIRECT;
+
+    public enum Category {
+        ROOM, SESSION, ADMIN, PERSON, CARGO, NODE, ERROR;
+
+        /** Nombre en la configuración, p. ej. {@code game.logging.sample-every.cargo}. */
+        public String key() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private record Event(Logger logger, Level level, long millis, String name, Object[] fields, long suppressed) {
+    }
+
+    /**
+     * Ventana de un segundo por categoría empaquetada en un long: el segundo en los bits
+     * altos y los eventos aceptados en los {@value #COUNT_BITS} bajos, para avanzarla con un
+     * solo CAS.
+     */
+    private static final class Limiter {
+        private static final int COUNT_BITS = 24;
+        private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+        private final int sampleEvery;
+        private final long maxPerSecond;
+        private final AtomicLong seen = new AtomicLong();
+        private final AtomicLong window = new AtomicLong(-1L << COUNT_BITS);
+        private final AtomicLong suppressed = new AtomicLong();
+
+        Limiter(int sampleEvery, int maxPerSecond) {
+            this.sampleEvery = sampleEvery;
+            this.maxPerSecond = Math.min(maxPerSecond, COUNT_MASK);
+        }
+
+        boolean sampled() {
+            return sampleEvery <= 1 || seen.getAndIncrement() % sampleEvery == 0;
+        }
+
+        /** -1 si el evento se omite; si no, cuántos se omitieron antes de él en la categoría. */
+        long acquire(long second) {
+            while (true) {
+                long state = window.get();
+                if (state >>> COUNT_BITS != second) {
+                    if (window.compareAndSet(state, second << COUNT_BITS | 1)) {
+                        return suppressed.getAndSet(0);
+                    }
+                } else if ((state & COUNT_MASK) >= maxPerSecond) {
+                    suppressed.incrementAndGet();
+                    return -1;
+                } else if (window.compareAndSet(state, state + 1)) {
+                    return 0;
+                }
+            }
+        }
+    }
+
+    private final Map<Category, Limiter> limiters = new EnumMap<>(Category.class);
+    private final LongSupplier nanoClock;
+    private final long origin;
+    private final int maxPendingEvents;
+    private final Queue<Event> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong suppressed = new AtomicLong();
+    private final ScheduledExecutorService writer;
+
+    /**
+     * @param nanoClock reloj de las ventanas por segundo; las pruebas pasan uno propio
+     */
+    public GameEventLog(GameProperties.Logging properties, LongSupplier nanoClock) {
+        if (properties.getMaxEventsPerSecond() <= 0) {
+            throw new IllegalArgumentException("Event rate limit must be positive");
+        }
+        if (properties.getMaxPendingEvents() <= 0) {
+            throw new IllegalArgumentException("Pending event limit must be positive");
+        }
+        for (Category category : Category.values()) {
+            int sampleEvery = properties.getSampleEvery().getOrDefault(category.key(), 1);
+            limiters.put(category, new Limiter(sampleEvery, properties.getMaxEventsPerSecond()));
+        }
+        this.nanoClock = nanoClock;
+        this.origin = nanoClock.getAsLong();
+        this.maxPendingEvents = properties.getMaxPendingEvents();
+        if (properties.isAsync()) {
+            this.writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "game-events");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = properties.getFlushIntervalMillis();
+            if (interval > 0) {
+                writer.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+            }
+        } else {
+            this.writer = null;
+        }
+    }
+
+    /** Crea el log y lo instala como el que usan las salas. */
+    public static GameEventLog start(GameProperties.Logging properties) {
+        GameEventLog log = new GameEventLog(properties, System::nanoTime);
+        current = log;
+        return log;
+    }
+
+    /** El log instalado, o {@link #DIRECT} si no hay ninguno. */
+    public static GameEventLog get() {
+        return current;
+    }
+
+    public static void info(Logger logger, Category category, String name, Object... fields) {
+        current.log(logger, Level.INFO, category, name, fields);
+    }
+
+    public static void warning(Logger logger, Category category, String name, Object... fields) {
+        current.log(logger, Level.WARNING, category, name, fields);
+    }
+
+    public static void severe(Logger logger, String name, Object... fields) {
+        current.log(logger, Level.SEVERE, Category.ERROR, name, fields);
+    }
+
+    /**
+     * Registra un evento si el logger lo deja pasar y la categoría no lo muestrea ni lo
+     * limita. {@code fields} alterna claves y valores; los valores se pasan a texto al
+     * escribir, no aquí.
+     *
+     * @return si el evento se escribirá
+     */
+    public boolean log(Logger logger, Level level, Category category, String name, Object... fields) {
+        if (!logger.isLoggable(level)) {
+            return false;
+        }
+        Limiter limiter = limiters.get(category);
+        if (!limiter.sampled()) {
+            return false;
+        }
+        long skipped = limiter.acquire((nanoClock.getAsLong() - origin) / 1_000_000_000L);
+        if (skipped < 0) {
+            suppressed.incrementAndGet();
+            return false;
+        }
+        Event event = new Event(logger, level, System.currentTimeMillis(), name, fields, skipped);
+        if (writer == null) {
+            write(event);
+            return true;
+        }
+        if (pending.incrementAndGet() > maxPendingEvents) {
+            pending.decrementAndGet();
+            if (dropped.getAndIncrement() % 10_000 == 0) {
+                GameEventLog.logger.warning("Game event log is behind by " + maxPendingEvents + " events; dropping");
+            }
+            return false;
+        }
+        queue.offer(event);
+        return true;
+    }
+
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /** Eventos omitidos por el límite por segundo (el muestreo no cuenta). */
+    public long getSuppressedCount() {
+        return suppressed.get();
+    }
+
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    /**
+     * Escribe lo encolado. Lo usa el hilo propio; llamarlo desde fuera solo es seguro si ese
+     * hilo no está escribiendo.
+     */
+    public void flush() {
+        int count = pending.get();
+        int done = 0;
+        try {
+            for (; done < count; done++) {
+                Event event = queue.poll();
+                if (event == null) {
+                    break;
+                }
+                write(event);
+            }
+        } finally {
+            pending.addAndGet(-done);
+        }
+    }
+
+    /** Para el hilo de escritura, escribe lo pendiente y vuelve a {@link #DIRECT}. */
+    @Override
+    public void close() {
+        if (writer == null) {
+            return;
+        }
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warning("Game event log did not stop in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (current == this) {
+            current = DIRECT;
+        }
+        flush();
+    }
+
+    /** Texto del evento: {@code nombre clave=valor ...}, con comillas si el valor tiene espacios. */
+    static String format(String name, Object[] fields, long suppressed) {
+        StringBuilder text = new StringBuilder(64).append(name);
+        for (int i = 0; i + 1 < fields.length; i += 2) {
+            text.append(' ').append(fields[i]).append('=');
+            String value = String.valueOf(fields[i + 1]);
+            if (needsQuotes(value)) {
+                text.append('"').append(value.replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+            } else {
+                text.append(value);
+            }
+        }
+        if (suppressed > 0) {
+            text.append(" suppressed=").append(suppressed);
+        }
+        return text.toString();
+    }
+
+    private static boolean needsQuotes(String value) {
+        if (value.isEmpty()) {
+            return true;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (Character.isWhitespace(c) || c == '"' || c == '=') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void write(Event event) {
+        LogRecord record = new LogRecord(event.level(), format(event.name(), event.fields(), event.suppressed()));
+        record.setLoggerName(event.logger().getName());
+        // Sin esto java.util.logging buscaría el origen en la pila del hilo de escritura
+        record.setSourceClassName(event.logger().getName());
+        record.setSourceMethodName(null);
+        record.setInstant(Instant.ofEpochMilli(event.millis()));
+        event.logger().log(record);
+        written.incrementAndGet();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // Un error no debe cancelar las escrituras programadas
+            logger.severe("Game event log write error: " + e.getMessage());
+        }
+    }
+
+    private static GameProperties.Logging direct() {
+        GameProperties.Logging properties = new GameProperties.Logging();
+        properties.setAsync(false);
+        return properties;
+    }
+}
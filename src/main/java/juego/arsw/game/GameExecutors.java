@@ -0,0 +1,55 @@
+package juego.arsw.game;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import juego.arsw.config.GameProperties;
+
+/**
+ * Ejecutores del servidor de juego. Los envíos por sesión bloquean mientras el socket
+ * escribe, así que con {@code game.threads.virtual} corren en hilos virtuales, uno por
+ * drenado; el orden por sesión lo sigue garantizando {@link SessionOutbox}. Los bucles de
+ * las salas son trabajo de CPU y siempre usan un pool fijo de hilos de plataforma, y sus
+ * ticks los dispara un único planificador compartido, así que el número de hilos no crece
+ * con el de salas.
+ */
+public final class GameExecutors {
+
+    private GameExecutors() {
+    }
+
+    public static ExecutorService outbound(GameProperties properties) {
+        if (properties.getThreads().isVirtual()) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("game-outbound-", 1).factory());
+        }
+        return Executors.newCachedThreadPool(daemonThreadFactory("game-outbound-"));
+    }
+
+    public static ExecutorService rooms(GameProperties properties) {
+        return Executors.newFixedThreadPool(properties.getRooms().getLoopThreads(), daemonThreadFactory("game-room-"));
+    }
+
+    /**
+     * Planificador que dispara los ticks de todas las salas. Cada disparo solo encola el tick
+     * en el bucle de su sala, así que un hilo basta. Al cerrar una sala su tick se quita de
+     * la cola en el momento, para que abrir y cerrar salas no la vaya llenando.
+     */
+    public static ScheduledExecutorService ticks() {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, daemonThreadFactory("game-tick-"));
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+
+    private static ThreadFactory daemonThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
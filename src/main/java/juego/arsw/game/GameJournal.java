@@ -0,0 +1,640 @@
+package juego.arsw.game;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import juego.arsw.config.GameProperties;
+import juego.arsw.model.EntityPerson;
+
+/**
+ * Diario de solo añadir con los comandos aceptados de todas las salas. Las salas solo
+ * encolan la entrada ({@link #append}) y siguen; un hilo propio las codifica, las escribe
+ * en el segmento actual y hace un único fsync por lote cada {@code syncIntervalMillis}.
+ * Un corte puede perder como mucho el último intervalo.
+ *
+ * <p>La cola es un anillo preasignado de {@code maxPendingEntries} huecos con los campos de
+ * la entrada en arrays paralelos: una sala reserva un hueco con un CAS, copia los campos y
+ * lo publica, sin reservar memoria. {@link #appendMove} lo hace sin crear siquiera la
+ * entrada, que es el caso de casi todos los mensajes.
+ *
+ * <p>Los segmentos se llaman {@code journal-<primera secuencia>.log} y se cambia de uno al
+ * siguiente al pasar de {@code segmentBytes}. Cada registro lleva su longitud y su CRC32C:
+ *
+ * <pre>
+ * i32 longitud, i32 CRC32C del cuerpo, cuerpo:
+ *     i64 secuencia, i64 milisegundos del lote, u8 tipo, str sala, campos del tipo
+ * </pre>
+ *
+ * Al leer, un registro incompleto o con CRC incorrecto termina su segmento (la cola de
+ * una escritura cortada); al abrir, esa cola se recorta y se sigue escribiendo detrás.
+ *
+ * <p>Con {@code maxSegments > 0} se borran los segmentos más viejos, y con ellos las
+ * entradas que crearon buses y personas. Para que el diario siga bastando para recuperar,
+ * el hilo de escritura lleva el estado que resulta de lo escrito (un {@link JournalReplayer})
+ * y cada segmento nuevo empieza con un checkpoint completo de ese estado, escrito y
+ * sincronizado antes de borrar nada.
+ */
+public class GameJournal implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger(GameJournal.class.getName());
+
+    public static final int RECORD_HEADER = 8;
+
+    private static final String PREFIX = "journal-";
+    private static final String SUFFIX = ".log";
+    private static final int NULL_STRING = 0xFFFF;
+    private static final int MAX_RECORD = 64 * 1024;
+    private static final int MAX_STRING = 1024;
+
+    private static final byte PLAYER_JOINED = 1;
+    private static final byte PLAYER_MOVED = 2;
+    private static final byte CARGO_CHANGED = 3;
+    private static final byte PLAYER_LEFT = 4;
+    private static final byte PERSON_ADDED = 5;
+    private static final byte PERSON_REMOVED = 6;
+    private static final byte ROOM_CLOSED = 7;
+    private static final byte CHECKPOINT_STARTED = 8;
+    private static final byte CHECKPOINT_COMPLETED = 9;
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final int maxSegments;
+    private final int maxPendingEntries;
+    // Anillo de entradas pendientes: varios productores (las salas), un consumidor (el hilo
+    // de escritura). Un hueco está listo cuando published guarda la posición que se reservó
+    private final int mask;
+    private final byte[] types;
+    private final String[] roomIds;
+    private final String[] ids;
+    private final String[] texts;
+    private final int[] firsts;
+    private final int[] seconds;
+    private final byte[] smalls;
+    private final AtomicLongArray published;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final ScheduledExecutorService writer;
+    private final CRC32C crc = new CRC32C();
+    private ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+
+    // Solo los toca el hilo de escritura (o close, cuando ese hilo ya paró)
+    private FileChannel segment;
+    private long segmentSize;
+    private long nextSequence;
+    // Estado que resulta de lo escrito, para los checkpoints; null si no se borra nada
+    private final JournalReplayer state;
+
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong syncs = new AtomicLong();
+    private final AtomicLong failedSyncs = new AtomicLong();
+    private volatile int lastBatchSize;
+    private volatile int maxBatchSize;
+    private volatile long lastSyncNanos;
+    private volatile long maxSyncNanos;
+
+    /** Un registro leído del diario: su secuencia, cuándo se escribió y el comando. */
+    public record Recorded(long sequence, long timeMillis, JournalEntry entry) {
+    }
+
+    /** Contadores del diario, para ver su coste y si se está quedando atrás. */
+    public record Stats(long written, long dropped, int pending, long syncs, long failedSyncs,
+            int lastBatchSize, int maxBatchSize, long lastSyncMicros, long maxSyncMicros, long nextSequence) {
+    }
+
+    private GameJournal(Path directory, GameProperties.Journal properties) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = properties.getSegmentBytes();
+        this.maxSegments = properties.getMaxSegments();
+        this.maxPendingEntries = properties.getMaxPendingEntries();
+        int capacity = Integer.highestOneBit(Math.max(maxPendingEntries - 1, 1)) << 1;
+        this.mask = capacity - 1;
+        this.types = new byte[capacity];
+        this.roomIds = new String[capacity];
+        this.ids = new String[capacity];
+        this.texts = new String[capacity];
+        this.firsts = new int[capacity];
+        this.seconds = new int[capacity];
+        this.smalls = new byte[capacity];
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, -1);
+        }
+        if (maxSegments > 0) {
+            state = new JournalReplayer();
+            read(directory, state::apply);
+        } else {
+            state = null;
+        }
+        openLastSegment();
+        this.writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "game-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getSyncIntervalMillis();
+        if (interval > 0) {
+            writer.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Abre el diario del directorio (lo crea si hace falta) y sigue escribiendo tras el
+     * último registro válido.
+     */
+    public static GameJournal open(Path directory, GameProperties.Journal properties) throws IOException {
+        if (properties.getSegmentBytes() <= RECORD_HEADER || properties.getMaxPendingEntries() <= 0) {
+            throw new IllegalArgumentException("Segment size and pending limit must be positive");
+        }
+        Files.createDirectories(directory);
+        return new GameJournal(directory, properties);
+    }
+
+    /**
+     * Encola un comando aceptado. No bloquea ni toca el disco; si el hilo de escritura va
+     * {@code maxPendingEntries} por detrás, la entrada se descarta y se cuenta.
+     *
+     * @return false si se descartó
+     */
+    public boolean append(JournalEntry entry) {
+        return switch (entry) {
+            case JournalEntry.PlayerJoined joined -> offer(PLAYER_JOINED, joined.roomId(), joined.playerId(),
+                    joined.name(), 0, 0, (byte) 0);
+            case JournalEntry.PlayerMoved moved -> appendMove(moved.roomId(), moved.playerId(), moved.x(), moved.y(),
+                    moved.direction());
+            case JournalEntry.CargoChanged changed -> offer(CARGO_CHANGED, changed.roomId(), changed.playerId(), null,
+                    0, 0, changed.cargo());
+            case JournalEntry.PlayerLeft left -> offer(PLAYER_LEFT, left.roomId(), left.playerId(), null, 0, 0,
+                    (byte) 0);
+            case JournalEntry.PersonAdded added -> offer(PERSON_ADDED, added.roomId(), added.personId(),
+                    added.spriteFile(), added.x(), added.y(), (byte) 0);
+            case JournalEntry.PersonRemoved removed -> offer(PERSON_REMOVED, removed.roomId(), removed.personId(),
+                    null, 0, 0, (byte) 0);
+            case JournalEntry.RoomClosed closed -> offer(ROOM_CLOSED, closed.roomId(), null, null, 0, 0, (byte) 0);
+            // Los checkpoints los escribe el propio diario, no las salas
+            case JournalEntry.CheckpointStarted started -> throw new IllegalArgumentException("Checkpoint entry");
+            case JournalEntry.CheckpointCompleted completed -> throw new IllegalArgumentException("Checkpoint entry");
+        };
+    }
+
+    /** Como {@code append(new PlayerMoved(...))} pero sin crear la entrada. */
+    public boolean appendMove(String roomId, String playerId, float x, float y, byte direction) {
+        return offer(PLAYER_MOVED, roomId, playerId, null, Float.floatToRawIntBits(x), Float.floatToRawIntBits(y),
+                direction);
+    }
+
+    private boolean offer(byte type, String roomId, String id, String text, int first, int second, byte small) {
+        long claim;
+        do {
+            claim = head.get();
+            if (claim - tail.get() >= maxPendingEntries) {
+                if (dropped.getAndIncrement() % 10_000 == 0) {
+                    logger.warning("Game journal is behind by " + maxPendingEntries + " entries; dropping");
+                }
+                return false;
+            }
+        } while (!head.compareAndSet(claim, claim + 1));
+        int i = (int) claim & mask;
+        types[i] = type;
+        roomIds[i] = roomId;
+        ids[i] = id;
+        texts[i] = text;
+        firsts[i] = first;
+        seconds[i] = second;
+        smalls[i] = small;
+        published.setRelease(i, claim);
+        return true;
+    }
+
+    /**
+     * Escribe lo encolado y hace fsync una vez. Lo usa el hilo propio; llamarlo desde
+     * fuera solo es seguro si ese hilo no está escribiendo.
+     *
+     * @return false si la escritura falló; ese lote se pierde y se sigue en un segmento nuevo
+     */
+    public boolean flush() {
+        long next = tail.get();
+        long end = head.get();
+        if (next == end) {
+            return true;
+        }
+        long start = System.nanoTime();
+        long now = System.currentTimeMillis();
+        int batch = 0;
+        try {
+            buffer.clear();
+            for (; next < end; next++) {
+                int i = (int) next & mask;
+                if (published.getAcquire(i) != next) {
+                    // Reservado pero aún sin publicar: va en el siguiente lote
+                    break;
+                }
+                batch++;
+                encode(nextSequence++, now, types[i], roomIds[i], ids[i], texts[i], firsts[i], seconds[i], smalls[i]);
+                if (state != null) {
+                    state.apply(entryAt(i));
+                }
+                roomIds[i] = null;
+                ids[i] = null;
+                texts[i] = null;
+                if (segmentSize + buffer.position() >= segmentBytes) {
+                    writeBuffer();
+                    segment.force(false);
+                    roll();
+                }
+            }
+            writeBuffer();
+            segment.force(false);
+        } catch (IOException | RuntimeException e) {
+            failedSyncs.incrementAndGet();
+            logger.severe("Game journal write of " + batch + " entries failed: " + e.getMessage());
+            // Lo escrito a medias queda como cola cortada de este segmento
+            try {
+                roll();
+            } catch (IOException rollFailure) {
+                logger.severe("Could not open a new journal segment: " + rollFailure.getMessage());
+            }
+            return false;
+        } finally {
+            tail.setRelease(tail.get() + batch);
+        }
+        record(batch, System.nanoTime() - start);
+        return true;
+    }
+
+    public Stats getStats() {
+        return new Stats(written.get(), dropped.get(), (int) (head.get() - tail.get()), syncs.get(),
+                failedSyncs.get(), lastBatchSize, maxBatchSize, lastSyncNanos / 1_000, maxSyncNanos / 1_000,
+                nextSequence);
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /** Para el hilo de escritura, escribe lo pendiente y cierra el segmento. */
+    @Override
+    public void close() {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warning("Game journal writer did not stop in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        try {
+            if (segment != null) {
+                segment.close();
+            }
+        } catch (IOException e) {
+            logger.severe("Error closing journal segment: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Lee todos los registros válidos del directorio en orden. Un segmento dañado se lee
+     * hasta el primer registro malo y se sigue con el siguiente.
+     *
+     * @return número de registros leídos
+     */
+    public static long read(Path directory, Consumer<Recorded> consumer) throws IOException {
+        long count = 0;
+        for (Path path : segments(directory)) {
+            ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(path));
+            while (true) {
+                Recorded recorded = readRecord(data);
+                if (recorded == null) {
+                    if (data.hasRemaining()) {
+                        logger.warning("Journal segment " + path.getFileName() + " ends with "
+                                + data.remaining() + " unreadable bytes");
+                    }
+                    break;
+                }
+                consumer.accept(recorded);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void openLastSegment() throws IOException {
+        List<Path> existing = segments(directory);
+        if (existing.isEmpty()) {
+            nextSequence = 1;
+            openSegment();
+            return;
+        }
+        Path last = existing.get(existing.size() - 1);
+        nextSequence = firstSequenceOf(last);
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(last));
+        Recorded recorded;
+        boolean inCheckpoint = false;
+        while ((recorded = readRecord(data)) != null) {
+            nextSequence = recorded.sequence() + 1;
+            if (recorded.entry() instanceof JournalEntry.CheckpointStarted) {
+                inCheckpoint = true;
+            } else if (recorded.entry() instanceof JournalEntry.CheckpointCompleted) {
+                inCheckpoint = false;
+            }
+        }
+        long validBytes = data.position();
+        segment = FileChannel.open(last, StandardOpenOption.WRITE);
+        if (validBytes < segment.size()) {
+            logger.warning("Truncating " + (segment.size() - validBytes) + " torn bytes from journal segment "
+                    + last.getFileName());
+            segment.truncate(validBytes);
+            segment.force(true);
+        }
+        segment.position(validBytes);
+        segmentSize = validBytes;
+        if (inCheckpoint && state != null) {
+            // El checkpoint se cortó al escribirlo: lo que siguiera detrás no contaría
+            roll();
+        }
+    }
+
+    private void roll() throws IOException {
+        if (segment != null) {
+            segment.close();
+        }
+        openSegment();
+        if (state != null) {
+            // Lo que se va a borrar queda resumido en el checkpoint del segmento nuevo
+            writeCheckpoint();
+            List<Path> existing = segments(directory);
+            for (int i = 0; i < existing.size() - maxSegments; i++) {
+                Files.deleteIfExists(existing.get(i));
+            }
+        }
+    }
+
+    private void writeCheckpoint() throws IOException {
+        buffer.clear();
+        long now = System.currentTimeMillis();
+        encode(nextSequence++, now, new JournalEntry.CheckpointStarted());
+        for (RoomState room : state.rooms()) {
+            String roomId = room.roomId();
+            for (EntityPerson person : room.persons()) {
+                encode(nextSequence++, now, new JournalEntry.PersonAdded(roomId, person.getId(), person.getX(),
+                        person.getY(), person.getSpriteFile()));
+            }
+            for (int i = 0; i < room.playerCount(); i++) {
+                String playerId = room.playerIds()[i];
+                encode(nextSequence++, now, new JournalEntry.PlayerJoined(roomId, playerId, room.names()[i]));
+                encode(nextSequence++, now, new JournalEntry.PlayerMoved(roomId, playerId, room.xs()[i],
+                        room.ys()[i], room.directions()[i]));
+                encode(nextSequence++, now, new JournalEntry.CargoChanged(roomId, playerId, room.cargo()[i]));
+            }
+        }
+        encode(nextSequence++, now, new JournalEntry.CheckpointCompleted());
+        writeBuffer();
+        segment.force(false);
+    }
+
+    private void openSegment() throws IOException {
+        Path path = directory.resolve(String.format("%s%020d%s", PREFIX, nextSequence, SUFFIX));
+        segment = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        segmentSize = segment.size();
+    }
+
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            segmentSize += segment.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static List<Path> segments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            // El nombre lleva la secuencia con ceros delante, así que el orden alfabético vale
+            return files.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+            }).sorted().toList();
+        }
+    }
+
+    private static long firstSequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    private void encode(long sequence, long timeMillis, JournalEntry entry) {
+        switch (entry) {
+            case JournalEntry.PlayerJoined joined -> encode(sequence, timeMillis, PLAYER_JOINED, joined.roomId(),
+                    joined.playerId(), joined.name(), 0, 0, (byte) 0);
+            case JournalEntry.PlayerMoved moved -> encode(sequence, timeMillis, PLAYER_MOVED, moved.roomId(),
+                    moved.playerId(), null, Float.floatToRawIntBits(moved.x()), Float.floatToRawIntBits(moved.y()),
+                    moved.direction());
+            case JournalEntry.CargoChanged changed -> encode(sequence, timeMillis, CARGO_CHANGED, changed.roomId(),
+                    changed.playerId(), null, 0, 0, changed.cargo());
+            case JournalEntry.PersonAdded added -> encode(sequence, timeMillis, PERSON_ADDED, added.roomId(),
+                    added.personId(), added.spriteFile(), added.x(), added.y(), (byte) 0);
+            case JournalEntry.CheckpointStarted started -> encode(sequence, timeMillis, CHECKPOINT_STARTED, null, null,
+                    null, 0, 0, (byte) 0);
+            case JournalEntry.CheckpointCompleted completed -> encode(sequence, timeMillis, CHECKPOINT_COMPLETED, null,
+                    null, null, 0, 0, (byte) 0);
+            default -> throw new IllegalArgumentException("Unexpected checkpoint entry: " + entry);
+        }
+    }
+
+    /**
+     * Codifica un registro a partir de los campos de un hueco del anillo. Los floats de un
+     * movimiento llegan como sus bits, que es justo lo que escribe {@code putFloat}.
+     */
+    private void encode(long sequence, long timeMillis, byte type, String roomId, String id, String text, int first,
+            int second, byte small) {
+        ensureCapacity(MAX_RECORD);
+        int start = buffer.position();
+        buffer.position(start + RECORD_HEADER);
+        buffer.putLong(sequence);
+        buffer.putLong(timeMillis);
+        buffer.put(type);
+        putString(roomId);
+        switch (type) {
+            case PLAYER_JOINED -> {
+                putString(id);
+                putString(text);
+            }
+            case PLAYER_MOVED -> {
+                putString(id);
+                buffer.putInt(first);
+                buffer.putInt(second);
+                buffer.put(small);
+            }
+            case CARGO_CHANGED -> {
+                putString(id);
+                buffer.put(small);
+            }
+            case PLAYER_LEFT, PERSON_REMOVED -> putString(id);
+            case PERSON_ADDED -> {
+                putString(id);
+                buffer.putInt(first);
+                buffer.putInt(second);
+                putString(text);
+            }
+            default -> {
+                // Cierre de sala y marcas de checkpoint no llevan más campos
+            }
+        }
+        int length = buffer.position() - start - RECORD_HEADER;
+        crc.reset();
+        crc.update(buffer.array(), buffer.arrayOffset() + start + RECORD_HEADER, length);
+        buffer.putInt(start, length);
+        buffer.putInt(start + 4, (int) crc.getValue());
+    }
+
+    /** Entrada de un hueco del anillo, para llevar el estado de los checkpoints. */
+    private JournalEntry entryAt(int i) {
+        String roomId = roomIds[i];
+        return switch (types[i]) {
+            case PLAYER_JOINED -> new JournalEntry.PlayerJoined(roomId, ids[i], texts[i]);
+            case PLAYER_MOVED -> new JournalEntry.PlayerMoved(roomId, ids[i], Float.intBitsToFloat(firsts[i]),
+                    Float.intBitsToFloat(seconds[i]), smalls[i]);
+            case CARGO_CHANGED -> new JournalEntry.CargoChanged(roomId, ids[i], smalls[i]);
+            case PLAYER_LEFT -> new JournalEntry.PlayerLeft(roomId, ids[i]);
+            case PERSON_ADDED -> new JournalEntry.PersonAdded(roomId, ids[i], firsts[i], seconds[i], texts[i]);
+            case PERSON_REMOVED -> new JournalEntry.PersonRemoved(roomId, ids[i]);
+            default -> new JournalEntry.RoomClosed(roomId);
+        };
+    }
+
+    /** Siguiente registro válido, o null al final o ante uno cortado o dañado (sin avanzar). */
+    private static Recorded readRecord(ByteBuffer data) {
+        int start = data.position();
+        if (data.remaining() < RECORD_HEADER) {
+            return null;
+        }
+        int length = data.getInt(start);
+        int expectedCrc = data.getInt(start + 4);
+        if (length <= 0 || length > MAX_RECORD || length > data.remaining() - RECORD_HEADER) {
+            return null;
+        }
+        CRC32C check = new CRC32C();
+        check.update(data.array(), data.arrayOffset() + start + RECORD_HEADER, length);
+        if ((int) check.getValue() != expectedCrc) {
+            return null;
+        }
+        ByteBuffer body = data.slice(start + RECORD_HEADER, length);
+        try {
+            long sequence = body.getLong();
+            long timeMillis = body.getLong();
+            byte type = body.get();
+            String roomId = getString(body);
+            JournalEntry entry = switch (type) {
+                case PLAYER_JOINED -> new JournalEntry.PlayerJoined(roomId, getString(body), getString(body));
+                case PLAYER_MOVED -> new JournalEntry.PlayerMoved(roomId, getString(body), body.getFloat(),
+                        body.getFloat(), body.get());
+                case CARGO_CHANGED -> new JournalEntry.CargoChanged(roomId, getString(body), body.get());
+                case PLAYER_LEFT -> new JournalEntry.PlayerLeft(roomId, getString(body));
+                case PERSON_ADDED -> new JournalEntry.PersonAdded(roomId, getString(body), body.getInt(),
+                        body.getInt(), getString(body));
+                case PERSON_REMOVED -> new JournalEntry.PersonRemoved(roomId, getString(body));
+                case ROOM_CLOSED -> new JournalEntry.RoomClosed(roomId);
+                case CHECKPOINT_STARTED -> new JournalEntry.CheckpointStarted();
+                case CHECKPOINT_COMPLETED -> new JournalEntry.CheckpointCompleted();
+                default -> null;
+            };
+            if (entry == null) {
+                return null;
+            }
+            data.position(start + RECORD_HEADER + length);
+            return new Recorded(sequence, timeMillis, entry);
+        } catch (BufferUnderflowException e) {
+            return null;
+        }
+    }
+
+    private void putString(String value) {
+        if (value == null) {
+            buffer.putShort((short) NULL_STRING);
+            return;
+        }
+        int chars = value.length();
+        if (chars <= MAX_STRING && isAscii(value)) {
+            // Placas e ids de sala son ASCII: se copian sin crear un byte[] por cadena
+            buffer.putShort((short) chars);
+            for (int i = 0; i < chars; i++) {
+                buffer.put((byte) value.charAt(i));
+            }
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        // Los ids y nombres son cortos; uno enorme se recorta para que el registro quepa
+        int length = Math.min(bytes.length, MAX_STRING);
+        buffer.putShort((short) length);
+        buffer.put(bytes, 0, length);
+    }
+
+    private static boolean isAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = Short.toUnsignedInt(in.getShort());
+        if (length == NULL_STRING) {
+            return null;
+        }
+        if (length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (buffer.remaining() < bytes) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+            buffer.flip();
+            bigger.put(buffer);
+            buffer = bigger;
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // Un error inesperado no debe cancelar las escrituras programadas
+            logger.severe("Game journal flush error: " + e.getMessage());
+        }
+    }
+
+    private void record(int batchSize, long nanos) {
+        syncs.incrementAndGet();
+        written.addAndGet(batchSize);
+        lastBatchSize = batchSize;
+        lastSyncNanos = nanos;
+        // Solo escribe el hilo del diario, así que no hace falta comparar y cambiar
+        maxBatchSize = Math.max(maxBatchSize, batchSize);
+        maxSyncNanos = Math.max(maxSyncNanos, nanos);
+    }
+}
@@ -0,0 +1,180 @@
+package juego.arsw.game;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+
+/**
+ * Métricas de las salas en Micrometer. Todos los medidores se crean aquí una vez, así que
+ * registrar un mensaje o un broadcast no busca nada en el registro ni reserva memoria.
+ *
+ * <ul>
+ * <li>{@code game.messages} (timer, {@code type}): manejo de cada mensaje entrante en el
+ * bucle de la sala, por tipo, más {@code admin} e {@code invalid}.</li>
+ * <li>{@code game.broadcast} (timer, {@code kind}) y {@code game.broadcast.bytes}: lo que
+ * tarda un fan-out en codificar y encolar para todas las sesiones, y los bytes encolados.</li>
+ * <li>{@code game.tick} (timer) y {@code game.tick.overruns}: ticks de sala y los que
+ * tardaron más que su periodo.</li>
+ * <li>{@code game.persons.collected}: personas recogidas (su tasa da recogidas por minuto).</li>
+ * <li>{@code game.input.limited} ({@code type}, {@code action}): mensajes que pasaron el
+ * límite de su sesión, agrupados hasta el siguiente tick o descartados.</li>
+ * <li>{@code game.input.moves.replaced}: movimientos que sustituyó uno más nuevo del mismo
+ * jugador antes del tick, sin llegar a parsearse.</li>
+ * <li>{@code game.outbound.send.failures}, {@code game.outbound.positions.dropped} y
+ * {@code game.outbound.sessions.closed}: envíos fallidos, snapshots descartados y sesiones
+ * desconectadas por lentas.</li>
+ * </ul>
+ *
+ * Las sesiones, jugadores, admins y colas de salida son gauges sobre el estado vivo y se
+ * registran aparte, en {@code MetricsConfig}.
+ */
+public class GameMetrics {
+
+    /** Sin registro: los medidores no hacen nada. Es el valor por defecto fuera de Spring. */
+    public static final GameMetrics NOOP = new GameMetrics(new CompositeMeterRegistry());
+
+    public enum Broadcast {
+        POSITIONS("positions"),
+        PLAYERS("players"),
+        PERSONS("persons"),
+        PERSON_STATE("personState"),
+        PERSON_UPDATE("personUpdate"),
+        ADMIN("admin");
+
+        private final String tag;
+
+        Broadcast(String tag) {
+            this.tag = tag;
+        }
+
+        public String tag() {
+            return tag;
+        }
+    }
+
+    private final Map<Class<?>, Timer> messageTimers = new HashMap<>();
+    private final Timer adminMessages;
+    private final Timer invalidMessages;
+    private final Map<Broadcast, Timer> broadcastTimers = new EnumMap<>(Broadcast.class);
+    private final Map<Broadcast, DistributionSummary> broadcastBytes = new EnumMap<>(Broadcast.class);
+    private final Timer ticks;
+    private final Counter tickOverruns;
+    private final Counter replacedMoves;
+    private final Counter personsCollected;
+    private final Map<InputRateLimiter.Kind, Counter> limitedInput = new EnumMap<>(InputRateLimiter.Kind.class);
+    private final Counter sendFailures;
+    private final Counter droppedPositions;
+    private final Counter closedSessions;
+
+    public GameMetrics(MeterRegistry registry) {
+        messageTimers.put(InboundMessage.Move.class, messageTimer(registry, InboundMessage.MOVE));
+        messageTimers.put(InboundMessage.Ack.class, messageTimer(registry, InboundMessage.ACK));
+        messageTimers.put(InboundMessage.CargoUpdate.class, messageTimer(registry, InboundMessage.CARGO_UPDATE));
+        messageTimers.put(InboundMessage.CollectPerson.class, messageTimer(registry, InboundMessage.COLLECT_PERSON));
+        messageTimers.put(InboundMessage.PersonState.class, messageTimer(registry, InboundMessage.PERSON_STATE));
+        adminMessages = messageTimer(registry, "admin");
+        invalidMessages = messageTimer(registry, "invalid");
+
+        for (Broadcast kind : Broadcast.values()) {
+            broadcastTimers.put(kind, Timer.builder("game.broadcast")
+                    .description("Time to encode and enqueue a broadcast for every session")
+                    .tag("kind", kind.tag)
+                    .register(registry));
+            broadcastBytes.put(kind, DistributionSummary.builder("game.broadcast.bytes")
+                    .description("Bytes enqueued by a broadcast across all recipients")
+                    .baseUnit("bytes")
+                    .tag("kind", kind.tag)
+                    .register(registry));
+        }
+
+        ticks = Timer.builder("game.tick").description("Room tick duration").register(registry);
+        tickOverruns = Counter.builder("game.tick.overruns")
+                .description("Room ticks that took longer than the tick period")
+                .register(registry);
+        for (InputRateLimiter.Kind kind : InputRateLimiter.Kind.values()) {
+            limitedInput.put(kind, Counter.builder("game.input.limited")
+                    .description("Inbound messages over the per-session rate limit")
+                    .tag("type", kind.type())
+                    .tag("action", kind.isCoalesced() ? "coalesced" : "dropped")
+                    .register(registry));
+        }
+        replacedMoves = Counter.builder("game.input.moves.replaced")
+                .description("Movement frames replaced by a newer one before being parsed")
+                .register(registry);
+        personsCollected = Counter.builder("game.persons.collected")
+                .description("Persons collected by buses")
+                .register(registry);
+        sendFailures = Counter.builder("game.outbound.send.failures")
+                .description("WebSocket sends that failed")
+                .register(registry);
+        droppedPositions = Counter.builder("game.outbound.positions.dropped")
+                .description("Position snapshots replaced or dropped before being sent")
+                .register(registry);
+        closedSessions = Counter.builder("game.outbound.sessions.closed")
+                .description("Sessions disconnected for not keeping up with their outbound queue")
+                .register(registry);
+    }
+
+    private static Timer messageTimer(MeterRegistry registry, String type) {
+        return Timer.builder("game.messages")
+                .description("Time to handle an inbound message on the room loop")
+                .tag("type", type)
+                .register(registry);
+    }
+
+    public void recordMessage(InboundMessage message, long nanos) {
+        Timer timer = messageTimers.get(message.getClass());
+        (timer != null ? timer : invalidMessages).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordAdminMessage(long nanos) {
+        adminMessages.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordInvalidMessage(long nanos) {
+        invalidMessages.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordBroadcast(Broadcast kind, long nanos, long bytes) {
+        broadcastTimers.get(kind).record(nanos, TimeUnit.NANOSECONDS);
+        broadcastBytes.get(kind).record(bytes);
+    }
+
+    public void recordTick(long nanos, long periodNanos) {
+        ticks.record(nanos, TimeUnit.NANOSECONDS);
+        if (nanos > periodNanos) {
+            tickOverruns.increment();
+        }
+    }
+
+    public void inputLimited(InputRateLimiter.Kind kind) {
+        limitedInput.get(kind).increment();
+    }
+
+    public void moveReplaced() {
+        replacedMoves.increment();
+    }
+
+    public void personCollected() {
+        personsCollected.increment();
+    }
+
+    public void sendFailed() {
+        sendFailures.increment();
+    }
+
+    public void positionsDropped() {
+        droppedPositions.increment();
+    }
+
+    public void sessionClosed() {
+        closedSessions.increment();
+    }
+}
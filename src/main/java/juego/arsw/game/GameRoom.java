@@ -0,0 +1,1325 @@
+package juego.arsw.game;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.ToLongFunction;
+import java.util.logging.Logger;
+
+import org.json.JSONObject;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import juego.arsw.config.GameProperties;
+import juego.arsw.game.GameEventLog.Category;
+import juego.arsw.model.EntityPerson;
+import org.json.JSONArray;
+
+/**
+ * Una partida aislada: sus sesiones, jugadores, personas y tick. Cada sala difunde solo a
+ * sus propias sesiones, así que el coste de cada broadcast depende del tamaño de la sala y
+ * no de cuántos jugadores hay en el servidor.
+ *
+ * <p>Todo el estado de la sala lo posee su {@link RoomEventLoop}: conexiones, mensajes,
+ * bajas y ticks entran como comandos y se ejecutan de uno en uno, así que los mapas son
+ * simples {@link HashMap} y cada snapshot ve posiciones completas, nunca x e y a medias.
+ * Los buses viven en un {@link PlayerStore} de arrays primitivos indexado por el mismo
+ * índice que los frames binarios.
+ * Solo {@code sessions} y {@code outboxes} siguen siendo concurrentes porque se consultan
+ * desde fuera para monitorización.
+ *
+ * <p>Los admins reciben la lista completa de jugadores al suscribirse y después solo las
+ * altas, bajas y cambios de nombre, agrupados por {@link AdminFeed} y enviados desde el
+ * tick a las sesiones de {@code admins}.
+ *
+ * <p>Los movimientos simples se quedan en un hueco por sesión donde el último sustituye al
+ * anterior, y solo ese se parsea y se aplica al empezar el tick.
+ *
+ * <p>Cada sesión tiene un {@link InputRateLimiter} por tipo de mensaje: lo que pasa del
+ * límite no se difunde, así que un cliente que inunda la sala no multiplica los envíos al
+ * resto. Las cargas de más se agrupan y se aplica la última en el siguiente tick; las
+ * recogidas y estados de personas de más se descartan. Los movimientos no tienen límite
+ * propio porque el hueco ya los deja en uno por tick.
+ *
+ * <p>Con un {@link GameJournal}, cada cambio aceptado (altas, movimientos, carga, personas
+ * y bajas) se anota tal como quedó aplicado, justo después de aplicarlo en el bucle.
+ */
+public class GameRoom {
+    private final String id;
+    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+    private static final Logger logger = Logger.getLogger(GameRoom.class.getName());
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final PersonGrid availablePersons;
+    private final Map<String, String> sessionRoles = new HashMap<>();
+    // Sesiones admin por placa: a quién va el canal de admins sin recorrer todas las sesiones
+    private final Map<String, WebSocketSession> admins = new HashMap<>();
+    private final AdminFeed adminFeed;
+    private final Map<String, String> sessionToPlayerId = new HashMap<>();
+    private final SnapshotTracker snapshots;
+    private final boolean deltaSnapshots;
+    private final int maxDeltaTicks;
+    private final PlayerIndexAllocator playerIndexes = new PlayerIndexAllocator(1 << 16);
+    private final PlayerStore players = new PlayerStore(playerIndexes);
+    private final BinaryPositionEncoder binaryEncoder;
+    private final Map<WebSocketSession, SessionOutbox> outboxes = new ConcurrentHashMap<>();
+    private final Executor outboundExecutor;
+    private final int sendTimeLimitMillis;
+    private final int bufferSizeLimit;
+    private final InterestManager interest;
+    private final double tileSize;
+    private final int collectRadiusTiles;
+    private Map<String, Set<String>> currentViews = Map.of();
+    private final RoomEventLoop loop;
+    private final InboundMessageDecoder decoder = new InboundMessageDecoder();
+    private final Map<Class<? extends InboundMessage>, BiConsumer<String, InboundMessage>> handlers = new HashMap<>();
+    private final GameTickLoop tickLoop;
+    private final GameJournal journal;
+    private final GameMetrics metrics;
+    private final GameProperties.Input inputLimits;
+    private final Map<String, InputRateLimiter> limiters = new HashMap<>();
+    // Lo último que llegó por encima del límite, por placa del remitente; se aplica al empezar el tick
+    private final Map<String, InboundMessage.CargoUpdate> deferredCargo = new HashMap<>();
+    // Último movimiento sin aplicar de cada sesión, y las que tienen uno pendiente
+    private final Map<WebSocketSession, MovementSlot> movementSlots = new ConcurrentHashMap<>();
+    private final Queue<MovementSlot> pendingMovements = new ConcurrentLinkedQueue<>();
+    // Buses de un snapshot restaurado que aún no han vuelto; se recuperan conectando con ?plate=
+    private final Map<String, RestoredPlayer> reclaimable = new HashMap<>();
+    private volatile long currentTick;
+    private volatile int playerCount;
+    private volatile int adminCount;
+
+    private final AtomicInteger members = new AtomicInteger();
+
+    public GameRoom(String id, GameProperties properties, Executor outboundExecutor, Executor loopExecutor) {
+        this(id, properties, outboundExecutor, loopExecutor, null);
+    }
+
+    public GameRoom(String id, GameProperties properties, Executor outboundExecutor, Executor loopExecutor,
+            GameJournal journal) {
+        this(id, properties, outboundExecutor, loopExecutor, journal, GameMetrics.NOOP);
+    }
+
+    public GameRoom(String id, GameProperties properties, Executor outboundExecutor, Executor loopExecutor,
+            GameJournal journal, GameMetrics metrics) {
+        this(id, properties, outboundExecutor, loopExecutor, null, journal, metrics);
+    }
+
+    /**
+     * {@code tickScheduler} dispara los ticks de la sala y se comparte con las demás; con null
+     * la sala usa un hilo propio para ello.
+     */
+    public GameRoom(String id, GameProperties properties, Executor outboundExecutor, Executor loopExecutor,
+            ScheduledExecutorService tickScheduler, GameJournal journal, GameMetrics metrics) {
+        this.id = id;
+        this.journal = journal;
+        this.metrics = metrics;
+        this.loop = new RoomEventLoop("game-room-" + id, loopExecutor, properties.getRooms().getLoopBatchSize());
+        this.outboundExecutor = outboundExecutor;
+        this.sendTimeLimitMillis = properties.getOutbound().getSendTimeLimitMillis();
+        this.bufferSizeLimit = properties.getOutbound().getBufferSizeLimit();
+        this.snapshots = new SnapshotTracker(properties.getSnapshot().getMaxDeltaTicks());
+        this.deltaSnapshots = properties.getSnapshot().isDeltaEnabled();
+        this.maxDeltaTicks = properties.getSnapshot().getMaxDeltaTicks();
+        this.adminFeed = new AdminFeed(properties.getAdmin().getDebounceMillis() * 1_000_000L);
+        this.binaryEncoder = new BinaryPositionEncoder(properties.getProtocol().getPositionScale());
+        GameProperties.Interest interestProperties = properties.getInterest();
+        this.interest = interestProperties.isEnabled()
+                ? new InterestManager(TileMap.load(interestProperties.getMap()), interestProperties.getTileSize(),
+                        interestProperties.getRadiusTiles())
+                : null;
+        this.tileSize = interestProperties.getTileSize();
+        this.availablePersons = new PersonGrid(properties.getPersons().getGridCellTiles());
+        this.collectRadiusTiles = properties.getPersons().getCollectRadiusTiles();
+        this.inputLimits = properties.getInput();
+        this.tickLoop = new GameTickLoop("game-tick-" + id, properties.getTick().getRateHz(), this::tick, loop,
+                tickScheduler);
+
+        on(InboundMessage.Ack.class, (playerId, ack) -> snapshots.acknowledge(playerId, ack.tick()));
+        on(InboundMessage.PersonState.class, (playerId, update) -> handlePersonStateUpdate(update));
+        on(InboundMessage.CollectPerson.class, (playerId, collect) -> handlePersonCollected(playerId, collect.personId()));
+        on(InboundMessage.CargoUpdate.class, (playerId, update) -> handlePersonUpdate(update));
+        // Los movimientos simples llegan al empezar el tick, ya agrupados; todos se difunden en él
+        on(InboundMessage.Move.class, this::updatePlayer);
+    }
+
+    private record RestoredPlayer(String name, float x, float y, byte direction, byte cargo) {
+    }
+
+    /**
+     * Último frame de movimiento de una sesión; uno nuevo sustituye al anterior sin parsearlo.
+     * Un hueco retenido ({@code held}) tiene movimientos posteriores a un mensaje de la sesión
+     * que aún está en la cola del bucle, y el tick no lo aplica hasta que ese mensaje se procesa.
+     */
+    private static final class MovementSlot {
+        private final WebSocketSession session;
+        private final AtomicReference<TextMessage> latest = new AtomicReference<>();
+        private volatile long received;
+        private volatile boolean held;
+
+        private MovementSlot(WebSocketSession session, boolean held) {
+            this.session = session;
+            this.held = held;
+        }
+    }
+
+    /** Registra el manejador de un tipo de mensaje en la tabla de despacho. */
+    private <T extends InboundMessage> void on(Class<T> type, BiConsumer<String, T> handler) {
+        handlers.put(type, (playerId, message) -> handler.accept(playerId, type.cast(message)));
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /** Reserva un puesto antes de unirse, para que la sala no se cierre mientras tanto. */
+    public int addMember() {
+        return members.incrementAndGet();
+    }
+
+    /** Libera el puesto de una sesión que se fue; con cero la sala puede cerrarse. */
+    public int removeMember() {
+        return members.decrementAndGet();
+    }
+
+    public int getPlayerCount() {
+        return playerCount;
+    }
+
+    /** Sesiones que se identificaron como admin. */
+    public int getAdminCount() {
+        return adminCount;
+    }
+
+    public RoomEventLoop getLoop() {
+        return loop;
+    }
+
+    /** Detiene el tick de la sala; se llama al cerrarla cuando queda vacía. */
+    public void close() {
+        tickLoop.stop();
+        // Se anota ya, no en el bucle: así queda antes que lo que anote una sala nueva con este id
+        if (journal != null) {
+            journal.append(new JournalEntry.RoomClosed(id));
+        }
+    }
+
+    public GameTickLoop getTickLoop() {
+        return tickLoop;
+    }
+
+    /** Colas de salida por placa, para ver profundidad y descartes de cada sesión. */
+    public Map<String, SessionOutbox> getOutboxes() {
+        Map<String, SessionOutbox> byPlayer = new HashMap<>();
+        sessions.forEach((playerId, session) -> {
+            SessionOutbox outbox = outboxes.get(session);
+            if (outbox != null) {
+                byPlayer.put(playerId, outbox);
+            }
+        });
+        return byPlayer;
+    }
+
+    private SessionOutbox outboxFor(WebSocketSession session) {
+        return outboxes.computeIfAbsent(session,
+                s -> new SessionOutbox(s, outboundExecutor, sendTimeLimitMillis, bufferSizeLimit, metrics));
+    }
+
+    public void join(WebSocketSession session) {
+        loop.execute(() -> onJoin(session));
+    }
+
+    /**
+     * Una vez el bus está en juego, sus movimientos simples no pasan por la cola del bucle:
+     * cada uno sustituye al anterior de la misma sesión y solo el último se parsea y se
+     * aplica, al empezar el tick. Así el trabajo de la sala no depende de cuántos frames por
+     * segundo mande el cliente.
+     *
+     * <p>El orden de la sesión se mantiene: otro mensaje se lleva el movimiento pendiente en
+     * ese momento, que se aplica justo antes que él, y deja en su lugar un hueco retenido para
+     * los movimientos que lleguen después, que no se aplican hasta que él se procesa. Así una
+     * recogida se comprueba con la última posición que mandó el cliente antes de ella, y no
+     * con una posterior.
+     */
+    public void handleTextMessage(WebSocketSession session, TextMessage message) {
+        long received = System.nanoTime();
+        MovementSlot slot = movementSlots.get(session);
+        if (slot != null && InboundMessageDecoder.isMovement(message.getPayload())) {
+            slot.received = received;
+            if (slot.latest.getAndSet(message) == null) {
+                pendingMovements.offer(slot);
+            } else {
+                metrics.moveReplaced();
+            }
+            return;
+        }
+        MovementSlot next = slot != null ? holdMovements(session, slot) : null;
+        TextMessage pending = next != null ? slot.latest.getAndSet(null) : null;
+        long pendingReceived = next != null ? slot.received : 0;
+        loop.execute(() -> {
+            if (pending != null) {
+                onMessage(session, pending, pendingReceived);
+            }
+            onMessage(session, message, received);
+            if (next != null) {
+                releaseMovements(next);
+            }
+        });
+    }
+
+    /**
+     * Cambia el hueco de la sesión por uno retenido; null si la sesión ya se fue. Lo llama el
+     * hilo de la sesión, así que en el hueco anterior ya no entra ningún movimiento.
+     */
+    private MovementSlot holdMovements(WebSocketSession session, MovementSlot slot) {
+        MovementSlot next = new MovementSlot(session, true);
+        return movementSlots.replace(session, slot, next) ? next : null;
+    }
+
+    /** En el bucle, tras procesar el mensaje que lo retenía; lo que ya tenga entra en el tick. */
+    private void releaseMovements(MovementSlot slot) {
+        slot.held = false;
+        if (slot.latest.get() != null) {
+            pendingMovements.offer(slot);
+        }
+    }
+
+    public void leave(WebSocketSession session, CloseStatus status) {
+        loop.execute(() -> onLeave(session));
+    }
+
+    /**
+     * Copia el estado de la sala en su bucle. Solo recorre arrays, así que la sala apenas
+     * se detiene; codificar y guardar la copia queda para quien la pide.
+     */
+    public CompletableFuture<RoomState> captureState() {
+        CompletableFuture<RoomState> state = new CompletableFuture<>();
+        loop.execute(() -> {
+            try {
+                state.complete(stateOf());
+            } catch (RuntimeException e) {
+                state.completeExceptionally(e);
+            }
+        });
+        return state;
+    }
+
+    /**
+     * Recupera las personas y los buses de un snapshot. Cada bus espera a que su cliente
+     * vuelva a conectar con {@code ?plate=} para recuperar su posición y su carga.
+     */
+    public void restore(RoomState state) {
+        loop.execute(() -> onRestore(state));
+    }
+
+    private RoomState stateOf() {
+        int live = players.size();
+        RoomState state = RoomState.withPlayers(id, currentTick, live + reclaimable.size(),
+                List.copyOf(availablePersons.values()));
+        for (int i = 0; i < live; i++) {
+            int slot = players.slotAt(i);
+            state.playerIds()[i] = players.id(slot);
+            state.names()[i] = players.name(slot);
+            state.xs()[i] = players.x(slot);
+            state.ys()[i] = players.y(slot);
+            state.directions()[i] = players.direction(slot);
+            state.cargo()[i] = players.cargo(slot);
+        }
+        // Los que aún no han vuelto también se guardan, para no perderlos en otro reinicio
+        int i = live;
+        for (Map.Entry<String, RestoredPlayer> entry : reclaimable.entrySet()) {
+            RestoredPlayer player = entry.getValue();
+            state.playerIds()[i] = entry.getKey();
+            state.names()[i] = player.name();
+            state.xs()[i] = player.x();
+            state.ys()[i] = player.y();
+            state.directions()[i] = player.direction();
+            state.cargo()[i] = player.cargo();
+            i++;
+        }
+        return state;
+    }
+
+    private void onRestore(RoomState state) {
+        currentTick = Math.max(currentTick, state.tick());
+        for (EntityPerson person : state.persons()) {
+            availablePersons.add(person);
+            journalPersonAdded(person);
+        }
+        for (int i = 0; i < state.playerCount(); i++) {
+            reclaimable.put(state.playerIds()[i], new RestoredPlayer(state.names()[i], state.xs()[i],
+                    state.ys()[i], state.directions()[i], state.cargo()[i]));
+        }
+        GameEventLog.info(logger, Category.ROOM, "room.restored", "room", id, "persons", state.persons().size(),
+                "players", state.playerCount());
+    }
+
+    /** Posición y carga guardadas de un bus recuperado, para que el cliente continúe desde ahí. */
+    private String restoredFieldOf(String playerId) {
+        RestoredPlayer restored = reclaimable.get(playerId);
+        if (restored == null) {
+            return "";
+        }
+        Map<String, Object> state = new HashMap<>();
+        state.put("x", restored.x());
+        state.put("y", restored.y());
+        state.put("direction", BinaryPositionEncoder.decodeDirection(restored.direction()));
+        state.put("hasPerson", String.valueOf(restored.cargo()));
+        try {
+            return ",\"restored\":" + objectMapper.writeValueAsString(state);
+        } catch (IOException e) {
+            GameEventLog.severe(logger, "restored.encode.failed", "room", id, "error", e.getMessage());
+            return "";
+        }
+    }
+
+    /** Placa pedida con {@code ?plate=} si es de un bus restaurado libre; si no, una nueva. */
+    private String claimPlate(WebSocketSession session) {
+        String requested = session.getUri() != null
+                ? UriComponentsBuilder.fromUri(session.getUri()).build().getQueryParams().getFirst("plate")
+                : null;
+        if (requested != null && reclaimable.containsKey(requested) && !sessions.containsKey(requested)) {
+            return requested;
+        }
+        String plate;
+        do {
+            plate = generatePlate();
+        } while (reclaimable.containsKey(plate));
+        return plate;
+    }
+
+    private void onJoin(WebSocketSession session) {
+        String sessionId = session.getId();
+        String playerId = claimPlate(session); // Usar la placa en lugar del sessionId
+
+        // Guardar la sesión con la nueva placa como ID
+        sessions.put(playerId, session);
+
+        // También necesitamos mantener un mapeo entre sessionId y playerId
+        sessionToPlayerId.put(sessionId, playerId);
+
+        // El índice identifica al jugador en los frames binarios de posiciones
+        int index = playerIndexes.acquire(playerId);
+        String message = "{\"type\":\"PLAYER_ID\",\"playerId\":\"" + playerId + "\",\"index\":" + index
+                + ",\"room\":\"" + id + "\"" + restoredFieldOf(playerId) + "}";
+        outboxFor(session).send(new TextMessage(message));
+
+        if (availablePersons.isEmpty()) {
+            initializeAvailablePersons();
+        }
+
+        broadcastAvailablePersons();
+        broadcastPlayerStates();
+        tickLoop.start();
+    }
+
+    private void onMessage(WebSocketSession session, TextMessage message, long received) {
+        InboundMessageEvent event = new InboundMessageEvent();
+        event.begin();
+        long start = System.nanoTime();
+        String sessionId = session.getId();
+        String playerId = sessionToPlayerId.get(sessionId);
+        String payload = message.getPayload();
+
+        try {
+            InboundMessageDecoder.Frame frame = decoder.decode(payload);
+
+            String role = frame.role();
+            sessionRoles.put(playerId, role);
+            trackAdmin(playerId, session, role);
+
+            if ("admin".equalsIgnoreCase(role)) {
+                GameEventLog.info(logger, Category.ADMIN, "admin.connected", "room", id, "admin", playerId);
+                sessions.put(playerId, session);
+
+                // Cada mensaje de admin es una suscripción: snapshot completo, y luego solo cambios
+                sendPlayersCountToAdmin(session);
+                metrics.recordAdminMessage(System.nanoTime() - start);
+                commitInbound(event, "admin", message, start - received);
+                return;
+            }
+
+            sessions.put(playerId, session);
+
+            if (!players.contains(playerId)) {
+                RestoredPlayer restored = reclaimable.remove(playerId);
+                String name = frame.name() != null ? frame.name()
+                        : restored != null ? restored.name() : "Player_" + playerId;
+                int slot = players.add(playerId, name);
+                GameEventLog.info(logger, Category.SESSION, "player.joined", "room", id, "player", playerId,
+                        "name", name, "restored", restored != null);
+                if (journal != null) {
+                    journal.append(new JournalEntry.PlayerJoined(id, playerId, name));
+                }
+                if (restored != null) {
+                    players.setPosition(slot, restored.x(), restored.y());
+                    players.setDirection(slot, restored.direction());
+                    players.setCargo(slot, restored.cargo());
+                    journalPosition(slot);
+                    if (journal != null) {
+                        journal.append(new JournalEntry.CargoChanged(id, playerId, restored.cargo()));
+                    }
+                }
+                playerCount = players.size();
+                // Desde aquí sus movimientos simples se agrupan en el hueco de la sesión
+                movementSlots.put(session, new MovementSlot(session, false));
+                snapshots.markChanged(playerId);
+                if (interest != null) {
+                    interest.move(playerId, players.x(slot), players.y(slot));
+                }
+                if (!admins.isEmpty()) {
+                    adminFeed.joined(playerId, name);
+                }
+            } else if (frame.name() != null) {
+                rename(playerId, frame.name());
+            }
+
+            InputRateLimiter.Kind kind = InputRateLimiter.Kind.of(frame.message());
+            // Se cuenta con la hora de llegada: un mensaje que esperó en la cola no gasta más crédito
+            if (kind != null && !limiterFor(playerId).tryAcquire(kind, received)) {
+                deferOrDrop(playerId, kind, frame.message());
+                commitInbound(event, InboundMessage.typeOf(frame.message()), message, start - received);
+                return;
+            }
+            discardDeferred(playerId, frame.message());
+
+            handlers.get(frame.message().getClass()).accept(playerId, frame.message());
+            metrics.recordMessage(frame.message(), System.nanoTime() - start);
+            commitInbound(event, InboundMessage.typeOf(frame.message()), message, start - received);
+        } catch (Exception e) {
+            GameEventLog.severe(logger, "message.failed", "room", id, "player", playerId, "error", e.getMessage());
+            logger.fine(() -> "Rejected payload from " + playerId + ": " + payload);
+            sendErrorMessage(session, "Error processing message");
+            metrics.recordInvalidMessage(System.nanoTime() - start);
+            commitInbound(event, "invalid", message, start - received);
+        }
+    }
+
+    private void applyLatestMovements() {
+        MovementSlot slot;
+        while ((slot = pendingMovements.poll()) != null) {
+            applyLatestMovement(slot);
+        }
+    }
+
+    private void applyLatestMovement(MovementSlot slot) {
+        if (slot.held) {
+            // Se vuelve a encolar al procesarse el mensaje que lo retiene
+            return;
+        }
+        TextMessage latest = slot.latest.getAndSet(null);
+        if (latest != null) {
+            onMessage(slot.session, latest, slot.received);
+        }
+    }
+
+    private InputRateLimiter limiterFor(String playerId) {
+        InputRateLimiter limiter = limiters.get(playerId);
+        if (limiter == null) {
+            limiter = new InputRateLimiter(inputLimits);
+            limiters.put(playerId, limiter);
+        }
+        return limiter;
+    }
+
+    /**
+     * Un mensaje por encima del límite no llega a difundirse: las cargas se guardan
+     * (sustituyendo a la anterior) hasta el siguiente tick, y el resto se descarta.
+     */
+    private void deferOrDrop(String playerId, InputRateLimiter.Kind kind, InboundMessage message) {
+        metrics.inputLimited(kind);
+        if (message instanceof InboundMessage.CargoUpdate update) {
+            deferredCargo.put(playerId, update);
+        }
+    }
+
+    /** Un valor aceptado deja obsoleto el que esperaba al tick. */
+    private void discardDeferred(String playerId, InboundMessage message) {
+        if (message instanceof InboundMessage.CargoUpdate && !deferredCargo.isEmpty()) {
+            deferredCargo.remove(playerId);
+        }
+    }
+
+    private void applyDeferredInput() {
+        if (!deferredCargo.isEmpty()) {
+            deferredCargo.values().forEach(this::handlePersonUpdate);
+            deferredCargo.clear();
+        }
+    }
+
+    /** Cierra el evento JFR del mensaje; el tamaño solo se calcula si se va a grabar. */
+    private void commitInbound(InboundMessageEvent event, String type, TextMessage message, long queueNanos) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.room = id;
+            event.type = type;
+            event.size = message.getPayloadLength();
+            event.queueTime = queueNanos;
+            event.commit();
+        }
+    }
+
+    private void rename(String playerId, String name) {
+        int slot = players.slotOf(playerId);
+        if (name.equals(players.name(slot))) {
+            return;
+        }
+        players.setName(slot, name);
+        if (journal != null) {
+            // Un alta repetida solo cambia el nombre al reproducir el diario
+            journal.append(new JournalEntry.PlayerJoined(id, playerId, name));
+        }
+        if (!admins.isEmpty()) {
+            adminFeed.renamed(playerId, name);
+        }
+    }
+
+    /** Mantiene el conjunto de admins cuando cambia el rol de una sesión. */
+    private void trackAdmin(String playerId, WebSocketSession session, String role) {
+        if ("admin".equalsIgnoreCase(role)) {
+            admins.put(playerId, session);
+        } else {
+            admins.remove(playerId);
+        }
+        adminCount = admins.size();
+    }
+
+    private void handlePersonStateUpdate(InboundMessage.PersonState update) {
+        try {
+            String personId = update.personId();
+            boolean active = update.active();
+
+            EntityPerson person = availablePersons.get(personId);
+            if (person != null) {
+                // Remover la persona si está inactiva
+                if (!active && availablePersons.remove(personId) != null && journal != null) {
+                    journal.append(new JournalEntry.PersonRemoved(id, personId));
+                }
+
+                // Broadcast el cambio de estado
+                broadcastPersonStateUpdate(personId, active);
+
+                // Broadcast la lista actualizada de personas disponibles
+                broadcastAvailablePersons();
+
+                GameEventLog.info(logger, Category.PERSON, "person.state", "room", id, "person", personId,
+                        "active", active);
+            } else {
+                GameEventLog.warning(logger, Category.PERSON, "person.unknown", "room", id, "person", personId);
+            }
+        } catch (Exception e) {
+            GameEventLog.severe(logger, "person.state.failed", "room", id, "error", e.getMessage());
+        }
+    }
+
+    private void broadcastPersonStateUpdate(String personId, boolean active) {
+        try {
+            Map<String, Object> broadcast = new HashMap<>();
+            broadcast.put("type", "personStateUpdate");
+            broadcast.put("personId", personId);
+            broadcast.put("active", active);
+
+            long start = System.nanoTime();
+            BroadcastEvent event = BroadcastEvent.started();
+            String jsonMessage = objectMapper.writeValueAsString(broadcast);
+            TextMessage message = new TextMessage(jsonMessage);
+            long encodeNanos = System.nanoTime() - start;
+
+            int recipients = 0;
+            for (WebSocketSession session : sessions.values()) {
+                if (session.isOpen()) {
+                    outboxFor(session).send(message);
+                    recipients++;
+                }
+            }
+            recordBroadcast(event, GameMetrics.Broadcast.PERSON_STATE, start, encodeNanos, recipients,
+                    (long) recipients * message.getPayloadLength());
+            logger.fine(() -> "Broadcast person state to room " + id + ": " + jsonMessage);
+        } catch (Exception e) {
+            GameEventLog.severe(logger, "broadcast.failed", "room", id, "kind", "personState", "error",
+                    e.getMessage());
+        }
+    }
+
+    private void initializeAvailablePersons() {
+        availablePersons.add(new EntityPerson("p1", 4, 6, "PersonaCorbata.png"));
+        availablePersons.add(new EntityPerson("p2", 8, 5, "PersonaNaranja.png"));
+        availablePersons.add(new EntityPerson("p3", 10, 3, "mujer.png"));
+        availablePersons.add(new EntityPerson("p4", 12, 7, "mujer1.png"));
+        availablePersons.add(new EntityPerson("p5", 5, 5, "personaCampesino.png"));
+        availablePersons.add(new EntityPerson("p6", 2, 4, "personaEstudiante.png"));
+        availablePersons.add(new EntityPerson("p7", 6, 9, "personaVerde.png"));
+        availablePersons.add(new EntityPerson("p8", 3, 4, "tombo.png"));
+        availablePersons.add(new EntityPerson("p9", 14, 9, "tombo1.png"));
+        availablePersons.add(new EntityPerson("p10", 12, 1, "personaVerde.png"));
+        availablePersons.add(new EntityPerson("p11", 6, 1, "tombo1.png"));
+        availablePersons.add(new EntityPerson("p12", 4, 1, "mujer.png"));
+        availablePersons.add(new EntityPerson("p13", 3, 7, "personaEstudiante.png"));
+        availablePersons.add(new EntityPerson("p14", 2, 6, "personaCampesino.png"));
+        availablePersons.add(new EntityPerson("p15", 5, 9, "mujer1.png"));
+        for (EntityPerson person : availablePersons.values()) {
+            journalPersonAdded(person);
+        }
+    }
+
+    private void journalPersonAdded(EntityPerson person) {
+        if (journal != null) {
+            journal.append(new JournalEntry.PersonAdded(id, person.getId(), person.getX(), person.getY(),
+                    person.getSpriteFile()));
+        }
+    }
+
+    private void broadcastAvailablePersons() {
+        try {
+            long start = System.nanoTime();
+            BroadcastEvent event = BroadcastEvent.started();
+            TextMessage message = buildAvailablePersonsMessage(availablePersons.values());
+            long encodeNanos = System.nanoTime() - start;
+
+            int recipients = 0;
+            long bytes = 0;
+            for (Map.Entry<String, WebSocketSession> entry : sessions.entrySet()) {
+                String playerId = entry.getKey();
+                WebSocketSession session = entry.getValue();
+                if (session.isOpen()) {
+                    TextMessage sent = message;
+                    if (interest != null && interest.isTracked(playerId)) {
+                        // Solo las personas dentro de la vista de su bus
+                        long encodeStart = System.nanoTime();
+                        sent = buildAvailablePersonsMessage(interest.personsInView(playerId, availablePersons));
+                        encodeNanos += System.nanoTime() - encodeStart;
+                    }
+                    outboxFor(session).send(sent);
+                    bytes += sent.getPayloadLength();
+                    recipients++;
+                }
+            }
+            recordBroadcast(event, GameMetrics.Broadcast.PERSONS, start, encodeNanos, recipients, bytes);
+        } catch (Exception e) {
+            GameEventLog.severe(logger, "broadcast.failed", "room", id, "kind", "persons", "error", e.getMessage());
+        }
+    }
+
+    private TextMessage buildAvailablePersonsMessage(Collection<EntityPerson> persons) {
+        Map<String, Object> broadcast = new HashMap<>();
+        Map<String, Object> personsList = new HashMap<>();
+
+        for (EntityPerson person : persons) {
+            personsList.put(person.getId(), personDataOf(person));
+        }
+
+        broadcast.put("type", "availablePersons");
+        broadcast.put("persons", personsList);
+
+        try {
+            return new TextMessage(objectMapper.writeValueAsBytes(broadcast));
+        } catch (IOException e) {
+            throw new IllegalStateException("Error encoding available persons", e);
+        }
+    }
+
+    private Map<String, Object> personDataOf(EntityPerson person) {
+        Map<String, Object> personData = new HashMap<>();
+        personData.put("id", person.getId());
+        personData.put("x", person.getX());
+        personData.put("y", person.getY());
+        personData.put("file", person.getSpriteFile());
+        return personData;
+    }
+
+    private void handlePersonCollected(String playerId, String personId) {
+        EntityPerson person = availablePersons.get(personId);
+        if (person == null) {
+            return;
+        }
+        if (!isWithinReach(players.slotOf(playerId), person)) {
+            GameEventLog.warning(logger, Category.PERSON, "person.out_of_reach", "room", id, "person", personId,
+                    "player", playerId);
+            WebSocketSession session = sessions.get(playerId);
+            if (session != null) {
+                sendErrorMessage(session, "Person out of reach");
+            }
+            return;
+        }
+        // Si dos buses la recogen a la vez, solo uno consigue quitarla
+        if (availablePersons.remove(personId) != null) {
+            if (journal != null) {
+                journal.append(new JournalEntry.PersonRemoved(id, personId));
+            }
+            metrics.personCollected();
+            GameEventLog.info(logger, Category.PERSON, "person.collected", "room", id, "person", personId,
+                    "player", playerId);
+            broadcastAvailablePersons();
+        }
+    }
+
+    /** El bus debe estar en un tile a como mucho collectRadiusTiles de la persona. */
+    private boolean isWithinReach(int slot, EntityPerson person) {
+        if (slot == PlayerStore.NO_SLOT) {
+            return false;
+        }
+        int column = (int) Math.floor(players.x(slot) / tileSize);
+        int row = (int) Math.floor(players.y(slot) / tileSize);
+        return Math.abs(person.getX() - column) <= collectRadiusTiles
+                && Math.abs(person.getY() - row) <= collectRadiusTiles;
+    }
+
+    private void updatePlayer(String playerId, InboundMessage.Move move) {
+        int slot = players.slotOf(playerId);
+        if (slot != PlayerStore.NO_SLOT) {
+            if (move.x() != null)
+                players.setX(slot, move.x().floatValue());
+            if (move.y() != null)
+                players.setY(slot, move.y().floatValue());
+            // Una dirección desconocida no tiene sprite; se mantiene la anterior
+            byte direction = BinaryPositionEncoder.encodeDirection(move.direction());
+            if (direction != BinaryPositionEncoder.DIRECTION_NONE)
+                players.setDirection(slot, direction);
+            // Los movimientos agrupados se saltan números; el último aplicado cubre a los anteriores
+            if (move.seq() != null && move.seq() > players.inputSequence(slot))
+                players.setInputSequence(slot, move.seq());
+            snapshots.markChanged(playerId);
+            journalPosition(slot);
+            if (interest != null) {
+                interest.move(playerId, players.x(slot), players.y(slot));
+            }
+        }
+    }
+
+    private void journalPosition(int slot) {
+        if (journal != null) {
+            journal.appendMove(id, players.id(slot), players.x(slot), players.y(slot), players.direction(slot));
+        }
+    }
+
+    private void sendErrorMessage(WebSocketSession session, String errorMessage) {
+        try {
+            Map<String, Object> error = new HashMap<>();
+            error.put("type", "error");
+            error.put("message", errorMessage);
+
+            String jsonError = objectMapper.writeValueAsString(error);
+            outboxFor(session).send(new TextMessage(jsonError));
+        } catch (IOException e) {
+            GameEventLog.severe(logger, "error.encode.failed", "room", id, "error", e.getMessage());
+        }
+    }
+
+    private void broadcastPlayerStates() {
+        long start = System.nanoTime();
+        BroadcastEvent event = BroadcastEvent.started();
+        JSONObject gameState = new JSONObject();
+        JSONObject playersState = new JSONObject();
+
+        for (int i = 0; i < players.size(); i++) {
+            int slot = players.slotAt(i);
+            JSONObject playerData = new JSONObject();
+            playerData.put("x", Float.valueOf(players.x(slot)));
+            playerData.put("y", Float.valueOf(players.y(slot)));
+            playerData.put("direction", BinaryPositionEncoder.decodeDirection(players.direction(slot)));
+            playerData.put("hasPerson", String.valueOf(players.cargo(slot)));
+            playerData.put("index", slot);
+            playersState.put(players.id(slot), playerData);
+        }
+
+        gameState.put("players", playersState);
+        TextMessage message = new TextMessage(gameState.toString().getBytes(StandardCharsets.UTF_8));
+        long encodeNanos = System.nanoTime() - start;
+
+        int recipients = 0;
+        for (WebSocketSession session : sessions.values()) {
+            if (session.isOpen()) {
+                outboxFor(session).send(message);
+                recipients++;
+            }
+        }
+        recordBroadcast(event, GameMetrics.Broadcast.PLAYERS, start, encodeNanos, recipients,
+                (long) recipients * message.getPayloadLength());
+        logger.fine(() -> "Broadcast players to room " + id + ": " + message.getPayload());
+    }
+
+    private void onLeave(WebSocketSession session) {
+        String sessionId = session.getId();
+        String playerId = sessionToPlayerId.get(sessionId);
+
+        sessions.remove(playerId);
+        boolean wasPlayer = players.remove(playerId);
+        if (wasPlayer && journal != null) {
+            journal.append(new JournalEntry.PlayerLeft(id, playerId));
+        }
+        playerCount = players.size();
+        sessionToPlayerId.remove(sessionId);
+        sessionRoles.remove(playerId);
+        trackAdmin(playerId, session, null);
+        if (wasPlayer && !admins.isEmpty()) {
+            adminFeed.left(playerId);
+        }
+        snapshots.forget(playerId);
+        limiters.remove(playerId);
+        deferredCargo.remove(playerId);
+        MovementSlot movement = movementSlots.remove(session);
+        if (movement != null) {
+            movement.latest.set(null);
+        }
+        outboxes.remove(session);
+        playerIndexes.retire(playerId, currentTick);
+
+        if (interest != null) {
+            interest.remove(playerId);
+        }
+
+        GameEventLog.info(logger, Category.SESSION, "player.left", "room", id, "player", playerId);
+        // La baja viaja en el siguiente delta de posiciones y saca al jugador de las vistas
+        snapshots.markRemoved(playerId);
+        if (!deltaSnapshots) {
+            broadcastPlayerStates();
+        }
+
+        if (sessions.isEmpty()) {
+            tickLoop.stop();
+        }
+    }
+
+    private void tick() {
+        RoomTickEvent event = new RoomTickEvent();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            runTick();
+        } finally {
+            long nanos = System.nanoTime() - start;
+            metrics.recordTick(nanos, tickLoop.getPeriodNanos());
+            event.end();
+            if (event.shouldCommit()) {
+                event.room = id;
+                event.tick = currentTick;
+                event.players = players.size();
+                event.overrun = nanos > tickLoop.getPeriodNanos();
+                event.commit();
+            }
+        }
+    }
+
+    private void runTick() {
+        long tick = ++currentTick;
+        // Ningún delta puede referirse ya a índices retirados fuera de la ventana
+        playerIndexes.reclaim(tick - maxDeltaTicks - 1);
+        applyLatestMovements();
+        applyDeferredInput();
+        flushAdminFeed();
+        // Un solo snapshot de posiciones por tick, sin importar cuántos movimientos llegaron
+        if (!snapshots.advance(tick)) {
+            return;
+        }
+        if (interest != null) {
+            currentViews = refreshInterest();
+        }
+        if (deltaSnapshots) {
+            broadcastPositionDeltas();
+        } else {
+            broadcastPlayerPositions();
+        }
+    }
+
+    private void broadcastPositionDeltas() {
+        sendPositions(snapshots::baselineFor);
+    }
+
+    private void sendPositions(ToLongFunction<String> baselines) {
+        long start = System.nanoTime();
+        BroadcastEvent event = BroadcastEvent.started();
+        long encodeNanos = 0;
+        int recipients = 0;
+        // Los clientes con la misma base y el mismo protocolo comparten el mismo mensaje
+        Map<Long, WebSocketMessage<?>> jsonByBaseline = new HashMap<>();
+        Map<Long, byte[]> binaryByBaseline = new HashMap<>();
+        long bytes = 0;
+
+        for (Map.Entry<String, WebSocketSession> entry : sessions.entrySet()) {
+            String playerId = entry.getKey();
+            WebSocketSession session = entry.getValue();
+            if (!session.isOpen()) {
+                continue;
+            }
+            long baseline = baselines.applyAsLong(playerId);
+            boolean binary = BinaryPositionEncoder.PROTOCOL.equals(session.getAcceptedProtocol());
+            Set<String> visible = currentViews.get(playerId);
+            WebSocketMessage<?> message;
+            long encodeStart = System.nanoTime();
+            if (visible != null) {
+                // Con área de interés cada sesión tiene su propio mensaje
+                if (binary) {
+                    byte[] frame = encodeBinaryPositions(baseline, visible);
+                    message = frame != null ? new BinaryMessage(frame) : null;
+                } else {
+                    message = buildPositionsMessage(baseline, visible);
+                }
+            } else if (binary) {
+                if (!binaryByBaseline.containsKey(baseline)) {
+                    binaryByBaseline.put(baseline, encodeBinaryPositions(baseline, null));
+                }
+                byte[] frame = binaryByBaseline.get(baseline);
+                message = frame != null ? new BinaryMessage(frame) : null;
+            } else {
+                if (!jsonByBaseline.containsKey(baseline)) {
+                    jsonByBaseline.put(baseline, buildPositionsMessage(baseline, null));
+                }
+                message = jsonByBaseline.get(baseline);
+            }
+            encodeNanos += System.nanoTime() - encodeStart;
+            if (message == null) {
+                continue; // nada nuevo desde su base
+            }
+            outboxFor(session).sendPositions(message);
+            bytes += message.getPayloadLength();
+            recipients++;
+        }
+        recordBroadcast(event, GameMetrics.Broadcast.POSITIONS, start, encodeNanos, recipients, bytes);
+    }
+
+    /**
+     * Métricas y evento JFR de un fan-out que empezó en {@code start}; lo que no fue
+     * codificar es lo que costó encolarlo en las sesiones.
+     */
+    private void recordBroadcast(BroadcastEvent event, GameMetrics.Broadcast kind, long start, long encodeNanos,
+            int recipients, long bytes) {
+        long nanos = System.nanoTime() - start;
+        metrics.recordBroadcast(kind, nanos, bytes);
+        event.end();
+        if (event.shouldCommit()) {
+            event.room = id;
+            event.kind = kind.tag();
+            event.recipients = recipients;
+            event.bytes = bytes;
+            event.encodeTime = encodeNanos;
+            event.sendTime = nanos - encodeNanos;
+            event.commit();
+        }
+    }
+
+    private TextMessage buildPositionsMessage(long baseline, Set<String> visible) {
+        boolean full = baseline == SnapshotTracker.FULL_SNAPSHOT;
+        List<String> removed = full ? List.of() : snapshots.removedSince(baseline);
+        Map<String, Object> positions = new HashMap<>();
+
+        if (full) {
+            for (int i = 0; i < players.size(); i++) {
+                int slot = players.slotAt(i);
+                String id = players.id(slot);
+                if (visible == null || visible.contains(id)) {
+                    positions.put(id, positionOf(slot));
+                }
+            }
+        } else {
+            for (String id : snapshots.changedSince(baseline)) {
+                int slot = players.slotOf(id);
+                if (slot != PlayerStore.NO_SLOT && (visible == null || visible.contains(id))) {
+                    positions.put(id, positionOf(slot));
+                }
+            }
+        }
+
+        if (!full && positions.isEmpty() && removed.isEmpty()) {
+            return null;
+        }
+
+        Map<String, Object> broadcast = new HashMap<>();
+        broadcast.put("type", "positions");
+        broadcast.put("tick", currentTick);
+        broadcast.put("full", full);
+        broadcast.put("players", positions);
+        if (!full) {
+            broadcast.put("baseline", baseline);
+            broadcast.put("removed", removed);
+        }
+
+        try {
+            // Con los bytes ya hechos, las colas de salida no recodifican el mensaje compartido por sesión
+            return new TextMessage(objectMapper.writeValueAsBytes(broadcast));
+        } catch (IOException e) {
+            GameEventLog.severe(logger, "broadcast.failed", "room", id, "kind", "positions", "error", e.getMessage());
+            return null;
+        }
+    }
+
+    private byte[] encodeBinaryPositions(long baseline, Set<String> visible) {
+        boolean full = baseline == SnapshotTracker.FULL_SNAPSHOT;
+        binaryEncoder.begin(currentTick, baseline);
+
+        if (full) {
+            // Recorre los arrays en orden de índice ocupado, sin buscar por placa
+            for (int i = 0; i < players.size(); i++) {
+                int slot = players.slotAt(i);
+                if (visible == null || visible.contains(players.id(slot))) {
+                    addBinaryPosition(slot);
+                }
+            }
+        } else {
+            for (String id : snapshots.changedSince(baseline)) {
+                int slot = players.slotOf(id);
+                if (slot != PlayerStore.NO_SLOT && (visible == null || visible.contains(id))) {
+                    addBinaryPosition(slot);
+                }
+            }
+            for (String id : snapshots.removedSince(baseline)) {
+                int index = playerIndexes.indexOf(id);
+                if (index != PlayerIndexAllocator.NO_INDEX) {
+                    binaryEncoder.addRemoved(index);
+                }
+            }
+            if (binaryEncoder.isEmpty()) {
+                return null;
+            }
+        }
+        return binaryEncoder.finish();
+    }
+
+    private void addBinaryPosition(int slot) {
+        // El índice del almacén es el mismo que identifica al jugador en el frame
+        binaryEncoder.addPlayer(slot, players.x(slot), players.y(slot), players.direction(slot),
+                players.inputSequence(slot));
+    }
+
+    /**
+     * Recalcula la vista de cada jugador y avisa de quién entra (spawn) y quién sale
+     * (despawn). Las sesiones sin bus en el mapa, como los admins, lo ven todo.
+     */
+    private Map<String, Set<String>> refreshInterest() {
+        Map<String, Set<String>> views = new HashMap<>();
+        sessions.forEach((viewerId, session) -> {
+            if (!interest.isTracked(viewerId)) {
+                return;
+            }
+            Set<String> visible = interest.playersInView(viewerId);
+            views.put(viewerId, visible);
+            if (!session.isOpen()) {
+                return;
+            }
+
+            InterestManager.ViewChange playerChange = interest.updatePlayerView(viewerId, visible);
+            if (!playerChange.entered().isEmpty()) {
+                Map<String, Object> spawned = new HashMap<>();
+                for (String id : playerChange.entered()) {
+                    int slot = players.slotOf(id);
+                    if (slot != PlayerStore.NO_SLOT) {
+                        Map<String, Object> playerData = positionOf(slot);
+                        playerData.put("hasPerson", String.valueOf(players.cargo(slot)));
+                        playerData.put("index", slot);
+                        spawned.put(id, playerData);
+                    }
+                }
+                sendJson(session, Map.of("type", "spawn", "players", spawned));
+            }
+            if (!playerChange.left().isEmpty()) {
+                sendJson(session, Map.of("type", "despawn", "players", playerChange.left()));
+            }
+
+            Set<String> visiblePersons = new HashSet<>();
+            for (EntityPerson person : interest.personsInView(viewerId, availablePersons)) {
+                visiblePersons.add(person.getId());
+            }
+            InterestManager.ViewChange personChange = interest.updatePersonView(viewerId, visiblePersons);
+            if (!personChange.entered().isEmpty()) {
+                Map<String, Object> spawned = new HashMap<>();
+                for (String id : personChange.entered()) {
+                    EntityPerson person = availablePersons.get(id);
+                    if (person != null) {
+                        spawned.put(id, personDataOf(person));
+                    }
+                }
+                sendJson(session, Map.of("type", "personSpawn", "persons", spawned));
+            }
+            if (!personChange.left().isEmpty()) {
+                sendJson(session, Map.of("type", "personDespawn", "persons", personChange.left()));
+            }
+        });
+        return views;
+    }
+
+    private void sendJson(WebSocketSession session, Map<String, Object> payload) {
+        try {
+            outboxFor(session).send(new TextMessage(objectMapper.writeValueAsString(payload)));
+        } catch (IOException e) {
+            GameEventLog.severe(logger, "encode.failed", "room", id, "error", e.getMessage());
+        }
+    }
+
+    private Map<String, Object> positionOf(int slot) {
+        Map<String, Object> position = new HashMap<>();
+        position.put("x", players.x(slot));
+        position.put("y", players.y(slot));
+        position.put("direction", BinaryPositionEncoder.decodeDirection(players.direction(slot)));
+        long sequence = players.inputSequence(slot);
+        if (sequence > 0) {
+            // El cliente descarta su predicción hasta aquí y vuelve a aplicar las entradas posteriores
+            position.put("seq", sequence);
+        }
+        return position;
+    }
+
+    private void broadcastPlayerPositions() {
+        // Snapshot completo para todas las sesiones
+        sendPositions(playerId -> SnapshotTracker.FULL_SNAPSHOT);
+    }
+
+    private void handlePersonUpdate(InboundMessage.CargoUpdate update) {
+        try {
+            // Los dos formatos del frontend (id o playerId, texto o entero) ya vienen unificados
+            String targetPlayerId = update.playerId();
+            byte cargo = PlayerStore.parseCargo(update.hasPerson());
+            String hasPerson = String.valueOf(cargo);
+
+            int slot = players.slotOf(targetPlayerId);
+            if (slot != PlayerStore.NO_SLOT) {
+                players.setCargo(slot, cargo);
+                if (journal != null) {
+                    journal.append(new JournalEntry.CargoChanged(id, targetPlayerId, cargo));
+                }
+                broadcastPersonStatus(targetPlayerId, hasPerson);
+                GameEventLog.info(logger, Category.CARGO, "cargo.updated", "room", id, "player", targetPlayerId,
+                        "hasPerson", hasPerson);
+            } else {
+                GameEventLog.warning(logger, Category.CARGO, "cargo.unknown_player", "room", id, "player",
+                        targetPlayerId);
+            }
+        } catch (Exception e) {
+            GameEventLog.severe(logger, "cargo.update.failed", "room", id, "error", e.getMessage());
+        }
+    }
+
+    private void broadcastPersonStatus(String playerId, String hasPerson) {
+        try {
+            Map<String, Object> broadcast = new HashMap<>();
+            broadcast.put("type", "personUpdate");
+            broadcast.put("playerId", playerId);
+            broadcast.put("hasPerson", hasPerson);
+
+            long start = System.nanoTime();
+            BroadcastEvent event = BroadcastEvent.started();
+            String jsonMessage = objectMapper.writeValueAsString(broadcast);
+            TextMessage message = new TextMessage(jsonMessage);
+            long encodeNanos = System.nanoTime() - start;
+
+            int recipients = 0;
+            for (WebSocketSession session : sessions.values()) {
+                if (session.isOpen()) {
+                    outboxFor(session).send(message);
+                    recipients++;
+                }
+            }
+            recordBroadcast(event, GameMetrics.Broadcast.PERSON_UPDATE, start, encodeNanos, recipients,
+                    (long) recipients * message.getPayloadLength());
+            logger.fine(() -> "Broadcast person status to room " + id + ": " + jsonMessage);
+        } catch (Exception e) {
+            GameEventLog.severe(logger, "broadcast.failed", "room", id, "kind", "personUpdate", "error",
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * Envía a los admins las altas, bajas y cambios de nombre acumulados, como mucho una
+     * vez por ventana de {@code game.admin.debounce-millis}. Cuesta lo que cambió, no lo
+     * que mide la sala: la lista completa solo viaja al suscribirse.
+     */
+    private void flushAdminFeed() {
+        long now = System.nanoTime();
+        if (!adminFeed.isDue(now)) {
+            return;
+        }
+        AdminFeed.Delta delta = adminFeed.drain(now);
+        if (admins.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        BroadcastEvent event = BroadcastEvent.started();
+        Map<String, Object> broadcast = new HashMap<>();
+        broadcast.put("type", "playersDelta");
+        broadcast.put("count", players.size());
+        broadcast.put("joined", delta.joined());
+        broadcast.put("renamed", delta.renamed());
+        broadcast.put("left", delta.left());
+        try {
+            TextMessage message = new TextMessage(objectMapper.writeValueAsBytes(broadcast));
+            long encodeNanos = System.nanoTime() - start;
+
+            int recipients = 0;
+            for (WebSocketSession session : admins.values()) {
+                if (session.isOpen()) {
+                    outboxFor(session).send(message);
+                    recipients++;
+                }
+            }
+            recordBroadcast(event, GameMetrics.Broadcast.ADMIN, start, encodeNanos, recipients,
+                    (long) recipients * message.getPayloadLength());
+        } catch (IOException e) {
+            GameEventLog.severe(logger, "broadcast.failed", "room", id, "kind", "admin", "error", e.getMessage());
+        }
+    }
+
+    /** Snapshot completo de jugadores para un admin que se suscribe; después solo recibe cambios. */
+    private void sendPlayersCountToAdmin(WebSocketSession session) {
+        JSONObject response = new JSONObject();
+        response.put("type", "playersInfo");
+        response.put("count", players.size());
+
+        JSONArray playersList = new JSONArray();
+        for (int i = 0; i < players.size(); i++) {
+            int slot = players.slotAt(i);
+            JSONObject playerObj = new JSONObject();
+            playerObj.put("plate", players.id(slot));
+            playerObj.put("name", players.name(slot));
+            playersList.put(playerObj);
+        }
+
+        response.put("players", playersList);
+
+        if (session.isOpen()) {
+            outboxFor(session).send(new TextMessage(response.toString()));
+        } else {
+            GameEventLog.info(logger, Category.ADMIN, "admin.closed", "room", id, "session", session.getId());
+        }
+    }
+
+    private String generatePlate() {
+        String letters = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+        String numbers = "0123456789";
+        StringBuilder plate = new StringBuilder();
+
+        // Genera 3 letras
+        Random random = new Random();
+        for (int i = 0; i < 3; i++) {
+            plate.append(letters.charAt(random.nextInt(letters.length())));
+        }
+
+        // Añade el separador
+        plate.append("-");
+
+        // Genera 3 números
+        for (int i = 0; i < 3; i++) {
+            plate.append(numbers.charAt(random.nextInt(numbers.length())));
+        }
+
+        return plate.toString();
+    }
+}
\ No newline at end of file
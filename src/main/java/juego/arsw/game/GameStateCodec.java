@@ -0,0 +1,148 @@
+package juego.arsw.game;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import juego.arsw.model.EntityPerson;
+
+/**
+ * Formato binario de los snapshots de estado que guarda {@link SnapshotFile}.
+ *
+ * <pre>
+ * i32 versión, i32 número de salas, y por sala:
+ *     str id, i64 tick
+ *     i32 jugadores, y por jugador: str placa, str nombre, f32 x, f32 y, u8 dirección, u8 carga
+ *     i32 personas, y por persona: str id, i32 x, i32 y, str sprite
+ * </pre>
+ *
+ * Cada str es un u16 con la longitud en bytes UTF-8 (0xFFFF si es null) seguido de los
+ * bytes. Todo en big-endian. No es thread-safe: reutiliza su buffer entre snapshots.
+ */
+public class GameStateCodec {
+    public static final int VERSION = 1;
+
+    private static final int NULL_STRING = 0xFFFF;
+
+    private ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+
+    /** Codifica las salas; el buffer devuelto es válido hasta la siguiente llamada. */
+    public ByteBuffer encode(List<RoomState> rooms) {
+        buffer.clear();
+        ensureCapacity(8);
+        buffer.putInt(VERSION);
+        buffer.putInt(rooms.size());
+        for (RoomState room : rooms) {
+            putString(room.roomId());
+            ensureCapacity(12);
+            buffer.putLong(room.tick());
+            buffer.putInt(room.playerCount());
+            for (int i = 0; i < room.playerCount(); i++) {
+                putString(room.playerIds()[i]);
+                putString(room.names()[i]);
+                ensureCapacity(10);
+                buffer.putFloat(room.xs()[i]);
+                buffer.putFloat(room.ys()[i]);
+                buffer.put(room.directions()[i]);
+                buffer.put(room.cargo()[i]);
+            }
+            ensureCapacity(4);
+            buffer.putInt(room.persons().size());
+            for (EntityPerson person : room.persons()) {
+                putString(person.getId());
+                ensureCapacity(8);
+                buffer.putInt(person.getX());
+                buffer.putInt(person.getY());
+                putString(person.getSpriteFile());
+            }
+        }
+        return buffer.flip();
+    }
+
+    public static List<RoomState> decode(ByteBuffer input) {
+        ByteBuffer in = input.duplicate();
+        try {
+            int version = in.getInt();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported game state version: " + version);
+            }
+            int roomCount = in.getInt();
+            List<RoomState> rooms = new ArrayList<>(roomCount);
+            for (int r = 0; r < roomCount; r++) {
+                String roomId = getString(in);
+                long tick = in.getLong();
+                int players = in.getInt();
+                String[] ids = new String[players];
+                String[] names = new String[players];
+                float[] xs = new float[players];
+                float[] ys = new float[players];
+                byte[] directions = new byte[players];
+                byte[] cargo = new byte[players];
+                for (int i = 0; i < players; i++) {
+                    ids[i] = getString(in);
+                    names[i] = getString(in);
+                    xs[i] = in.getFloat();
+                    ys[i] = in.getFloat();
+                    directions[i] = in.get();
+                    cargo[i] = in.get();
+                }
+                int personCount = in.getInt();
+                List<EntityPerson> persons = new ArrayList<>(personCount);
+                for (int i = 0; i < personCount; i++) {
+                    String id = getString(in);
+                    int x = in.getInt();
+                    int y = in.getInt();
+                    persons.add(new EntityPerson(id, x, y, getString(in)));
+                }
+                rooms.add(new RoomState(roomId, tick, ids, names, xs, ys, directions, cargo, persons));
+            }
+            return rooms;
+        } catch (BufferUnderflowException | NegativeArraySizeException e) {
+            throw new IllegalArgumentException("Truncated game state", e);
+        }
+    }
+
+    private void putString(String value) {
+        if (value == null) {
+            ensureCapacity(2);
+            buffer.putShort((short) NULL_STRING);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length >= NULL_STRING) {
+            throw new IllegalArgumentException("String too long for game state: " + bytes.length + " bytes");
+        }
+        ensureCapacity(2 + bytes.length);
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = Short.toUnsignedInt(in.getShort());
+        if (length == NULL_STRING) {
+            return null;
+        }
+        if (length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        if (in.hasArray()) {
+            String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+            return value;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (buffer.remaining() < bytes) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+            buffer.flip();
+            bigger.put(buffer);
+            buffer = bigger;
+        }
+    }
+}
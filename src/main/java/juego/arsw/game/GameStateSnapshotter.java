@@ -0,0 +1,139 @@
+package juego.arsw.game;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Guarda periódicamente el estado de las salas en un {@link SnapshotFile}. Cada sala copia
+ * su estado en su propio bucle (solo recorrer arrays), y la codificación y la escritura
+ * ocurren en el hilo del snapshotter, así que el juego no se detiene mientras se guarda.
+ */
+public class GameStateSnapshotter implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger(GameStateSnapshotter.class.getName());
+
+    private final SnapshotFile file;
+    private final Supplier<CompletableFuture<List<RoomState>>> source;
+    private final long intervalMillis;
+    private final long captureTimeoutMillis;
+    private final GameStateCodec codec = new GameStateCodec();
+    private final ScheduledExecutorService scheduler;
+
+    private final AtomicLong snapshots = new AtomicLong();
+    private final AtomicLong failedSnapshots = new AtomicLong();
+    private volatile int lastBytes;
+    private volatile long lastMicros;
+
+    public GameStateSnapshotter(SnapshotFile file, Supplier<CompletableFuture<List<RoomState>>> source,
+            long intervalMillis) {
+        this.file = file;
+        this.source = source;
+        this.intervalMillis = intervalMillis;
+        this.captureTimeoutMillis = Math.max(1000, intervalMillis);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "game-state-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /** Salas del último snapshot válido del fichero, o una lista vacía si no hay. */
+    public static List<RoomState> restore(SnapshotFile file) {
+        ByteBuffer latest = file.readLatest();
+        if (latest == null) {
+            return List.of();
+        }
+        long start = System.nanoTime();
+        try {
+            List<RoomState> rooms = GameStateCodec.decode(latest);
+            logger.info("Restored " + rooms.size() + " rooms from snapshot " + file.getSequence() + " in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+            return rooms;
+        } catch (IllegalArgumentException e) {
+            logger.severe("Ignoring unreadable game state snapshot: " + e.getMessage());
+            return List.of();
+        }
+    }
+
+    public void start() {
+        if (intervalMillis > 0) {
+            scheduler.scheduleWithFixedDelay(this::snapshotQuietly, intervalMillis, intervalMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Captura y guarda un snapshot. Lo usa el hilo del snapshotter; llamarlo desde fuera
+     * solo es seguro si ese hilo no está guardando.
+     *
+     * @return false si la captura o la escritura fallaron; el snapshot anterior sigue valiendo
+     */
+    public boolean snapshot() {
+        try {
+            List<RoomState> rooms = source.get().get(captureTimeoutMillis, TimeUnit.MILLISECONDS);
+            long start = System.nanoTime();
+            ByteBuffer payload = codec.encode(rooms);
+            int bytes = payload.remaining();
+            file.write(payload);
+            lastBytes = bytes;
+            lastMicros = (System.nanoTime() - start) / 1_000;
+            snapshots.incrementAndGet();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException | RuntimeException e) {
+            logger.warning("Game state snapshot failed: " + e);
+        }
+        failedSnapshots.incrementAndGet();
+        return false;
+    }
+
+    public long getSnapshotCount() {
+        return snapshots.get();
+    }
+
+    public long getFailedSnapshots() {
+        return failedSnapshots.get();
+    }
+
+    /** Tamaño del último snapshot guardado, en bytes. */
+    public int getLastBytes() {
+        return lastBytes;
+    }
+
+    /** Tiempo de codificar y escribir el último snapshot, en microsegundos. */
+    public long getLastMicros() {
+        return lastMicros;
+    }
+
+    /** Para el hilo y guarda un último snapshot antes de salir. */
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warning("Game state snapshotter did not stop in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        snapshot();
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (RuntimeException e) {
+            // Un error inesperado no debe cancelar los snapshots programados
+            logger.severe("Game state snapshot error: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package juego.arsw.game;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Bucle de tick a frecuencia fija. Ejecuta la tarea del juego en un hilo dedicado, o la
+ * entrega a otro ejecutor (p. ej. el bucle de eventos de una sala), y lleva la cuenta de la
+ * duración de cada tick y de los ticks que se pasan de su periodo.
+ *
+ * <p>Con un planificador compartido (el de {@link GameExecutors#ticks}) el bucle no crea
+ * hilos: ese planificador solo dispara los ticks y los entrega al ejecutor, así que un
+ * único hilo basta para todas las salas. Sin él, cada bucle arranca su propio hilo.
+ */
+public class GameTickLoop {
+    private static final Logger logger = Logger.getLogger(GameTickLoop.class.getName());
+
+    private final String name;
+    private final long periodNanos;
+    private final Runnable tickTask;
+    private final Executor tickExecutor;
+    private final AtomicBoolean tickPending = new AtomicBoolean();
+    private final ScheduledExecutorService sharedScheduler;
+    private ScheduledExecutorService ownScheduler;
+    private ScheduledFuture<?> ticking;
+
+    private final AtomicLong tickCount = new AtomicLong();
+    private final AtomicLong overrunCount = new AtomicLong();
+    private final AtomicLong skippedCount = new AtomicLong();
+    private final LongAdder totalTickNanos = new LongAdder();
+    private volatile long lastTickNanos;
+    private volatile long maxTickNanos;
+
+    public GameTickLoop(String name, int rateHz, Runnable tickTask) {
+        this(name, rateHz, tickTask, Runnable::run);
+    }
+
+    /**
+     * Los ticks se ejecutan en {@code tickExecutor}. Si el anterior aún no ha corrido cuando
+     * toca el siguiente, este se salta en lugar de acumularse detrás.
+     */
+    public GameTickLoop(String name, int rateHz, Runnable tickTask, Executor tickExecutor) {
+        this(name, rateHz, tickTask, tickExecutor, null);
+    }
+
+    /**
+     * Como el anterior, pero los ticks se programan en {@code scheduler}, que se comparte con
+     * otros bucles y no se apaga al parar este. Con null el bucle usa un hilo propio.
+     */
+    public GameTickLoop(String name, int rateHz, Runnable tickTask, Executor tickExecutor,
+            ScheduledExecutorService scheduler) {
+        if (rateHz <= 0) {
+            throw new IllegalArgumentException("Tick rate must be positive: " + rateHz);
+        }
+        this.name = name;
+        this.periodNanos = TimeUnit.SECONDS.toNanos(1) / rateHz;
+        this.tickTask = tickTask;
+        this.tickExecutor = tickExecutor;
+        this.sharedScheduler = scheduler;
+    }
+
+    public synchronized void start() {
+        if (ticking != null) {
+            return;
+        }
+        ScheduledExecutorService scheduler = sharedScheduler;
+        if (scheduler == null) {
+            ownScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler = ownScheduler;
+        }
+        ticking = scheduler.scheduleAtFixedRate(this::dispatchTick, periodNanos, periodNanos, TimeUnit.NANOSECONDS);
+        logger.info("Tick loop " + name + " started at " + getRateHz() + " Hz");
+    }
+
+    public synchronized void stop() {
+        if (ticking == null) {
+            return;
+        }
+        ticking.cancel(false);
+        ticking = null;
+        if (ownScheduler != null) {
+            ownScheduler.shutdownNow();
+            ownScheduler = null;
+        }
+        logger.info("Tick loop " + name + " stopped");
+    }
+
+    public synchronized boolean isRunning() {
+        return ticking != null;
+    }
+
+    private void dispatchTick() {
+        if (!tickPending.compareAndSet(false, true)) {
+            skippedCount.incrementAndGet();
+            return;
+        }
+        tickExecutor.execute(() -> {
+            try {
+                runTick();
+            } finally {
+                tickPending.set(false);
+            }
+        });
+    }
+
+    void runTick() {
+        long start = System.nanoTime();
+        try {
+            tickTask.run();
+        } catch (Exception e) {
+            logger.severe("Error running tick on " + name + ": " + e.getMessage());
+        } finally {
+            long duration = System.nanoTime() - start;
+            tickCount.incrementAndGet();
+            totalTickNanos.add(duration);
+            lastTickNanos = duration;
+            if (duration > maxTickNanos) {
+                maxTickNanos = duration;
+            }
+            if (duration > periodNanos) {
+                overrunCount.incrementAndGet();
+            }
+        }
+    }
+
+    public int getRateHz() {
+        return (int) (TimeUnit.SECONDS.toNanos(1) / periodNanos);
+    }
+
+    public long getPeriodNanos() {
+        return periodNanos;
+    }
+
+    public long getTickCount() {
+        return tickCount.get();
+    }
+
+    public long getOverrunCount() {
+        return overrunCount.get();
+    }
+
+    /** Ticks que no llegaron a ejecutarse porque el anterior seguía pendiente. */
+    public long getSkippedCount() {
+        return skippedCount.get();
+    }
+
+    public long getTotalTickNanos() {
+        return totalTickNanos.sum();
+    }
+
+    public long getLastTickNanos() {
+        return lastTickNanos;
+    }
+
+    public long getMaxTickNanos() {
+        return maxTickNanos;
+    }
+}
@@ -0,0 +1,53 @@
+package juego.arsw.game;
+
+/**
+ * Mensajes que los clientes envían a una sala, ya decodificados por
+ * {@link InboundMessageDecoder}. Cada tipo tiene su manejador en la tabla de la sala.
+ */
+public sealed interface InboundMessage {
+
+    /** Nombres de los tipos en las métricas y los eventos JFR. */
+    String ACK = "ack";
+    String PERSON_STATE = "personState";
+    String COLLECT_PERSON = "collectPerson";
+    String CARGO_UPDATE = "cargoUpdate";
+    String MOVE = "move";
+
+    static String typeOf(InboundMessage message) {
+        return switch (message) {
+            case Ack ack -> ACK;
+            case PersonState update -> PERSON_STATE;
+            case CollectPerson collect -> COLLECT_PERSON;
+            case CargoUpdate update -> CARGO_UPDATE;
+            case Move move -> MOVE;
+        };
+    }
+
+    /** {@code {"type":"ack","tick":N}}: el cliente confirma el snapshot del tick N. */
+    record Ack(long tick) implements InboundMessage {
+    }
+
+    /** {@code {"personId":..,"active":..}}: una persona aparece o desaparece del mapa. */
+    record PersonState(String personId, boolean active) implements InboundMessage {
+    }
+
+    /** {@code {"type":"collectPerson","personId":..}}: el bus recoge a una persona. */
+    record CollectPerson(String personId) implements InboundMessage {
+    }
+
+    /** {@code {"id"|"playerId":..,"hasPerson":..}}: cambia la carga de un bus. */
+    record CargoUpdate(String playerId, String hasPerson) implements InboundMessage {
+    }
+
+    /**
+     * Movimiento del propio bus; los campos que no vienen en el mensaje son null.
+     * {@code seq} es el número de entrada del cliente, que vuelve en los snapshots para que
+     * concilie su predicción.
+     */
+    record Move(Double x, Double y, String direction, Long seq) implements InboundMessage {
+
+        public Move(Double x, Double y, String direction) {
+            this(x, y, direction, null);
+        }
+    }
+}
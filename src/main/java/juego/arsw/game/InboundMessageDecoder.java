@@ -0,0 +1,179 @@
+package juego.arsw.game;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Decodifica los mensajes de los clientes en una sola pasada con el parser de streaming de
+ * Jackson, sin construir un árbol. Lee los campos conocidos del nivel superior, salta el
+ * resto y decide el tipo con las mismas reglas y el mismo orden que usaba la sala:
+ * ack, estado de persona, recogida, carga y, si no es ninguno, movimiento.
+ *
+ * <p>No guarda estado entre llamadas; una instancia se puede compartir entre hilos.
+ */
+public class InboundMessageDecoder {
+    public static final String DEFAULT_ROLE = "user";
+
+    // Claves que dan a un frame otro tipo, un rol o un nombre; sin ninguna es un movimiento
+    private static final String[] NON_MOVEMENT_KEYS = { "\"type\"", "\"personId\"", "\"id\"", "\"playerId\"",
+            "\"role\"", "\"name\"" };
+
+    private final JsonFactory factory = new JsonFactory();
+
+    /** Rol y nombre vienen en cualquier mensaje; el resto decide el tipo. */
+    public record Frame(String role, String name, InboundMessage message) {
+    }
+
+    /**
+     * Si el frame es un movimiento simple, mirando solo el texto y sin parsearlo: no trae
+     * ninguna de las claves que {@link #decode} usa para elegir otro tipo, ni rol, ni nombre.
+     * Ante la duda (p. ej. escapes, que podrían esconder una clave) responde false y el frame
+     * sigue el camino normal. Un frame que empieza como objeto pero no es JSON válido puede
+     * dar true.
+     */
+    public static boolean isMovement(String payload) {
+        if (!payload.stripLeading().startsWith("{") || payload.indexOf('\\') >= 0) {
+            return false;
+        }
+        for (String key : NON_MOVEMENT_KEYS) {
+            if (payload.contains(key)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public Frame decode(String payload) throws IOException {
+        String type = null;
+        String role = DEFAULT_ROLE;
+        String name = null;
+        String personId = null;
+        String id = null;
+        String playerId = null;
+        String hasPerson = null;
+        boolean invalidCargo = false;
+        String direction = null;
+        Long tick = null;
+        Long seq = null;
+        Boolean active = null;
+        Double x = null;
+        Double y = null;
+
+        try (JsonParser parser = factory.createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Message must be a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "type" -> type = text(parser);
+                    case "role" -> role = orDefault(text(parser), DEFAULT_ROLE);
+                    case "name" -> name = text(parser);
+                    case "tick" -> tick = longValue(parser);
+                    case "seq" -> seq = longValue(parser);
+                    case "personId" -> personId = text(parser);
+                    case "active" -> active = booleanValue(parser);
+                    case "id" -> id = text(parser);
+                    case "playerId" -> playerId = text(parser);
+                    case "hasPerson" -> {
+                        hasPerson = cargo(parser);
+                        invalidCargo = hasPerson == null && parser.currentToken() != JsonToken.VALUE_NULL;
+                    }
+                    case "x" -> x = doubleValue(parser);
+                    case "y" -> y = doubleValue(parser);
+                    case "direction" -> direction = text(parser);
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+
+        InboundMessage message;
+        if ("ack".equals(type) && tick != null) {
+            message = new InboundMessage.Ack(tick);
+        } else if (personId != null && active != null) {
+            message = new InboundMessage.PersonState(personId, active);
+        } else if ("collectPerson".equals(type)) {
+            if (personId == null) {
+                throw new IllegalArgumentException("collectPerson without personId");
+            }
+            message = new InboundMessage.CollectPerson(personId);
+        } else if ((id != null || playerId != null) && (hasPerson != null || invalidCargo)) {
+            if (invalidCargo) {
+                throw new IllegalArgumentException("Invalid hasPerson value type");
+            }
+            // "id" tiene prioridad, como en los dos formatos que manda el frontend
+            message = new InboundMessage.CargoUpdate(id != null ? id : playerId, hasPerson);
+        } else {
+            message = new InboundMessage.Move(x, y, direction, seq);
+        }
+        return new Frame(role, name, message);
+    }
+
+    private static String text(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token.isStructStart()) {
+            parser.skipChildren();
+            return null;
+        }
+        return token == JsonToken.VALUE_NULL ? null : parser.getText();
+    }
+
+    /**
+     * Carga como texto si es una cadena o un entero; si no, null. Un tipo inválido solo es un
+     * error en una actualización de carga: un movimiento ignora {@code hasPerson}.
+     */
+    private static String cargo(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_STRING || token == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getText();
+        }
+        if (token.isStructStart()) {
+            parser.skipChildren();
+        }
+        return null;
+    }
+
+    private static Long longValue(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getLongValue();
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            return Long.parseLong(parser.getText().trim());
+        }
+        throw new IllegalArgumentException("Invalid number: " + parser.getText());
+    }
+
+    private static Double doubleValue(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token.isNumeric()) {
+            return parser.getDoubleValue();
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            return Double.parseDouble(parser.getText().trim());
+        }
+        throw new IllegalArgumentException("Invalid number: " + parser.getText());
+    }
+
+    private static Boolean booleanValue(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token.isBoolean()) {
+            return token == JsonToken.VALUE_TRUE;
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            String value = parser.getText();
+            if ("true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value)) {
+                return Boolean.parseBoolean(value);
+            }
+        }
+        throw new IllegalArgumentException("Invalid boolean: " + parser.getText());
+    }
+
+    private static String orDefault(String value, String fallback) {
+        return value != null ? value : fallback;
+    }
+}
@@ -0,0 +1,36 @@
+package juego.arsw.game;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Evento JFR de un mensaje de cliente. Su duración es el manejo en el bucle de la sala;
+ * {@code queueTime} es lo que esperó desde que llegó del socket hasta que el bucle lo tomó.
+ * Los campos solo se rellenan si el evento se va a grabar.
+ */
+@Name("juego.arsw.InboundMessage")
+@Label("Inbound Message")
+@Category({ "Game", "WebSocket" })
+@Description("A client message handled by a game room")
+@StackTrace(false)
+public class InboundMessageEvent extends jdk.jfr.Event {
+
+    @Label("Room")
+    public String room;
+
+    @Label("Type")
+    public String type;
+
+    @Label("Size")
+    @DataAmount
+    public int size;
+
+    @Label("Queue Time")
+    @Timespan
+    public long queueTime;
+}
@@ -0,0 +1,107 @@
+package juego.arsw.game;
+
+import juego.arsw.config.GameProperties;
+
+/**
+ * Límite de mensajes por tipo para una sesión, con el algoritmo GCRA: cada tipo guarda solo
+ * el instante teórico de la siguiente llegada, que avanza {@code 1/perSecond} con cada
+ * mensaje aceptado. Un mensaje se rechaza si ese instante va más de {@code burst - 1}
+ * intervalos por delante del reloj, así que se admiten ráfagas de {@code burst} y luego
+ * {@code perSecond} sostenidos.
+ *
+ * <p>Los movimientos no pasan por aquí: ya se agrupan en el hueco de cada sesión y se
+ * aplica como mucho uno por tick, que es el límite que importa para la difusión.
+ *
+ * <p>Comprobar un mensaje son unas restas sobre un array de {@code long}: no reserva
+ * memoria ni toma locks. Vive en el bucle de la sala, que es su único escritor, y no es
+ * seguro entre hilos.
+ */
+public class InputRateLimiter {
+
+    /** Tipos limitados; lo que pasa del límite se guarda hasta el siguiente tick o se descarta. */
+    public enum Kind {
+        CARGO_UPDATE(InboundMessage.CARGO_UPDATE, true),
+        COLLECT_PERSON(InboundMessage.COLLECT_PERSON, false),
+        PERSON_STATE(InboundMessage.PERSON_STATE, false);
+
+        private final String type;
+        private final boolean coalesced;
+
+        Kind(String type, boolean coalesced) {
+            this.type = type;
+            this.coalesced = coalesced;
+        }
+
+        /** Nombre del tipo en las métricas, el mismo que en {@code game.messages}. */
+        public String type() {
+            return type;
+        }
+
+        /**
+         * Si solo importa el último valor: una carga de más sustituye a la anterior y se
+         * aplica en el siguiente tick en vez de perderse.
+         */
+        public boolean isCoalesced() {
+            return coalesced;
+        }
+
+        /**
+         * Tipo de un mensaje, o null si no se limita: los ack no difunden nada y los
+         * movimientos ya salen como mucho uno por tick.
+         */
+        public static Kind of(InboundMessage message) {
+            return switch (message) {
+                case InboundMessage.Move move -> null;
+                case InboundMessage.CargoUpdate update -> CARGO_UPDATE;
+                case InboundMessage.CollectPerson collect -> COLLECT_PERSON;
+                case InboundMessage.PersonState update -> PERSON_STATE;
+                case InboundMessage.Ack ack -> null;
+            };
+        }
+    }
+
+    private static final Kind[] KINDS = Kind.values();
+
+    private final long[] intervalNanos = new long[KINDS.length];
+    private final long[] toleranceNanos = new long[KINDS.length];
+    private final long[] theoreticalArrival = new long[KINDS.length];
+
+    public InputRateLimiter(GameProperties.Input properties) {
+        for (Kind kind : KINDS) {
+            GameProperties.Input.Limit limit = limitOf(properties, kind);
+            int i = kind.ordinal();
+            if (limit.getPerSecond() > 0) {
+                intervalNanos[i] = (long) (1_000_000_000L / limit.getPerSecond());
+                toleranceNanos[i] = intervalNanos[i] * (Math.max(limit.getBurst(), 1) - 1);
+            }
+            theoreticalArrival[i] = Long.MIN_VALUE;
+        }
+    }
+
+    private static GameProperties.Input.Limit limitOf(GameProperties.Input properties, Kind kind) {
+        return switch (kind) {
+            case CARGO_UPDATE -> properties.getCargoUpdate();
+            case COLLECT_PERSON -> properties.getCollectPerson();
+            case PERSON_STATE -> properties.getPersonState();
+        };
+    }
+
+    /** Cuenta el mensaje si cabe en el límite de su tipo; false si hay que agruparlo o descartarlo. */
+    public boolean tryAcquire(Kind kind, long nowNanos) {
+        int i = kind.ordinal();
+        long interval = intervalNanos[i];
+        if (interval == 0) {
+            return true;
+        }
+        long arrival = theoreticalArrival[i];
+        // Con la sesión en silencio el instante teórico se queda atrás; no se acumula crédito
+        if (arrival == Long.MIN_VALUE || arrival - nowNanos < 0) {
+            arrival = nowNanos;
+        }
+        if (arrival - nowNanos > toleranceNanos[i]) {
+            return false;
+        }
+        theoreticalArrival[i] = arrival + interval;
+        return true;
+    }
+}
@@ -0,0 +1,157 @@
+package juego.arsw.game;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import juego.arsw.model.EntityPerson;
+
+/**
+ * Gestión de interés por celdas del mapa. Cada jugador se guarda en la celda del tile
+ * en el que está, y un jugador solo ve lo que cae dentro de un radio de celdas alrededor
+ * de la suya. Recuerda qué veía cada jugador para saber quién entra y quién sale de su vista.
+ *
+ * <p>Solo la usa el bucle de la sala, así que los mapas son {@code HashMap} sin sincronizar
+ * y no es segura entre hilos.
+ */
+public class InterestManager {
+    private final int columns;
+    private final int rows;
+    private final double tileSize;
+    private final int radius;
+
+    private final Map<String, Integer> playerCells = new HashMap<>();
+    private final Map<Integer, Set<String>> cellPlayers = new HashMap<>();
+    private final Map<String, Set<String>> visiblePlayers = new HashMap<>();
+    private final Map<String, Set<String>> visiblePersons = new HashMap<>();
+
+    public InterestManager(TileMap map, double tileSize, int radiusTiles) {
+        this.columns = map.getColumns();
+        this.rows = map.getRows();
+        this.tileSize = tileSize;
+        this.radius = radiusTiles;
+    }
+
+    /** Actualiza la celda de un jugador a partir de su posición en píxeles. */
+    public void move(String playerId, double x, double y) {
+        int cell = cellOf(column(x), row(y));
+        Integer previous = playerCells.put(playerId, cell);
+        if (previous == null || previous != cell) {
+            if (previous != null) {
+                removeFromCell(previous, playerId);
+            }
+            cellPlayers.computeIfAbsent(cell, c -> new HashSet<>()).add(playerId);
+        }
+    }
+
+    public void remove(String playerId) {
+        Integer cell = playerCells.remove(playerId);
+        if (cell != null) {
+            removeFromCell(cell, playerId);
+        }
+        visiblePlayers.remove(playerId);
+        visiblePersons.remove(playerId);
+    }
+
+    public boolean isTracked(String playerId) {
+        return playerCells.containsKey(playerId);
+    }
+
+    /** Jugadores en el radio del jugador indicado, incluido él mismo. */
+    public Set<String> playersInView(String viewerId) {
+        Set<String> result = new HashSet<>();
+        Integer cell = playerCells.get(viewerId);
+        if (cell == null) {
+            return result;
+        }
+        int column = cell % columns;
+        int row = cell / columns;
+        for (int r = Math.max(0, row - radius); r <= Math.min(rows - 1, row + radius); r++) {
+            for (int c = Math.max(0, column - radius); c <= Math.min(columns - 1, column + radius); c++) {
+                Set<String> bucket = cellPlayers.get(cellOf(c, r));
+                if (bucket != null) {
+                    result.addAll(bucket);
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Indica si un tile (coordenadas de tile, como las de las personas) cae en la vista del jugador. */
+    public boolean isTileInView(String viewerId, int tileX, int tileY) {
+        Integer cell = playerCells.get(viewerId);
+        if (cell == null) {
+            return false;
+        }
+        return Math.abs(tileX - cell % columns) <= radius && Math.abs(tileY - cell / columns) <= radius;
+    }
+
+    /** Personas del índice que caen en la vista del jugador, consultando solo las celdas cercanas. */
+    public List<EntityPerson> personsInView(String viewerId, PersonGrid persons) {
+        Integer cell = playerCells.get(viewerId);
+        if (cell == null) {
+            return List.of();
+        }
+        return persons.within(cell % columns, cell / columns, radius);
+    }
+
+    /** Guarda los jugadores que ahora ve el espectador y devuelve quién entró y quién salió. */
+    public ViewChange updatePlayerView(String viewerId, Set<String> nowVisible) {
+        return diff(visiblePlayers, viewerId, nowVisible);
+    }
+
+    /** Igual que {@link #updatePlayerView} pero para las personas recogibles. */
+    public ViewChange updatePersonView(String viewerId, Set<String> nowVisible) {
+        return diff(visiblePersons, viewerId, nowVisible);
+    }
+
+    private ViewChange diff(Map<String, Set<String>> views, String viewerId, Set<String> nowVisible) {
+        Set<String> before = views.getOrDefault(viewerId, Set.of());
+        List<String> entered = new ArrayList<>();
+        List<String> left = new ArrayList<>();
+        for (String id : nowVisible) {
+            if (!before.contains(id)) {
+                entered.add(id);
+            }
+        }
+        for (String id : before) {
+            if (!nowVisible.contains(id)) {
+                left.add(id);
+            }
+        }
+        views.put(viewerId, nowVisible);
+        return new ViewChange(entered, left);
+    }
+
+    private void removeFromCell(int cell, String playerId) {
+        Set<String> bucket = cellPlayers.get(cell);
+        if (bucket != null) {
+            bucket.remove(playerId);
+        }
+    }
+
+    private int column(double x) {
+        return clamp((int) Math.floor(x / tileSize), columns);
+    }
+
+    private int row(double y) {
+        return clamp((int) Math.floor(y / tileSize), rows);
+    }
+
+    private int cellOf(int column, int row) {
+        return row * columns + column;
+    }
+
+    private static int clamp(int value, int size) {
+        return Math.max(0, Math.min(size - 1, value));
+    }
+
+    public record ViewChange(List<String> entered, List<String> left) {
+        public boolean isEmpty() {
+            return entered.isEmpty() && left.isEmpty();
+        }
+    }
+}
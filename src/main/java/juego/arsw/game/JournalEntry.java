@@ -0,0 +1,58 @@
+package juego.arsw.game;
+
+/**
+ * Comandos aceptados por una sala tal como quedaron aplicados, que es lo que guarda
+ * {@link GameJournal}. Se anotan después de validarlos (una recogida fuera de alcance no
+ * aparece), así que reproducirlos en orden da el mismo estado sin volver a validar.
+ */
+public sealed interface JournalEntry {
+
+    String roomId();
+
+    /** Un bus entra en la partida con su primer mensaje. */
+    record PlayerJoined(String roomId, String playerId, String name) implements JournalEntry {
+    }
+
+    /** Posición y dirección del bus después de aplicar el movimiento. */
+    record PlayerMoved(String roomId, String playerId, float x, float y, byte direction) implements JournalEntry {
+    }
+
+    /** Nueva carga del bus (pasajeros). */
+    record CargoChanged(String roomId, String playerId, byte cargo) implements JournalEntry {
+    }
+
+    record PlayerLeft(String roomId, String playerId) implements JournalEntry {
+    }
+
+    /** Una persona pasa a estar disponible (al poblar la sala o al restaurarla). */
+    record PersonAdded(String roomId, String personId, int x, int y, String spriteFile) implements JournalEntry {
+    }
+
+    /** Una persona deja de estar disponible: recogida o desactivada. */
+    record PersonRemoved(String roomId, String personId) implements JournalEntry {
+    }
+
+    /** La sala se cerró al quedar vacía; si vuelve a abrirse empieza de cero. */
+    record RoomClosed(String roomId) implements JournalEntry {
+    }
+
+    /**
+     * Empieza una copia completa del estado de todas las salas, que {@link GameJournal}
+     * escribe al principio de cada segmento antes de borrar los viejos. Lo que sigue hasta
+     * {@link CheckpointCompleted} sustituye a todo lo anterior; no es de ninguna sala.
+     */
+    record CheckpointStarted() implements JournalEntry {
+        @Override
+        public String roomId() {
+            return null;
+        }
+    }
+
+    /** Termina la copia; una copia sin terminar (cortada al escribirla) no cuenta. */
+    record CheckpointCompleted() implements JournalEntry {
+        @Override
+        public String roomId() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package juego.arsw.game;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import juego.arsw.model.EntityPerson;
+
+/**
+ * Reconstruye el estado de las salas aplicando en orden las entradas de un
+ * {@link GameJournal}. Las entradas ya vienen validadas, así que aplicarlas no decide nada:
+ * el mismo diario da siempre el mismo estado, que sirve para recuperar el servidor, para
+ * inspeccionar una partida o como carga repetible en benchmarks.
+ *
+ * <p>Solo {@link JournalEntry.PlayerJoined} y {@link JournalEntry.PersonAdded} crean
+ * cosas; el resto sobre una sala, un bus o una persona desconocidos no hace nada (por
+ * ejemplo, lo que una sala ya cerrada terminó de anotar después del cierre).
+ *
+ * <p>Un checkpoint ({@link JournalEntry.CheckpointStarted} hasta
+ * {@link JournalEntry.CheckpointCompleted}) vuelve a crear todo el estado, así que el
+ * diario se puede reproducir desde el segmento más viejo que quede aunque los anteriores
+ * se hayan borrado. Hasta que se completa, el estado sigue siendo el de antes.
+ */
+public class JournalReplayer {
+    private static final Logger logger = Logger.getLogger(JournalReplayer.class.getName());
+
+    private Map<String, Room> rooms = new LinkedHashMap<>();
+    // Estado anterior mientras se lee un checkpoint; si no se completa, sigue valiendo este
+    private Map<String, Room> beforeCheckpoint;
+    private long applied;
+    private long lastSequence;
+
+    private static final class Room {
+        final Map<String, Player> players = new LinkedHashMap<>();
+        final Map<String, EntityPerson> persons = new LinkedHashMap<>();
+    }
+
+    private static final class Player {
+        String name;
+        float x;
+        float y;
+        byte direction = BinaryPositionEncoder.DIRECTION_RIGHT;
+        byte cargo;
+
+        Player(String name) {
+            this.name = name;
+        }
+    }
+
+    /** Reproduce todo el diario del directorio y devuelve las salas que quedaron abiertas. */
+    public static List<RoomState> replay(Path directory) throws IOException {
+        long start = System.nanoTime();
+        JournalReplayer replayer = new JournalReplayer();
+        GameJournal.read(directory, replayer::apply);
+        List<RoomState> states = replayer.rooms();
+        logger.info("Replayed " + replayer.getApplied() + " journal entries into " + states.size() + " rooms in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+        return states;
+    }
+
+    public void apply(GameJournal.Recorded recorded) {
+        apply(recorded.entry());
+        lastSequence = recorded.sequence();
+    }
+
+    public void apply(JournalEntry entry) {
+        applied++;
+        switch (entry) {
+            case JournalEntry.PlayerJoined joined -> {
+                Player player = room(joined.roomId()).players.computeIfAbsent(joined.playerId(),
+                        id -> new Player(joined.name()));
+                player.name = joined.name();
+            }
+            case JournalEntry.PlayerMoved moved -> {
+                Player player = playerOf(moved.roomId(), moved.playerId());
+                if (player != null) {
+                    player.x = moved.x();
+                    player.y = moved.y();
+                    player.direction = moved.direction();
+                }
+            }
+            case JournalEntry.CargoChanged changed -> {
+                Player player = playerOf(changed.roomId(), changed.playerId());
+                if (player != null) {
+                    player.cargo = changed.cargo();
+                }
+            }
+            case JournalEntry.PlayerLeft left -> {
+                Room room = rooms.get(left.roomId());
+                if (room != null) {
+                    room.players.remove(left.playerId());
+                }
+            }
+            case JournalEntry.PersonAdded added -> room(added.roomId()).persons.put(added.personId(),
+                    new EntityPerson(added.personId(), added.x(), added.y(), added.spriteFile()));
+            case JournalEntry.PersonRemoved removed -> {
+                Room room = rooms.get(removed.roomId());
+                if (room != null) {
+                    room.persons.remove(removed.personId());
+                }
+            }
+            case JournalEntry.RoomClosed closed -> rooms.remove(closed.roomId());
+            case JournalEntry.CheckpointStarted started -> {
+                if (beforeCheckpoint == null) {
+                    beforeCheckpoint = rooms;
+                }
+                rooms = new LinkedHashMap<>();
+            }
+            case JournalEntry.CheckpointCompleted completed -> beforeCheckpoint = null;
+        }
+    }
+
+    /** Estado actual de cada sala, con el mismo formato que los snapshots. */
+    public List<RoomState> rooms() {
+        Map<String, Room> current = beforeCheckpoint != null ? beforeCheckpoint : rooms;
+        List<RoomState> states = new ArrayList<>(current.size());
+        current.forEach((roomId, room) -> {
+            RoomState state = RoomState.withPlayers(roomId, 0, room.players.size(),
+                    List.copyOf(room.persons.values()));
+            int i = 0;
+            for (Map.Entry<String, Player> entry : room.players.entrySet()) {
+                Player player = entry.getValue();
+                state.playerIds()[i] = entry.getKey();
+                state.names()[i] = player.name;
+                state.xs()[i] = player.x;
+                state.ys()[i] = player.y;
+                state.directions()[i] = player.direction;
+                state.cargo()[i] = player.cargo;
+                i++;
+            }
+            states.add(state);
+        });
+        return states;
+    }
+
+    /** Entradas aplicadas hasta ahora. */
+    public long getApplied() {
+        return applied;
+    }
+
+    /** Secuencia del último registro del diario aplicado, 0 si ninguno. */
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    private Room room(String roomId) {
+        return rooms.computeIfAbsent(roomId, id -> new Room());
+    }
+
+    private Player playerOf(String roomId, String playerId) {
+        Room room = rooms.get(roomId);
+        return room != null ? room.players.get(playerId) : null;
+    }
+}
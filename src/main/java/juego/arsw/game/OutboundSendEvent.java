@@ -0,0 +1,32 @@
+package juego.arsw.game;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Evento JFR de un {@code sendMessage} al socket. Por defecto solo se graban los que
+ * pasan de 1 ms, que son los que explican un pico de latencia.
+ */
+@Name("juego.arsw.OutboundSend")
+@Label("Outbound Send")
+@Category({ "Game", "WebSocket" })
+@Description("A message written to a WebSocket session")
+@Threshold("1 ms")
+@StackTrace(false)
+public class OutboundSendEvent extends jdk.jfr.Event {
+
+    @Label("Session")
+    public String session;
+
+    @Label("Bytes")
+    @DataAmount
+    public int bytes;
+
+    @Label("Failed")
+    public boolean failed;
+}
@@ -0,0 +1,123 @@
+package juego.arsw.game;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import juego.arsw.model.EntityPerson;
+
+/**
+ * Índice espacial de las personas recogibles: una rejilla uniforme de celdas de
+ * {@code cellTiles} x {@code cellTiles} tiles. Insertar y quitar son O(1), y una consulta
+ * por radio solo recorre las celdas que toca el cuadrado, así que su coste depende de
+ * cuántas personas hay cerca y no del total del mapa. Las coordenadas son de tile, como
+ * las de {@link EntityPerson}.
+ *
+ * <p>Vive en el bucle de la sala, su único escritor y lector: los mapas son {@code HashMap}
+ * sin sincronizar y no es seguro entre hilos.
+ */
+public class PersonGrid {
+    private final int cellTiles;
+    private final Map<String, EntityPerson> persons = new HashMap<>();
+    private final Map<String, Long> personCells = new HashMap<>();
+    private final Map<Long, Set<EntityPerson>> cells = new HashMap<>();
+
+    public PersonGrid(int cellTiles) {
+        if (cellTiles <= 0) {
+            throw new IllegalArgumentException("cellTiles must be positive");
+        }
+        this.cellTiles = cellTiles;
+    }
+
+    /** Añade una persona, o la recoloca si ya estaba con el mismo id. */
+    public void add(EntityPerson person) {
+        EntityPerson previous = persons.put(person.getId(), person);
+        if (previous != null) {
+            removeFromCell(previous);
+        }
+        long cell = cellOf(person.getX(), person.getY());
+        personCells.put(person.getId(), cell);
+        cells.computeIfAbsent(cell, c -> new HashSet<>()).add(person);
+    }
+
+    /** Quita la persona y la devuelve, o null si no estaba (p. ej. si otro ya la recogió). */
+    public EntityPerson remove(String personId) {
+        EntityPerson person = persons.remove(personId);
+        if (person != null) {
+            removeFromCell(person);
+        }
+        return person;
+    }
+
+    public EntityPerson get(String personId) {
+        return persons.get(personId);
+    }
+
+    public boolean contains(String personId) {
+        return persons.containsKey(personId);
+    }
+
+    public int size() {
+        return persons.size();
+    }
+
+    public boolean isEmpty() {
+        return persons.isEmpty();
+    }
+
+    public Collection<EntityPerson> values() {
+        return Collections.unmodifiableCollection(persons.values());
+    }
+
+    /** Personas a como mucho {@code radius} tiles en cada eje del tile indicado. */
+    public List<EntityPerson> within(int tileX, int tileY, int radius) {
+        List<EntityPerson> result = new ArrayList<>();
+        forEachWithin(tileX, tileY, radius, result::add);
+        return result;
+    }
+
+    public void forEachWithin(int tileX, int tileY, int radius, Consumer<EntityPerson> action) {
+        int minColumn = Math.floorDiv(tileX - radius, cellTiles);
+        int maxColumn = Math.floorDiv(tileX + radius, cellTiles);
+        int minRow = Math.floorDiv(tileY - radius, cellTiles);
+        int maxRow = Math.floorDiv(tileY + radius, cellTiles);
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int column = minColumn; column <= maxColumn; column++) {
+                Set<EntityPerson> bucket = cells.get(key(column, row));
+                if (bucket == null) {
+                    continue;
+                }
+                // Las celdas de los bordes pueden tener personas fuera del cuadrado
+                for (EntityPerson person : bucket) {
+                    if (Math.abs(person.getX() - tileX) <= radius && Math.abs(person.getY() - tileY) <= radius) {
+                        action.accept(person);
+                    }
+                }
+            }
+        }
+    }
+
+    private void removeFromCell(EntityPerson person) {
+        Long cell = personCells.remove(person.getId());
+        if (cell != null) {
+            Set<EntityPerson> bucket = cells.get(cell);
+            if (bucket != null) {
+                bucket.remove(person);
+            }
+        }
+    }
+
+    private long cellOf(int tileX, int tileY) {
+        return key(Math.floorDiv(tileX, cellTiles), Math.floorDiv(tileY, cellTiles));
+    }
+
+    private static long key(int column, int row) {
+        return ((long) column << 32) | (row & 0xffffffffL);
+    }
+}
@@ -0,0 +1,70 @@
+package juego.arsw.game;
+
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Asigna a cada jugador un índice pequeño y denso para identificarlo en los frames
+ * binarios sin enviar la placa. El índice de un jugador que sale queda retirado hasta
+ * que ningún delta pueda seguir refiriéndose a él, y solo entonces se reutiliza.
+ */
+public class PlayerIndexAllocator {
+    public static final int NO_INDEX = -1;
+
+    private final int capacity;
+    private final BitSet used = new BitSet();
+    private final Map<String, Integer> indexes = new ConcurrentHashMap<>();
+    private final Map<String, Integer> retiredIndexes = new ConcurrentHashMap<>();
+    private final Deque<Retired> retiredQueue = new ArrayDeque<>();
+
+    public PlayerIndexAllocator(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public synchronized int acquire(String playerId) {
+        Integer existing = indexes.get(playerId);
+        if (existing != null) {
+            return existing;
+        }
+        int index = used.nextClearBit(0);
+        if (index >= capacity) {
+            throw new IllegalStateException("No free player index (capacity " + capacity + ")");
+        }
+        used.set(index);
+        indexes.put(playerId, index);
+        return index;
+    }
+
+    /** Deja de asignar el índice al jugador, pero lo reserva desde el tick indicado. */
+    public synchronized void retire(String playerId, long tick) {
+        Integer index = indexes.remove(playerId);
+        if (index != null) {
+            retiredIndexes.put(playerId, index);
+            retiredQueue.addLast(new Retired(playerId, index, tick));
+        }
+    }
+
+    /** Libera los índices retirados en o antes del tick indicado. */
+    public synchronized void reclaim(long upToTick) {
+        while (!retiredQueue.isEmpty() && retiredQueue.peekFirst().tick() <= upToTick) {
+            Retired retired = retiredQueue.removeFirst();
+            retiredIndexes.remove(retired.playerId(), retired.index());
+            used.clear(retired.index());
+        }
+    }
+
+    /** Índice del jugador, activo o retirado, o {@link #NO_INDEX}. */
+    public int indexOf(String playerId) {
+        Integer index = indexes.get(playerId);
+        if (index == null) {
+            index = retiredIndexes.get(playerId);
+        }
+        return index != null ? index : NO_INDEX;
+    }
+
+    private record Retired(String playerId, int index, long tick) {
+    }
+}
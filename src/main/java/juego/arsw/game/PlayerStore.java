@@ -0,0 +1,216 @@
+package juego.arsw.game;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import juego.arsw.model.User;
+
+/**
+ * Estado vivo de los buses de una sala en arrays paralelos de primitivos (x e y en float,
+ * dirección y carga en byte), indexados por el mismo índice denso que usan los frames
+ * binarios. Además guarda la lista compacta de índices ocupados, así que el tick y la
+ * codificación de snapshots recorren memoria contigua sin crear objetos por jugador.
+ * {@link User} queda solo como vista para la API.
+ *
+ * <p>No es thread-safe: la posee el {@link RoomEventLoop} de su sala.
+ */
+public class PlayerStore {
+    public static final int NO_SLOT = PlayerIndexAllocator.NO_INDEX;
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final Pattern INTEGER = Pattern.compile("[+-]?\\d+");
+
+    private final PlayerIndexAllocator indexes;
+    private final Map<String, Integer> slots = new HashMap<>();
+
+    private String[] ids = new String[INITIAL_CAPACITY];
+    private String[] names = new String[INITIAL_CAPACITY];
+    private float[] xs = new float[INITIAL_CAPACITY];
+    private float[] ys = new float[INITIAL_CAPACITY];
+    private byte[] directions = new byte[INITIAL_CAPACITY];
+    private byte[] cargo = new byte[INITIAL_CAPACITY];
+    // Último número de entrada del cliente aplicado; 0 si el cliente no los manda
+    private long[] inputSequences = new long[INITIAL_CAPACITY];
+    // Posición de cada índice en live, para quitarlo en O(1) cambiándolo por el último
+    private int[] livePositions = new int[INITIAL_CAPACITY];
+    private int[] live = new int[INITIAL_CAPACITY];
+    private int size;
+
+    public PlayerStore(PlayerIndexAllocator indexes) {
+        this.indexes = indexes;
+    }
+
+    /**
+     * Añade un bus en el origen, mirando a la derecha y sin carga, como un {@link User}
+     * nuevo. Si ya estaba devuelve su índice sin tocarlo.
+     */
+    public int add(String playerId, String name) {
+        Integer existing = slots.get(playerId);
+        if (existing != null) {
+            return existing;
+        }
+        int slot = indexes.acquire(playerId);
+        ensureCapacity(slot + 1);
+        ids[slot] = playerId;
+        names[slot] = name;
+        xs[slot] = 0f;
+        ys[slot] = 0f;
+        directions[slot] = BinaryPositionEncoder.DIRECTION_RIGHT;
+        cargo[slot] = 0;
+        inputSequences[slot] = 0;
+        livePositions[slot] = size;
+        live[size++] = slot;
+        slots.put(playerId, slot);
+        return slot;
+    }
+
+    /** Quita el bus; el índice lo sigue gestionando el asignador (retirar y reciclar). */
+    public boolean remove(String playerId) {
+        Integer slot = slots.remove(playerId);
+        if (slot == null) {
+            return false;
+        }
+        int position = livePositions[slot];
+        int last = live[--size];
+        live[position] = last;
+        livePositions[last] = position;
+        ids[slot] = null;
+        names[slot] = null;
+        return true;
+    }
+
+    public boolean contains(String playerId) {
+        return slots.containsKey(playerId);
+    }
+
+    /** Índice del bus, o {@link #NO_SLOT} si no está en la sala. */
+    public int slotOf(String playerId) {
+        Integer slot = slots.get(playerId);
+        return slot != null ? slot : NO_SLOT;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Índice del i-ésimo bus vivo, con {@code 0 <= i < size()}; el orden no es estable. */
+    public int slotAt(int i) {
+        return live[i];
+    }
+
+    public String id(int slot) {
+        return ids[slot];
+    }
+
+    public String name(int slot) {
+        return names[slot];
+    }
+
+    public float x(int slot) {
+        return xs[slot];
+    }
+
+    public float y(int slot) {
+        return ys[slot];
+    }
+
+    public byte direction(int slot) {
+        return directions[slot];
+    }
+
+    public byte cargo(int slot) {
+        return cargo[slot];
+    }
+
+    /** Último número de entrada del cliente ya aplicado a este bus, o 0 si no manda ninguno. */
+    public long inputSequence(int slot) {
+        return inputSequences[slot];
+    }
+
+    public void setName(int slot, String name) {
+        names[slot] = name;
+    }
+
+    public void setPosition(int slot, float x, float y) {
+        xs[slot] = x;
+        ys[slot] = y;
+    }
+
+    public void setX(int slot, float x) {
+        xs[slot] = x;
+    }
+
+    public void setY(int slot, float y) {
+        ys[slot] = y;
+    }
+
+    public void setDirection(int slot, byte direction) {
+        directions[slot] = direction;
+    }
+
+    public void setCargo(int slot, byte value) {
+        cargo[slot] = value;
+    }
+
+    public void setInputSequence(int slot, long sequence) {
+        inputSequences[slot] = sequence;
+    }
+
+    /** Copia del bus como {@link User} para la API, o null si no está en la sala. */
+    public User view(String playerId) {
+        int slot = slotOf(playerId);
+        if (slot == NO_SLOT) {
+            return null;
+        }
+        User user = new User(playerId);
+        user.setName(names[slot]);
+        user.setX(xs[slot]);
+        user.setY(ys[slot]);
+        user.setDirection(BinaryPositionEncoder.decodeDirection(directions[slot]));
+        user.setHasPerson(String.valueOf(cargo[slot]));
+        return user;
+    }
+
+    /**
+     * Convierte el {@code hasPerson} del frontend (número de pasajeros, como texto) a la
+     * carga de un byte. El frontend resta uno con cada obstáculo y puede bajar de cero, así
+     * que un número fuera de {@code [0, Byte.MAX_VALUE]} se acota en vez de rechazarse; solo
+     * falla lo que no es un entero.
+     */
+    public static byte parseCargo(String hasPerson) {
+        String text = hasPerson.trim();
+        long value;
+        try {
+            value = Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            if (!INTEGER.matcher(text).matches()) {
+                throw new IllegalArgumentException("Invalid hasPerson value: " + hasPerson);
+            }
+            // Un entero que ni cabe en un long queda en el extremo que le toca
+            value = text.startsWith("-") ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+        return (byte) Math.max(0, Math.min(Byte.MAX_VALUE, value));
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed <= ids.length) {
+            return;
+        }
+        int capacity = Math.max(ids.length * 2, needed);
+        ids = Arrays.copyOf(ids, capacity);
+        names = Arrays.copyOf(names, capacity);
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        directions = Arrays.copyOf(directions, capacity);
+        cargo = Arrays.copyOf(cargo, capacity);
+        inputSequences = Arrays.copyOf(inputSequences, capacity);
+        livePositions = Arrays.copyOf(livePositions, capacity);
+        live = Arrays.copyOf(live, capacity);
+    }
+}
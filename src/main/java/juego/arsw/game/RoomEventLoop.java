@@ -0,0 +1,106 @@
+package juego.arsw.game;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Bucle de eventos de un solo escritor. Cualquier hilo encola comandos en una cola sin
+ * bloqueos (muchos productores, un consumidor) y solo un hilo a la vez los ejecuta, en
+ * orden de llegada. El estado que solo se toca desde los comandos no necesita locks.
+ *
+ * <p>No tiene hilo propio: cuando llega trabajo se programa un drenado en el ejecutor
+ * compartido, de modo que muchas salas reparten pocos hilos. Tras {@code batchSize}
+ * comandos el drenado cede el hilo y se vuelve a programar, para que una sala muy
+ * activa no acapare a las demás.
+ */
+public class RoomEventLoop implements Executor {
+    private static final Logger logger = Logger.getLogger(RoomEventLoop.class.getName());
+
+    private final String name;
+    private final Executor executor;
+    private final int batchSize;
+    private final Queue<Runnable> commands = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong executedCommands = new AtomicLong();
+    private final AtomicLong failedCommands = new AtomicLong();
+    private volatile Thread owner;
+
+    public RoomEventLoop(String name, Executor executor, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.name = name;
+        this.executor = executor;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        commands.offer(command);
+        // Solo quien pasa de 0 a 1 programa el drenado; el resto lo encuentra en la cola
+        if (pending.getAndIncrement() == 0) {
+            schedule();
+        }
+    }
+
+    /** Indica si el hilo actual es el que está ejecutando los comandos de este bucle. */
+    public boolean inLoop() {
+        return owner == Thread.currentThread();
+    }
+
+    public int getQueueDepth() {
+        return pending.get();
+    }
+
+    public long getExecutedCommands() {
+        return executedCommands.get();
+    }
+
+    public long getFailedCommands() {
+        return failedCommands.get();
+    }
+
+    private void schedule() {
+        try {
+            executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            logger.severe("Event loop " + name + " rejected by executor: " + e.getMessage());
+        }
+    }
+
+    private void drain() {
+        owner = Thread.currentThread();
+        int processed = 0;
+        while (true) {
+            Runnable command = commands.poll();
+            if (command != null) {
+                run(command);
+            }
+            processed++;
+            if (pending.decrementAndGet() == 0) {
+                owner = null;
+                return;
+            }
+            if (processed >= batchSize) {
+                owner = null;
+                schedule();
+                return;
+            }
+        }
+    }
+
+    private void run(Runnable command) {
+        try {
+            command.run();
+            executedCommands.incrementAndGet();
+        } catch (Exception e) {
+            failedCommands.incrementAndGet();
+            logger.severe("Error running command on " + name + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package juego.arsw.game;
+
+import java.util.List;
+
+import juego.arsw.model.EntityPerson;
+
+/**
+ * Copia del estado de una sala en un instante: los buses en arrays paralelos, como en
+ * {@link PlayerStore}, y las personas que quedan por recoger. La sala la rellena en su
+ * bucle y después ya no la toca, así que se puede codificar desde cualquier hilo.
+ */
+public record RoomState(String roomId, long tick, String[] playerIds, String[] names, float[] xs, float[] ys,
+        byte[] directions, byte[] cargo, List<EntityPerson> persons) {
+
+    public static RoomState withPlayers(String roomId, long tick, int players, List<EntityPerson> persons) {
+        return new RoomState(roomId, tick, new String[players], new String[players], new float[players],
+                new float[players], new byte[players], new byte[players], persons);
+    }
+
+    public int playerCount() {
+        return playerIds.length;
+    }
+}
@@ -0,0 +1,28 @@
+package juego.arsw.game;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** Evento JFR de un tick de sala; {@code overrun} si tardó más que el periodo del tick. */
+@Name("juego.arsw.RoomTick")
+@Label("Room Tick")
+@Category("Game")
+@Description("A game room tick: snapshot and broadcast of positions")
+@StackTrace(false)
+public class RoomTickEvent extends jdk.jfr.Event {
+
+    @Label("Room")
+    public String room;
+
+    @Label("Tick")
+    public long tick;
+
+    @Label("Players")
+    public int players;
+
+    @Label("Overrun")
+    public boolean overrun;
+}
@@ -0,0 +1,176 @@
+package juego.arsw.game;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+import juego.arsw.config.GameProperties;
+
+/**
+ * Decide si el nodo puede aceptar más jugadores a partir de señales de saturación: la
+ * proporción de ticks que se pasan de su periodo, la cola de salida media por sesión, las
+ * sesiones abiertas frente a la capacidad configurada y el heap ocupado tras el último GC.
+ *
+ * <p>Se evalúa cada {@code intervalMillis} en un hilo propio y el resultado queda en un
+ * campo volátil, así que preguntar {@link #isReady()} al aceptar una conexión no cuesta
+ * nada. Para no oscilar, un nodo saturado solo vuelve a estar listo cuando todas las
+ * señales bajan del {@value #RECOVERY_FACTOR} de su límite.
+ *
+ * <p>Ese estado puede llevar hasta un intervalo de retraso, así que el límite de sesiones
+ * ({@link #getMaxSessions()}) lo comprueba además quien acepta las conexiones, una a una.
+ */
+public class SaturationMonitor implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger(SaturationMonitor.class.getName());
+
+    /** Fracción de cada límite por debajo de la que un nodo saturado vuelve a estar listo. */
+    public static final double RECOVERY_FACTOR = 0.8;
+
+    /**
+     * Carga del nodo en un instante. {@code ticks} y {@code lateTicks} (los que se pasaron de
+     * su periodo o no llegaron a ejecutarse) son acumulados desde el arranque; la evaluación
+     * usa la diferencia con la anterior.
+     */
+    public record Load(long ticks, long lateTicks, long queuedMessages, int sessions, long heapUsed,
+            long heapMax) {
+    }
+
+    /** Resultado de una evaluación; {@code reasons} dice qué señales pasaron su límite. */
+    public record Status(boolean ready, List<String> reasons, double tickOverrunRatio, double averageQueueDepth,
+            int sessions, double heapUsedRatio) {
+    }
+
+    private final GameProperties.Readiness properties;
+    private final Supplier<Load> load;
+    private final ScheduledExecutorService scheduler;
+    private Load last;
+    private volatile Status status = new Status(true, List.of(), 0, 0, 0, 0);
+    private volatile Consumer<Boolean> listener = ready -> {
+    };
+
+    public SaturationMonitor(GameProperties.Readiness properties, Supplier<Load> load) {
+        this.properties = properties;
+        this.load = load;
+        this.last = load.get();
+        long interval = properties.getIntervalMillis();
+        if (interval > 0) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "saturation-monitor");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::evaluateQuietly, interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    public boolean isReady() {
+        return status.ready();
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public int getMaxSessions() {
+        return properties.getMaxSessions();
+    }
+
+    /** Se llama con el nuevo estado cada vez que el nodo pasa de listo a saturado o al revés. */
+    public void setListener(Consumer<Boolean> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Toma la carga actual y recalcula el estado. Lo usa el hilo propio; llamarlo desde fuera
+     * solo es seguro si ese hilo no está evaluando.
+     */
+    public Status evaluate() {
+        Load current = load.get();
+        long ticks = current.ticks() - last.ticks();
+        long overruns = current.lateTicks() - last.lateTicks();
+        last = current;
+
+        double overrunRatio = ticks > 0 ? (double) Math.max(overruns, 0) / ticks : 0;
+        double queueDepth = current.sessions() > 0 ? (double) current.queuedMessages() / current.sessions() : 0;
+        double heapRatio = current.heapMax() > 0 ? (double) current.heapUsed() / current.heapMax() : 0;
+
+        boolean wasReady = status.ready();
+        double factor = wasReady ? 1 : RECOVERY_FACTOR;
+        List<String> reasons = new ArrayList<>();
+        if (overrunRatio > properties.getMaxTickOverrunRatio() * factor) {
+            reasons.add(String.format(Locale.ROOT, "tick overruns %.0f%%", overrunRatio * 100));
+        }
+        if (queueDepth > properties.getMaxAverageQueueDepth() * factor) {
+            reasons.add(String.format(Locale.ROOT, "outbound backlog %.1f messages per session", queueDepth));
+        }
+        if (current.sessions() >= properties.getMaxSessions() * factor) {
+            reasons.add("sessions " + current.sessions() + " of " + properties.getMaxSessions());
+        }
+        if (heapRatio > properties.getMaxHeapUsedRatio() * factor) {
+            reasons.add(String.format(Locale.ROOT, "heap %.0f%% used", heapRatio * 100));
+        }
+
+        Status evaluated = new Status(reasons.isEmpty(), List.copyOf(reasons), overrunRatio, queueDepth,
+                current.sessions(), heapRatio);
+        status = evaluated;
+        if (evaluated.ready() != wasReady) {
+            if (evaluated.ready()) {
+                GameEventLog.info(logger, GameEventLog.Category.NODE, "node.ready");
+            } else {
+                GameEventLog.warning(logger, GameEventLog.Category.NODE, "node.saturated", "reasons",
+                        String.join(", ", reasons));
+            }
+            listener.accept(evaluated.ready());
+        }
+        return evaluated;
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Heap ocupado tras el último GC de cada zona, que es lo que de verdad sigue vivo; el
+     * uso instantáneo incluye basura que el siguiente GC va a liberar. Antes del primer GC
+     * se usa el instantáneo.
+     */
+    public static long heapUsedAfterGc() {
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                MemoryUsage afterGc = pool.getCollectionUsage();
+                if (afterGc != null) {
+                    used += afterGc.getUsed();
+                }
+            }
+        }
+        if (used == 0) {
+            Runtime runtime = Runtime.getRuntime();
+            used = runtime.totalMemory() - runtime.freeMemory();
+        }
+        return used;
+    }
+
+    private void evaluateQuietly() {
+        try {
+            evaluate();
+        } catch (RuntimeException e) {
+            // Un error no debe cancelar las evaluaciones programadas
+            logger.severe("Saturation monitor error: " + e.getMessage());
+        }
+    }
+}
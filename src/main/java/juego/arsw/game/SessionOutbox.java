@@ -0,0 +1,232 @@
+package juego.arsw.game;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+/**
+ * Cola de salida acotada de una sesión. Los mensajes se envían desde el executor, nunca
+ * desde el hilo que los encola, y como mucho un envío a la vez por sesión.
+ *
+ * <p>Los snapshots de posiciones se guardan en un único hueco que se sobrescribe: si llega
+ * uno nuevo antes de enviar el anterior, el viejo se descarta. Si la sesión sigue sin dar
+ * abasto (se pasa del límite de bytes encolados o un envío tarda más del límite de tiempo),
+ * se desconecta.
+ */
+public class SessionOutbox {
+    private static final Logger logger = Logger.getLogger(SessionOutbox.class.getName());
+
+    private final WebSocketSession session;
+    private final Executor executor;
+    private final long sendTimeLimitNanos;
+    private final int bufferSizeLimit;
+    private final GameMetrics metrics;
+
+    private final Queue<WebSocketMessage<?>> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicReference<WebSocketMessage<?>> pendingPositions = new AtomicReference<>();
+    private final AtomicInteger queuedMessages = new AtomicInteger();
+    private final AtomicInteger bufferedBytes = new AtomicInteger();
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private volatile long sendStartNanos;
+
+    private final AtomicLong sentMessages = new AtomicLong();
+    private final AtomicLong droppedPositions = new AtomicLong();
+    private final AtomicLong sendFailures = new AtomicLong();
+
+    public SessionOutbox(WebSocketSession session, Executor executor, int sendTimeLimitMillis, int bufferSizeLimit) {
+        this(session, executor, sendTimeLimitMillis, bufferSizeLimit, GameMetrics.NOOP);
+    }
+
+    public SessionOutbox(WebSocketSession session, Executor executor, int sendTimeLimitMillis, int bufferSizeLimit,
+            GameMetrics metrics) {
+        this.session = session;
+        this.metrics = metrics;
+        this.executor = executor;
+        this.sendTimeLimitNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeLimitMillis);
+        this.bufferSizeLimit = bufferSizeLimit;
+    }
+
+    /** Encola un mensaje que debe llegar. */
+    public void send(WebSocketMessage<?> message) {
+        if (closed.get() || checkSendTimeLimit()) {
+            return;
+        }
+        int size = message.getPayloadLength();
+        if (bufferedBytes.get() + size > bufferSizeLimit) {
+            // Primero se sacrifican las posiciones pendientes, que el siguiente tick reemplaza
+            dropPendingPositions();
+            if (bufferedBytes.get() + size > bufferSizeLimit) {
+                terminate("outbound buffer over " + bufferSizeLimit + " bytes");
+                return;
+            }
+        }
+        bufferedBytes.addAndGet(size);
+        queuedMessages.incrementAndGet();
+        queue.add(message);
+        scheduleDrain();
+    }
+
+    /** Encola un snapshot de posiciones, reemplazando el que aún no se haya enviado. */
+    public void sendPositions(WebSocketMessage<?> message) {
+        if (closed.get() || checkSendTimeLimit()) {
+            return;
+        }
+        int size = message.getPayloadLength();
+        if (bufferedBytes.get() + size > bufferSizeLimit) {
+            // Sin espacio: se pierde este snapshot, el siguiente tick traerá otro
+            dropPendingPositions();
+            droppedPositions.incrementAndGet();
+            metrics.positionsDropped();
+            return;
+        }
+        bufferedBytes.addAndGet(size);
+        WebSocketMessage<?> stale = pendingPositions.getAndSet(message);
+        if (stale != null) {
+            bufferedBytes.addAndGet(-stale.getPayloadLength());
+            droppedPositions.incrementAndGet();
+            metrics.positionsDropped();
+        }
+        scheduleDrain();
+    }
+
+    public int getQueueDepth() {
+        return queuedMessages.get() + (pendingPositions.get() != null ? 1 : 0);
+    }
+
+    public int getBufferedBytes() {
+        return bufferedBytes.get();
+    }
+
+    public long getSentMessages() {
+        return sentMessages.get();
+    }
+
+    public long getDroppedPositions() {
+        return droppedPositions.get();
+    }
+
+    public long getSendFailures() {
+        return sendFailures.get();
+    }
+
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    public WebSocketSession getSession() {
+        return session;
+    }
+
+    private void dropPendingPositions() {
+        WebSocketMessage<?> stale = pendingPositions.getAndSet(null);
+        if (stale != null) {
+            bufferedBytes.addAndGet(-stale.getPayloadLength());
+            droppedPositions.incrementAndGet();
+            metrics.positionsDropped();
+        }
+    }
+
+    private boolean checkSendTimeLimit() {
+        long start = sendStartNanos;
+        if (start != 0 && System.nanoTime() - start > sendTimeLimitNanos) {
+            terminate("send blocked for more than " + TimeUnit.NANOSECONDS.toMillis(sendTimeLimitNanos) + " ms");
+            return true;
+        }
+        return false;
+    }
+
+    private void scheduleDrain() {
+        if (draining.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        do {
+            WebSocketMessage<?> message;
+            while (!closed.get() && (message = nextMessage()) != null) {
+                deliver(message);
+            }
+            draining.set(false);
+            // Algo pudo encolarse justo después de vaciar la cola
+        } while (!closed.get() && hasPending() && draining.compareAndSet(false, true));
+    }
+
+    private WebSocketMessage<?> nextMessage() {
+        WebSocketMessage<?> message = queue.poll();
+        if (message != null) {
+            queuedMessages.decrementAndGet();
+            bufferedBytes.addAndGet(-message.getPayloadLength());
+            return message;
+        }
+        message = pendingPositions.getAndSet(null);
+        if (message != null) {
+            bufferedBytes.addAndGet(-message.getPayloadLength());
+        }
+        return message;
+    }
+
+    private boolean hasPending() {
+        return !queue.isEmpty() || pendingPositions.get() != null;
+    }
+
+    private void deliver(WebSocketMessage<?> message) {
+        if (!session.isOpen()) {
+            return;
+        }
+        OutboundSendEvent event = new OutboundSendEvent();
+        event.begin();
+        sendStartNanos = System.nanoTime();
+        try {
+            session.sendMessage(message);
+            sentMessages.incrementAndGet();
+        } catch (IOException | RuntimeException e) {
+            event.failed = true;
+            sendFailures.incrementAndGet();
+            metrics.sendFailed();
+            GameEventLog.warning(logger, GameEventLog.Category.ERROR, "send.failed", "session", session.getId(),
+                    "error", e.getMessage());
+        } finally {
+            sendStartNanos = 0;
+            event.end();
+            if (event.shouldCommit()) {
+                event.session = session.getId();
+                event.bytes = message.getPayloadLength();
+                event.commit();
+            }
+        }
+    }
+
+    private void terminate(String reason) {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        metrics.sessionClosed();
+        GameEventLog.warning(logger, GameEventLog.Category.SESSION, "session.slow", "session", session.getId(),
+                "reason", reason, "queued", getQueueDepth(), "droppedPositions", droppedPositions.get());
+        queue.clear();
+        queuedMessages.set(0);
+        bufferedBytes.set(0);
+        pendingPositions.set(null);
+        executor.execute(() -> {
+            try {
+                session.close(CloseStatus.SESSION_NOT_RELIABLE);
+            } catch (IOException e) {
+                GameEventLog.warning(logger, GameEventLog.Category.ERROR, "close.failed", "session", session.getId(),
+                        "error", e.getMessage());
+            }
+        });
+    }
+}
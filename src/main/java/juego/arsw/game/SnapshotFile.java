@@ -0,0 +1,190 @@
+package juego.arsw.game;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Fichero mapeado en memoria con dos huecos para snapshots, escritos por turnos. Cada
+ * escritura va al hueco más viejo y su cabecera se marca válida solo después de forzar
+ * los datos a disco, así que si el proceso muere a medias el otro hueco sigue intacto:
+ * al leer se elige el hueco válido (magia y CRC correctos) con la secuencia más alta.
+ *
+ * <pre>
+ * por hueco: i32 magia, i64 secuencia, i32 longitud, i32 CRC32C de los datos, datos
+ * </pre>
+ *
+ * El tamaño del hueco es fijo; un snapshot que no cabe se rechaza sin tocar el fichero.
+ */
+public class SnapshotFile implements Closeable {
+    public static final int MAGIC = 0x47534E50; // "GSNP"
+    public static final int SLOT_HEADER = 20;
+
+    private static final int SEQUENCE_OFFSET = 4;
+    private static final int LENGTH_OFFSET = 12;
+    private static final int CRC_OFFSET = 16;
+
+    private final Path path;
+    private final int slotCapacity;
+    private final FileChannel channel;
+    private final MappedByteBuffer map;
+    private long sequence;
+
+    private SnapshotFile(Path path, int slotCapacity, FileChannel channel, MappedByteBuffer map) {
+        this.path = path;
+        this.slotCapacity = slotCapacity;
+        this.channel = channel;
+        this.map = map;
+        Slot latest = latestSlot(map, slotCapacity);
+        this.sequence = latest != null ? latest.sequence() : 0;
+    }
+
+    /**
+     * Abre o crea el fichero con huecos de {@code slotCapacity} bytes. Si ya existía con
+     * otro tamaño, su último snapshot válido se copia a un fichero nuevo que lo reemplaza
+     * de forma atómica.
+     */
+    public static SnapshotFile open(Path path, int slotCapacity) throws IOException {
+        if (slotCapacity <= 0 || slotCapacity > Integer.MAX_VALUE / 2 - SLOT_HEADER) {
+            throw new IllegalArgumentException("Invalid slot capacity: " + slotCapacity);
+        }
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        long size = fileSize(slotCapacity);
+        if (Files.exists(path) && Files.size(path) != size && Files.size(path) > 0) {
+            resize(path, slotCapacity);
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            return new SnapshotFile(path, slotCapacity, channel, map);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public int getSlotCapacity() {
+        return slotCapacity;
+    }
+
+    /** Secuencia del último snapshot válido, 0 si no hay ninguno. */
+    public synchronized long getSequence() {
+        return sequence;
+    }
+
+    /** Datos del último snapshot válido (una vista de solo lectura del mapa), o null. */
+    public synchronized ByteBuffer readLatest() {
+        Slot latest = latestSlot(map, slotCapacity);
+        return latest != null ? latest.payload() : null;
+    }
+
+    /** Escribe los bytes restantes de {@code payload} como el snapshot más nuevo. */
+    public synchronized void write(ByteBuffer payload) {
+        int length = payload.remaining();
+        if (length > slotCapacity) {
+            throw new IllegalArgumentException(
+                    "Snapshot of " + length + " bytes does not fit in a slot of " + slotCapacity);
+        }
+        long next = sequence + 1;
+        int offset = slotOffset((int) (next & 1), slotCapacity);
+
+        // Primero se invalida el hueco: un corte a partir de aquí deja el otro como el último
+        map.putInt(offset, 0);
+        map.force(offset, 4);
+
+        CRC32C crc = new CRC32C();
+        crc.update(payload.duplicate());
+        map.put(offset + SLOT_HEADER, payload, payload.position(), length);
+        map.putLong(offset + SEQUENCE_OFFSET, next);
+        map.putInt(offset + LENGTH_OFFSET, length);
+        map.putInt(offset + CRC_OFFSET, (int) crc.getValue());
+        map.force(offset, SLOT_HEADER + length);
+
+        map.putInt(offset, MAGIC);
+        map.force(offset, 4);
+        sequence = next;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private static long fileSize(int slotCapacity) {
+        return 2L * (SLOT_HEADER + (long) slotCapacity);
+    }
+
+    private static int slotOffset(int slot, int slotCapacity) {
+        return slot * (SLOT_HEADER + slotCapacity);
+    }
+
+    private static void resize(Path path, int slotCapacity) throws IOException {
+        ByteBuffer latest = null;
+        try (FileChannel old = FileChannel.open(path, StandardOpenOption.READ)) {
+            long oldSize = old.size();
+            int oldCapacity = (int) Math.min(Integer.MAX_VALUE, oldSize / 2 - SLOT_HEADER);
+            if (oldCapacity > 0) {
+                Slot slot = latestSlot(old.map(FileChannel.MapMode.READ_ONLY, 0, oldSize), oldCapacity);
+                if (slot != null && slot.payload().remaining() <= slotCapacity) {
+                    latest = ByteBuffer.allocate(slot.payload().remaining()).put(slot.payload()).flip();
+                }
+            }
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.deleteIfExists(temp);
+        try (SnapshotFile resized = open(temp, slotCapacity)) {
+            if (latest != null) {
+                resized.write(latest);
+            }
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Slot latestSlot(ByteBuffer map, int slotCapacity) {
+        Slot first = readSlot(map, slotOffset(0, slotCapacity), slotCapacity);
+        Slot second = readSlot(map, slotOffset(1, slotCapacity), slotCapacity);
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+        return first.sequence() > second.sequence() ? first : second;
+    }
+
+    private static Slot readSlot(ByteBuffer map, int offset, int slotCapacity) {
+        if (map.getInt(offset) != MAGIC) {
+            return null;
+        }
+        long sequence = map.getLong(offset + SEQUENCE_OFFSET);
+        int length = map.getInt(offset + LENGTH_OFFSET);
+        if (length < 0 || length > slotCapacity) {
+            return null;
+        }
+        ByteBuffer payload = map.slice(offset + SLOT_HEADER, length).asReadOnlyBuffer();
+        CRC32C crc = new CRC32C();
+        crc.update(payload.duplicate());
+        if ((int) crc.getValue() != map.getInt(offset + CRC_OFFSET)) {
+            return null;
+        }
+        return new Slot(sequence, payload);
+    }
+
+    private record Slot(long sequence, ByteBuffer payload) {
+    }
+}
@@ -0,0 +1,111 @@
+package juego.arsw.game;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lleva el tick en el que cambió por última vez cada jugador y el último snapshot
+ * que confirmó cada cliente, para poder enviar solo lo que cambió desde esa base.
+ */
+public class SnapshotTracker {
+    /** Base que indica que el cliente necesita un snapshot completo. */
+    public static final long FULL_SNAPSHOT = -1;
+
+    private final int maxDeltaTicks;
+    private final Set<String> pendingChanged = ConcurrentHashMap.newKeySet();
+    private final Set<String> pendingRemoved = ConcurrentHashMap.newKeySet();
+    private final Map<String, Long> changedAtTick = new ConcurrentHashMap<>();
+    private final Map<String, Long> removedAtTick = new ConcurrentHashMap<>();
+    private final Map<String, Long> ackedTicks = new ConcurrentHashMap<>();
+    private volatile long currentTick;
+
+    public SnapshotTracker(int maxDeltaTicks) {
+        this.maxDeltaTicks = maxDeltaTicks;
+    }
+
+    public void markChanged(String playerId) {
+        pendingChanged.add(playerId);
+    }
+
+    public void markRemoved(String playerId) {
+        pendingRemoved.add(playerId);
+    }
+
+    /**
+     * Cierra un tick asignándole los cambios pendientes.
+     *
+     * @return true si algún jugador cambió o salió desde el tick anterior
+     */
+    public boolean advance(long tick) {
+        currentTick = tick;
+        boolean changed = false;
+
+        for (Iterator<String> it = pendingChanged.iterator(); it.hasNext();) {
+            String playerId = it.next();
+            it.remove();
+            changedAtTick.put(playerId, tick);
+            removedAtTick.remove(playerId);
+            changed = true;
+        }
+        for (Iterator<String> it = pendingRemoved.iterator(); it.hasNext();) {
+            String playerId = it.next();
+            it.remove();
+            changedAtTick.remove(playerId);
+            removedAtTick.put(playerId, tick);
+            changed = true;
+        }
+
+        // Las bajas más viejas que la ventana de delta ya no las necesita nadie
+        removedAtTick.values().removeIf(removedTick -> tick - removedTick > maxDeltaTicks);
+        return changed;
+    }
+
+    public void acknowledge(String sessionKey, long tick) {
+        if (tick < 0 || tick > currentTick) {
+            return;
+        }
+        ackedTicks.merge(sessionKey, tick, Math::max);
+    }
+
+    public void forget(String sessionKey) {
+        ackedTicks.remove(sessionKey);
+    }
+
+    /**
+     * Devuelve el tick base para el delta de un cliente, o {@link #FULL_SNAPSHOT} si
+     * nunca confirmó un snapshot o se quedó demasiado atrás.
+     */
+    public long baselineFor(String sessionKey) {
+        Long acked = ackedTicks.get(sessionKey);
+        if (acked == null || currentTick - acked > maxDeltaTicks) {
+            return FULL_SNAPSHOT;
+        }
+        return acked;
+    }
+
+    public List<String> changedSince(long baseline) {
+        return idsAfter(changedAtTick, baseline);
+    }
+
+    public List<String> removedSince(long baseline) {
+        return idsAfter(removedAtTick, baseline);
+    }
+
+    public long getCurrentTick() {
+        return currentTick;
+    }
+
+    private static List<String> idsAfter(Map<String, Long> ticks, long baseline) {
+        List<String> ids = new ArrayList<>();
+        ticks.forEach((id, tick) -> {
+            if (tick > baseline) {
+                ids.add(id);
+            }
+        });
+        return ids;
+    }
+}
@@ -0,0 +1,63 @@
+package juego.arsw.game;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rejilla de tiles del mapa, leída del mismo fichero que dibuja el frontend
+ * ({@code static/maps/map01.txt}): una fila por línea, ids de tile separados por espacios.
+ */
+public class TileMap {
+    public static final String DEFAULT_MAP = "static/maps/map01.txt";
+
+    private final int[][] tiles;
+
+    public TileMap(int[][] tiles) {
+        if (tiles.length == 0 || tiles[0].length == 0) {
+            throw new IllegalArgumentException("Tile map must not be empty");
+        }
+        this.tiles = tiles;
+    }
+
+    public static TileMap load(String resource) {
+        InputStream in = TileMap.class.getClassLoader().getResourceAsStream(resource);
+        if (in == null) {
+            throw new IllegalStateException("Tile map not found: " + resource);
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            List<int[]> rows = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                String[] cells = line.trim().split("\\s+");
+                int[] row = new int[cells.length];
+                for (int i = 0; i < cells.length; i++) {
+                    row[i] = Integer.parseInt(cells[i]);
+                }
+                rows.add(row);
+            }
+            return new TileMap(rows.toArray(new int[0][]));
+        } catch (IOException e) {
+            throw new IllegalStateException("Error reading tile map " + resource, e);
+        }
+    }
+
+    public int getColumns() {
+        return tiles[0].length;
+    }
+
+    public int getRows() {
+        return tiles.length;
+    }
+
+    public int tileAt(int column, int row) {
+        return tiles[row][column];
+    }
+}
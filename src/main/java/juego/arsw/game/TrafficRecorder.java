@@ -0,0 +1,207 @@
+package juego.arsw.game;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import juego.arsw.config.GameProperties;
+
+/**
+ * Graba el tráfico entrante de {@code /game} para reproducirlo después con el generador de
+ * carga: cuándo abre cada sesión y en qué sala, cada frame de texto que manda y cuándo
+ * cierra. Los hilos de WebSocket solo encolan el evento; un hilo propio lo escribe como
+ * una línea JSON en el fichero de la grabación:
+ *
+ * <pre>
+ * {"t":1234,"session":"abc","event":"open","room":"default"}
+ * {"t":1300,"session":"abc","event":"frame","payload":"{\"x\":10,\"y\":20}"}
+ * {"t":9000,"session":"abc","event":"close"}
+ * </pre>
+ *
+ * {@code t} son microsegundos desde que empezó la grabación. Si la escritura se queda
+ * {@code maxPendingEvents} por detrás, los eventos nuevos se descartan y se cuentan.
+ */
+public class TrafficRecorder implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger(TrafficRecorder.class.getName());
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    public static final String OPEN = "open";
+    public static final String FRAME = "frame";
+    public static final String CLOSE = "close";
+
+    private final Path file;
+    private final BufferedWriter out;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final long startNanos = System.nanoTime();
+    private final int maxPendingEvents;
+    private final Queue<Event> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong recorded = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final ScheduledExecutorService writer;
+
+    /** Una línea de la grabación; {@code room} solo en open y {@code payload} solo en frame. */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Event(long t, String session, String event, String room, String payload) {
+    }
+
+    private TrafficRecorder(Path file, GameProperties.Recording properties) throws IOException {
+        this.file = file;
+        this.out = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        this.maxPendingEvents = properties.getMaxPendingEvents();
+        this.writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "traffic-recorder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getFlushIntervalMillis();
+        if (interval > 0) {
+            writer.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** Empieza una grabación nueva en {@code traffic-<fecha>.ndjson} dentro del directorio. */
+    public static TrafficRecorder start(Path directory, GameProperties.Recording properties) throws IOException {
+        if (properties.getMaxPendingEvents() <= 0) {
+            throw new IllegalArgumentException("Pending event limit must be positive");
+        }
+        Files.createDirectories(directory);
+        Path file = directory.resolve("traffic-" + LocalDateTime.now().format(FILE_TIME) + ".ndjson");
+        for (int i = 1; Files.exists(file); i++) {
+            file = directory.resolve("traffic-" + LocalDateTime.now().format(FILE_TIME) + "-" + i + ".ndjson");
+        }
+        logger.info("Recording /game traffic to " + file);
+        return new TrafficRecorder(file, properties);
+    }
+
+    public void opened(String sessionId, String roomId) {
+        enqueue(new Event(now(), sessionId, OPEN, roomId, null));
+    }
+
+    public void frame(String sessionId, String payload) {
+        enqueue(new Event(now(), sessionId, FRAME, null, payload));
+    }
+
+    public void closed(String sessionId) {
+        enqueue(new Event(now(), sessionId, CLOSE, null, null));
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public long getRecordedCount() {
+        return recorded.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Escribe lo encolado en el fichero. Lo usa el hilo propio; llamarlo desde fuera solo
+     * es seguro si ese hilo no está escribiendo.
+     */
+    public void flush() throws IOException {
+        int count = pending.get();
+        int written = 0;
+        try {
+            for (; written < count; written++) {
+                Event event = queue.poll();
+                if (event == null) {
+                    break;
+                }
+                out.write(objectMapper.writeValueAsString(event));
+                out.newLine();
+            }
+            out.flush();
+        } finally {
+            pending.addAndGet(-written);
+            recorded.addAndGet(written);
+        }
+    }
+
+    /** Para el hilo de escritura, escribe lo pendiente y cierra el fichero. */
+    @Override
+    public void close() {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warning("Traffic recorder did not stop in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            flush();
+            out.close();
+        } catch (IOException e) {
+            logger.severe("Error closing traffic recording: " + e.getMessage());
+        }
+        logger.info("Recorded " + recorded.get() + " traffic events to " + file + " (" + dropped.get() + " dropped)");
+    }
+
+    /** Lee una grabación línea a línea; las líneas que no se entienden se saltan. */
+    public static long read(Path file, Consumer<Event> consumer) throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        long count = 0;
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    consumer.accept(objectMapper.readValue(line, Event.class));
+                    count++;
+                } catch (JsonProcessingException e) {
+                    // Una última línea a medias si el servidor murió grabando
+                    logger.warning("Skipping unreadable traffic line: " + e.getOriginalMessage());
+                }
+            }
+        }
+        return count;
+    }
+
+    private long now() {
+        return (System.nanoTime() - startNanos) / 1_000;
+    }
+
+    private void enqueue(Event event) {
+        if (pending.incrementAndGet() > maxPendingEvents) {
+            pending.decrementAndGet();
+            if (dropped.getAndIncrement() % 10_000 == 0) {
+                logger.warning("Traffic recorder is behind by " + maxPendingEvents + " events; dropping");
+            }
+            return;
+        }
+        queue.offer(event);
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException | RuntimeException e) {
+            // Un error no debe cancelar las escrituras programadas
+            logger.severe("Traffic recorder write error: " + e.getMessage());
+        }
+    }
+}
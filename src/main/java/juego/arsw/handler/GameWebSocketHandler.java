@@ -14,6 +14,8 @@ import org.springframework.web.socket.handler.TextWebSocketHandler;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import juego.arsw.game.BroadcastEvent;
+import juego.arsw.game.InboundMessageEvent;
 import juego.arsw.model.User;
 import juego.arsw.service.UserService;
 
@@ -35,16 +37,26 @@ public class GameWebSocketHandler extends TextWebSocketHandler {
 
     @Override
     public void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
+        // Aquí no hay cola: el mensaje se maneja en el hilo del socket, con sus envíos
+        InboundMessageEvent inbound = new InboundMessageEvent();
+        inbound.begin();
         User playerData = objectMapper.readValue(message.getPayload(), User.class);
         User processedUser = userService.processUser(playerData);
         
         // Broadcast updated state to all connected clients
+        BroadcastEvent event = new BroadcastEvent();
+        event.begin();
+        long start = System.nanoTime();
         TextMessage response = new TextMessage(objectMapper.writeValueAsString(userService.getAllUsers()));
+        long encodeNanos = System.nanoTime() - start;
+        int recipients = 0;
         for (WebSocketSession clientSession : sessions.values()) {
             if (clientSession.isOpen()) {
                 clientSession.sendMessage(response);
+                recipients++;
             }
         }
+        commitBroadcast(event, "users", start, encodeNanos, recipients, response);
 
         // Store the user in the map
         if (users.containsKey(sessions.get(session.getId()).getId())) {
@@ -54,6 +66,13 @@ public class GameWebSocketHandler extends TextWebSocketHandler {
         }
 
         sendUsersList();
+
+        inbound.end();
+        if (inbound.shouldCommit()) {
+            inbound.type = "user";
+            inbound.size = message.getPayloadLength();
+            inbound.commit();
+        }
     }
 
     @Override
@@ -73,16 +92,37 @@ public class GameWebSocketHandler extends TextWebSocketHandler {
             responseMap.put("users", usersList);
             
             // Convertir explícitamente a JSON usando ObjectMapper
+            BroadcastEvent event = new BroadcastEvent();
+            event.begin();
+            long start = System.nanoTime();
             String jsonResponse = objectMapper.writeValueAsString(responseMap);
             TextMessage response = new TextMessage(jsonResponse);
+            long encodeNanos = System.nanoTime() - start;
             
+            int recipients = 0;
             for (WebSocketSession clientSession : sessions.values()) {
                 if (clientSession.isOpen()) {
                     clientSession.sendMessage(response);
+                    recipients++;
                 }
             }
+            commitBroadcast(event, "usersList", start, encodeNanos, recipients, response);
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
-}
\ No newline at end of file
+
+    /** Evento JFR del fan-out; aquí el envío es el {@code sendMessage} directo a cada socket. */
+    private static void commitBroadcast(BroadcastEvent event, String kind, long start, long encodeNanos,
+            int recipients, TextMessage message) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.kind = kind;
+            event.recipients = recipients;
+            event.bytes = (long) recipients * message.getPayloadLength();
+            event.encodeTime = encodeNanos;
+            event.sendTime = System.nanoTime() - start - encodeNanos;
+            event.commit();
+        }
+    }
+}
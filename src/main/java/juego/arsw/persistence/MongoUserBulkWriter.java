@@ -0,0 +1,56 @@
+package juego.arsw.persistence;
+
+import java.util.List;
+
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import juego.arsw.model.User;
+
+/**
+ * {@link UserBulkWriter} sobre MongoDB: un documento por usuario en la colección
+ * {@value #COLLECTION}, con la placa como {@code _id}. Cada lote es un único
+ * {@code bulkWrite} no ordenado de upserts y borrados.
+ */
+public class MongoUserBulkWriter implements UserBulkWriter {
+    public static final String COLLECTION = "users";
+
+    private final MongoTemplate mongoTemplate;
+
+    public MongoUserBulkWriter(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public List<User> loadAll() {
+        return mongoTemplate.findAll(User.class, COLLECTION);
+    }
+
+    @Override
+    public void write(List<User> upserts, List<String> deletes) {
+        if (upserts.isEmpty() && deletes.isEmpty()) {
+            return;
+        }
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, User.class, COLLECTION);
+        for (User user : upserts) {
+            Update update = new Update()
+                    .set("name", user.getName())
+                    .set("x", user.getX())
+                    .set("y", user.getY())
+                    .set("direction", user.getDirection())
+                    .set("hasPerson", user.getHasPerson());
+            operations.upsert(byId(user.getId()), update);
+        }
+        for (String id : deletes) {
+            operations.remove(byId(id));
+        }
+        operations.execute();
+    }
+
+    private static Query byId(String id) {
+        return Query.query(Criteria.where("_id").is(id));
+    }
+}
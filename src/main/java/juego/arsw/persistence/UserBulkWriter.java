@@ -0,0 +1,18 @@
+package juego.arsw.persistence;
+
+import java.util.List;
+
+import juego.arsw.model.User;
+
+/**
+ * Almacén de usuarios que acepta los cambios en lote. {@link UserWriteBehind} le entrega
+ * lo acumulado de una vez, así que cada llamada es una sola ida y vuelta a la base de datos.
+ */
+public interface UserBulkWriter {
+
+    /** Todos los usuarios guardados, para recuperar el estado al arrancar. */
+    List<User> loadAll();
+
+    /** Crea o reemplaza {@code upserts} y borra {@code deletes} en una escritura masiva. */
+    void write(List<User> upserts, List<String> deletes);
+}
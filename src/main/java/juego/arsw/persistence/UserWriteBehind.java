@@ -0,0 +1,208 @@
+package juego.arsw.persistence;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import juego.arsw.config.GameProperties;
+import juego.arsw.model.User;
+
+/**
+ * Escritura diferida de usuarios. Guardar o borrar solo anota el último estado de cada
+ * placa en un mapa en memoria y vuelve enseguida; un hilo propio lo vuelca a la base de
+ * datos en lotes cada {@code flushIntervalMillis}, o antes si hay {@code flushThreshold}
+ * usuarios pendientes. Varios cambios del mismo usuario entre volcados se quedan en uno.
+ *
+ * <p>Si un lote falla, sus cambios vuelven a quedar pendientes (salvo que ya haya uno más
+ * nuevo) y se reintentan en el siguiente volcado. Al cerrar se vuelca lo que quede.
+ */
+public class UserWriteBehind implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger(UserWriteBehind.class.getName());
+
+    private final UserBulkWriter writer;
+    private final int flushThreshold;
+    private final int maxBatchSize;
+    // Un solo hilo: los volcados programados y los adelantados nunca se solapan
+    private final ScheduledExecutorService flusher;
+    private final Map<String, Change> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private final AtomicLong flushedChanges = new AtomicLong();
+    private final AtomicLong totalFlushNanos = new AtomicLong();
+    private volatile int lastBatchSize;
+    private volatile int maxObservedBatchSize;
+    private volatile long lastFlushNanos;
+    private volatile long maxFlushNanos;
+
+    /** Último estado conocido de un usuario: una copia para guardar, o null si se borró. */
+    private record Change(User user) {
+    }
+
+    /** Contadores de los volcados, para ver latencia y tamaño de lote. */
+    public record Stats(long flushes, long failedFlushes, long flushedChanges, int pending, int lastBatchSize,
+            int maxBatchSize, long lastFlushMicros, long maxFlushMicros, long averageFlushMicros) {
+    }
+
+    public UserWriteBehind(UserBulkWriter writer, GameProperties.Persistence properties) {
+        if (properties.getMaxBatchSize() <= 0 || properties.getFlushThreshold() <= 0) {
+            throw new IllegalArgumentException("Batch size and flush threshold must be positive");
+        }
+        this.writer = writer;
+        this.flushThreshold = properties.getFlushThreshold();
+        this.maxBatchSize = properties.getMaxBatchSize();
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "user-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getFlushIntervalMillis();
+        if (interval > 0) {
+            flusher.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** Estado guardado, leído directamente (no pasa por el buffer). */
+    public List<User> loadAll() {
+        return writer.loadAll();
+    }
+
+    /** Anota el estado actual del usuario; se copia para que cambios posteriores no se mezclen. */
+    public void save(User user) {
+        pending.put(user.getId(), new Change(copyOf(user)));
+        requestFlushIfFull();
+    }
+
+    public void delete(String id) {
+        pending.put(id, new Change(null));
+        requestFlushIfFull();
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Vuelca todo lo pendiente en lotes de como mucho {@code maxBatchSize}. Lo usa el hilo
+     * propio; llamarlo desde fuera solo es seguro si ese hilo ya no está volcando.
+     *
+     * @return false si algún lote falló y sus cambios quedaron pendientes
+     */
+    public boolean flush() {
+        flushRequested.set(false);
+        while (!pending.isEmpty()) {
+            List<String> ids = new ArrayList<>();
+            List<Change> changes = new ArrayList<>();
+            List<User> upserts = new ArrayList<>();
+            List<String> deletes = new ArrayList<>();
+            Iterator<String> keys = pending.keySet().iterator();
+            while (keys.hasNext() && ids.size() < maxBatchSize) {
+                String id = keys.next();
+                Change change = pending.remove(id);
+                if (change == null) {
+                    continue;
+                }
+                ids.add(id);
+                changes.add(change);
+                if (change.user() != null) {
+                    upserts.add(change.user());
+                } else {
+                    deletes.add(id);
+                }
+            }
+            if (ids.isEmpty()) {
+                break;
+            }
+
+            long start = System.nanoTime();
+            try {
+                writer.write(upserts, deletes);
+            } catch (RuntimeException e) {
+                failedFlushes.incrementAndGet();
+                // Lo que cambió mientras tanto es más nuevo y se queda
+                for (int i = 0; i < ids.size(); i++) {
+                    pending.putIfAbsent(ids.get(i), changes.get(i));
+                }
+                logger.warning("User write-behind flush of " + ids.size() + " changes failed: " + e.getMessage());
+                return false;
+            }
+            record(ids.size(), System.nanoTime() - start);
+        }
+        return true;
+    }
+
+    public Stats getStats() {
+        long count = flushes.get();
+        return new Stats(count, failedFlushes.get(), flushedChanges.get(), pending.size(), lastBatchSize,
+                maxObservedBatchSize, lastFlushNanos / 1_000, maxFlushNanos / 1_000,
+                count > 0 ? totalFlushNanos.get() / count / 1_000 : 0);
+    }
+
+    /** Para el hilo de volcado y vuelca lo pendiente antes de salir. */
+    @Override
+    public void close() {
+        flusher.shutdown();
+        try {
+            if (!flusher.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warning("User write-behind flusher did not stop in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!flush()) {
+            logger.severe("User write-behind closed with " + pending.size() + " unsaved changes");
+        }
+    }
+
+    private void requestFlushIfFull() {
+        if (pending.size() >= flushThreshold && flushRequested.compareAndSet(false, true)) {
+            try {
+                flusher.execute(this::flushQuietly);
+            } catch (RejectedExecutionException e) {
+                // Ya se está cerrando; close() vuelca lo pendiente
+                flushRequested.set(false);
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // Un error inesperado no debe cancelar los volcados programados
+            logger.severe("User write-behind flush error: " + e.getMessage());
+        }
+    }
+
+    private void record(int batchSize, long nanos) {
+        flushes.incrementAndGet();
+        flushedChanges.addAndGet(batchSize);
+        totalFlushNanos.addAndGet(nanos);
+        lastBatchSize = batchSize;
+        lastFlushNanos = nanos;
+        // Solo escribe el hilo de volcado, así que no hace falta comparar y cambiar
+        maxObservedBatchSize = Math.max(maxObservedBatchSize, batchSize);
+        maxFlushNanos = Math.max(maxFlushNanos, nanos);
+        logger.fine("Flushed " + batchSize + " user changes in " + nanos / 1_000 + " us");
+    }
+
+    private static User copyOf(User user) {
+        User copy = new User(user.getId());
+        copy.setName(user.getName());
+        copy.setX(user.getX());
+        copy.setY(user.getY());
+        copy.setDirection(user.getDirection());
+        copy.setHasPerson(user.getHasPerson());
+        return copy;
+    }
+}
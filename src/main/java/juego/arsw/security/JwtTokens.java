@@ -0,0 +1,69 @@
+package juego.arsw.security;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+import javax.crypto.SecretKey;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Deserializer;
+import io.jsonwebtoken.io.Serializer;
+import io.jsonwebtoken.security.Keys;
+
+/**
+ * Firma y verificación de los tokens de sesión (HS512, con el usuario como sujeto y su
+ * rol como claim). Es seguro compartir una instancia entre hilos: la clave y el parser se
+ * construyen una sola vez.
+ */
+public class JwtTokens {
+
+    private static final String SECRET_STRING = "ClaveSuperLargaConMasDeSesentaCuatroCaracteresParaHS512_1234567890!@#$%^&*()";
+
+    public static final long EXPIRATION_MILLIS = 60 * 60 * 1000; // 1 hora
+
+    private final SecretKey key;
+    private final JwtParser parser;
+    // Sin serializador explícito jjwt lo busca con ServiceLoader en cada compact()
+    private final Serializer<Map<String, ?>> serializer;
+
+    public JwtTokens() {
+        this(Keys.hmacShaKeyFor(SECRET_STRING.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public JwtTokens(SecretKey key) {
+        this.key = key;
+        this.serializer = loadFirst(Serializer.class);
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(key)
+                .deserializeJsonWith(loadFirst(Deserializer.class))
+                .build();
+    }
+
+    public String issue(String username, String role) {
+        return Jwts.builder()
+                .setSubject(username)
+                .claim("role", role)
+                .setExpiration(new Date(System.currentTimeMillis() + EXPIRATION_MILLIS))
+                .signWith(key, SignatureAlgorithm.HS512)
+                .serializeToJsonWith(serializer)
+                .compact();
+    }
+
+    /** Claims de un token válido; lanza {@link JwtException} si la firma no cuadra o caducó. */
+    public Claims parse(String token) {
+        return parser.parseClaimsJws(token).getBody();
+    }
+
+    /** La implementación JSON (jjwt-jackson) solo está en runtime; se carga una vez aquí. */
+    @SuppressWarnings("unchecked")
+    private static <T> T loadFirst(Class<?> type) {
+        return (T) ServiceLoader.load(type).findFirst()
+                .orElseThrow(() -> new IllegalStateException("No JWT JSON provider for " + type.getName()));
+    }
+}
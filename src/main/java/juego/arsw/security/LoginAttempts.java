@@ -0,0 +1,91 @@
+package juego.arsw.security;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Intentos fallidos de login por usuario: tras {@link #MAX_FAILURES} fallos el usuario
+ * queda bloqueado {@link #BLOCK_MILLIS} desde el último. La entrada se borra al pasar el
+ * bloqueo o al entrar bien, así que el mapa solo guarda usuarios con fallos recientes.
+ */
+public class LoginAttempts {
+
+    public static final int MAX_FAILURES = 3;
+    public static final long BLOCK_MILLIS = 60 * 1000; // 1 minuto
+
+    private final Map<String, FailedLoginAttempt> failedLoginAttempts = new ConcurrentHashMap<>();
+
+    public boolean isBlocked(String key) {
+        return getRemainingBlockMillis(key) > 0;
+    }
+
+    /** Milisegundos que le quedan de bloqueo, 0 si puede intentarlo. */
+    public long getRemainingBlockMillis(String key) {
+        if (key == null) {
+            return 0;
+        }
+        FailedLoginAttempt attempt = failedLoginAttempts.get(key);
+        if (attempt == null || attempt.getCount() < MAX_FAILURES) {
+            return 0;
+        }
+        long diff = System.currentTimeMillis() - attempt.getLastAttempt();
+        if (diff < BLOCK_MILLIS) {
+            return BLOCK_MILLIS - diff;
+        }
+        // Desbloquea si ya pasó el tiempo
+        failedLoginAttempts.remove(key, attempt);
+        return 0;
+    }
+
+    public void registerFailure(String key) {
+        if (key == null) {
+            return;
+        }
+        failedLoginAttempts.compute(key, (k, attempt) -> {
+            if (attempt == null) {
+                return new FailedLoginAttempt(1, System.currentTimeMillis());
+            }
+            attempt.increment();
+            attempt.setLastAttempt(System.currentTimeMillis());
+            return attempt;
+        });
+    }
+
+    public void reset(String key) {
+        if (key != null) {
+            failedLoginAttempts.remove(key);
+        }
+    }
+
+    /** Usuarios con fallos registrados. */
+    public int size() {
+        return failedLoginAttempts.size();
+    }
+
+    private static class FailedLoginAttempt {
+        private volatile int count;
+        private volatile long lastAttempt;
+
+        FailedLoginAttempt(int count, long lastAttempt) {
+            this.count = count;
+            this.lastAttempt = lastAttempt;
+        }
+
+        int getCount() {
+            return count;
+        }
+
+        long getLastAttempt() {
+            return lastAttempt;
+        }
+
+        // Solo dentro de compute, que ya serializa los cambios de una misma clave
+        void increment() {
+            this.count++;
+        }
+
+        void setLastAttempt(long lastAttempt) {
+            this.lastAttempt = lastAttempt;
+        }
+    }
+}
@@ -1,67 +1,151 @@
 package juego.arsw.service;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import juego.arsw.model.User;
+import juego.arsw.persistence.UserWriteBehind;
 
+/**
+ * Usuarios indexados por id en un {@link ConcurrentHashMap}: buscar, crear, reemplazar y
+ * borrar son O(1) y seguros desde los hilos de WebSocket y STOMP a la vez.
+ *
+ * <p>{@link #getAllUsers()} devuelve una lista inmutable que se reconstruye solo cuando
+ * cambia quién está en el mapa; mientras tanto todas las llamadas comparten la misma.
+ * Los cambios de posición o de nombre modifican el propio {@link User}, así que se ven
+ * en la lista sin reconstruirla, igual que antes con la copia.
+ *
+ * <p>Con persistencia activada carga los usuarios guardados al arrancar y anota cada
+ * cambio en un {@link UserWriteBehind}; el volcado a la base de datos ocurre en otro hilo,
+ * así que ninguna llamada espera a MongoDB.
+ */
 @Service
 public class UserService {
-    private final List<User> users = new ArrayList<>();
+    private final Map<String, User> users = new ConcurrentHashMap<>();
+    // Sube con cada alta, reemplazo o baja; la copia guarda la versión con la que se hizo
+    private final AtomicLong version = new AtomicLong();
+    private volatile Snapshot snapshot = new Snapshot(0, List.of());
+    private final UserWriteBehind writeBehind;
+
+    private record Snapshot(long version, List<User> users) {
+    }
+
+    public UserService() {
+        this((UserWriteBehind) null);
+    }
+
+    @Autowired
+    public UserService(ObjectProvider<UserWriteBehind> writeBehind) {
+        this(writeBehind.getIfAvailable());
+    }
+
+    public UserService(UserWriteBehind writeBehind) {
+        this.writeBehind = writeBehind;
+        if (writeBehind != null) {
+            for (User user : writeBehind.loadAll()) {
+                users.put(idOf(user), user);
+            }
+            version.incrementAndGet();
+        }
+    }
 
     public User createUser(User user) {
-        users.add(user);
+        // Dentro de compute para que el buffer reciba los cambios de una placa en el mismo orden que el mapa
+        users.compute(idOf(user), (id, existing) -> saved(user));
+        version.incrementAndGet();
         return user;
     }
 
     public Optional<User> getUserById(String id) {
-        return users.stream()
-                .filter(user -> user.getId().equals(id))
-                .findFirst();
+        return id != null ? Optional.ofNullable(users.get(id)) : Optional.empty();
     }
 
     public List<User> getAllUsers() {
-        return new ArrayList<>(users);
+        Snapshot current = snapshot;
+        long latest = version.get();
+        if (current.version() != latest) {
+            // La versión se lee antes de copiar: un cambio concurrente deja la copia
+            // marcada como vieja y la siguiente llamada la rehace
+            current = new Snapshot(latest, List.copyOf(users.values()));
+            snapshot = current;
+        }
+        return current.users();
     }
 
     public User updateUser(String id, User updatedUser) {
-        for (int i = 0; i < users.size(); i++) {
-            User user = users.get(i);
-            if (user.getId().equals(id)) {
-                updatedUser.setId(id);
-                users.set(i, updatedUser);
-                return updatedUser;
-            }
+        User result = users.computeIfPresent(id, (key, existing) -> {
+            updatedUser.setId(key);
+            return saved(updatedUser);
+        });
+        if (result != null) {
+            version.incrementAndGet();
         }
-        return null;
+        return result;
     }
 
     public boolean deleteUser(String id) {
-        return users.removeIf(user -> user.getId().equals(id));
+        if (id == null) {
+            return false;
+        }
+        boolean[] removed = new boolean[1];
+        users.computeIfPresent(id, (key, existing) -> {
+            removed[0] = true;
+            if (writeBehind != null) {
+                writeBehind.delete(key);
+            }
+            return null;
+        });
+        if (removed[0]) {
+            version.incrementAndGet();
+        }
+        return removed[0];
     }
 
+    /** Crea o reemplaza el usuario con su id en una sola operación atómica. */
     public User processUser(User user) {
-        Optional<User> existingUser = getUserById(user.getId());
-        
-        if (existingUser.isPresent()) {
-            return updateUser(user.getId(), user);
-        } else {
-            return createUser(user);
-        }
+        return createUser(user);
     }
 
     public void updateUserPosition(String id, double x, double y, String direction) {
-        getUserById(id).ifPresent(user -> {
+        if (id == null) {
+            return;
+        }
+        users.computeIfPresent(id, (key, user) -> {
             user.setX(x);
             user.setY(y);
             user.setDirection(direction);
+            return saved(user);
         });
     }
 
     public void updateUserName(String id, String name) {
-        getUserById(id).ifPresent(user -> user.setName(name));
+        if (id == null) {
+            return;
+        }
+        users.computeIfPresent(id, (key, user) -> {
+            user.setName(name);
+            return saved(user);
+        });
+    }
+
+    private User saved(User user) {
+        if (writeBehind != null) {
+            writeBehind.save(user);
+        }
+        return user;
+    }
+
+    private static String idOf(User user) {
+        if (user.getId() == null) {
+            throw new IllegalArgumentException("User id is required");
+        }
+        return user.getId();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,56 @@
+package juego.arsw;
+
+import juego.arsw.game.AdminFeed;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdminFeedTest {
+
+    private static final long WINDOW = 250_000_000L;
+
+    @Test
+    void testChangesCancellingOutInTheWindowAreNotSent() {
+        AdminFeed feed = new AdminFeed(WINDOW);
+        feed.joined("AAA-111", "Bus");
+        feed.renamed("AAA-111", "Bus 2");
+        feed.joined("BBB-222", "Other");
+        feed.left("BBB-222");
+        feed.left("CCC-333");
+
+        AdminFeed.Delta delta = feed.drain(0);
+        assertEquals(List.of(new AdminFeed.Player("AAA-111", "Bus 2")), delta.joined());
+        assertTrue(delta.renamed().isEmpty());
+        assertEquals(List.of("CCC-333"), delta.left());
+        assertTrue(feed.isEmpty());
+    }
+
+    @Test
+    void testLeavingAndComingBackIsARename() {
+        AdminFeed feed = new AdminFeed(WINDOW);
+        feed.renamed("AAA-111", "Old");
+        feed.left("AAA-111");
+        feed.joined("AAA-111", "Back");
+
+        AdminFeed.Delta delta = feed.drain(0);
+        assertTrue(delta.joined().isEmpty());
+        assertEquals(List.of(new AdminFeed.Player("AAA-111", "Back")), delta.renamed());
+        assertTrue(delta.left().isEmpty());
+    }
+
+    @Test
+    void testFirstChangeGoesOutAtOnceAndTheRestWaitForTheWindow() {
+        AdminFeed feed = new AdminFeed(WINDOW);
+        assertFalse(feed.isDue(0));
+        feed.joined("AAA-111", "Bus");
+        assertTrue(feed.isDue(1_000));
+        feed.drain(1_000);
+
+        feed.joined("BBB-222", "Other");
+        assertFalse(feed.isDue(1_000 + WINDOW - 1));
+        assertTrue(feed.isDue(1_000 + WINDOW));
+    }
+}
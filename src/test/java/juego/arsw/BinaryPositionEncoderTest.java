@@ -0,0 +1,120 @@
+package juego.arsw;
+
+import juego.arsw.game.BinaryPositionEncoder;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryPositionEncoderTest {
+
+    @Test
+    void testFullSnapshotLayout() {
+        BinaryPositionEncoder encoder = new BinaryPositionEncoder(8);
+        encoder.begin(42, -1);
+        encoder.addPlayer(3, 10.5, 20.25, "left");
+        encoder.addPlayer(7, 0, 1, "up");
+
+        ByteBuffer frame = ByteBuffer.wrap(encoder.finish());
+
+        assertEquals(BinaryPositionEncoder.HEADER_SIZE + 2 * BinaryPositionEncoder.PLAYER_SIZE + 2, frame.capacity());
+        assertEquals(BinaryPositionEncoder.TYPE_POSITIONS, frame.get());
+        assertEquals(BinaryPositionEncoder.FLAG_FULL, frame.get());
+        assertEquals(42, frame.getInt());
+        assertEquals(-1, frame.getInt());
+        assertEquals(2, frame.getShort());
+
+        assertEquals(3, frame.getShort());
+        assertEquals(84, frame.getShort());
+        assertEquals(162, frame.getShort());
+        assertEquals(BinaryPositionEncoder.DIRECTION_LEFT, frame.get());
+
+        assertEquals(7, frame.getShort());
+        assertEquals(0, frame.getShort());
+        assertEquals(8, frame.getShort());
+        assertEquals(BinaryPositionEncoder.DIRECTION_UP, frame.get());
+
+        assertEquals(0, frame.getShort());
+        assertFalse(frame.hasRemaining());
+    }
+
+    @Test
+    void testInputSequencesTrailTheFrame() {
+        BinaryPositionEncoder encoder = new BinaryPositionEncoder(8);
+        encoder.begin(42, -1);
+        encoder.addPlayer(3, 1, 1, BinaryPositionEncoder.DIRECTION_UP, 0);
+        encoder.addPlayer(7, 2, 2, BinaryPositionEncoder.DIRECTION_UP, 120);
+
+        ByteBuffer frame = ByteBuffer.wrap(encoder.finish());
+
+        assertEquals(BinaryPositionEncoder.TYPE_POSITIONS, frame.get());
+        assertEquals(BinaryPositionEncoder.FLAG_FULL | BinaryPositionEncoder.FLAG_INPUT_SEQUENCES, frame.get());
+        // Jugadores y bajas quedan donde estaban: un cliente sin secuencias lee lo mismo
+        frame.position(BinaryPositionEncoder.HEADER_SIZE + 2 * BinaryPositionEncoder.PLAYER_SIZE);
+        assertEquals(0, frame.getShort());
+        // Solo el jugador cuyo cliente manda secuencias
+        assertEquals(1, frame.getShort());
+        assertEquals(7, frame.getShort());
+        assertEquals(120, frame.getInt());
+        assertFalse(frame.hasRemaining());
+
+        // El siguiente frame empieza sin secuencias
+        encoder.begin(43, 42);
+        encoder.addPlayer(3, 1, 1, BinaryPositionEncoder.DIRECTION_UP, 0);
+        assertEquals(0, encoder.finish()[1]);
+    }
+
+    @Test
+    void testDeltaWithRemovals() {
+        BinaryPositionEncoder encoder = new BinaryPositionEncoder(8);
+        encoder.begin(10, 8);
+        assertTrue(encoder.isEmpty());
+        encoder.addRemoved(5);
+        assertFalse(encoder.isEmpty());
+
+        ByteBuffer frame = ByteBuffer.wrap(encoder.finish());
+
+        assertEquals(BinaryPositionEncoder.TYPE_POSITIONS, frame.get());
+        assertEquals(0, frame.get());
+        assertEquals(10, frame.getInt());
+        assertEquals(8, frame.getInt());
+        assertEquals(0, frame.getShort());
+        assertEquals(1, frame.getShort());
+        assertEquals(5, frame.getShort());
+        assertThrows(IllegalStateException.class, () -> encoder.addPlayer(1, 0, 0, "up"));
+    }
+
+    @Test
+    void testBufferGrowsAndIsReused() {
+        BinaryPositionEncoder encoder = new BinaryPositionEncoder(8);
+        encoder.begin(1, -1);
+        for (int i = 0; i < 1000; i++) {
+            encoder.addPlayer(i, i, i, "down");
+        }
+        assertEquals(BinaryPositionEncoder.HEADER_SIZE + 1000 * BinaryPositionEncoder.PLAYER_SIZE + 2,
+                encoder.finish().length);
+
+        encoder.begin(2, -1);
+        assertEquals(BinaryPositionEncoder.HEADER_SIZE + 2, encoder.finish().length);
+    }
+
+    @Test
+    void testQuantizationClampsAndDirections() {
+        BinaryPositionEncoder encoder = new BinaryPositionEncoder(8);
+        encoder.begin(1, -1);
+        encoder.addPlayer(0, 1_000_000, -1_000_000, "north");
+
+        ByteBuffer frame = ByteBuffer.wrap(encoder.finish());
+        frame.position(BinaryPositionEncoder.HEADER_SIZE + 2);
+
+        assertEquals(Short.MAX_VALUE, frame.getShort());
+        assertEquals(Short.MIN_VALUE, frame.getShort());
+        assertEquals(BinaryPositionEncoder.DIRECTION_NONE, frame.get());
+        assertEquals(BinaryPositionEncoder.DIRECTION_RIGHT, BinaryPositionEncoder.encodeDirection("right"));
+        assertEquals(BinaryPositionEncoder.DIRECTION_DOWN, BinaryPositionEncoder.encodeDirection("down"));
+        assertEquals(BinaryPositionEncoder.DIRECTION_NONE, BinaryPositionEncoder.encodeDirection(null));
+        assertThrows(IllegalArgumentException.class, () -> new BinaryPositionEncoder(0));
+    }
+}
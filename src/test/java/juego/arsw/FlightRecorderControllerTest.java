@@ -0,0 +1,98 @@
+package juego.arsw;
+
+import juego.arsw.config.GameProperties;
+import juego.arsw.controller.FlightRecorderController;
+import juego.arsw.game.GameRoom;
+import juego.arsw.security.JwtTokens;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class FlightRecorderControllerTest {
+
+    private final JwtTokens tokens = new JwtTokens();
+    private final FlightRecorderController controller = new FlightRecorderController(tokens);
+    private final String admin = "Bearer " + tokens.issue("diegot", "admin");
+
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void tearDown() {
+        controller.stop(admin);
+    }
+
+    @Test
+    void testOnlyAdminsCanUseTheEndpoints() throws Exception {
+        assertEquals(401, controller.start(null, "default", 60).getStatusCode().value());
+        assertEquals(401, controller.start("Bearer not-a-token", "default", 60).getStatusCode().value());
+        String user = "Bearer " + tokens.issue("andres", "user");
+        assertEquals(403, controller.start(user, "default", 60).getStatusCode().value());
+        assertEquals(403, controller.dump(user).getStatusCode().value());
+        assertEquals(400, controller.start(admin, "no-such-settings", 60).getStatusCode().value());
+        // Sin grabación no hay nada que volcar
+        assertEquals(409, controller.dump(admin).getStatusCode().value());
+    }
+
+    @Test
+    void testDumpContainsTheGameEvents() throws Exception {
+        ResponseEntity<?> started = controller.start(admin, "default", 60);
+        assertEquals(200, started.getStatusCode().value());
+        assertEquals(true, ((Map<?, ?>) started.getBody()).get("running"));
+        assertEquals(409, controller.start(admin, "default", 60).getStatusCode().value());
+
+        GameProperties properties = new GameProperties();
+        properties.getTick().setRateHz(1);
+        GameRoom room = new GameRoom("jfr", properties, Runnable::run, Runnable::run);
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn("session-jfr");
+        when(session.isOpen()).thenReturn(true);
+        room.join(session);
+        room.handleTextMessage(session, new TextMessage("{\"name\":\"Bus\",\"x\":10,\"y\":20}"));
+        room.handleTextMessage(session, new TextMessage("not json"));
+        Method tick = GameRoom.class.getDeclaredMethod("tick");
+        tick.setAccessible(true);
+        tick.invoke(room);
+        room.close();
+
+        ResponseEntity<?> dumped = controller.dump(admin);
+        assertEquals(200, dumped.getStatusCode().value());
+        Path file = dir.resolve("game.jfr");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            ((StreamingResponseBody) dumped.getBody()).writeTo(out);
+        }
+        // La grabación sigue después del volcado
+        assertEquals(true, ((Map<?, ?>) controller.get(admin).getBody()).get("running"));
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().startsWith("juego.arsw."))
+                .filter(event -> !event.hasField("room") || "jfr".equals(event.getString("room")))
+                .toList();
+        List<String> types = events.stream()
+                .filter(event -> event.getEventType().getName().equals("juego.arsw.InboundMessage"))
+                .map(event -> event.getString("type"))
+                .toList();
+        assertEquals(List.of("move", "invalid"), types);
+        assertTrue(events.stream().anyMatch(event -> event.getEventType().getName().equals("juego.arsw.Broadcast")
+                && "players".equals(event.getString("kind")) && event.getInt("recipients") == 1));
+        assertTrue(events.stream().anyMatch(event -> event.getEventType().getName().equals("juego.arsw.RoomTick")));
+    }
+}
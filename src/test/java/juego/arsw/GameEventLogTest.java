@@ -0,0 +1,141 @@
+package juego.arsw;
+
+import juego.arsw.config.GameProperties;
+import juego.arsw.game.GameEventLog;
+import juego.arsw.game.GameEventLog.Category;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameEventLogTest {
+
+    private final Logger logger = Logger.getLogger("juego.arsw.test.events");
+    private final List<LogRecord> records = new ArrayList<>();
+    private final Handler capture = new Handler() {
+        @Override
+        public void publish(LogRecord record) {
+            records.add(record);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+    private GameProperties.Logging properties;
+    // Reloj de las ventanas por segundo, en nanosegundos
+    private final long[] now = new long[1];
+
+    @BeforeEach
+    void setUp() {
+        logger.setUseParentHandlers(false);
+        logger.setLevel(Level.INFO);
+        logger.addHandler(capture);
+        properties = new GameProperties.Logging();
+        properties.setAsync(false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        logger.removeHandler(capture);
+    }
+
+    private GameEventLog open() {
+        return new GameEventLog(properties, () -> now[0]);
+    }
+
+    private List<String> messages() {
+        return records.stream().map(LogRecord::getMessage).toList();
+    }
+
+    @Test
+    void testEventsAreWrittenAsKeyValuePairs() {
+        GameEventLog events = open();
+        assertTrue(events.log(logger, Level.INFO, Category.PERSON, "person.collected", "room", "r1", "person",
+                "p1", "player", "ABC-123"));
+        assertTrue(events.log(logger, Level.WARNING, Category.SESSION, "session.rejected", "reason",
+                "room limit reached", "note", ""));
+
+        assertEquals(List.of("person.collected room=r1 person=p1 player=ABC-123",
+                "session.rejected reason=\"room limit reached\" note=\"\""), messages());
+        // El origen es el logger que generó el evento, no el log de eventos
+        assertEquals(logger.getName(), records.get(0).getSourceClassName());
+        assertEquals(Level.WARNING, records.get(1).getLevel());
+    }
+
+    @Test
+    void testDisabledLevelsAreSkippedBeforeSampling() {
+        GameEventLog events = open();
+        assertFalse(events.log(logger, Level.FINE, Category.ROOM, "room.created", "room", "r1"));
+        assertTrue(records.isEmpty());
+        assertEquals(0, events.getSuppressedCount());
+    }
+
+    @Test
+    void testCategoriesAreSampledIndependently() {
+        properties.getSampleEvery().put("cargo", 3);
+        GameEventLog events = open();
+        for (int i = 0; i < 9; i++) {
+            events.log(logger, Level.INFO, Category.CARGO, "cargo.updated", "n", i);
+            events.log(logger, Level.INFO, Category.PERSON, "person.state", "n", i);
+        }
+
+        List<String> cargo = messages().stream().filter(m -> m.startsWith("cargo")).toList();
+        assertEquals(List.of("cargo.updated n=0", "cargo.updated n=3", "cargo.updated n=6"), cargo);
+        assertEquals(9, messages().stream().filter(m -> m.startsWith("person")).count());
+        // Lo muestreado no cuenta como omitido por el límite
+        assertEquals(0, events.getSuppressedCount());
+    }
+
+    @Test
+    void testRateLimitSuppressesAndReportsInTheNextSecond() {
+        properties.setMaxEventsPerSecond(2);
+        GameEventLog events = open();
+        for (int i = 0; i < 5; i++) {
+            events.log(logger, Level.SEVERE, Category.ERROR, "send.failed", "n", i);
+        }
+        // Otra categoría tiene su propio límite
+        assertTrue(events.log(logger, Level.INFO, Category.ROOM, "room.created", "room", "r1"));
+        assertEquals(List.of("send.failed n=0", "send.failed n=1", "room.created room=r1"), messages());
+        assertEquals(3, events.getSuppressedCount());
+
+        now[0] += 1_000_000_000L;
+        assertTrue(events.log(logger, Level.SEVERE, Category.ERROR, "send.failed", "n", 5));
+        assertTrue(events.log(logger, Level.SEVERE, Category.ERROR, "send.failed", "n", 6));
+        assertEquals("send.failed n=5 suppressed=3", messages().get(3));
+        assertEquals("send.failed n=6", messages().get(4));
+    }
+
+    @Test
+    void testAsyncEventsWaitForTheWriterAndOverflowIsDropped() {
+        properties.setAsync(true);
+        properties.setFlushIntervalMillis(0);
+        properties.setMaxPendingEvents(2);
+        GameEventLog events = open();
+        try {
+            assertTrue(events.log(logger, Level.INFO, Category.SESSION, "player.joined", "player", "A"));
+            assertTrue(events.log(logger, Level.INFO, Category.SESSION, "player.left", "player", "A"));
+            assertFalse(events.log(logger, Level.INFO, Category.SESSION, "player.joined", "player", "B"));
+            assertTrue(records.isEmpty());
+            assertEquals(2, events.getPendingCount());
+            assertEquals(1, events.getDroppedCount());
+        } finally {
+            events.close();
+        }
+        assertEquals(List.of("player.joined player=A", "player.left player=A"), messages());
+        assertEquals(2, events.getWrittenCount());
+    }
+}
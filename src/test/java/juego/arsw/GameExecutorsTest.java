@@ -0,0 +1,62 @@
+package juego.arsw;
+
+import juego.arsw.config.GameProperties;
+import juego.arsw.game.GameExecutors;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameExecutorsTest {
+
+    private static Thread threadOf(ExecutorService executor) throws Exception {
+        try {
+            return executor.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testOutboundUsesPlatformThreadsByDefault() throws Exception {
+        Thread thread = threadOf(GameExecutors.outbound(new GameProperties()));
+
+        assertFalse(thread.isVirtual());
+        assertTrue(thread.isDaemon());
+        assertTrue(thread.getName().startsWith("game-outbound-"));
+    }
+
+    @Test
+    void testOutboundUsesVirtualThreadsWhenEnabled() throws Exception {
+        GameProperties properties = new GameProperties();
+        properties.getThreads().setVirtual(true);
+
+        Thread thread = threadOf(GameExecutors.outbound(properties));
+
+        assertTrue(thread.isVirtual());
+        assertTrue(thread.getName().startsWith("game-outbound-"));
+    }
+
+    @Test
+    void testRoomLoopsStayOnPlatformThreads() throws Exception {
+        GameProperties properties = new GameProperties();
+        properties.getThreads().setVirtual(true);
+
+        Thread thread = threadOf(GameExecutors.rooms(properties));
+
+        assertFalse(thread.isVirtual());
+        assertTrue(thread.getName().startsWith("game-room-"));
+    }
+
+    @Test
+    void testTicksFireOnOneSharedDaemonThread() throws Exception {
+        Thread thread = threadOf(GameExecutors.ticks());
+
+        assertFalse(thread.isVirtual());
+        assertTrue(thread.isDaemon());
+        assertTrue(thread.getName().startsWith("game-tick-"));
+    }
+}
@@ -0,0 +1,344 @@
+package juego.arsw;
+
+import juego.arsw.config.GameProperties;
+import juego.arsw.controller.UserRestController;
+import juego.arsw.game.BinaryPositionEncoder;
+import juego.arsw.game.GameJournal;
+import juego.arsw.game.GameRoom;
+import juego.arsw.game.JournalEntry;
+import juego.arsw.game.JournalReplayer;
+import juego.arsw.game.RoomState;
+import juego.arsw.model.EntityPerson;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class GameJournalTest {
+
+    @TempDir
+    Path dir;
+
+    private GameProperties.Journal properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new GameProperties.Journal();
+        // Sin escritura programada: cada prueba decide cuándo escribir
+        properties.setSyncIntervalMillis(0);
+    }
+
+    private List<GameJournal.Recorded> readAll() throws Exception {
+        List<GameJournal.Recorded> recorded = new ArrayList<>();
+        GameJournal.read(dir, recorded::add);
+        return recorded;
+    }
+
+    private List<Path> segments() throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.sorted().toList();
+        }
+    }
+
+    @Test
+    void testEntriesAreWrittenInOrderAndReadBack() throws Exception {
+        List<JournalEntry> entries = List.of(
+                new JournalEntry.PlayerJoined("r1", "AAA-111", "Bus"),
+                new JournalEntry.PlayerMoved("r1", "AAA-111", 10.5f, 20f, BinaryPositionEncoder.DIRECTION_LEFT),
+                new JournalEntry.CargoChanged("r1", "AAA-111", (byte) 2),
+                new JournalEntry.PersonAdded("r1", "p1", 4, 6, "mujer.png"),
+                new JournalEntry.PersonRemoved("r1", "p1"),
+                new JournalEntry.PlayerLeft("r1", "AAA-111"),
+                new JournalEntry.RoomClosed("r1"),
+                new JournalEntry.PlayerJoined("r2", "BBB-222", null));
+        try (GameJournal journal = GameJournal.open(dir, properties)) {
+            for (JournalEntry entry : entries) {
+                assertTrue(journal.append(entry));
+            }
+            // Nada llega al disco hasta el lote
+            assertTrue(readAll().isEmpty());
+            assertTrue(journal.flush());
+
+            GameJournal.Stats stats = journal.getStats();
+            assertEquals(8, stats.written());
+            assertEquals(1, stats.syncs());
+            assertEquals(0, stats.pending());
+        }
+
+        List<GameJournal.Recorded> recorded = readAll();
+        assertEquals(entries.size(), recorded.size());
+        for (int i = 0; i < entries.size(); i++) {
+            assertEquals(entries.get(i), recorded.get(i).entry());
+            assertEquals(i + 1, recorded.get(i).sequence());
+        }
+    }
+
+    @Test
+    void testReopenContinuesTheSequence() throws Exception {
+        try (GameJournal journal = GameJournal.open(dir, properties)) {
+            journal.append(new JournalEntry.PlayerJoined("r1", "AAA-111", "Bus"));
+        }
+        try (GameJournal journal = GameJournal.open(dir, properties)) {
+            journal.append(new JournalEntry.PlayerLeft("r1", "AAA-111"));
+        }
+
+        List<GameJournal.Recorded> recorded = readAll();
+        assertEquals(2, recorded.size());
+        assertEquals(2, recorded.get(1).sequence());
+    }
+
+    @Test
+    void testSegmentsRollAndOldOnesAreDropped() throws Exception {
+        properties.setSegmentBytes(200);
+        properties.setMaxSegments(3);
+        try (GameJournal journal = GameJournal.open(dir, properties)) {
+            for (int i = 0; i < 100; i++) {
+                journal.append(new JournalEntry.PlayerMoved("r1", "AAA-111", i, i, (byte) 1));
+            }
+            journal.flush();
+        }
+
+        List<Path> segments = segments();
+        assertEquals(3, segments.size());
+        for (Path segment : segments) {
+            // Un segmento se cierra con el registro que lo pasa del límite
+            assertTrue(Files.size(segment) < 200 + 64);
+        }
+        // Solo quedan los más nuevos, sin huecos hasta el último registro
+        List<GameJournal.Recorded> recorded = readAll();
+        assertEquals(new JournalEntry.PlayerMoved("r1", "AAA-111", 99, 99, (byte) 1),
+                recorded.get(recorded.size() - 1).entry());
+        for (int i = 1; i < recorded.size(); i++) {
+            assertEquals(recorded.get(i - 1).sequence() + 1, recorded.get(i).sequence());
+        }
+        // Lo que queda empieza con un checkpoint que resume lo borrado
+        assertInstanceOf(JournalEntry.CheckpointStarted.class, recorded.get(0).entry());
+    }
+
+    @Test
+    void testReplayAfterOldSegmentsAreDroppedMatchesTheLiveRoom() throws Exception {
+        properties.setSegmentBytes(256);
+        properties.setMaxSegments(2);
+        GameProperties game = new GameProperties();
+        game.getTick().setRateHz(1);
+        UserRestController controller = new UserRestController(game, Runnable::run, Runnable::run);
+        GameJournal journal = GameJournal.open(dir, properties);
+        controller.setJournal(journal);
+
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn("session-a");
+        when(session.isOpen()).thenReturn(true);
+        when(session.getUri()).thenReturn(URI.create("ws://localhost/game?room=r1"));
+        controller.afterConnectionEstablished(session);
+        controller.handleTextMessage(session, new TextMessage("{\"name\":\"Bus\",\"x\":322,\"y\":478}"));
+        controller.handleTextMessage(session, new TextMessage("{\"type\":\"collectPerson\",\"personId\":\"p1\"}"));
+        controller.handleTextMessage(session, new TextMessage("{\"name\":\"Bus\",\"hasPerson\":1}"));
+        GameRoom room = controller.getRoom("r1");
+        java.lang.reflect.Method tick = GameRoom.class.getDeclaredMethod("tick");
+        tick.setAccessible(true);
+        // Bastantes movimientos para que el alta del bus y las personas caigan en segmentos borrados
+        for (int i = 0; i < 200; i++) {
+            controller.handleTextMessage(session, new TextMessage("{\"x\":" + (100 + i) + ",\"y\":200}"));
+            tick.invoke(room);
+            if (i % 20 == 0) {
+                journal.flush();
+            }
+        }
+        RoomState live = controller.captureState().get().get(0);
+        journal.close();
+
+        assertEquals(2, segments().size());
+        assertTrue(readAll().get(0).sequence() > 1);
+        List<RoomState> replayed = JournalReplayer.replay(dir);
+        assertEquals(1, replayed.size());
+        RoomState restored = replayed.get(0);
+        assertEquals(1, restored.playerCount());
+        assertEquals(live.playerIds()[0], restored.playerIds()[0]);
+        assertEquals("Bus", restored.names()[0]);
+        assertEquals(live.xs()[0], restored.xs()[0]);
+        assertEquals(live.ys()[0], restored.ys()[0]);
+        assertEquals(live.directions()[0], restored.directions()[0]);
+        assertEquals(live.cargo()[0], restored.cargo()[0]);
+        List<String> livePersons = live.persons().stream().map(EntityPerson::getId).sorted().toList();
+        List<String> replayedPersons = restored.persons().stream().map(EntityPerson::getId).sorted().toList();
+        assertEquals(14, livePersons.size());
+        assertEquals(livePersons, replayedPersons);
+    }
+
+    @Test
+    void testTornCheckpointKeepsThePreviousState() throws Exception {
+        JournalReplayer replayer = new JournalReplayer();
+        replayer.apply(new JournalEntry.PlayerJoined("r1", "AAA-111", "Bus"));
+        replayer.apply(new JournalEntry.CheckpointStarted());
+        replayer.apply(new JournalEntry.PersonAdded("r1", "p1", 4, 6, "mujer.png"));
+
+        // Sin completar, el checkpoint no sustituye a lo que había
+        RoomState room = replayer.rooms().get(0);
+        assertEquals(1, room.playerCount());
+        assertTrue(room.persons().isEmpty());
+
+        replayer.apply(new JournalEntry.CheckpointCompleted());
+        room = replayer.rooms().get(0);
+        assertEquals(0, room.playerCount());
+        assertEquals(1, room.persons().size());
+    }
+
+    @Test
+    void testTornTailIsIgnoredAndTruncatedOnOpen() throws Exception {
+        try (GameJournal journal = GameJournal.open(dir, properties)) {
+            journal.append(new JournalEntry.PlayerJoined("r1", "AAA-111", "Bus"));
+            journal.append(new JournalEntry.PlayerJoined("r1", "BBB-222", "Bus"));
+        }
+        Path segment = segments().get(0);
+
+        // Se corta el último registro a medias, como un proceso que muere escribiendo
+        try (RandomAccessFile raw = new RandomAccessFile(segment.toFile(), "rw")) {
+            raw.setLength(raw.length() - 5);
+        }
+        assertEquals(1, readAll().size());
+
+        try (GameJournal journal = GameJournal.open(dir, properties)) {
+            journal.append(new JournalEntry.PlayerLeft("r1", "AAA-111"));
+        }
+
+        List<GameJournal.Recorded> recorded = readAll();
+        assertEquals(2, recorded.size());
+        assertEquals(new JournalEntry.PlayerLeft("r1", "AAA-111"), recorded.get(1).entry());
+        assertEquals(2, recorded.get(1).sequence());
+    }
+
+    @Test
+    void testEntriesBeyondThePendingLimitAreDropped() throws Exception {
+        properties.setMaxPendingEntries(2);
+        try (GameJournal journal = GameJournal.open(dir, properties)) {
+            assertTrue(journal.append(new JournalEntry.RoomClosed("r1")));
+            assertTrue(journal.append(new JournalEntry.RoomClosed("r2")));
+            assertFalse(journal.append(new JournalEntry.RoomClosed("r3")));
+            assertEquals(1, journal.getStats().dropped());
+
+            journal.flush();
+            assertTrue(journal.append(new JournalEntry.RoomClosed("r3")));
+        }
+        assertEquals(3, readAll().size());
+    }
+
+    @Test
+    void testPendingEntriesKeepTheirFieldsAcrossManyTurnsOfTheQueue() throws Exception {
+        properties.setMaxPendingEntries(4);
+        List<JournalEntry> expected = new ArrayList<>();
+        try (GameJournal journal = GameJournal.open(dir, properties)) {
+            for (int i = 0; i < 50; i++) {
+                JournalEntry moved = new JournalEntry.PlayerMoved("r1", "P" + i, i + 0.5f, -i, (byte) (i % 4));
+                JournalEntry added = new JournalEntry.PersonAdded("r1", "p" + i, i, i * 2, "p" + i + ".png");
+                assertTrue(journal.appendMove("r1", "P" + i, i + 0.5f, -i, (byte) (i % 4)));
+                assertTrue(journal.append(added));
+                expected.add(moved);
+                expected.add(added);
+                if (i % 2 == 0) {
+                    journal.flush();
+                    assertEquals(0, journal.getStats().pending());
+                }
+            }
+        }
+        assertEquals(expected, readAll().stream().map(GameJournal.Recorded::entry).toList());
+    }
+
+    @Test
+    void testReplayerRebuildsOpenRooms() {
+        JournalReplayer replayer = new JournalReplayer();
+        replayer.apply(new JournalEntry.PersonAdded("r1", "p1", 4, 6, "mujer.png"));
+        replayer.apply(new JournalEntry.PersonAdded("r1", "p2", 8, 5, "tombo.png"));
+        replayer.apply(new JournalEntry.PlayerJoined("r1", "AAA-111", "Bus"));
+        replayer.apply(new JournalEntry.PlayerMoved("r1", "AAA-111", 30f, 40f, BinaryPositionEncoder.DIRECTION_UP));
+        replayer.apply(new JournalEntry.CargoChanged("r1", "AAA-111", (byte) 1));
+        replayer.apply(new JournalEntry.PersonRemoved("r1", "p1"));
+        replayer.apply(new JournalEntry.PlayerJoined("r1", "BBB-222", "Other"));
+        replayer.apply(new JournalEntry.PlayerLeft("r1", "BBB-222"));
+        // Una sala cerrada desaparece, y lo que llega tarde de ella no la resucita
+        replayer.apply(new JournalEntry.PlayerJoined("r2", "CCC-333", "Gone"));
+        replayer.apply(new JournalEntry.RoomClosed("r2"));
+        replayer.apply(new JournalEntry.PlayerMoved("r2", "CCC-333", 1f, 1f, (byte) 1));
+        replayer.apply(new JournalEntry.PlayerLeft("r2", "CCC-333"));
+
+        List<RoomState> rooms = replayer.rooms();
+        assertEquals(1, rooms.size());
+        RoomState room = rooms.get(0);
+        assertEquals("r1", room.roomId());
+        assertEquals(1, room.playerCount());
+        assertEquals("AAA-111", room.playerIds()[0]);
+        assertEquals("Bus", room.names()[0]);
+        assertEquals(30f, room.xs()[0]);
+        assertEquals(40f, room.ys()[0]);
+        assertEquals(BinaryPositionEncoder.DIRECTION_UP, room.directions()[0]);
+        assertEquals(1, room.cargo()[0]);
+        assertEquals(1, room.persons().size());
+        assertEquals("p2", room.persons().get(0).getId());
+        assertEquals(12, replayer.getApplied());
+    }
+
+    @Test
+    void testAcceptedCommandsReplayIntoTheSameRoomState() throws Exception {
+        GameProperties game = new GameProperties();
+        game.getTick().setRateHz(1);
+        UserRestController controller = new UserRestController(game, Runnable::run, Runnable::run);
+        GameJournal journal = GameJournal.open(dir, properties);
+        controller.setJournal(journal);
+
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn("session-a");
+        when(session.isOpen()).thenReturn(true);
+        when(session.getUri()).thenReturn(URI.create("ws://localhost/game?room=r1"));
+        controller.afterConnectionEstablished(session);
+        ArgumentCaptor<TextMessage> captor = ArgumentCaptor.forClass(TextMessage.class);
+        verify(session, atLeastOnce()).sendMessage(captor.capture());
+        String plate = new JSONObject(captor.getAllValues().get(0).getPayload()).getString("playerId");
+
+        // p1 está en el tile (4, 6): el bus se acerca y la recoge
+        controller.handleTextMessage(session, new TextMessage("{\"name\":\"Bus\",\"x\":322,\"y\":478,\"direction\":\"up\"}"));
+        controller.handleTextMessage(session, new TextMessage("{\"type\":\"collectPerson\",\"personId\":\"p1\"}"));
+        controller.handleTextMessage(session, new TextMessage("{\"id\":\"" + plate + "\",\"hasPerson\":\"1\"}"));
+        // Fuera de alcance: se rechaza y no se anota
+        controller.handleTextMessage(session, new TextMessage("{\"type\":\"collectPerson\",\"personId\":\"p9\"}"));
+        RoomState live = controller.captureState().get().get(0);
+        // El proceso muere sin cerrar la sala; solo queda lo escrito en el diario
+        journal.close();
+
+        List<RoomState> replayed = JournalReplayer.replay(dir);
+        assertEquals(1, replayed.size());
+        RoomState room = replayed.get(0);
+        assertEquals(live.playerCount(), room.playerCount());
+        assertEquals(plate, room.playerIds()[0]);
+        assertEquals("Bus", room.names()[0]);
+        assertEquals(live.xs()[0], room.xs()[0]);
+        assertEquals(live.ys()[0], room.ys()[0]);
+        assertEquals(live.directions()[0], room.directions()[0]);
+        assertEquals(1, room.cargo()[0]);
+        List<String> livePersons = new ArrayList<>();
+        for (EntityPerson person : live.persons()) {
+            livePersons.add(person.getId());
+        }
+        List<String> replayedPersons = new ArrayList<>();
+        for (EntityPerson person : room.persons()) {
+            replayedPersons.add(person.getId());
+        }
+        assertFalse(replayedPersons.contains("p1"));
+        assertTrue(replayedPersons.contains("p9"));
+        assertEquals(livePersons.size(), replayedPersons.size());
+        assertTrue(replayedPersons.containsAll(livePersons));
+    }
+}
@@ -0,0 +1,218 @@
+package juego.arsw;
+
+import juego.arsw.config.GameProperties;
+import juego.arsw.config.MetricsConfig;
+import juego.arsw.controller.UserRestController;
+import juego.arsw.game.GameMetrics;
+import juego.arsw.game.GameRoom;
+import juego.arsw.game.SessionOutbox;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.URI;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class GameMetricsTest {
+
+    private MeterRegistry registry;
+    private UserRestController controller;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        GameProperties properties = new GameProperties();
+        properties.getTick().setRateHz(1);
+        controller = new UserRestController(properties, Runnable::run, Runnable::run);
+        MetricsConfig config = new MetricsConfig();
+        config.gameMetrics(registry, controller);
+        config.gameRoomMetrics(controller).bindTo(registry);
+    }
+
+    private WebSocketSession connect(String id) throws Exception {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn(id);
+        when(session.isOpen()).thenReturn(true);
+        when(session.getUri()).thenReturn(URI.create("ws://localhost/game?room=r1"));
+        controller.afterConnectionEstablished(session);
+        return session;
+    }
+
+    private double gauge(String name) {
+        return registry.get(name).gauge().value();
+    }
+
+    private long messages(String type) {
+        return registry.get("game.messages").tag("type", type).timer().count();
+    }
+
+    @Test
+    void testMessagesAreTimedByType() throws Exception {
+        WebSocketSession session = connect("s1");
+        controller.handleTextMessage(session, new TextMessage("{\"name\":\"Bus\",\"x\":10,\"y\":20}"));
+        controller.handleTextMessage(session, new TextMessage("{\"x\":11,\"y\":20,\"direction\":\"right\"}"));
+        controller.handleTextMessage(session, new TextMessage("{\"type\":\"ack\",\"tick\":1}"));
+        controller.handleTextMessage(session, new TextMessage("not json"));
+
+        assertEquals(2, messages("move"));
+        assertEquals(1, messages("ack"));
+        assertEquals(1, messages("invalid"));
+        assertEquals(0, messages("collectPerson"));
+    }
+
+    @Test
+    void testBroadcastsRecordTimeAndBytes() throws Exception {
+        connect("s1");
+        connect("s2");
+
+        // Cada alta difunde el estado de los jugadores y las personas a toda la sala
+        assertEquals(2, registry.get("game.broadcast").tag("kind", "players").timer().count());
+        assertTrue(registry.get("game.broadcast.bytes").tag("kind", "persons").summary().totalAmount() > 0);
+    }
+
+    @Test
+    void testGaugesFollowSessionsPlayersAndAdmins() throws Exception {
+        WebSocketSession bus = connect("s1");
+        WebSocketSession admin = connect("s2");
+        controller.handleTextMessage(bus, new TextMessage("{\"name\":\"Bus\",\"x\":10,\"y\":20}"));
+        controller.handleTextMessage(admin, new TextMessage("{\"role\":\"admin\"}"));
+
+        assertEquals(1, gauge("game.rooms"));
+        assertEquals(2, gauge("game.sessions.open"));
+        assertEquals(1, gauge("game.players"));
+        assertEquals(1, gauge("game.admins"));
+        assertEquals(1, messages("admin"));
+
+        controller.afterConnectionClosed(admin, CloseStatus.NORMAL);
+        assertEquals(0, gauge("game.admins"));
+        assertEquals(1, gauge("game.sessions.open"));
+    }
+
+    @Test
+    void testPersonCollectionsAreCounted() throws Exception {
+        WebSocketSession session = connect("s1");
+        // p1 está en el tile (4, 6)
+        controller.handleTextMessage(session, new TextMessage("{\"name\":\"Bus\",\"x\":322,\"y\":478}"));
+        controller.handleTextMessage(session, new TextMessage("{\"type\":\"collectPerson\",\"personId\":\"p1\"}"));
+        controller.handleTextMessage(session, new TextMessage("{\"type\":\"collectPerson\",\"personId\":\"p1\"}"));
+
+        assertEquals(1, registry.get("game.persons.collected").counter().count());
+        assertEquals(2, messages("collectPerson"));
+    }
+
+    @Test
+    void testFloodsOverTheLimitAreCoalescedOrDropped() throws Exception {
+        GameProperties properties = new GameProperties();
+        properties.getTick().setRateHz(1);
+        // Ritmo casi nulo para que el reloj no reponga nada durante la prueba
+        properties.getInput().getCargoUpdate().setPerSecond(0.01);
+        properties.getInput().getCargoUpdate().setBurst(3);
+        properties.getInput().getCollectPerson().setPerSecond(0.01);
+        properties.getInput().getCollectPerson().setBurst(2);
+        controller = new UserRestController(properties, Runnable::run, Runnable::run);
+        new MetricsConfig().gameMetrics(registry, controller);
+        WebSocketSession session = connect("s1");
+        controller.handleTextMessage(session, new TextMessage("{\"name\":\"Bus\",\"x\":10,\"y\":20}"));
+        GameRoom room = controller.getRoom("r1");
+        String plate = room.getOutboxes().keySet().iterator().next();
+
+        for (int i = 1; i <= 5; i++) {
+            controller.handleTextMessage(session,
+                    new TextMessage("{\"id\":\"" + plate + "\",\"hasPerson\":" + i + "}"));
+            controller.handleTextMessage(session, new TextMessage("{\"type\":\"collectPerson\",\"personId\":\"p1\"}"));
+        }
+
+        Timer personUpdates = registry.get("game.broadcast").tag("kind", "personUpdate").timer();
+        assertEquals(3, personUpdates.count());
+        assertEquals(2, registry.get("game.input.limited").tags("type", "cargoUpdate", "action", "coalesced")
+                .counter().count());
+        assertEquals(3, registry.get("game.input.limited").tags("type", "collectPerson", "action", "dropped")
+                .counter().count());
+        assertEquals(2, messages("collectPerson"));
+
+        // El tick aplica solo la última carga que quedó por encima del límite
+        Method tick = GameRoom.class.getDeclaredMethod("tick");
+        tick.setAccessible(true);
+        tick.invoke(room);
+        assertEquals(4, personUpdates.count());
+        ArgumentCaptor<TextMessage> sent = ArgumentCaptor.forClass(TextMessage.class);
+        verify(session, atLeastOnce()).sendMessage(sent.capture());
+        String lastUpdate = sent.getAllValues().stream()
+                .map(TextMessage::getPayload)
+                .filter(payload -> payload.contains("personUpdate"))
+                .reduce((first, second) -> second)
+                .orElseThrow();
+        assertTrue(lastUpdate.contains("\"hasPerson\":\"5\""), lastUpdate);
+    }
+
+    private static String plateOf(WebSocketSession session) throws Exception {
+        ArgumentCaptor<TextMessage> sent = ArgumentCaptor.forClass(TextMessage.class);
+        verify(session, atLeastOnce()).sendMessage(sent.capture());
+        String payload = sent.getAllValues().stream()
+                .map(TextMessage::getPayload)
+                .filter(text -> text.contains("PLAYER_ID"))
+                .findFirst()
+                .orElseThrow();
+        return new JSONObject(payload).getString("playerId");
+    }
+
+    @Test
+    void testDeferredCargoBelongsToItsSender() throws Exception {
+        GameProperties properties = new GameProperties();
+        properties.getTick().setRateHz(1);
+        properties.getInput().getCargoUpdate().setPerSecond(0.01);
+        properties.getInput().getCargoUpdate().setBurst(1);
+        controller = new UserRestController(properties, Runnable::run, Runnable::run);
+        new MetricsConfig().gameMetrics(registry, controller);
+        WebSocketSession first = connect("s1");
+        WebSocketSession second = connect("s2");
+        controller.handleTextMessage(first, new TextMessage("{\"name\":\"Uno\",\"x\":10,\"y\":20}"));
+        controller.handleTextMessage(second, new TextMessage("{\"name\":\"Dos\",\"x\":30,\"y\":40}"));
+        GameRoom room = controller.getRoom("r1");
+        String target = plateOf(second);
+        Method tick = GameRoom.class.getDeclaredMethod("tick");
+        tick.setAccessible(true);
+        Timer personUpdates = registry.get("game.broadcast").tag("kind", "personUpdate").timer();
+
+        // La segunda carga de la primera sesión queda para el tick
+        controller.handleTextMessage(first, new TextMessage("{\"id\":\"" + target + "\",\"hasPerson\":1}"));
+        controller.handleTextMessage(first, new TextMessage("{\"id\":\"" + target + "\",\"hasPerson\":7}"));
+        // Una carga aceptada de otra sesión para el mismo bus no la cancela
+        controller.handleTextMessage(second, new TextMessage("{\"id\":\"" + target + "\",\"hasPerson\":2}"));
+        assertEquals(2, personUpdates.count());
+        tick.invoke(room);
+        assertEquals(3, personUpdates.count());
+
+        // Lo que dejó pendiente una sesión que se va no se aplica
+        controller.handleTextMessage(first, new TextMessage("{\"id\":\"" + target + "\",\"hasPerson\":9}"));
+        controller.afterConnectionClosed(first, CloseStatus.NORMAL);
+        tick.invoke(room);
+        assertEquals(3, personUpdates.count());
+    }
+
+    @Test
+    void testOutboxFailuresAreCounted() throws Exception {
+        GameMetrics metrics = new GameMetrics(registry);
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.isOpen()).thenReturn(true);
+        doThrow(new IOException("broken pipe")).when(session).sendMessage(any());
+        SessionOutbox outbox = new SessionOutbox(session, Runnable::run, 1000, 1024, metrics);
+
+        outbox.send(new TextMessage("hola"));
+
+        assertEquals(1, registry.get("game.outbound.send.failures").counter().count());
+    }
+}
@@ -0,0 +1,1244 @@
+package juego.arsw;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import juego.arsw.config.GameProperties;
+import juego.arsw.game.BinaryPositionEncoder;
+import juego.arsw.game.GameMetrics;
+import juego.arsw.game.GameRoom;
+import juego.arsw.game.InboundMessage;
+import juego.arsw.game.PersonGrid;
+import juego.arsw.game.PlayerIndexAllocator;
+import juego.arsw.game.PlayerStore;
+import juego.arsw.model.EntityPerson;
+import juego.arsw.model.User;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.glassfish.jaxb.runtime.v2.schemagen.xmlschema.List;
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class GameRoomTest {
+
+    private GameRoom room;
+    private WebSocketSession mockSession;
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // Envíos en el mismo hilo para poder verificarlos de inmediato, y un tick lento
+        // para que el bucle real no se adelante a los ticks que lanza cada prueba
+        GameProperties properties = new GameProperties();
+        properties.getTick().setRateHz(1);
+        room = new GameRoom("test", properties, Runnable::run, Runnable::run);
+        mockSession = mock(WebSocketSession.class);
+        objectMapper = new ObjectMapper();
+
+        // Configurar el comportamiento básico del mockSession
+        when(mockSession.getId()).thenReturn("session-id-123");
+        when(mockSession.isOpen()).thenReturn(true);
+    }
+
+    private void resetControllerState() throws Exception {
+        // Limpiar los mapas internos para cada prueba
+        Field sessionsField = GameRoom.class.getDeclaredField("sessions");
+        Field playersField = GameRoom.class.getDeclaredField("players");
+        Field availablePersonsField = GameRoom.class.getDeclaredField("availablePersons");
+        Field sessionRolesField = GameRoom.class.getDeclaredField("sessionRoles");
+        Field sessionToPlayerIdField = GameRoom.class.getDeclaredField("sessionToPlayerId");
+
+        sessionsField.setAccessible(true);
+        playersField.setAccessible(true);
+        availablePersonsField.setAccessible(true);
+        sessionRolesField.setAccessible(true);
+        sessionToPlayerIdField.setAccessible(true);
+
+        sessionsField.set(room, new ConcurrentHashMap<>());
+        playersField.set(room, new PlayerStore(new PlayerIndexAllocator(1 << 16)));
+        availablePersonsField.set(room, new PersonGrid(4));
+        sessionRolesField.set(room, new ConcurrentHashMap<>());
+        sessionToPlayerIdField.set(room, new ConcurrentHashMap<>());
+    }
+
+    @Test
+    void testHandleTextMessage_NewPlayer() throws Exception {
+        resetControllerState();
+
+        // Configurar manualmente sin llamar a afterConnectionEstablished
+        String playerId = "123TEST"; // ID fijo para la prueba
+        when(mockSession.getId()).thenReturn("session-id-123");
+        when(mockSession.isOpen()).thenReturn(true);
+
+        // Configurar mapas internos directamente
+        Field sessionsField = GameRoom.class.getDeclaredField("sessions");
+        Field sessionToPlayerIdField = GameRoom.class.getDeclaredField("sessionToPlayerId");
+
+        sessionsField.setAccessible(true);
+        sessionToPlayerIdField.setAccessible(true);
+
+        Map<String, WebSocketSession> sessions = (Map<String, WebSocketSession>) sessionsField.get(room);
+        Map<String, String> sessionToPlayerId = (Map<String, String>) sessionToPlayerIdField.get(room);
+
+        sessions.put(playerId, mockSession);
+        sessionToPlayerId.put("session-id-123", playerId);
+
+        // Crear mensaje para el nuevo jugador
+        JSONObject playerData = new JSONObject();
+        playerData.put("name", "TestPlayer");
+        playerData.put("x", 10);
+        playerData.put("y", 20);
+        playerData.put("direction", "north");
+
+        TextMessage playerMessage = new TextMessage(playerData.toString());
+
+        // Ejecutar el método bajo prueba
+        room.handleTextMessage(mockSession, playerMessage);
+
+        // Verificar que el jugador fue añadido
+        Field playersField = GameRoom.class.getDeclaredField("players");
+        playersField.setAccessible(true);
+        PlayerStore players = (PlayerStore) playersField.get(room);
+
+        assertTrue(players.contains(playerId));
+        User player = players.view(playerId);
+        assertEquals("TestPlayer", player.getName()); // Ahora debería usar el nombre enviado
+        assertEquals("0", player.getHasPerson());
+    }
+
+    @Test
+    void testHandleTextMessage_AdminRole() throws Exception {
+        resetControllerState();
+
+        // Configurar manualmente sin llamar a afterConnectionEstablished
+        String playerId = "123TEST"; // ID fijo para la prueba
+        when(mockSession.getId()).thenReturn("session-id-123");
+        when(mockSession.isOpen()).thenReturn(true);
+
+        // Configurar mapas internos directamente
+        Field sessionsField = GameRoom.class.getDeclaredField("sessions");
+        Field sessionToPlayerIdField = GameRoom.class.getDeclaredField("sessionToPlayerId");
+
+        sessionsField.setAccessible(true);
+        sessionToPlayerIdField.setAccessible(true);
+
+        Map<String, WebSocketSession> sessions = (Map<String, WebSocketSession>) sessionsField.get(room);
+        Map<String, String> sessionToPlayerId = (Map<String, String>) sessionToPlayerIdField.get(room);
+
+        sessions.put(playerId, mockSession);
+        sessionToPlayerId.put("session-id-123", playerId);
+
+        // Crear mensaje para rol admin
+        JSONObject adminData = new JSONObject();
+        adminData.put("role", "admin");
+
+        TextMessage adminMessage = new TextMessage(adminData.toString());
+
+        // Ejecutar el método bajo prueba
+        room.handleTextMessage(mockSession, adminMessage);
+
+        // Verificar que se asignó el rol admin
+        Field sessionRolesField = GameRoom.class.getDeclaredField("sessionRoles");
+        sessionRolesField.setAccessible(true);
+        Map<String, String> sessionRoles = (Map<String, String>) sessionRolesField.get(room);
+
+        assertEquals("admin", sessionRoles.get(playerId));
+
+        // Verificar que se envía información de jugadores al admin
+        verify(mockSession, atLeastOnce()).sendMessage(any(TextMessage.class));
+    }
+
+    @Test
+    void testHandleTextMessage_UpdatePlayerPosition() throws Exception {
+        resetControllerState();
+
+        // Configurar manualmente sin llamar a afterConnectionEstablished
+        String playerId = "123TEST"; // ID fijo para la prueba
+        when(mockSession.getId()).thenReturn("session-id-123");
+        when(mockSession.isOpen()).thenReturn(true);
+
+        // Configurar mapas internos directamente
+        Field sessionsField = GameRoom.class.getDeclaredField("sessions");
+        Field sessionToPlayerIdField = GameRoom.class.getDeclaredField("sessionToPlayerId");
+        Field playersField = GameRoom.class.getDeclaredField("players");
+
+        sessionsField.setAccessible(true);
+        sessionToPlayerIdField.setAccessible(true);
+        playersField.setAccessible(true);
+
+        Map<String, WebSocketSession> sessions = (Map<String, WebSocketSession>) sessionsField.get(room);
+        Map<String, String> sessionToPlayerId = (Map<String, String>) sessionToPlayerIdField.get(room);
+        PlayerStore players = (PlayerStore) playersField.get(room);
+
+        // Crear un jugador inicial
+        int slot = players.add(playerId, "TestPlayer");
+        players.setPosition(slot, 10, 10);
+        players.setDirection(slot, BinaryPositionEncoder.DIRECTION_DOWN);
+
+        // Añadir mapeos
+        sessions.put(playerId, mockSession);
+        sessionToPlayerId.put("session-id-123", playerId);
+
+        // Crear mensaje para actualizar posición
+        JSONObject updateData = new JSONObject();
+        updateData.put("x", 20);
+        updateData.put("y", 30);
+        updateData.put("direction", "left");
+
+        TextMessage updateMessage = new TextMessage(updateData.toString());
+
+        // Ejecutar el método bajo prueba
+        room.handleTextMessage(mockSession, updateMessage);
+
+        // Verificar que la posición fue actualizada
+        assertEquals(20, players.x(slot));
+        assertEquals(30, players.y(slot));
+        assertEquals(BinaryPositionEncoder.DIRECTION_LEFT, players.direction(slot));
+
+        // Una dirección sin sprite no cambia la que tenía
+        room.handleTextMessage(mockSession, new TextMessage("{\"direction\":\"east\"}"));
+        assertEquals("left", players.view(playerId).getDirection());
+    }
+
+    @Test
+    void testHandleTextMessage_PersonStateUpdate() throws Exception {
+        resetControllerState();
+        room.join(mockSession);
+
+        // Inicializar personas disponibles manualmente
+        Field availablePersonsField = GameRoom.class.getDeclaredField("availablePersons");
+        availablePersonsField.setAccessible(true);
+        PersonGrid availablePersons = (PersonGrid) availablePersonsField.get(room);
+        availablePersons.add(new EntityPerson("p1", 4, 6, "PersonaCorbata.png"));
+
+        reset(mockSession);
+        when(mockSession.getId()).thenReturn("session-id-123");
+        when(mockSession.isOpen()).thenReturn(true);
+
+        // Crear mensaje para actualizar estado de persona
+        JSONObject personUpdateData = new JSONObject();
+        personUpdateData.put("personId", "p1");
+        personUpdateData.put("active", false);
+
+        TextMessage personUpdateMessage = new TextMessage(personUpdateData.toString());
+
+        // Ejecutar el método bajo prueba
+        room.handleTextMessage(mockSession, personUpdateMessage);
+
+        // Verificar que la persona fue removida
+        assertFalse(availablePersons.contains("p1"));
+    }
+
+    @Test
+    void testHandleTextMessage_CollectPerson() throws Exception {
+        resetControllerState();
+
+        // Configurar manualmente sin llamar a afterConnectionEstablished
+        String playerId = "123TEST"; // ID fijo para la prueba
+        when(mockSession.getId()).thenReturn("session-id-123");
+        when(mockSession.isOpen()).thenReturn(true);
+
+        // Configurar mapas internos directamente
+        Field sessionsField = GameRoom.class.getDeclaredField("sessions");
+        Field sessionToPlayerIdField = GameRoom.class.getDeclaredField("sessionToPlayerId");
+
+        sessionsField.setAccessible(true);
+        sessionToPlayerIdField.setAccessible(true);
+
+        Map<String, WebSocketSession> sessions = (Map<String, WebSocketSession>) sessionsField.get(room);
+        Map<String, String> sessionToPlayerId = (Map<String, String>) sessionToPlayerIdField.get(room);
+
+        sessions.put(playerId, mockSession);
+        sessionToPlayerId.put("session-id-123", playerId);
+
+        // Inicializar personas disponibles manualmente
+        Field availablePersonsField = GameRoom.class.getDeclaredField("availablePersons");
+        availablePersonsField.setAccessible(true);
+        PersonGrid availablePersons = (PersonGrid) availablePersonsField.get(room);
+        availablePersons.add(new EntityPerson("p2", 8, 5, "PersonaNaranja.png"));
+
+        // El bus está en el tile (8, 5), junto a la persona
+        Field playersField = GameRoom.class.getDeclaredField("players");
+        playersField.setAccessible(true);
+        PlayerStore players = (PlayerStore) playersField.get(room);
+        players.setPosition(players.add(playerId, "TestPlayer"), 8 * 78, 5 * 78);
+
+        // Crear mensaje para recolectar persona
+        JSONObject collectData = new JSONObject();
+        collectData.put("type", "collectPerson");
+        collectData.put("personId", "p2");
+
+        TextMessage collectMessage = new TextMessage(collectData.toString());
+
+        // Ejecutar el método bajo prueba
+        room.handleTextMessage(mockSession, collectMessage);
+
+        // Verificar que la persona fue removida
+        assertFalse(availablePersons.contains("p2"));
+    }
+
+    @Test
+    void testCollectPersonOutOfReachIsRejected() throws Exception {
+        resetControllerState();
+
+        String playerId = "123TEST";
+        Field sessionsField = GameRoom.class.getDeclaredField("sessions");
+        Field sessionToPlayerIdField = GameRoom.class.getDeclaredField("sessionToPlayerId");
+        Field playersField = GameRoom.class.getDeclaredField("players");
+        Field availablePersonsField = GameRoom.class.getDeclaredField("availablePersons");
+        sessionsField.setAccessible(true);
+        sessionToPlayerIdField.setAccessible(true);
+        playersField.setAccessible(true);
+        availablePersonsField.setAccessible(true);
+
+        ((Map<String, WebSocketSession>) sessionsField.get(room)).put(playerId, mockSession);
+        ((Map<String, String>) sessionToPlayerIdField.get(room)).put("session-id-123", playerId);
+        // El bus está en el tile (0, 0) y la persona en el (8, 5)
+        PlayerStore players = (PlayerStore) playersField.get(room);
+        players.setPosition(players.add(playerId, "TestPlayer"), 10, 10);
+        PersonGrid availablePersons = (PersonGrid) availablePersonsField.get(room);
+        availablePersons.add(new EntityPerson("p2", 8, 5, "PersonaNaranja.png"));
+
+        room.handleTextMessage(mockSession,
+                new TextMessage("{\"type\":\"collectPerson\",\"personId\":\"p2\"}"));
+
+        // La persona sigue disponible y el cliente recibe un error
+        assertTrue(availablePersons.contains("p2"));
+        ArgumentCaptor<TextMessage> captor = ArgumentCaptor.forClass(TextMessage.class);
+        verify(mockSession, atLeastOnce()).sendMessage(captor.capture());
+        assertTrue(captor.getValue().getPayload().contains("Person out of reach"));
+    }
+
+    @Test
+    void testHandleTextMessage_UpdateHasPerson() throws Exception {
+        resetControllerState();
+
+        // Configurar manualmente sin llamar a afterConnectionEstablished
+        String playerId = "123TEST"; // ID fijo para la prueba
+        when(mockSession.getId()).thenReturn("session-id-123");
+        when(mockSession.isOpen()).thenReturn(true);
+
+        // Configurar mapas internos directamente
+        Field sessionsField = GameRoom.class.getDeclaredField("sessions");
+        Field sessionToPlayerIdField = GameRoom.class.getDeclaredField("sessionToPlayerId");
+        Field playersField = GameRoom.class.getDeclaredField("players");
+
+        sessionsField.setAccessible(true);
+        sessionToPlayerIdField.setAccessible(true);
+        playersField.setAccessible(true);
+
+        Map<String, WebSocketSession> sessions = (Map<String, WebSocketSession>) sessionsField.get(room);
+        Map<String, String> sessionToPlayerId = (Map<String, String>) sessionToPlayerIdField.get(room);
+        PlayerStore players = (PlayerStore) playersField.get(room);
+
+        // Crear un jugador inicial, sin carga
+        players.add(playerId, "TestPlayer");
+
+        // Añadir mapeos
+        sessions.put(playerId, mockSession);
+        sessionToPlayerId.put("session-id-123", playerId);
+
+        // Crear mensaje para actualizar hasPerson
+        JSONObject updatePersonData = new JSONObject();
+        updatePersonData.put("id", playerId);
+        updatePersonData.put("hasPerson", "1");
+
+        TextMessage updatePersonMessage = new TextMessage(updatePersonData.toString());
+
+        // Ejecutar el método bajo prueba
+        room.handleTextMessage(mockSession, updatePersonMessage);
+
+        // Verificar que hasPerson fue actualizado
+        assertEquals("1", players.view(playerId).getHasPerson());
+    }
+
+    @Test
+    void testHandleTextMessage_UpdateHasPersonAlternateFormat() throws Exception {
+        resetControllerState();
+
+        // Configurar manualmente sin llamar a afterConnectionEstablished
+        String playerId = "123TEST"; // ID fijo para la prueba
+        when(mockSession.getId()).thenReturn("session-id-123");
+        when(mockSession.isOpen()).thenReturn(true);
+
+        // Configurar mapas internos directamente
+        Field sessionsField = GameRoom.class.getDeclaredField("sessions");
+        Field sessionToPlayerIdField = GameRoom.class.getDeclaredField("sessionToPlayerId");
+        Field playersField = GameRoom.class.getDeclaredField("players");
+
+        sessionsField.setAccessible(true);
+        sessionToPlayerIdField.setAccessible(true);
+        playersField.setAccessible(true);
+
+        Map<String, WebSocketSession> sessions = (Map<String, WebSocketSession>) sessionsField.get(room);
+        Map<String, String> sessionToPlayerId = (Map<String, String>) sessionToPlayerIdField.get(room);
+        PlayerStore players = (PlayerStore) playersField.get(room);
+
+        // Crear un jugador inicial, sin carga
+        players.add(playerId, "TestPlayer");
+
+        // Añadir mapeos
+        sessions.put(playerId, mockSession);
+        sessionToPlayerId.put("session-id-123", playerId);
+
+        // Crear mensaje para actualizar hasPerson (formato alternativo)
+        JSONObject updatePersonData = new JSONObject();
+        updatePersonData.put("playerId", playerId);
+        updatePersonData.put("hasPerson", 1); // Formato de entero
+
+        TextMessage updatePersonMessage = new TextMessage(updatePersonData.toString());
+
+        // Ejecutar el método bajo prueba
+        room.handleTextMessage(mockSession, updatePersonMessage);
+
+        // Verificar que hasPerson fue actualizado
+        assertEquals("1", players.view(playerId).getHasPerson());
+    }
+
+    @Test
+    void testHandleTextMessage_InvalidMessage() throws Exception {
+        resetControllerState();
+        room.join(mockSession);
+
+        reset(mockSession);
+        when(mockSession.getId()).thenReturn("session-id-123");
+        when(mockSession.isOpen()).thenReturn(true);
+
+        // Crear mensaje inválido (formato incorrecto)
+        TextMessage invalidMessage = new TextMessage("This is not valid JSON");
+
+        // Ejecutar el método bajo prueba
+        room.handleTextMessage(mockSession, invalidMessage);
+
+        // Verificar que se envió un mensaje de error
+        verify(mockSession).sendMessage(any(TextMessage.class));
+    }
+
+    @Test
+    void testAfterConnectionClosed() throws Exception {
+        resetControllerState();
+
+        // Configurar el estado manualmente en lugar de llamar a
+        // afterConnectionEstablished
+        String playerId = "123TEST"; // ID fijo para la prueba
+        when(mockSession.getId()).thenReturn("session-id-123");
+        when(mockSession.isOpen()).thenReturn(true);
+
+        // Configurar manualmente los mapas internos
+        Field sessionsField = GameRoom.class.getDeclaredField("sessions");
+        Field playersField = GameRoom.class.getDeclaredField("players");
+        Field sessionToPlayerIdField = GameRoom.class.getDeclaredField("sessionToPlayerId");
+
+        sessionsField.setAccessible(true);
+        playersField.setAccessible(true);
+        sessionToPlayerIdField.setAccessible(true);
+
+        Map<String, WebSocketSession> sessions = (Map<String, WebSocketSession>) sessionsField.get(room);
+        PlayerStore players = (PlayerStore) playersField.get(room);
+        Map<String, String> sessionToPlayerId = (Map<String, String>) sessionToPlayerIdField.get(room);
+
+        sessions.put(playerId, mockSession);
+        sessionToPlayerId.put("session-id-123", playerId);
+
+        // Crear un jugador y añadirlo
+        players.add(playerId, "TestPlayer");
+
+        // Verificar que los mapas contienen las entradas esperadas
+        assertTrue(sessions.containsKey(playerId));
+        assertTrue(sessionToPlayerId.containsKey("session-id-123"));
+
+        // Ejecutar el método bajo prueba
+        room.leave(mockSession, CloseStatus.NORMAL);
+
+        // Verificar que se eliminaron las referencias
+        assertFalse(sessions.containsKey(playerId));
+        assertFalse(players.contains(playerId));
+        assertFalse(sessionToPlayerId.containsKey("session-id-123"));
+    }
+
+    @Test
+    void testGeneratePlate() throws Exception {
+        // Acceder al método privado
+        java.lang.reflect.Method generatePlateMethod = GameRoom.class.getDeclaredMethod("generatePlate");
+        generatePlateMethod.setAccessible(true);
+
+        // Invocar el método privado
+        String plate = (String) generatePlateMethod.invoke(room);
+
+        // Verificar el formato general
+        assertNotNull(plate);
+        assertEquals(7, plate.length()); // 3 letras + '-' + 3 números
+        assertEquals('-', plate.charAt(3), "El cuarto carácter debe ser un guion '-'");
+
+        // Verificar letras
+        for (int i = 0; i < 3; i++) {
+            assertTrue(Character.isUpperCase(plate.charAt(i)), "Los primeros 3 caracteres deben ser letras mayúsculas");
+        }
+
+        // Verificar números
+        for (int i = 4; i < 7; i++) {
+            assertTrue(Character.isDigit(plate.charAt(i)), "Los últimos 3 caracteres deben ser dígitos");
+        }
+    }
+
+    @Test
+    void testBroadcastingFunctions() throws Exception {
+        resetControllerState();
+
+        // Configurar múltiples sesiones mock
+        WebSocketSession mockSession1 = mock(WebSocketSession.class);
+        WebSocketSession mockSession2 = mock(WebSocketSession.class);
+
+        when(mockSession1.getId()).thenReturn("session-id-1");
+        when(mockSession2.getId()).thenReturn("session-id-2");
+        when(mockSession1.isOpen()).thenReturn(true);
+        when(mockSession2.isOpen()).thenReturn(true);
+
+        // Añadir sesiones al mapa
+        Field sessionsField = GameRoom.class.getDeclaredField("sessions");
+        sessionsField.setAccessible(true);
+        Map<String, WebSocketSession> sessions = (Map<String, WebSocketSession>) sessionsField.get(room);
+        sessions.put("123ABC", mockSession1);
+        sessions.put("456DEF", mockSession2);
+
+        // Configurar jugadores
+        Field playersField = GameRoom.class.getDeclaredField("players");
+        playersField.setAccessible(true);
+        PlayerStore players = (PlayerStore) playersField.get(room);
+
+        int slot1 = players.add("123ABC", "Player1");
+        players.setPosition(slot1, 10, 20);
+        players.setDirection(slot1, BinaryPositionEncoder.DIRECTION_UP);
+
+        int slot2 = players.add("456DEF", "Player2");
+        players.setPosition(slot2, 30, 40);
+        players.setDirection(slot2, BinaryPositionEncoder.DIRECTION_DOWN);
+
+        // Configurar mapeo de sesiones a playerIds
+        Field sessionToPlayerIdField = GameRoom.class.getDeclaredField("sessionToPlayerId");
+        sessionToPlayerIdField.setAccessible(true);
+        Map<String, String> sessionToPlayerId = (Map<String, String>) sessionToPlayerIdField.get(room);
+        sessionToPlayerId.put("session-id-1", "123ABC");
+        sessionToPlayerId.put("session-id-2", "456DEF");
+
+        // Probar broadcastPlayerPositions
+        java.lang.reflect.Method broadcastPositionsMethod = GameRoom.class
+                .getDeclaredMethod("broadcastPlayerPositions");
+        broadcastPositionsMethod.setAccessible(true);
+        broadcastPositionsMethod.invoke(room);
+
+        // Verificar que se envió un mensaje a ambas sesiones
+        verify(mockSession1, times(1)).sendMessage(any(TextMessage.class));
+        verify(mockSession2, times(1)).sendMessage(any(TextMessage.class));
+    }
+
+    @Test
+    void testBroadcastPersonStatus() throws Exception {
+        resetControllerState();
+
+        // Configurar sesiones mock
+        WebSocketSession mockSession1 = mock(WebSocketSession.class);
+        when(mockSession1.getId()).thenReturn("session-id-1");
+        when(mockSession1.isOpen()).thenReturn(true);
+
+        // Añadir sesión al mapa
+        Field sessionsField = GameRoom.class.getDeclaredField("sessions");
+        sessionsField.setAccessible(true);
+        Map<String, WebSocketSession> sessions = (Map<String, WebSocketSession>) sessionsField.get(room);
+        sessions.put("123ABC", mockSession1);
+
+        // Acceder al método privado
+        java.lang.reflect.Method broadcastPersonStatusMethod = GameRoom.class
+                .getDeclaredMethod("broadcastPersonStatus", String.class, String.class);
+        broadcastPersonStatusMethod.setAccessible(true);
+
+        // Invocar el método
+        broadcastPersonStatusMethod.invoke(room, "123ABC", "1");
+
+        // Verificar que se envió un mensaje
+        ArgumentCaptor<TextMessage> messageCaptor = ArgumentCaptor.forClass(TextMessage.class);
+        verify(mockSession1).sendMessage(messageCaptor.capture());
+
+        String payload = messageCaptor.getValue().getPayload();
+        JSONObject json = new JSONObject(payload);
+
+        assertEquals("personUpdate", json.getString("type"));
+        assertEquals("123ABC", json.getString("playerId"));
+        assertEquals("1", json.getString("hasPerson"));
+    }
+
+    @Test
+    void testAdminChangesReachOnlyAdmins() throws Exception {
+        // Sin ventana: cada tick envía lo acumulado
+        GameProperties properties = new GameProperties();
+        properties.getTick().setRateHz(1);
+        properties.getAdmin().setDebounceMillis(0);
+        room = new GameRoom("test", properties, Runnable::run, Runnable::run);
+        java.lang.reflect.Method tick = GameRoom.class.getDeclaredMethod("tick");
+        tick.setAccessible(true);
+
+        WebSocketSession adminSession = mock(WebSocketSession.class);
+        WebSocketSession userSession = mock(WebSocketSession.class);
+        when(adminSession.getId()).thenReturn("admin-session");
+        when(userSession.getId()).thenReturn("user-session");
+        when(adminSession.isOpen()).thenReturn(true);
+        when(userSession.isOpen()).thenReturn(true);
+
+        room.join(adminSession);
+        room.handleTextMessage(adminSession, new TextMessage("{\"role\":\"admin\"}"));
+        assertEquals(1, room.getAdminCount());
+        room.join(userSession);
+        room.handleTextMessage(userSession, new TextMessage("{\"name\":\"Bus\",\"x\":1,\"y\":1}"));
+        room.handleTextMessage(userSession, new TextMessage("{\"name\":\"Bus 2\",\"x\":2,\"y\":2}"));
+        tick.invoke(room);
+
+        // El alta y el cambio de nombre llegan juntos, como un alta con el último nombre
+        JSONObject delta = lastOfType(adminSession, "playersDelta");
+        assertEquals(1, delta.getInt("count"));
+        assertEquals(1, delta.getJSONArray("joined").length());
+        assertEquals("Bus 2", delta.getJSONArray("joined").getJSONObject(0).getString("name"));
+        assertEquals(0, delta.getJSONArray("renamed").length());
+        String plate = delta.getJSONArray("joined").getJSONObject(0).getString("plate");
+        assertNull(lastOfType(userSession, "playersDelta"));
+        assertNull(lastOfType(userSession, "playersInfo"));
+
+        room.leave(userSession, CloseStatus.NORMAL);
+        tick.invoke(room);
+        delta = lastOfType(adminSession, "playersDelta");
+        assertEquals(0, delta.getInt("count"));
+        assertEquals(plate, delta.getJSONArray("left").getString(0));
+    }
+
+    /** El último mensaje de texto de ese tipo que recibió la sesión, o null. */
+    private static JSONObject lastOfType(WebSocketSession session, String type) throws Exception {
+        ArgumentCaptor<TextMessage> captor = ArgumentCaptor.forClass(TextMessage.class);
+        verify(session, atLeast(0)).sendMessage(captor.capture());
+        JSONObject last = null;
+        for (TextMessage message : captor.getAllValues()) {
+            JSONObject json = new JSONObject(message.getPayload());
+            if (type.equals(json.optString("type"))) {
+                last = json;
+            }
+        }
+        return last;
+    }
+
+    @Test
+    void testSendPlayersCountToAdmin() throws Exception {
+        resetControllerState();
+
+        // Configurar sesión mock
+        WebSocketSession adminSession = mock(WebSocketSession.class);
+        when(adminSession.isOpen()).thenReturn(true);
+
+        // Configurar jugadores
+        Field playersField = GameRoom.class.getDeclaredField("players");
+        playersField.setAccessible(true);
+        PlayerStore players = (PlayerStore) playersField.get(room);
+
+        players.add("USER123", "Player1");
+        players.add("USER456", "Player2");
+
+        // Acceder al método privado
+        java.lang.reflect.Method sendCountMethod = GameRoom.class.getDeclaredMethod("sendPlayersCountToAdmin",
+                WebSocketSession.class);
+        sendCountMethod.setAccessible(true);
+
+        // Invocar el método
+        sendCountMethod.invoke(room, adminSession);
+
+        // Verificar que se envió un mensaje con la información correcta
+        ArgumentCaptor<TextMessage> messageCaptor = ArgumentCaptor.forClass(TextMessage.class);
+        verify(adminSession).sendMessage(messageCaptor.capture());
+
+        String payload = messageCaptor.getValue().getPayload();
+        JSONObject json = new JSONObject(payload);
+
+        assertEquals("playersInfo", json.getString("type"));
+        assertEquals(2, json.getInt("count"));
+        assertTrue(json.has("players"));
+    }
+
+    @Test
+    void testSendPlayersCountToAdmin_SessionClosed() throws Exception {
+        resetControllerState();
+
+        // Configurar sesión mock cerrada
+        WebSocketSession closedSession = mock(WebSocketSession.class);
+        when(closedSession.isOpen()).thenReturn(false);
+
+        // Acceder al método privado
+        java.lang.reflect.Method sendCountMethod = GameRoom.class.getDeclaredMethod("sendPlayersCountToAdmin",
+                WebSocketSession.class);
+        sendCountMethod.setAccessible(true);
+
+        // Invocar el método
+        sendCountMethod.invoke(room, closedSession);
+
+        // Verificar que no se intentó enviar mensaje
+        verify(closedSession, never()).sendMessage(any(TextMessage.class));
+    }
+
+    @Test
+    void testHandleTextMessage_ErrorHandling() throws Exception {
+        resetControllerState();
+
+        // Crear la configuración inicial sin lanzar excepciones
+        when(mockSession.getId()).thenReturn("session-id-123");
+        when(mockSession.isOpen()).thenReturn(true);
+
+        // Preparar el mapa de sesiones directamente
+        String playerId = "123TEST"; // ID fijo para la prueba
+        Field sessionsField = GameRoom.class.getDeclaredField("sessions");
+        sessionsField.setAccessible(true);
+        Map<String, WebSocketSession> sessions = (Map<String, WebSocketSession>) sessionsField.get(room);
+        sessions.put(playerId, mockSession);
+
+        // Añadir manualmente el jugador al mapa
+        Field playersField = GameRoom.class.getDeclaredField("players");
+        playersField.setAccessible(true);
+        PlayerStore players = (PlayerStore) playersField.get(room);
+        players.add(playerId, "TestPlayer");
+
+        // Añadir la asignación de sessionId a playerId
+        Field sessionToPlayerIdField = GameRoom.class.getDeclaredField("sessionToPlayerId");
+        sessionToPlayerIdField.setAccessible(true);
+        Map<String, String> sessionToPlayerId = (Map<String, String>) sessionToPlayerIdField.get(room);
+        sessionToPlayerId.put("session-id-123", playerId);
+
+        // Ahora configurar para que lance excepción al enviar mensaje
+        doThrow(new IOException("Send error")).when(mockSession).sendMessage(any(TextMessage.class));
+
+        // Crear mensaje para actualizar
+        JSONObject updateData = new JSONObject();
+        updateData.put("x", 20);
+        updateData.put("y", 30);
+
+        TextMessage updateMessage = new TextMessage(updateData.toString());
+
+        java.lang.reflect.Method tickMethod = GameRoom.class.getDeclaredMethod("tick");
+        tickMethod.setAccessible(true);
+
+        // Ejecutar método y el tick que difunde las posiciones - no debería lanzar excepción
+        try {
+            room.handleTextMessage(mockSession, updateMessage);
+            tickMethod.invoke(room);
+            // Si llegamos aquí, el método manejó la excepción correctamente
+            assertTrue(true);
+        } catch (Exception e) {
+            fail("El método no debería propagar excepciones: " + e.getMessage());
+        }
+
+        // Verificar que sendMessage fue llamado al menos una vez (no especificamos el
+        // número exacto)
+        verify(mockSession, atLeastOnce()).sendMessage(any(TextMessage.class));
+    }
+
+    @Test
+    void testMovementIsBroadcastOncePerTick() throws Exception {
+        resetControllerState();
+
+        String playerId = "123TEST";
+        Field sessionsField = GameRoom.class.getDeclaredField("sessions");
+        Field sessionToPlayerIdField = GameRoom.class.getDeclaredField("sessionToPlayerId");
+        Field playersField = GameRoom.class.getDeclaredField("players");
+        sessionsField.setAccessible(true);
+        sessionToPlayerIdField.setAccessible(true);
+        playersField.setAccessible(true);
+
+        Map<String, WebSocketSession> sessions = (Map<String, WebSocketSession>) sessionsField.get(room);
+        Map<String, String> sessionToPlayerId = (Map<String, String>) sessionToPlayerIdField.get(room);
+        PlayerStore players = (PlayerStore) playersField.get(room);
+
+        sessions.put(playerId, mockSession);
+        sessionToPlayerId.put("session-id-123", playerId);
+        players.add(playerId, "TestPlayer");
+
+        // Varios movimientos entre ticks no generan envíos inmediatos
+        for (int i = 0; i < 5; i++) {
+            JSONObject move = new JSONObject();
+            move.put("x", i);
+            move.put("y", i);
+            move.put("direction", "right");
+            room.handleTextMessage(mockSession, new TextMessage(move.toString()));
+        }
+        verify(mockSession, never()).sendMessage(any(TextMessage.class));
+
+        java.lang.reflect.Method tickMethod = GameRoom.class.getDeclaredMethod("tick");
+        tickMethod.setAccessible(true);
+
+        // Un tick envía un único snapshot con la última posición
+        tickMethod.invoke(room);
+        ArgumentCaptor<TextMessage> messageCaptor = ArgumentCaptor.forClass(TextMessage.class);
+        verify(mockSession, times(1)).sendMessage(messageCaptor.capture());
+        JSONObject json = new JSONObject(messageCaptor.getValue().getPayload());
+        assertEquals("positions", json.getString("type"));
+        assertEquals(4, json.getJSONObject("players").getJSONObject(playerId).getDouble("x"));
+
+        // Sin movimientos nuevos, el siguiente tick no envía nada
+        tickMethod.invoke(room);
+        verify(mockSession, times(1)).sendMessage(any(TextMessage.class));
+    }
+
+    @Test
+    void testMovesAreCoalescedUntilTheTick() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        GameProperties properties = new GameProperties();
+        properties.getTick().setRateHz(1);
+        room = new GameRoom("test", properties, Runnable::run, Runnable::run, null, new GameMetrics(registry));
+        room.join(mockSession);
+        room.handleTextMessage(mockSession, new TextMessage("{\"name\":\"Bus\",\"x\":0,\"y\":0}"));
+        String plate = room.getOutboxes().keySet().iterator().next();
+
+        // Ya en juego, cada movimiento sustituye al anterior sin llegar al bucle
+        for (int i = 1; i <= 5; i++) {
+            room.handleTextMessage(mockSession, new TextMessage("{\"x\":" + i + ",\"y\":" + i + "}"));
+        }
+        assertEquals(4, registry.get("game.input.moves.replaced").counter().count());
+        assertEquals(1, registry.get("game.messages").tag("type", "move").timer().count());
+
+        reset(mockSession);
+        when(mockSession.getId()).thenReturn("session-id-123");
+        when(mockSession.isOpen()).thenReturn(true);
+        java.lang.reflect.Method tickMethod = GameRoom.class.getDeclaredMethod("tick");
+        tickMethod.setAccessible(true);
+        tickMethod.invoke(room);
+
+        // Solo el último se parsea y sale en el snapshot del tick
+        assertEquals(2, registry.get("game.messages").tag("type", "move").timer().count());
+        assertEquals(5, lastOfType(mockSession, "positions").getJSONObject("players").getJSONObject(plate)
+                .getDouble("x"));
+
+        // Otro mensaje de la sesión aplica antes su movimiento pendiente
+        room.handleTextMessage(mockSession, new TextMessage("{\"x\":9,\"y\":9}"));
+        room.handleTextMessage(mockSession, new TextMessage("{\"type\":\"ack\",\"tick\":1}"));
+        assertEquals(3, registry.get("game.messages").tag("type", "move").timer().count());
+    }
+
+    @Test
+    void testMovesHaveNoRateLimitOfTheirOwn() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        GameProperties properties = new GameProperties();
+        properties.getTick().setRateHz(1);
+        room = new GameRoom("test", properties, Runnable::run, Runnable::run, null, new GameMetrics(registry));
+        room.join(mockSession);
+
+        // Con nombre no se agrupan: todos se aplican aunque pasen de cualquier ráfaga
+        for (int i = 0; i < 200; i++) {
+            room.handleTextMessage(mockSession, new TextMessage("{\"name\":\"Bus\",\"x\":" + i + ",\"y\":0}"));
+        }
+        assertEquals(200, registry.get("game.messages").tag("type", "move").timer().count());
+        assertNull(registry.find("game.input.limited").tag("type", "move").counter());
+    }
+
+    @Test
+    void testMovesAfterAnotherMessageWaitForIt() throws Exception {
+        java.util.Queue<Runnable> scheduled = new java.util.ArrayDeque<>();
+        GameProperties properties = new GameProperties();
+        properties.getTick().setRateHz(1);
+        room = new GameRoom("test", properties, Runnable::run, scheduled::add);
+        room.join(mockSession);
+        room.handleTextMessage(mockSession, new TextMessage("{\"name\":\"Bus\",\"x\":10,\"y\":10}"));
+        while (!scheduled.isEmpty()) {
+            scheduled.poll().run();
+        }
+        String plate = room.getOutboxes().keySet().iterator().next();
+        Field playersField = GameRoom.class.getDeclaredField("players");
+        playersField.setAccessible(true);
+        PlayerStore players = (PlayerStore) playersField.get(room);
+        java.lang.reflect.Method tickMethod = GameRoom.class.getDeclaredMethod("tick");
+        tickMethod.setAccessible(true);
+
+        // A lleva el bus junto a p1 (tile 4, 6), C la recoge y B lo aleja antes de que C se procese
+        room.handleTextMessage(mockSession, new TextMessage("{\"x\":351,\"y\":507}"));
+        room.handleTextMessage(mockSession, new TextMessage("{\"type\":\"collectPerson\",\"personId\":\"p1\"}"));
+        room.handleTextMessage(mockSession, new TextMessage("{\"x\":10,\"y\":10}"));
+
+        // Un tick que corre antes que C no aplica B
+        tickMethod.invoke(room);
+        assertEquals(10, players.x(players.slotOf(plate)));
+        scheduled.poll().run();
+        Field availablePersonsField = GameRoom.class.getDeclaredField("availablePersons");
+        availablePersonsField.setAccessible(true);
+        assertFalse(((PersonGrid) availablePersonsField.get(room)).contains("p1"));
+        assertEquals(351, players.x(players.slotOf(plate)));
+
+        // Procesada C, B entra en el siguiente tick
+        tickMethod.invoke(room);
+        assertEquals(10, players.x(players.slotOf(plate)));
+    }
+
+    @Test
+    void testSnapshotsCarryTheLastAppliedInputSequence() throws Exception {
+        room.join(mockSession);
+        room.handleTextMessage(mockSession, new TextMessage("{\"name\":\"Bus\",\"x\":1,\"y\":1,\"seq\":1}"));
+        String plate = room.getOutboxes().keySet().iterator().next();
+        room.handleTextMessage(mockSession, new TextMessage("{\"x\":2,\"y\":2,\"seq\":2}"));
+        room.handleTextMessage(mockSession, new TextMessage("{\"x\":3,\"y\":3,\"seq\":3}"));
+
+        java.lang.reflect.Method tickMethod = GameRoom.class.getDeclaredMethod("tick");
+        tickMethod.setAccessible(true);
+        tickMethod.invoke(room);
+
+        // El 2 se agrupó con el 3: el snapshot confirma hasta el 3 y dice de qué tick es
+        JSONObject positions = lastOfType(mockSession, "positions");
+        JSONObject own = positions.getJSONObject("players").getJSONObject(plate);
+        assertEquals(3, own.getLong("seq"));
+        assertEquals(3, own.getDouble("x"));
+        assertEquals(1, positions.getLong("tick"));
+
+        // Un número viejo no hace retroceder la confirmación
+        room.handleTextMessage(mockSession, new TextMessage("{\"x\":4,\"y\":4,\"seq\":2}"));
+        tickMethod.invoke(room);
+        own = lastOfType(mockSession, "positions").getJSONObject("players").getJSONObject(plate);
+        assertEquals(3, own.getLong("seq"));
+        assertEquals(4, own.getDouble("x"));
+    }
+
+    @Test
+    void testTickLoopStopsWhenLastSessionCloses() throws Exception {
+        resetControllerState();
+
+        room.join(mockSession);
+        assertTrue(room.getTickLoop().isRunning());
+
+        room.leave(mockSession, CloseStatus.NORMAL);
+        assertFalse(room.getTickLoop().isRunning());
+    }
+
+    @Test
+    void testDeltaSnapshotsOnlyCarryChangedPlayers() throws Exception {
+        GameProperties properties = new GameProperties();
+        properties.getSnapshot().setDeltaEnabled(true);
+        room = new GameRoom("test", properties, Runnable::run, Runnable::run);
+        resetControllerState();
+
+        WebSocketSession sessionA = mock(WebSocketSession.class);
+        WebSocketSession sessionB = mock(WebSocketSession.class);
+        when(sessionA.getId()).thenReturn("session-a");
+        when(sessionB.getId()).thenReturn("session-b");
+        when(sessionA.isOpen()).thenReturn(true);
+        when(sessionB.isOpen()).thenReturn(true);
+
+        Field sessionsField = GameRoom.class.getDeclaredField("sessions");
+        Field sessionToPlayerIdField = GameRoom.class.getDeclaredField("sessionToPlayerId");
+        sessionsField.setAccessible(true);
+        sessionToPlayerIdField.setAccessible(true);
+        Map<String, WebSocketSession> sessions = (Map<String, WebSocketSession>) sessionsField.get(room);
+        Map<String, String> sessionToPlayerId = (Map<String, String>) sessionToPlayerIdField.get(room);
+        sessions.put("AAA-111", sessionA);
+        sessions.put("BBB-222", sessionB);
+        sessionToPlayerId.put("session-a", "AAA-111");
+        sessionToPlayerId.put("session-b", "BBB-222");
+
+        java.lang.reflect.Method tickMethod = GameRoom.class.getDeclaredMethod("tick");
+        tickMethod.setAccessible(true);
+
+        // Ambos jugadores se unen: sin confirmaciones todos reciben el snapshot completo
+        room.handleTextMessage(sessionA, new TextMessage("{\"x\":1,\"y\":1,\"direction\":\"up\"}"));
+        room.handleTextMessage(sessionB, new TextMessage("{\"x\":2,\"y\":2,\"direction\":\"up\"}"));
+        tickMethod.invoke(room);
+
+        ArgumentCaptor<TextMessage> captor = ArgumentCaptor.forClass(TextMessage.class);
+        verify(sessionA, atLeastOnce()).sendMessage(captor.capture());
+        JSONObject first = new JSONObject(captor.getValue().getPayload());
+        assertTrue(first.getBoolean("full"));
+        assertEquals(2, first.getJSONObject("players").length());
+        long tick = first.getLong("tick");
+
+        room.handleTextMessage(sessionA, new TextMessage("{\"type\":\"ack\",\"tick\":" + tick + "}"));
+        reset(sessionA);
+        when(sessionA.isOpen()).thenReturn(true);
+
+        // Sin cambios no se envía nada al cliente que ya confirmó
+        tickMethod.invoke(room);
+        verify(sessionA, never()).sendMessage(any(TextMessage.class));
+
+        // Solo B se mueve: A recibe un delta con B únicamente
+        room.handleTextMessage(sessionB, new TextMessage("{\"x\":5,\"y\":2,\"direction\":\"right\"}"));
+        tickMethod.invoke(room);
+
+        verify(sessionA).sendMessage(captor.capture());
+        JSONObject delta = new JSONObject(captor.getValue().getPayload());
+        assertFalse(delta.getBoolean("full"));
+        assertEquals(tick, delta.getLong("baseline"));
+        assertEquals(1, delta.getJSONObject("players").length());
+        assertEquals(5, delta.getJSONObject("players").getJSONObject("BBB-222").getDouble("x"));
+
+        // B no ha confirmado nunca, así que sigue recibiendo snapshots completos
+        verify(sessionB, atLeastOnce()).sendMessage(captor.capture());
+        assertTrue(new JSONObject(captor.getValue().getPayload()).getBoolean("full"));
+
+        // La salida de B viaja como baja en el siguiente delta
+        room.leave(sessionB, CloseStatus.NORMAL);
+        reset(sessionA);
+        when(sessionA.isOpen()).thenReturn(true);
+        tickMethod.invoke(room);
+
+        verify(sessionA).sendMessage(captor.capture());
+        JSONObject removal = new JSONObject(captor.getValue().getPayload());
+        assertEquals("BBB-222", removal.getJSONArray("removed").getString(0));
+    }
+
+    @Test
+    void testBinarySessionsReceiveBinaryPositions() throws Exception {
+        resetControllerState();
+
+        WebSocketSession binarySession = mock(WebSocketSession.class);
+        when(binarySession.getId()).thenReturn("session-bin");
+        when(binarySession.isOpen()).thenReturn(true);
+        when(binarySession.getAcceptedProtocol()).thenReturn(BinaryPositionEncoder.PROTOCOL);
+
+        // La conexión asigna placa e índice
+        room.join(binarySession);
+        room.join(mockSession);
+        ArgumentCaptor<TextMessage> textCaptor = ArgumentCaptor.forClass(TextMessage.class);
+        verify(binarySession, atLeastOnce()).sendMessage(textCaptor.capture());
+        JSONObject playerIdMessage = new JSONObject(textCaptor.getAllValues().get(0).getPayload());
+        assertEquals("PLAYER_ID", playerIdMessage.getString("type"));
+        int index = playerIdMessage.getInt("index");
+
+        room.handleTextMessage(binarySession, new TextMessage("{\"x\":3,\"y\":4,\"direction\":\"down\"}"));
+        reset(binarySession, mockSession);
+        when(binarySession.isOpen()).thenReturn(true);
+        when(binarySession.getAcceptedProtocol()).thenReturn(BinaryPositionEncoder.PROTOCOL);
+        when(mockSession.isOpen()).thenReturn(true);
+
+        java.lang.reflect.Method tickMethod = GameRoom.class.getDeclaredMethod("tick");
+        tickMethod.setAccessible(true);
+        tickMethod.invoke(room);
+
+        // La sesión binaria recibe un frame binario y la JSON sigue recibiendo texto
+        ArgumentCaptor<BinaryMessage> binaryCaptor = ArgumentCaptor.forClass(BinaryMessage.class);
+        verify(binarySession).sendMessage(binaryCaptor.capture());
+        verify(mockSession).sendMessage(any(TextMessage.class));
+
+        ByteBuffer frame = binaryCaptor.getValue().getPayload();
+        assertEquals(BinaryPositionEncoder.TYPE_POSITIONS, frame.get());
+        frame.position(BinaryPositionEncoder.HEADER_SIZE - 2);
+        assertEquals(1, frame.getShort());
+        assertEquals(index, frame.getShort());
+        assertEquals(24, frame.getShort());
+        assertEquals(32, frame.getShort());
+        assertEquals(BinaryPositionEncoder.DIRECTION_DOWN, frame.get());
+
+        room.getTickLoop().stop();
+    }
+
+    @Test
+    void testInterestFiltersPositionsAndSendsSpawns() throws Exception {
+        GameProperties properties = new GameProperties();
+        properties.getInterest().setEnabled(true);
+        properties.getInterest().setRadiusTiles(2);
+        room = new GameRoom("test", properties, Runnable::run, Runnable::run);
+        resetControllerState();
+
+        WebSocketSession sessionA = mock(WebSocketSession.class);
+        WebSocketSession sessionB = mock(WebSocketSession.class);
+        when(sessionA.getId()).thenReturn("session-a");
+        when(sessionB.getId()).thenReturn("session-b");
+        when(sessionA.isOpen()).thenReturn(true);
+        when(sessionB.isOpen()).thenReturn(true);
+
+        Field sessionsField = GameRoom.class.getDeclaredField("sessions");
+        Field sessionToPlayerIdField = GameRoom.class.getDeclaredField("sessionToPlayerId");
+        Field availablePersonsField = GameRoom.class.getDeclaredField("availablePersons");
+        sessionsField.setAccessible(true);
+        sessionToPlayerIdField.setAccessible(true);
+        availablePersonsField.setAccessible(true);
+        Map<String, WebSocketSession> sessions = (Map<String, WebSocketSession>) sessionsField.get(room);
+        Map<String, String> sessionToPlayerId = (Map<String, String>) sessionToPlayerIdField.get(room);
+        PersonGrid availablePersons = (PersonGrid) availablePersonsField.get(room);
+        sessions.put("AAA-111", sessionA);
+        sessions.put("BBB-222", sessionB);
+        sessionToPlayerId.put("session-a", "AAA-111");
+        sessionToPlayerId.put("session-b", "BBB-222");
+        availablePersons.add(new EntityPerson("p1", 1, 1, "mujer.png"));
+        availablePersons.add(new EntityPerson("p9", 14, 9, "tombo1.png"));
+
+        java.lang.reflect.Method tickMethod = GameRoom.class.getDeclaredMethod("tick");
+        tickMethod.setAccessible(true);
+
+        // A en la esquina superior izquierda, B en la inferior derecha (tiles de 78 px)
+        room.handleTextMessage(sessionA, new TextMessage("{\"x\":80,\"y\":80,\"direction\":\"up\"}"));
+        room.handleTextMessage(sessionB, new TextMessage("{\"x\":1100,\"y\":750,\"direction\":\"up\"}"));
+        reset(sessionA, sessionB);
+        when(sessionA.getId()).thenReturn("session-a");
+        when(sessionB.getId()).thenReturn("session-b");
+        when(sessionA.isOpen()).thenReturn(true);
+        when(sessionB.isOpen()).thenReturn(true);
+        tickMethod.invoke(room);
+
+        ArgumentCaptor<TextMessage> captor = ArgumentCaptor.forClass(TextMessage.class);
+        verify(sessionA, atLeastOnce()).sendMessage(captor.capture());
+        Map<String, JSONObject> byType = new java.util.HashMap<>();
+        for (TextMessage m : captor.getAllValues()) {
+            JSONObject json = new JSONObject(m.getPayload());
+            byType.put(json.getString("type"), json);
+        }
+
+        // A solo se ve a sí mismo y solo a la persona cercana
+        assertTrue(byType.get("spawn").getJSONObject("players").has("AAA-111"));
+        assertFalse(byType.get("spawn").getJSONObject("players").has("BBB-222"));
+        assertTrue(byType.get("personSpawn").getJSONObject("persons").has("p1"));
+        assertFalse(byType.get("personSpawn").getJSONObject("persons").has("p9"));
+        assertFalse(byType.get("positions").getJSONObject("players").has("BBB-222"));
+
+        // B se acerca: entra en la vista de A
+        reset(sessionA);
+        when(sessionA.getId()).thenReturn("session-a");
+        when(sessionA.isOpen()).thenReturn(true);
+        room.handleTextMessage(sessionB, new TextMessage("{\"x\":160,\"y\":80,\"direction\":\"left\"}"));
+        tickMethod.invoke(room);
+
+        verify(sessionA, atLeastOnce()).sendMessage(captor.capture());
+        boolean spawned = false;
+        for (TextMessage m : captor.getAllValues()) {
+            JSONObject json = new JSONObject(m.getPayload());
+            spawned |= "spawn".equals(json.getString("type")) && json.getJSONObject("players").has("BBB-222");
+        }
+        assertTrue(spawned);
+
+        // B se vuelve a alejar: A recibe el despawn
+        reset(sessionA);
+        when(sessionA.getId()).thenReturn("session-a");
+        when(sessionA.isOpen()).thenReturn(true);
+        room.handleTextMessage(sessionB, new TextMessage("{\"x\":1100,\"y\":750,\"direction\":\"right\"}"));
+        tickMethod.invoke(room);
+
+        ArgumentCaptor<TextMessage> despawnCaptor = ArgumentCaptor.forClass(TextMessage.class);
+        verify(sessionA, atLeastOnce()).sendMessage(despawnCaptor.capture());
+        boolean despawned = false;
+        for (TextMessage m : despawnCaptor.getAllValues()) {
+            JSONObject json = new JSONObject(m.getPayload());
+            despawned |= "despawn".equals(json.getString("type"))
+                    && json.getJSONArray("players").toString().contains("BBB-222");
+        }
+        assertTrue(despawned);
+    }
+
+    @Test
+    void testBroadcastAvailablePersons() throws Exception {
+        resetControllerState();
+
+        // Configurar sesiones mock
+        WebSocketSession mockSession = mock(WebSocketSession.class);
+        when(mockSession.isOpen()).thenReturn(true);
+
+        // Añadir sesiones al mapa
+        Field sessionsField = GameRoom.class.getDeclaredField("sessions");
+        sessionsField.setAccessible(true);
+        Map<String, WebSocketSession> sessions = (Map<String, WebSocketSession>) sessionsField.get(room);
+        sessions.put("TEST123", mockSession);
+
+        // Inicializar personas disponibles
+        Field availablePersonsField = GameRoom.class.getDeclaredField("availablePersons");
+        availablePersonsField.setAccessible(true);
+        PersonGrid availablePersons = (PersonGrid) availablePersonsField.get(room);
+        availablePersons.add(new EntityPerson("p1", 4, 6, "PersonaCorbata.png"));
+
+        // Acceder al método privado
+        java.lang.reflect.Method broadcastMethod = GameRoom.class
+                .getDeclaredMethod("broadcastAvailablePersons");
+        broadcastMethod.setAccessible(true);
+
+        // Invocar el método
+        broadcastMethod.invoke(room);
+
+        // Verificar que se envió un mensaje con la información correcta
+        ArgumentCaptor<TextMessage> messageCaptor = ArgumentCaptor.forClass(TextMessage.class);
+        verify(mockSession).sendMessage(messageCaptor.capture());
+
+        String payload = messageCaptor.getValue().getPayload();
+        assertTrue(payload.contains("availablePersons"));
+        assertTrue(payload.contains("p1"));
+    }
+
+    @Test
+    void testHandlePersonUpdate_PlayerNotFound() throws Exception {
+        resetControllerState();
+
+        // Acceder al método privado
+        java.lang.reflect.Method handleUpdateMethod = GameRoom.class.getDeclaredMethod("handlePersonUpdate",
+                InboundMessage.CargoUpdate.class);
+        handleUpdateMethod.setAccessible(true);
+
+        // Invocar el método con un ID de jugador inexistente - no debería lanzar excepción
+        handleUpdateMethod.invoke(room, new InboundMessage.CargoUpdate("NONEXISTENT", "1"));
+
+        // Si llegamos aquí, el método manejó correctamente el caso
+        assertTrue(true);
+    }
+
+    @Test
+    void testBroadcastAvailablePersons_ErrorHandling() throws Exception {
+        resetControllerState();
+
+        // Configurar sesión mock para lanzar excepción
+        WebSocketSession errorSession = mock(WebSocketSession.class);
+        when(errorSession.isOpen()).thenReturn(true);
+        doThrow(new IOException("Test exception")).when(errorSession).sendMessage(any(TextMessage.class));
+
+        // Añadir sesión al mapa
+        Field sessionsField = GameRoom.class.getDeclaredField("sessions");
+        sessionsField.setAccessible(true);
+        Map<String, WebSocketSession> sessions = (Map<String, WebSocketSession>) sessionsField.get(room);
+        sessions.put("ERROR123", errorSession);
+
+        // Acceder al método privado
+        java.lang.reflect.Method broadcastMethod = GameRoom.class
+                .getDeclaredMethod("broadcastAvailablePersons");
+        broadcastMethod.setAccessible(true);
+
+        // Invocar el método - no debería lanzar excepción
+        try {
+            broadcastMethod.invoke(room);
+            // Si llegamos aquí, el método manejó la excepción correctamente
+            assertTrue(true);
+        } catch (Exception e) {
+            fail("El método no debería propagar excepciones: " + e.getMessage());
+        }
+    }
+
+    @Test
+    void testCommandsRunOnTheRoomLoop() throws Exception {
+        // Un ejecutor manual: nada se aplica hasta que el bucle de la sala drena
+        java.util.Queue<Runnable> scheduled = new java.util.ArrayDeque<>();
+        GameProperties properties = new GameProperties();
+        properties.getTick().setRateHz(1);
+        room = new GameRoom("test", properties, Runnable::run, scheduled::add);
+
+        room.join(mockSession);
+        room.handleTextMessage(mockSession, new TextMessage("{\"x\":10,\"y\":20,\"direction\":\"up\"}"));
+        verify(mockSession, never()).sendMessage(any());
+        assertEquals(0, room.getPlayerCount());
+        assertEquals(2, room.getLoop().getQueueDepth());
+
+        scheduled.poll().run();
+        verify(mockSession, atLeastOnce()).sendMessage(any());
+        assertEquals(1, room.getPlayerCount());
+        assertEquals(0, room.getLoop().getQueueDepth());
+
+        room.leave(mockSession, CloseStatus.NORMAL);
+        scheduled.poll().run();
+        assertEquals(0, room.getPlayerCount());
+        assertFalse(room.getTickLoop().isRunning());
+    }
+}
@@ -0,0 +1,117 @@
+package juego.arsw;
+
+import juego.arsw.game.BinaryPositionEncoder;
+import juego.arsw.game.GameStateSnapshotter;
+import juego.arsw.game.RoomState;
+import juego.arsw.game.SnapshotFile;
+import juego.arsw.model.EntityPerson;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameStateSnapshotterTest {
+
+    @TempDir
+    Path dir;
+
+    private static RoomState world(String roomId, int players) {
+        List<EntityPerson> persons = new ArrayList<>();
+        for (int i = 0; i < 15; i++) {
+            persons.add(new EntityPerson("p" + i, i, i + 1, "tombo.png"));
+        }
+        RoomState state = RoomState.withPlayers(roomId, 1234, players, persons);
+        for (int i = 0; i < players; i++) {
+            state.playerIds()[i] = String.format("P%05d", i);
+            state.names()[i] = "Bus " + i;
+            state.xs()[i] = i * 0.5f;
+            state.ys()[i] = -i;
+            state.directions()[i] = BinaryPositionEncoder.DIRECTION_LEFT;
+            state.cargo()[i] = (byte) (i % 6);
+        }
+        return state;
+    }
+
+    @Test
+    void testSnapshotRoundTrip() throws Exception {
+        try (SnapshotFile file = SnapshotFile.open(dir.resolve("state.bin"), 1 << 16)) {
+            GameStateSnapshotter snapshotter = new GameStateSnapshotter(file,
+                    () -> CompletableFuture.completedFuture(List.of(world("default", 3), world("sala-2", 0))), 0);
+
+            assertTrue(snapshotter.snapshot());
+            assertEquals(1, snapshotter.getSnapshotCount());
+            assertTrue(snapshotter.getLastBytes() > 0);
+
+            List<RoomState> restored = GameStateSnapshotter.restore(file);
+            assertEquals(2, restored.size());
+            RoomState room = restored.get(0);
+            assertEquals("default", room.roomId());
+            assertEquals(1234, room.tick());
+            assertEquals(3, room.playerCount());
+            assertEquals("P00002", room.playerIds()[2]);
+            assertEquals("Bus 2", room.names()[2]);
+            assertEquals(1.0f, room.xs()[2]);
+            assertEquals(-2f, room.ys()[2]);
+            assertEquals(BinaryPositionEncoder.DIRECTION_LEFT, room.directions()[2]);
+            assertEquals(2, room.cargo()[2]);
+            assertEquals(15, room.persons().size());
+            assertEquals("tombo.png", room.persons().get(3).getSpriteFile());
+            assertEquals(4, room.persons().get(3).getY());
+        }
+    }
+
+    @Test
+    void testRestoreOfTenThousandPlayersIsFast() throws Exception {
+        Path path = dir.resolve("state.bin");
+        try (SnapshotFile file = SnapshotFile.open(path, 4 << 20)) {
+            GameStateSnapshotter snapshotter = new GameStateSnapshotter(file,
+                    () -> CompletableFuture.completedFuture(List.of(world("default", 10_000))), 0);
+            assertTrue(snapshotter.snapshot());
+        }
+
+        long start = System.nanoTime();
+        List<RoomState> restored;
+        try (SnapshotFile file = SnapshotFile.open(path, 4 << 20)) {
+            restored = GameStateSnapshotter.restore(file);
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(10_000, restored.get(0).playerCount());
+        assertTrue(millis < 1000, "Restore took " + millis + " ms");
+    }
+
+    @Test
+    void testFailedCaptureKeepsThePreviousSnapshot() throws Exception {
+        try (SnapshotFile file = SnapshotFile.open(dir.resolve("state.bin"), 1 << 16)) {
+            GameStateSnapshotter good = new GameStateSnapshotter(file,
+                    () -> CompletableFuture.completedFuture(List.of(world("default", 1))), 0);
+            assertTrue(good.snapshot());
+
+            GameStateSnapshotter failing = new GameStateSnapshotter(file,
+                    () -> CompletableFuture.failedFuture(new IllegalStateException("room loop down")), 0);
+            assertFalse(failing.snapshot());
+            assertEquals(1, failing.getFailedSnapshots());
+
+            assertEquals(1, GameStateSnapshotter.restore(file).get(0).playerCount());
+        }
+    }
+
+    @Test
+    void testCloseTakesAFinalSnapshot() throws Exception {
+        try (SnapshotFile file = SnapshotFile.open(dir.resolve("state.bin"), 1 << 16)) {
+            GameStateSnapshotter snapshotter = new GameStateSnapshotter(file,
+                    () -> CompletableFuture.completedFuture(List.of(world("default", 2))), 60_000);
+            snapshotter.start();
+
+            snapshotter.close();
+
+            assertEquals(2, GameStateSnapshotter.restore(file).get(0).playerCount());
+        }
+    }
+}
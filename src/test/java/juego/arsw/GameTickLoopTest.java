@@ -0,0 +1,138 @@
+package juego.arsw;
+
+import juego.arsw.game.GameExecutors;
+import juego.arsw.game.GameTickLoop;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameTickLoopTest {
+
+    private static void runTick(GameTickLoop loop) throws Exception {
+        Method runTick = GameTickLoop.class.getDeclaredMethod("runTick");
+        runTick.setAccessible(true);
+        runTick.invoke(loop);
+    }
+
+    @Test
+    void testRejectsNonPositiveRate() {
+        assertThrows(IllegalArgumentException.class, () -> new GameTickLoop("test", 0, () -> {
+        }));
+    }
+
+    @Test
+    void testPeriodFromRate() {
+        GameTickLoop loop = new GameTickLoop("test", 20, () -> {
+        });
+
+        assertEquals(50_000_000L, loop.getPeriodNanos());
+        assertEquals(20, loop.getRateHz());
+    }
+
+    @Test
+    void testTickMetrics() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        GameTickLoop loop = new GameTickLoop("test", 1000, () -> {
+            if (runs.incrementAndGet() == 2) {
+                // El segundo tick se pasa de su periodo de 1 ms
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        runTick(loop);
+        runTick(loop);
+
+        assertEquals(2, loop.getTickCount());
+        assertEquals(1, loop.getOverrunCount());
+        assertTrue(loop.getMaxTickNanos() >= TimeUnit.MILLISECONDS.toNanos(5));
+        assertTrue(loop.getTotalTickNanos() >= loop.getMaxTickNanos());
+    }
+
+    @Test
+    void testTickFailureDoesNotStopCounting() throws Exception {
+        GameTickLoop loop = new GameTickLoop("test", 30, () -> {
+            throw new IllegalStateException("boom");
+        });
+
+        runTick(loop);
+
+        assertEquals(1, loop.getTickCount());
+    }
+
+    @Test
+    void testStartAndStop() throws Exception {
+        CountDownLatch ticks = new CountDownLatch(3);
+        GameTickLoop loop = new GameTickLoop("test", 200, ticks::countDown);
+
+        loop.start();
+        loop.start(); // idempotente
+        assertTrue(loop.isRunning());
+        assertTrue(ticks.await(2, TimeUnit.SECONDS));
+
+        loop.stop();
+        assertFalse(loop.isRunning());
+    }
+
+    @Test
+    void testTicksAreSkippedWhileThePreviousOneIsPending() throws Exception {
+        // Un ejecutor que nunca corre el tick: el primero queda pendiente
+        java.util.List<Runnable> handedOff = new java.util.concurrent.CopyOnWriteArrayList<>();
+        GameTickLoop loop = new GameTickLoop("test", 200, () -> {
+        }, handedOff::add);
+
+        loop.start();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (loop.getSkippedCount() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        loop.stop();
+
+        assertEquals(1, handedOff.size());
+        assertTrue(loop.getSkippedCount() >= 2);
+
+        // Al correr el pendiente se mide como un tick normal
+        handedOff.get(0).run();
+        assertEquals(1, loop.getTickCount());
+    }
+
+    @Test
+    void testLoopsShareOneSchedulerThread() throws Exception {
+        ScheduledExecutorService scheduler = GameExecutors.ticks();
+        try {
+            CountDownLatch first = new CountDownLatch(3);
+            CountDownLatch second = new CountDownLatch(3);
+            GameTickLoop a = new GameTickLoop("a", 200, first::countDown, Runnable::run, scheduler);
+            GameTickLoop b = new GameTickLoop("b", 200, second::countDown, Runnable::run, scheduler);
+
+            a.start();
+            b.start();
+            assertTrue(first.await(2, TimeUnit.SECONDS));
+            assertTrue(second.await(2, TimeUnit.SECONDS));
+
+            // Parar un bucle no apaga el planificador compartido
+            a.stop();
+            assertFalse(a.isRunning());
+            assertFalse(scheduler.isShutdown());
+            long ticks = b.getTickCount();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+            while (b.getTickCount() == ticks && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertTrue(b.getTickCount() > ticks);
+            b.stop();
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+}
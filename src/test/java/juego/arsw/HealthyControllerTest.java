@@ -26,6 +26,17 @@ public class HealthyControllerTest {
                 .andExpect(content().string("OK"));
     }
     
+    @Test
+    public void testLivenessAndReadinessEndpoints() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/health/live"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("OK"));
+        // Sin monitor de saturación el nodo siempre está listo
+        mockMvc.perform(MockMvcRequestBuilders.get("/health/ready"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"ready\":true}"));
+    }
+
     @Test
     public void testHealthCheckReturnsCorrectResponseEntity() {
         // Arrange
@@ -0,0 +1,98 @@
+package juego.arsw;
+
+import juego.arsw.game.InboundMessage;
+import juego.arsw.game.InboundMessageDecoder;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InboundMessageDecoderTest {
+
+    private final InboundMessageDecoder decoder = new InboundMessageDecoder();
+
+    @Test
+    void testMoveWithOptionalFields() throws Exception {
+        InboundMessageDecoder.Frame frame = decoder.decode("{\"x\":12.5,\"y\":3,\"direction\":\"up\",\"name\":\"Bus\"}");
+
+        assertEquals("user", frame.role());
+        assertEquals("Bus", frame.name());
+        assertEquals(new InboundMessage.Move(12.5, 3.0, "up"), frame.message());
+
+        assertEquals(new InboundMessage.Move(1.0, 2.0, "down", 17L),
+                decoder.decode("{\"x\":1,\"y\":2,\"direction\":\"down\",\"seq\":17}").message());
+
+        // Solo la dirección: x e y quedan sin tocar
+        assertEquals(new InboundMessage.Move(null, null, "left"),
+                decoder.decode("{\"direction\":\"left\"}").message());
+    }
+
+    @Test
+    void testMovementIsRecognizedWithoutParsing() {
+        assertTrue(InboundMessageDecoder.isMovement("{\"x\":1,\"y\":2,\"direction\":\"up\",\"hasPerson\":0}"));
+        assertTrue(InboundMessageDecoder.isMovement(" {\"direction\":\"left\"}"));
+        // Cualquier clave que pueda cambiar el tipo, el rol o el nombre va por el camino normal
+        assertFalse(InboundMessageDecoder.isMovement("{\"x\":1,\"name\":\"Bus\"}"));
+        assertFalse(InboundMessageDecoder.isMovement("{\"type\":\"ack\",\"tick\":3}"));
+        assertFalse(InboundMessageDecoder.isMovement("{\"id\":\"ABC-123\",\"hasPerson\":1}"));
+        assertFalse(InboundMessageDecoder.isMovement("{\"role\":\"admin\"}"));
+        assertFalse(InboundMessageDecoder.isMovement("{\"\\u0074ype\":\"ack\",\"tick\":3}"));
+        assertFalse(InboundMessageDecoder.isMovement("not json"));
+    }
+
+    @Test
+    void testAck() throws Exception {
+        assertEquals(new InboundMessage.Ack(42), decoder.decode("{\"type\":\"ack\",\"tick\":42}").message());
+        // Sin tick no es un ack, se trata como movimiento vacío como antes
+        assertInstanceOf(InboundMessage.Move.class, decoder.decode("{\"type\":\"ack\"}").message());
+    }
+
+    @Test
+    void testPersonStateAndCollect() throws Exception {
+        assertEquals(new InboundMessage.PersonState("p1", false),
+                decoder.decode("{\"personId\":\"p1\",\"active\":false}").message());
+        assertEquals(new InboundMessage.CollectPerson("p2"),
+                decoder.decode("{\"type\":\"collectPerson\",\"personId\":\"p2\"}").message());
+        assertThrows(IllegalArgumentException.class, () -> decoder.decode("{\"type\":\"collectPerson\"}"));
+    }
+
+    @Test
+    void testCargoUpdateInBothFrontendFormats() throws Exception {
+        assertEquals(new InboundMessage.CargoUpdate("ABC-123", "1"),
+                decoder.decode("{\"id\":\"ABC-123\",\"hasPerson\":\"1\"}").message());
+        assertEquals(new InboundMessage.CargoUpdate("ABC-123", "0"),
+                decoder.decode("{\"playerId\":\"ABC-123\",\"hasPerson\":0}").message());
+        assertThrows(IllegalArgumentException.class,
+                () -> decoder.decode("{\"id\":\"ABC-123\",\"hasPerson\":true}"));
+    }
+
+    @Test
+    void testMovementIgnoresInvalidCargo() throws Exception {
+        assertEquals(new InboundMessage.Move(1.0, 2.0, "up"),
+                decoder.decode("{\"x\":1,\"y\":2,\"direction\":\"up\",\"hasPerson\":null}").message());
+        assertEquals(new InboundMessage.Move(1.0, 2.0, "up"),
+                decoder.decode("{\"x\":1,\"y\":2,\"direction\":\"up\",\"hasPerson\":1.5}").message());
+        assertEquals(new InboundMessage.Move(1.0, 2.0, null),
+                decoder.decode("{\"x\":1,\"y\":2,\"hasPerson\":{\"n\":1}}").message());
+        // Con id sigue siendo una actualización de carga, y el valor tiene que ser válido
+        assertThrows(IllegalArgumentException.class,
+                () -> decoder.decode("{\"id\":\"ABC-123\",\"hasPerson\":1.5}"));
+    }
+
+    @Test
+    void testRoleAndUnknownFieldsAreSkipped() throws Exception {
+        InboundMessageDecoder.Frame frame = decoder.decode(
+                "{\"role\":\"admin\",\"extra\":{\"nested\":[1,2,{\"x\":99}]},\"x\":5}");
+
+        assertEquals("admin", frame.role());
+        // La x anidada no pisa la del nivel superior
+        assertEquals(new InboundMessage.Move(5.0, null, null), frame.message());
+    }
+
+    @Test
+    void testInvalidPayloads() {
+        assertThrows(Exception.class, () -> decoder.decode("This is not valid JSON"));
+        assertThrows(IllegalArgumentException.class, () -> decoder.decode("[1,2,3]"));
+        assertThrows(IllegalArgumentException.class, () -> decoder.decode("{\"x\":\"abc\"}"));
+    }
+}
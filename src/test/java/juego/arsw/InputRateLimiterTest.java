@@ -0,0 +1,57 @@
+package juego.arsw;
+
+import juego.arsw.config.GameProperties;
+import juego.arsw.game.InboundMessage;
+import juego.arsw.game.InputRateLimiter;
+import juego.arsw.game.InputRateLimiter.Kind;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InputRateLimiterTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void testBurstThenSustainedRate() {
+        GameProperties.Input properties = new GameProperties.Input();
+        properties.getCargoUpdate().setPerSecond(10);
+        properties.getCargoUpdate().setBurst(3);
+        InputRateLimiter limiter = new InputRateLimiter(properties);
+        long now = 5 * SECOND;
+
+        // La ráfaga entra entera y el siguiente espera a que pase un intervalo
+        assertTrue(limiter.tryAcquire(Kind.CARGO_UPDATE, now));
+        assertTrue(limiter.tryAcquire(Kind.CARGO_UPDATE, now));
+        assertTrue(limiter.tryAcquire(Kind.CARGO_UPDATE, now));
+        assertFalse(limiter.tryAcquire(Kind.CARGO_UPDATE, now));
+        assertFalse(limiter.tryAcquire(Kind.CARGO_UPDATE, now + SECOND / 20));
+        assertTrue(limiter.tryAcquire(Kind.CARGO_UPDATE, now + SECOND / 10));
+        assertFalse(limiter.tryAcquire(Kind.CARGO_UPDATE, now + SECOND / 10));
+
+        // Cada tipo lleva su propia cuenta
+        assertTrue(limiter.tryAcquire(Kind.COLLECT_PERSON, now));
+
+        // Tras un silencio largo solo se recupera la ráfaga, no más
+        long later = now + 60 * SECOND;
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limiter.tryAcquire(Kind.CARGO_UPDATE, later));
+        }
+        assertFalse(limiter.tryAcquire(Kind.CARGO_UPDATE, later));
+    }
+
+    @Test
+    void testZeroRateMeansUnlimitedAndAcksAreNotLimited() {
+        GameProperties.Input properties = new GameProperties.Input();
+        properties.getPersonState().setPerSecond(0);
+        InputRateLimiter limiter = new InputRateLimiter(properties);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(limiter.tryAcquire(Kind.PERSON_STATE, 0));
+        }
+        assertNull(Kind.of(new InboundMessage.Ack(1)));
+        // Los movimientos ya se agrupan en uno por tick
+        assertNull(Kind.of(new InboundMessage.Move(1.0, 2.0, "left")));
+        assertEquals(Kind.CARGO_UPDATE, Kind.of(new InboundMessage.CargoUpdate("ABC-123", "1")));
+    }
+}
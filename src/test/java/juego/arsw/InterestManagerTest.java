@@ -0,0 +1,91 @@
+package juego.arsw;
+
+import juego.arsw.game.InterestManager;
+import juego.arsw.game.TileMap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InterestManagerTest {
+
+    private InterestManager interest;
+
+    @BeforeEach
+    void setUp() {
+        // Mapa de 16x12 tiles de 10 unidades, radio de 2 tiles
+        interest = new InterestManager(new TileMap(new int[12][16]), 10, 2);
+    }
+
+    @Test
+    void testLoadDefaultMap() {
+        TileMap map = TileMap.load(TileMap.DEFAULT_MAP);
+
+        assertEquals(16, map.getColumns());
+        assertEquals(12, map.getRows());
+        assertEquals(15, map.tileAt(0, 0));
+        assertThrows(IllegalStateException.class, () -> TileMap.load("maps/no-existe.txt"));
+    }
+
+    @Test
+    void testPlayersInView() {
+        interest.move("AAA-111", 5, 5);     // tile (0,0)
+        interest.move("BBB-222", 25, 15);   // tile (2,1)
+        interest.move("CCC-333", 150, 110); // tile (15,11)
+
+        assertEquals(Set.of("AAA-111", "BBB-222"), interest.playersInView("AAA-111"));
+        assertEquals(Set.of("CCC-333"), interest.playersInView("CCC-333"));
+        assertTrue(interest.playersInView("DDD-444").isEmpty());
+    }
+
+    @Test
+    void testMoveChangesBucket() {
+        interest.move("AAA-111", 5, 5);
+        interest.move("BBB-222", 150, 110);
+        assertFalse(interest.playersInView("AAA-111").contains("BBB-222"));
+
+        interest.move("BBB-222", 15, 15);
+        assertTrue(interest.playersInView("AAA-111").contains("BBB-222"));
+
+        interest.remove("BBB-222");
+        assertFalse(interest.playersInView("AAA-111").contains("BBB-222"));
+        assertFalse(interest.isTracked("BBB-222"));
+    }
+
+    @Test
+    void testPositionsOutsideTheMapAreClamped() {
+        interest.move("AAA-111", -500, -500);
+        interest.move("BBB-222", 0, 0);
+
+        assertTrue(interest.playersInView("AAA-111").contains("BBB-222"));
+    }
+
+    @Test
+    void testTileInView() {
+        interest.move("AAA-111", 45, 45); // tile (4,4)
+
+        assertTrue(interest.isTileInView("AAA-111", 6, 2));
+        assertFalse(interest.isTileInView("AAA-111", 7, 4));
+        assertFalse(interest.isTileInView("BBB-222", 4, 4));
+    }
+
+    @Test
+    void testViewChanges() {
+        InterestManager.ViewChange first = interest.updatePlayerView("AAA-111", Set.of("AAA-111", "BBB-222"));
+        assertEquals(2, first.entered().size());
+        assertTrue(first.left().isEmpty());
+
+        InterestManager.ViewChange second = interest.updatePlayerView("AAA-111", Set.of("AAA-111", "CCC-333"));
+        assertEquals(List.of("CCC-333"), second.entered());
+        assertEquals(List.of("BBB-222"), second.left());
+
+        assertTrue(interest.updatePlayerView("AAA-111", Set.of("AAA-111", "CCC-333")).isEmpty());
+
+        InterestManager.ViewChange persons = interest.updatePersonView("AAA-111", Set.of("p1"));
+        assertEquals(List.of("p1"), persons.entered());
+    }
+}
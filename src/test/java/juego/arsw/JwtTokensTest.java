@@ -0,0 +1,47 @@
+package juego.arsw;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.SignatureAlgorithm;
+import juego.arsw.security.JwtTokens;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtTokensTest {
+
+    private final JwtTokens tokens = new JwtTokens();
+
+    @Test
+    void testIssuedTokenParsesBackWithSubjectAndRole() {
+        String token = tokens.issue("diegot", "admin");
+
+        Claims claims = tokens.parse(token);
+        assertEquals("diegot", claims.getSubject());
+        assertEquals("admin", claims.get("role"));
+        long remaining = claims.getExpiration().getTime() - System.currentTimeMillis();
+        assertTrue(remaining > 0 && remaining <= JwtTokens.EXPIRATION_MILLIS);
+    }
+
+    @Test
+    void testTokenSignedWithAnotherKeyIsRejected() {
+        JwtTokens other = new JwtTokens(Keys.secretKeyFor(SignatureAlgorithm.HS512));
+        String token = other.issue("andres", "user");
+
+        assertThrows(JwtException.class, () -> tokens.parse(token));
+    }
+
+    @Test
+    void testTamperedTokenIsRejected() {
+        String token = tokens.issue("andres", "user");
+        // Se cambia el rol del payload sin volver a firmar
+        String[] parts = token.split("\\.");
+        String payload = new String(java.util.Base64.getUrlDecoder().decode(parts[1]));
+        String forged = java.util.Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(payload.replace("\"user\"", "\"admin\"").getBytes());
+
+        assertThrows(JwtException.class, () -> tokens.parse(parts[0] + "." + forged + "." + parts[2]));
+    }
+}
@@ -0,0 +1,464 @@
+package juego.arsw;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import juego.arsw.game.TileMap;
+import juego.arsw.game.TrafficRecorder;
+
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Generador de carga sin navegador para {@code /game}, con el cliente WebSocket de Spring.
+ * Cada cliente sigue un guion de frames con su instante relativo: los de una grabación de
+ * {@link TrafficRecorder} o buses sintéticos que circulan por las calles de
+ * {@code map01.txt}. Los guiones se reproducen a {@code speed} veces su ritmo original.
+ *
+ * <p>Mide el ritmo de conexión, los mensajes enviados y recibidos por segundo y la
+ * latencia de extremo a extremo: desde que un cliente manda una posición hasta que la ve
+ * en un snapshot de posiciones del servidor.
+ */
+class LoadGenerator {
+
+    /** Tiles por los que circulan los buses en map01.txt: cruces, rectas y curvas. */
+    static final Set<Integer> ROAD_TILES = Set.of(5, 6, 15, 16, 17, 18, 19);
+
+    /** Velocidad de un bus del frontend: 4 px por frame a 60 fps. */
+    static final double BUS_PIXELS_PER_SECOND = 240;
+
+    // Una placa en un frame grabado se refiere al bus de quien lo mandó
+    private static final Pattern PLATE = Pattern.compile("[A-Z]{3}-[0-9]{3}");
+    private static final int[][] STEPS = { { 0, -1 }, { 0, 1 }, { -1, 0 }, { 1, 0 } };
+    private static final String[] DIRECTIONS = { "up", "down", "left", "right" };
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /** Un frame de un guion; {@code x} e {@code y} son NaN si no es un movimiento. */
+    record Frame(long offsetMicros, String payload, double x, double y) {
+    }
+
+    /** Guion de un cliente: su sala (null para la de por defecto) y sus frames en orden. */
+    record ClientScript(String room, Iterator<Frame> frames) {
+    }
+
+    record Options(URI target, int clients, double speed, Duration duration, int connectThreads, int driverThreads) {
+    }
+
+    record Report(int clients, int connected, double connectSeconds, long[] connectNanos, long sent, long received,
+            double runSeconds, long[] latencyNanos) {
+
+        void print(PrintStream out, String title) {
+            out.println("== " + title);
+            out.printf("connected   %d/%d in %.2f s (%.0f conn/s, p50 %.1f ms, p99 %.1f ms)%n", connected, clients,
+                    connectSeconds, connected / Math.max(connectSeconds, 1e-9), percentile(connectNanos, 0.50),
+                    percentile(connectNanos, 0.99));
+            out.printf("sent        %d msgs (%.0f msg/s)%n", sent, sent / Math.max(runSeconds, 1e-9));
+            out.printf("received    %d msgs (%.0f msg/s)%n", received, received / Math.max(runSeconds, 1e-9));
+            out.printf("latency     n=%d p50 %.1f ms, p90 %.1f ms, p99 %.1f ms, p99.9 %.1f ms, max %.1f ms%n",
+                    latencyNanos.length, percentile(latencyNanos, 0.50), percentile(latencyNanos, 0.90),
+                    percentile(latencyNanos, 0.99), percentile(latencyNanos, 0.999), percentile(latencyNanos, 1));
+        }
+
+        /** Percentil en milisegundos de muestras ya ordenadas. */
+        static double percentile(long[] sorted, double p) {
+            if (sorted.length == 0) {
+                return Double.NaN;
+            }
+            int index = (int) Math.ceil(p * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1_000_000.0;
+        }
+    }
+
+    /**
+     * Guiones de una grabación, uno por sesión grabada. Con más clientes que sesiones los
+     * guiones se repiten en orden.
+     */
+    static List<ClientScript> fromRecording(Path file, int clients) throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        Map<String, String> rooms = new LinkedHashMap<>();
+        Map<String, Long> opened = new LinkedHashMap<>();
+        Map<String, List<Frame>> traces = new LinkedHashMap<>();
+        TrafficRecorder.read(file, event -> {
+            switch (event.event()) {
+                case TrafficRecorder.OPEN -> {
+                    rooms.put(event.session(), event.room());
+                    opened.put(event.session(), event.t());
+                    traces.put(event.session(), new ArrayList<>());
+                }
+                case TrafficRecorder.FRAME -> {
+                    List<Frame> trace = traces.get(event.session());
+                    if (trace != null) {
+                        trace.add(frameOf(objectMapper, event.t() - opened.get(event.session()), event.payload()));
+                    }
+                }
+                default -> {
+                    // El cierre no se reproduce: cada cliente cierra al acabar su guion
+                }
+            }
+        });
+        List<String> sessions = new ArrayList<>(traces.keySet());
+        if (sessions.isEmpty()) {
+            throw new IllegalArgumentException("Recording has no sessions: " + file);
+        }
+        List<ClientScript> scripts = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            String session = sessions.get(i % sessions.size());
+            scripts.add(new ClientScript(rooms.get(session), traces.get(session).iterator()));
+        }
+        return scripts;
+    }
+
+    /** Buses sintéticos repartidos en {@code rooms} salas, cada uno moviéndose {@code movesPerSecond} veces por segundo. */
+    static List<ClientScript> synthetic(TileMap map, double tileSize, int clients, int rooms, double movesPerSecond,
+            Duration duration, long seed) {
+        List<ClientScript> scripts = new ArrayList<>(clients);
+        SplittableRandom random = new SplittableRandom(seed);
+        long frames = (long) (duration.toMillis() / 1000.0 * movesPerSecond);
+        for (int i = 0; i < clients; i++) {
+            scripts.add(new ClientScript("load-" + i % rooms,
+                    new RoadDriver(map, tileSize, movesPerSecond, frames, "load-" + i, random.split())));
+        }
+        return scripts;
+    }
+
+    private static Frame frameOf(ObjectMapper objectMapper, long offsetMicros, String payload) {
+        double x = Double.NaN;
+        double y = Double.NaN;
+        try {
+            JsonNode data = objectMapper.readTree(payload);
+            if (data.path("x").isNumber() && data.path("y").isNumber()) {
+                x = data.get("x").asDouble();
+                y = data.get("y").asDouble();
+            }
+        } catch (IOException e) {
+            // Se reproduce tal cual: el servidor también recibió ese frame
+        }
+        return new Frame(offsetMicros, payload, x, y);
+    }
+
+    /**
+     * Un bus que recorre las calles del mapa de centro de tile en centro de tile; en cada
+     * cruce elige al azar una calle que no sea la de vuelta (salvo en un callejón sin salida).
+     */
+    static class RoadDriver implements Iterator<Frame> {
+        private final TileMap map;
+        private final double tileSize;
+        private final double tilesPerFrame;
+        private final long intervalMicros;
+        private final long frames;
+        private final String name;
+        private final SplittableRandom random;
+        private long frame;
+        private int column;
+        private int row;
+        private int direction;
+        private double progress;
+
+        RoadDriver(TileMap map, double tileSize, double movesPerSecond, long frames, String name,
+                SplittableRandom random) {
+            this.map = map;
+            this.tileSize = tileSize;
+            this.tilesPerFrame = BUS_PIXELS_PER_SECOND / tileSize / movesPerSecond;
+            this.intervalMicros = (long) (1_000_000 / movesPerSecond);
+            this.frames = frames;
+            this.name = name;
+            this.random = random;
+            List<int[]> roads = new ArrayList<>();
+            for (int r = 0; r < map.getRows(); r++) {
+                for (int c = 0; c < map.getColumns(); c++) {
+                    if (isRoad(c, r)) {
+                        roads.add(new int[] { c, r });
+                    }
+                }
+            }
+            if (roads.isEmpty()) {
+                throw new IllegalArgumentException("Map has no road tiles");
+            }
+            int[] start = roads.get(random.nextInt(roads.size()));
+            this.column = start[0];
+            this.row = start[1];
+            this.direction = chooseDirection(-1);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return frame < frames;
+        }
+
+        @Override
+        public Frame next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (frame > 0 && direction >= 0) {
+                progress += tilesPerFrame;
+                while (progress >= 1) {
+                    column += STEPS[direction][0];
+                    row += STEPS[direction][1];
+                    progress -= 1;
+                    direction = chooseDirection(direction);
+                    if (direction < 0) {
+                        progress = 0;
+                        break;
+                    }
+                }
+            }
+            int dx = direction >= 0 ? STEPS[direction][0] : 0;
+            int dy = direction >= 0 ? STEPS[direction][1] : 0;
+            // Posiciones enteras: el servidor las guarda en float y vuelven iguales en el snapshot
+            double x = Math.round((column + dx * progress) * tileSize);
+            double y = Math.round((row + dy * progress) * tileSize);
+            String heading = DIRECTIONS[Math.max(direction, 0)];
+            String payload = frame == 0
+                    ? "{\"name\":\"" + name + "\",\"x\":" + (long) x + ",\"y\":" + (long) y + ",\"direction\":\""
+                            + heading + "\"}"
+                    : "{\"x\":" + (long) x + ",\"y\":" + (long) y + ",\"direction\":\"" + heading + "\"}";
+            return new Frame(frame++ * intervalMicros, payload, x, y);
+        }
+
+        int column() {
+            return column;
+        }
+
+        int row() {
+            return row;
+        }
+
+        private int chooseDirection(int previous) {
+            int[] options = new int[STEPS.length];
+            int count = 0;
+            int back = previous < 0 ? -1 : previous ^ 1; // up<->down, left<->right
+            for (int d = 0; d < STEPS.length; d++) {
+                if (d != back && isRoad(column + STEPS[d][0], row + STEPS[d][1])) {
+                    options[count++] = d;
+                }
+            }
+            if (count == 0) {
+                return back >= 0 && isRoad(column + STEPS[back][0], row + STEPS[back][1]) ? back : -1;
+            }
+            return options[random.nextInt(count)];
+        }
+
+        private boolean isRoad(int c, int r) {
+            return c >= 0 && r >= 0 && c < map.getColumns() && r < map.getRows()
+                    && ROAD_TILES.contains(map.tileAt(c, r));
+        }
+    }
+
+    /** Conecta los clientes, reproduce sus guiones y devuelve las medidas. */
+    Report run(List<ClientScript> scripts, Options options) throws InterruptedException {
+        ExecutorService connectors = Executors.newFixedThreadPool(options.connectThreads());
+        ScheduledExecutorService drivers = Executors.newScheduledThreadPool(options.driverThreads());
+        StandardWebSocketClient webSocketClient = new StandardWebSocketClient();
+        webSocketClient.setTaskExecutor(new TaskExecutorAdapter(connectors));
+        AtomicLong sent = new AtomicLong();
+        AtomicLong received = new AtomicLong();
+        List<Client> clients = new ArrayList<>();
+        try {
+            long connectStart = System.nanoTime();
+            List<CompletableFuture<WebSocketSession>> pending = new ArrayList<>();
+            for (int i = 0; i < options.clients(); i++) {
+                ClientScript script = scripts.get(i % scripts.size());
+                Client client = new Client(script, received);
+                clients.add(client);
+                String uri = options.target() + (script.room() != null ? "?room=" + script.room() : "");
+                long started = System.nanoTime();
+                pending.add(webSocketClient.execute(client, uri).whenComplete((session, error) -> {
+                    if (error == null) {
+                        client.connectNanos = System.nanoTime() - started;
+                    }
+                }));
+            }
+            int connected = 0;
+            List<Long> connectTimes = new ArrayList<>();
+            for (int i = 0; i < pending.size(); i++) {
+                try {
+                    clients.get(i).session = pending.get(i).get(30, TimeUnit.SECONDS);
+                    connected++;
+                } catch (Exception e) {
+                    clients.get(i).session = null;
+                }
+            }
+            double connectSeconds = (System.nanoTime() - connectStart) / 1e9;
+            for (Client client : clients) {
+                if (client.session != null) {
+                    connectTimes.add(client.connectNanos);
+                    client.ready.await(10, TimeUnit.SECONDS);
+                }
+            }
+
+            // Todos empiezan a la vez; cada frame se programa en su instante desde ese inicio
+            long runStart = System.nanoTime();
+            long deadline = runStart + options.duration().toNanos();
+            CountDownLatch finished = new CountDownLatch(clients.size());
+            for (Client client : clients) {
+                client.drive(drivers, runStart, deadline, options.speed(), sent, finished);
+            }
+            finished.await(options.duration().toMillis() + 30_000, TimeUnit.MILLISECONDS);
+            // Margen para que lleguen los últimos snapshots
+            Thread.sleep(500);
+            double runSeconds = (System.nanoTime() - runStart) / 1e9;
+
+            List<Long> latencies = new ArrayList<>();
+            for (Client client : clients) {
+                synchronized (client.latencies) {
+                    latencies.addAll(client.latencies);
+                }
+            }
+            return new Report(options.clients(), connected, connectSeconds, sorted(connectTimes), sent.get(),
+                    received.get(), runSeconds, sorted(latencies));
+        } finally {
+            for (Client client : clients) {
+                client.close();
+            }
+            drivers.shutdownNow();
+            connectors.shutdownNow();
+        }
+    }
+
+    private static long[] sorted(List<Long> values) {
+        long[] array = new long[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        Arrays.sort(array);
+        return array;
+    }
+
+    /**
+     * Un cliente: manda su guion y mide cuándo ve su última posición en un snapshot. Si manda
+     * más rápido que el tick, el snapshot ya trae una posición posterior y esa muestra se
+     * pierde, así que a velocidades altas hay menos muestras de latencia que envíos.
+     */
+    private class Client extends TextWebSocketHandler {
+        private final Iterator<Frame> frames;
+        private final AtomicLong received;
+        private final CountDownLatch ready = new CountDownLatch(1);
+        private final List<Long> latencies = new ArrayList<>();
+        private volatile WebSocketSession session;
+        private volatile String playerId;
+        private volatile long connectNanos;
+        private volatile double pendingX = Double.NaN;
+        private volatile double pendingY = Double.NaN;
+        private volatile long sentAt;
+        private double lastX = Double.NaN;
+        private double lastY = Double.NaN;
+
+        Client(ClientScript script, AtomicLong received) {
+            this.frames = script.frames();
+            this.received = received;
+        }
+
+        void drive(ScheduledExecutorService drivers, long runStart, long deadline, double speed, AtomicLong sent,
+                CountDownLatch finished) {
+            if (session == null || !frames.hasNext()) {
+                finished.countDown();
+                return;
+            }
+            Frame frame = frames.next();
+            long at = runStart + (long) (frame.offsetMicros() * 1_000 / speed);
+            if (at > deadline) {
+                finished.countDown();
+                return;
+            }
+            drivers.schedule(() -> {
+                if (send(frame)) {
+                    sent.incrementAndGet();
+                }
+                drive(drivers, runStart, deadline, speed, sent, finished);
+            }, at - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        private boolean send(Frame frame) {
+            WebSocketSession current = session;
+            if (current == null || !current.isOpen()) {
+                return false;
+            }
+            String payload = frame.payload();
+            String plate = playerId;
+            if (plate != null && payload.indexOf('-') >= 0) {
+                payload = PLATE.matcher(payload).replaceAll(plate);
+            }
+            // Una posición igual a la anterior ya está en los snapshots: no mide nada
+            if (!Double.isNaN(frame.x()) && (frame.x() != lastX || frame.y() != lastY)) {
+                lastX = frame.x();
+                lastY = frame.y();
+                sentAt = System.nanoTime();
+                pendingY = frame.y();
+                pendingX = frame.x();
+            }
+            try {
+                current.sendMessage(new TextMessage(payload));
+                return true;
+            } catch (IOException | RuntimeException e) {
+                pendingX = Double.NaN;
+                return false;
+            }
+        }
+
+        @Override
+        protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
+            received.incrementAndGet();
+            String payload = message.getPayload();
+            String plate = playerId;
+            if (plate == null) {
+                if (payload.contains("PLAYER_ID")) {
+                    playerId = objectMapper.readTree(payload).path("playerId").asText();
+                    ready.countDown();
+                }
+                return;
+            }
+            double x = pendingX;
+            if (Double.isNaN(x) || !payload.contains("positions") || !payload.contains(plate)) {
+                return;
+            }
+            JsonNode own = objectMapper.readTree(payload).path("players").path(plate);
+            if (!own.isMissingNode() && Math.abs(own.path("x").asDouble() - x) < 0.01
+                    && Math.abs(own.path("y").asDouble() - pendingY) < 0.01) {
+                long latency = System.nanoTime() - sentAt;
+                pendingX = Double.NaN;
+                synchronized (latencies) {
+                    latencies.add(latency);
+                }
+            }
+        }
+
+        void close() {
+            WebSocketSession current = session;
+            if (current != null && current.isOpen()) {
+                try {
+                    current.close();
+                } catch (IOException e) {
+                    // Ya se está cerrando
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package juego.arsw;
+
+import juego.arsw.game.TileMap;
+import juego.arsw.game.TrafficRecorder;
+import juego.arsw.config.GameProperties;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadGeneratorTest {
+
+    private static final double TILE_SIZE = 78;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testSyntheticBusesStayOnTheRoads() {
+        TileMap map = TileMap.load(TileMap.DEFAULT_MAP);
+        for (long seed = 0; seed < 20; seed++) {
+            LoadGenerator.RoadDriver driver = new LoadGenerator.RoadDriver(map, TILE_SIZE, 20, 2_000, "bus",
+                    new SplittableRandom(seed));
+            double lastX = Double.NaN;
+            double lastY = Double.NaN;
+            long lastOffset = -1;
+            while (driver.hasNext()) {
+                LoadGenerator.Frame frame = driver.next();
+                assertTrue(LoadGenerator.ROAD_TILES.contains(map.tileAt(driver.column(), driver.row())));
+                assertTrue(frame.offsetMicros() > lastOffset);
+                if (!Double.isNaN(lastX)) {
+                    // Nunca más de un paso de bus entre dos frames
+                    double step = Math.abs(frame.x() - lastX) + Math.abs(frame.y() - lastY);
+                    assertTrue(step <= LoadGenerator.BUS_PIXELS_PER_SECOND / 20 + 1, "step " + step);
+                }
+                lastX = frame.x();
+                lastY = frame.y();
+                lastOffset = frame.offsetMicros();
+            }
+        }
+    }
+
+    @Test
+    void testSyntheticScriptsSpreadOverRooms() {
+        List<LoadGenerator.ClientScript> scripts = LoadGenerator.synthetic(TileMap.load(TileMap.DEFAULT_MAP),
+                TILE_SIZE, 6, 3, 10, Duration.ofSeconds(2), 1);
+
+        assertEquals(6, scripts.size());
+        assertEquals("load-0", scripts.get(0).room());
+        assertEquals("load-0", scripts.get(3).room());
+        LoadGenerator.Frame first = scripts.get(0).frames().next();
+        // El primer frame trae el nombre con el que se crea el bus
+        assertTrue(first.payload().contains("\"name\":\"load-0\""));
+        int frames = 1;
+        while (scripts.get(0).frames().hasNext()) {
+            scripts.get(0).frames().next();
+            frames++;
+        }
+        assertEquals(20, frames);
+    }
+
+    @Test
+    void testRecordedSessionsBecomeScripts() throws Exception {
+        GameProperties.Recording properties = new GameProperties.Recording();
+        properties.setFlushIntervalMillis(0);
+        TrafficRecorder recorder = TrafficRecorder.start(dir, properties);
+        recorder.opened("s1", "r1");
+        recorder.frame("s1", "{\"x\":10,\"y\":20}");
+        recorder.opened("s2", "r2");
+        recorder.frame("s2", "{\"type\":\"ack\",\"tick\":1}");
+        recorder.frame("s1", "{\"id\":\"ABC-123\",\"hasPerson\":\"1\"}");
+        recorder.close();
+
+        // Tres clientes con dos sesiones grabadas: el tercero repite la primera
+        List<LoadGenerator.ClientScript> scripts = LoadGenerator.fromRecording(recorder.getFile(), 3);
+
+        assertEquals(3, scripts.size());
+        assertEquals("r1", scripts.get(0).room());
+        assertEquals("r2", scripts.get(1).room());
+        assertEquals("r1", scripts.get(2).room());
+        LoadGenerator.Frame move = scripts.get(2).frames().next();
+        assertEquals(10, move.x());
+        assertEquals(20, move.y());
+        LoadGenerator.Frame cargo = scripts.get(2).frames().next();
+        assertTrue(Double.isNaN(cargo.x()));
+        assertTrue(cargo.offsetMicros() >= move.offsetMicros());
+        assertFalse(scripts.get(2).frames().hasNext());
+    }
+}
@@ -0,0 +1,47 @@
+package juego.arsw;
+
+import juego.arsw.security.LoginAttempts;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoginAttemptsTest {
+
+    private final LoginAttempts attempts = new LoginAttempts();
+
+    @Test
+    void testBlocksAfterMaxFailures() {
+        for (int i = 1; i < LoginAttempts.MAX_FAILURES; i++) {
+            attempts.registerFailure("andres");
+            assertFalse(attempts.isBlocked("andres"));
+        }
+        attempts.registerFailure("andres");
+
+        assertTrue(attempts.isBlocked("andres"));
+        long remaining = attempts.getRemainingBlockMillis("andres");
+        assertTrue(remaining > 0 && remaining <= LoginAttempts.BLOCK_MILLIS);
+        // Los demás usuarios no se ven afectados
+        assertFalse(attempts.isBlocked("paula"));
+    }
+
+    @Test
+    void testResetForgetsTheFailures() {
+        attempts.registerFailure("andres");
+        attempts.registerFailure("andres");
+        attempts.reset("andres");
+        attempts.registerFailure("andres");
+
+        assertFalse(attempts.isBlocked("andres"));
+        assertEquals(1, attempts.size());
+    }
+
+    @Test
+    void testNullUserIsIgnored() {
+        attempts.registerFailure(null);
+        attempts.reset(null);
+
+        assertFalse(attempts.isBlocked(null));
+        assertEquals(0, attempts.size());
+    }
+}
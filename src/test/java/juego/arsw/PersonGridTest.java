@@ -0,0 +1,86 @@
+package juego.arsw;
+
+import juego.arsw.game.PersonGrid;
+import juego.arsw.model.EntityPerson;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersonGridTest {
+
+    private PersonGrid grid;
+
+    @BeforeEach
+    void setUp() {
+        // Celdas de 4x4 tiles
+        grid = new PersonGrid(4);
+    }
+
+    private static Set<String> idsOf(List<EntityPerson> persons) {
+        Set<String> ids = new HashSet<>();
+        for (EntityPerson person : persons) {
+            ids.add(person.getId());
+        }
+        return ids;
+    }
+
+    @Test
+    void testWithinReturnsOnlyPersonsInsideTheSquare() {
+        grid.add(new EntityPerson("p1", 4, 6, "PersonaCorbata.png"));
+        grid.add(new EntityPerson("p2", 5, 5, "personaCampesino.png"));
+        grid.add(new EntityPerson("p3", 3, 7, "personaEstudiante.png"));
+        grid.add(new EntityPerson("p4", 14, 9, "tombo1.png"));
+        // En una celda vecina pero fuera del radio
+        grid.add(new EntityPerson("p5", 7, 6, "mujer.png"));
+
+        assertEquals(Set.of("p1", "p2", "p3"), idsOf(grid.within(4, 6, 1)));
+        assertEquals(Set.of("p4"), idsOf(grid.within(15, 10, 1)));
+        assertTrue(grid.within(10, 1, 1).isEmpty());
+    }
+
+    @Test
+    void testRemoveTakesPersonOutOfQueries() {
+        grid.add(new EntityPerson("p1", 4, 6, "PersonaCorbata.png"));
+
+        assertNotNull(grid.remove("p1"));
+        // Una segunda recogida ya no la encuentra
+        assertNull(grid.remove("p1"));
+        assertFalse(grid.contains("p1"));
+        assertTrue(grid.isEmpty());
+        assertTrue(grid.within(4, 6, 2).isEmpty());
+    }
+
+    @Test
+    void testAddWithSameIdRelocates() {
+        grid.add(new EntityPerson("p1", 1, 1, "mujer.png"));
+        grid.add(new EntityPerson("p1", 12, 9, "mujer.png"));
+
+        assertEquals(1, grid.size());
+        assertTrue(grid.within(1, 1, 1).isEmpty());
+        assertEquals(Set.of("p1"), idsOf(grid.within(12, 9, 0)));
+        assertEquals(12, grid.get("p1").getX());
+    }
+
+    @Test
+    void testNegativeCoordinatesAndCellBorders() {
+        grid.add(new EntityPerson("p1", -1, -1, "tombo.png"));
+        grid.add(new EntityPerson("p2", 0, 0, "tombo.png"));
+        grid.add(new EntityPerson("p3", 3, 3, "tombo.png"));
+        grid.add(new EntityPerson("p4", 4, 4, "tombo.png"));
+
+        assertEquals(Set.of("p1", "p2"), idsOf(grid.within(0, 0, 1)));
+        assertEquals(Set.of("p3", "p4"), idsOf(grid.within(4, 3, 1)));
+        assertEquals(4, grid.values().size());
+    }
+
+    @Test
+    void testInvalidCellSize() {
+        assertThrows(IllegalArgumentException.class, () -> new PersonGrid(0));
+    }
+}
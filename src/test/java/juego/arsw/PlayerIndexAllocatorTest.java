@@ -0,0 +1,47 @@
+package juego.arsw;
+
+import juego.arsw.game.PlayerIndexAllocator;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlayerIndexAllocatorTest {
+
+    @Test
+    void testAcquireIsDenseAndIdempotent() {
+        PlayerIndexAllocator allocator = new PlayerIndexAllocator(10);
+
+        assertEquals(0, allocator.acquire("AAA-111"));
+        assertEquals(1, allocator.acquire("BBB-222"));
+        assertEquals(0, allocator.acquire("AAA-111"));
+        assertEquals(1, allocator.indexOf("BBB-222"));
+        assertEquals(PlayerIndexAllocator.NO_INDEX, allocator.indexOf("CCC-333"));
+    }
+
+    @Test
+    void testRetiredIndexIsReusedOnlyAfterReclaim() {
+        PlayerIndexAllocator allocator = new PlayerIndexAllocator(10);
+        allocator.acquire("AAA-111");
+        allocator.retire("AAA-111", 5);
+
+        // Sigue resolviendo para poder anunciar la baja
+        assertEquals(0, allocator.indexOf("AAA-111"));
+        assertEquals(1, allocator.acquire("BBB-222"));
+
+        allocator.reclaim(4);
+        assertEquals(0, allocator.indexOf("AAA-111"));
+
+        allocator.reclaim(5);
+        assertEquals(PlayerIndexAllocator.NO_INDEX, allocator.indexOf("AAA-111"));
+        assertEquals(0, allocator.acquire("CCC-333"));
+    }
+
+    @Test
+    void testCapacityExhausted() {
+        PlayerIndexAllocator allocator = new PlayerIndexAllocator(1);
+        allocator.acquire("AAA-111");
+
+        assertThrows(IllegalStateException.class, () -> allocator.acquire("BBB-222"));
+    }
+}
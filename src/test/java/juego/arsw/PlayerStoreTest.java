@@ -0,0 +1,100 @@
+package juego.arsw;
+
+import juego.arsw.game.BinaryPositionEncoder;
+import juego.arsw.game.PlayerIndexAllocator;
+import juego.arsw.game.PlayerStore;
+import juego.arsw.model.User;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlayerStoreTest {
+
+    private PlayerIndexAllocator indexes;
+    private PlayerStore store;
+
+    @BeforeEach
+    void setUp() {
+        indexes = new PlayerIndexAllocator(1 << 16);
+        store = new PlayerStore(indexes);
+    }
+
+    private Set<String> liveIds() {
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < store.size(); i++) {
+            ids.add(store.id(store.slotAt(i)));
+        }
+        return ids;
+    }
+
+    @Test
+    void testSlotIsTheBinaryIndex() {
+        int slot = store.add("AAA-111", "Bus");
+
+        assertEquals(indexes.indexOf("AAA-111"), slot);
+        assertEquals(slot, store.slotOf("AAA-111"));
+        // Añadirlo otra vez no cambia nada
+        assertEquals(slot, store.add("AAA-111", "Otro"));
+        assertEquals("Bus", store.name(slot));
+        assertEquals(PlayerStore.NO_SLOT, store.slotOf("BBB-222"));
+    }
+
+    @Test
+    void testNewPlayerMatchesUserDefaults() {
+        store.add("AAA-111", "Bus");
+
+        User view = store.view("AAA-111");
+        assertEquals(0.0, view.getX());
+        assertEquals(0.0, view.getY());
+        assertEquals("right", view.getDirection());
+        assertEquals("0", view.getHasPerson());
+        assertEquals("Bus", view.getName());
+        assertNull(store.view("BBB-222"));
+    }
+
+    @Test
+    void testRemoveKeepsTheLiveListDense() {
+        store.add("AAA-111", "A");
+        store.add("BBB-222", "B");
+        store.add("CCC-333", "C");
+
+        assertTrue(store.remove("AAA-111"));
+        assertFalse(store.remove("AAA-111"));
+
+        assertEquals(2, store.size());
+        assertEquals(Set.of("BBB-222", "CCC-333"), liveIds());
+        assertFalse(store.contains("AAA-111"));
+    }
+
+    @Test
+    void testGrowsPastInitialCapacity() {
+        for (int i = 0; i < 1000; i++) {
+            int slot = store.add("P" + i, "Bus" + i);
+            store.setPosition(slot, i, -i);
+            store.setDirection(slot, BinaryPositionEncoder.DIRECTION_UP);
+        }
+
+        assertEquals(1000, store.size());
+        int slot = store.slotOf("P999");
+        assertEquals(999f, store.x(slot));
+        assertEquals(-999f, store.y(slot));
+        assertEquals("up", store.view("P999").getDirection());
+    }
+
+    @Test
+    void testParseCargo() {
+        assertEquals(0, PlayerStore.parseCargo("0"));
+        assertEquals(5, PlayerStore.parseCargo(" 5 "));
+        assertThrows(IllegalArgumentException.class, () -> PlayerStore.parseCargo("yes"));
+        assertThrows(IllegalArgumentException.class, () -> PlayerStore.parseCargo("1.5"));
+        // El frontend puede bajar de cero al chocar; fuera de rango se acota
+        assertEquals(0, PlayerStore.parseCargo("-1"));
+        assertEquals(Byte.MAX_VALUE, PlayerStore.parseCargo("500"));
+        assertEquals(Byte.MAX_VALUE, PlayerStore.parseCargo("99999999999999999999"));
+    }
+}
@@ -0,0 +1,128 @@
+package juego.arsw;
+
+import juego.arsw.game.RoomEventLoop;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoomEventLoopTest {
+
+    @Test
+    void testCommandsRunInOrderOnlyWhenDrained() {
+        Queue<Runnable> scheduled = new ArrayDeque<>();
+        RoomEventLoop loop = new RoomEventLoop("test", scheduled::add, 256);
+        List<Integer> order = new ArrayList<>();
+
+        loop.execute(() -> order.add(1));
+        loop.execute(() -> order.add(2));
+        loop.execute(() -> order.add(3));
+
+        // Un solo drenado programado para los tres comandos
+        assertEquals(1, scheduled.size());
+        assertTrue(order.isEmpty());
+        assertEquals(3, loop.getQueueDepth());
+
+        scheduled.poll().run();
+        assertEquals(List.of(1, 2, 3), order);
+        assertEquals(0, loop.getQueueDepth());
+        assertEquals(3, loop.getExecutedCommands());
+    }
+
+    @Test
+    void testDrainYieldsAfterBatch() {
+        Queue<Runnable> scheduled = new ArrayDeque<>();
+        RoomEventLoop loop = new RoomEventLoop("test", scheduled::add, 2);
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            int value = i;
+            loop.execute(() -> order.add(value));
+        }
+
+        scheduled.poll().run();
+        assertEquals(List.of(0, 1), order);
+        // Cedió el hilo y se volvió a programar para el resto
+        assertEquals(1, scheduled.size());
+
+        while (!scheduled.isEmpty()) {
+            scheduled.poll().run();
+        }
+        assertEquals(List.of(0, 1, 2, 3, 4), order);
+    }
+
+    @Test
+    void testCommandsQueuedFromInsideTheLoopRunAfterTheCurrentOne() {
+        RoomEventLoop loop = new RoomEventLoop("test", Runnable::run, 256);
+        List<String> order = new ArrayList<>();
+
+        loop.execute(() -> {
+            assertTrue(loop.inLoop());
+            loop.execute(() -> order.add("inner"));
+            order.add("outer");
+        });
+
+        assertEquals(List.of("outer", "inner"), order);
+        assertFalse(loop.inLoop());
+    }
+
+    @Test
+    void testFailingCommandDoesNotStopTheLoop() {
+        RoomEventLoop loop = new RoomEventLoop("test", Runnable::run, 256);
+        List<String> order = new ArrayList<>();
+
+        loop.execute(() -> {
+            throw new IllegalStateException("boom");
+        });
+        loop.execute(() -> order.add("after"));
+
+        assertEquals(List.of("after"), order);
+        assertEquals(1, loop.getFailedCommands());
+        assertEquals(1, loop.getExecutedCommands());
+    }
+
+    @Test
+    void testSingleWriterUnderConcurrentProducers() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        ExecutorService producers = Executors.newFixedThreadPool(8);
+        try {
+            RoomEventLoop loop = new RoomEventLoop("test", pool, 16);
+            int[] counter = new int[1]; // sin sincronizar: solo lo toca el bucle
+            int perProducer = 10_000;
+            CountDownLatch done = new CountDownLatch(8 * perProducer);
+
+            for (int p = 0; p < 8; p++) {
+                producers.execute(() -> {
+                    for (int i = 0; i < perProducer; i++) {
+                        loop.execute(() -> {
+                            counter[0]++;
+                            done.countDown();
+                        });
+                    }
+                });
+            }
+
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            CountDownLatch last = new CountDownLatch(1);
+            loop.execute(last::countDown);
+            assertTrue(last.await(5, TimeUnit.SECONDS));
+            assertEquals(8 * perProducer, counter[0]);
+        } finally {
+            producers.shutdownNow();
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void testInvalidBatchSize() {
+        assertThrows(IllegalArgumentException.class, () -> new RoomEventLoop("test", Runnable::run, 0));
+    }
+}
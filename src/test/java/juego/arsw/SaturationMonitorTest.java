@@ -0,0 +1,172 @@
+package juego.arsw;
+
+import juego.arsw.config.GameProperties;
+import juego.arsw.controller.HealthyController;
+import juego.arsw.controller.UserRestController;
+import juego.arsw.game.SaturationMonitor;
+import juego.arsw.game.SaturationMonitor.Load;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class SaturationMonitorTest {
+
+    private GameProperties.Readiness properties;
+    // Carga que devuelve el proveedor en la próxima evaluación
+    private Load load = new Load(0, 0, 0, 0, 0, 100);
+
+    @BeforeEach
+    void setUp() {
+        properties = new GameProperties.Readiness();
+        // Sin hilo propio: las pruebas evalúan a mano
+        properties.setIntervalMillis(0);
+        properties.setMaxTickOverrunRatio(0.2);
+        properties.setMaxAverageQueueDepth(10);
+        properties.setMaxSessions(100);
+        properties.setMaxHeapUsedRatio(0.9);
+    }
+
+    private SaturationMonitor open() {
+        return new SaturationMonitor(properties, () -> load);
+    }
+
+    @Test
+    void testEachSignalSaturatesTheNode() {
+        SaturationMonitor monitor = open();
+        load = new Load(100, 10, 50, 10, 50, 100);
+        assertTrue(monitor.evaluate().ready());
+
+        // Los ticks cuentan por diferencia con la evaluación anterior: 30 de 100 tarde
+        load = new Load(200, 40, 50, 10, 50, 100);
+        SaturationMonitor.Status status = monitor.evaluate();
+        assertFalse(status.ready());
+        assertEquals(0.3, status.tickOverrunRatio(), 1e-9);
+        assertEquals(List.of("tick overruns 30%"), status.reasons());
+
+        monitor = open();
+        load = new Load(0, 0, 200, 10, 50, 100);
+        assertEquals(List.of("outbound backlog 20.0 messages per session"), monitor.evaluate().reasons());
+
+        monitor = open();
+        load = new Load(0, 0, 0, 100, 50, 100);
+        assertEquals(List.of("sessions 100 of 100"), monitor.evaluate().reasons());
+
+        monitor = open();
+        load = new Load(0, 0, 0, 10, 95, 100);
+        assertEquals(List.of("heap 95% used"), monitor.evaluate().reasons());
+    }
+
+    @Test
+    void testRecoveryNeedsEverySignalWellBelowItsLimit() {
+        SaturationMonitor monitor = open();
+        List<Boolean> changes = new ArrayList<>();
+        monitor.setListener(changes::add);
+
+        load = new Load(0, 0, 0, 100, 0, 100);
+        assertFalse(monitor.evaluate().ready());
+        // Por debajo del límite pero no del 80%: sigue saturado
+        load = new Load(0, 0, 0, 90, 0, 100);
+        assertFalse(monitor.evaluate().ready());
+        load = new Load(0, 0, 0, 79, 0, 100);
+        assertTrue(monitor.evaluate().ready());
+        // Listo otra vez, el límite vuelve a ser el completo
+        load = new Load(0, 0, 0, 90, 0, 100);
+        assertTrue(monitor.evaluate().ready());
+
+        assertEquals(List.of(false, true), changes);
+    }
+
+    @Test
+    void testSaturatedNodeRejectsNewSessionsAndReportsNotReady() throws Exception {
+        GameProperties game = new GameProperties();
+        game.getTick().setRateHz(1);
+        UserRestController controller = new UserRestController(game, Runnable::run, Runnable::run);
+        SaturationMonitor monitor = open();
+        controller.setSaturation(monitor);
+        HealthyController health = new HealthyController();
+        health.setSaturation(monitor);
+
+        WebSocketSession first = session("session-a");
+        controller.afterConnectionEstablished(first);
+        assertEquals(200, health.readiness().getStatusCode().value());
+
+        load = new Load(0, 0, 0, 100, 0, 100);
+        monitor.evaluate();
+        WebSocketSession second = session("session-b");
+        controller.afterConnectionEstablished(second);
+
+        ArgumentCaptor<CloseStatus> captor = ArgumentCaptor.forClass(CloseStatus.class);
+        verify(second).close(captor.capture());
+        assertEquals(CloseStatus.SERVICE_OVERLOAD.getCode(), captor.getValue().getCode());
+        // Quien ya estaba dentro sigue conectado
+        verify(first, never()).close(any());
+        assertEquals(1, controller.getSessionCount());
+
+        var response = health.readiness();
+        assertEquals(503, response.getStatusCode().value());
+        Map<String, Object> body = response.getBody();
+        assertEquals(false, body.get("ready"));
+        assertEquals(List.of("sessions 100 of 100"), body.get("reasons"));
+        assertEquals("OK", health.healthCheck().getBody());
+
+        controller.afterConnectionClosed(first, CloseStatus.NORMAL);
+    }
+
+    @Test
+    void testSessionLimitIsCheckedOnEveryConnectionNotOnlyOnEvaluation() throws Exception {
+        GameProperties game = new GameProperties();
+        game.getTick().setRateHz(1);
+        UserRestController controller = new UserRestController(game, Runnable::run, Runnable::run);
+        properties.setMaxSessions(3);
+        SaturationMonitor monitor = open();
+        controller.setSaturation(monitor);
+
+        // Ninguna evaluación entre medias: el estado en caché sigue diciendo que está listo
+        List<WebSocketSession> admitted = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            WebSocketSession session = session("session-" + i);
+            controller.afterConnectionEstablished(session);
+            verify(session, never()).close(any());
+            admitted.add(session);
+        }
+        WebSocketSession burst = session("session-burst");
+        controller.afterConnectionEstablished(burst);
+        assertTrue(monitor.isReady());
+        ArgumentCaptor<CloseStatus> captor = ArgumentCaptor.forClass(CloseStatus.class);
+        verify(burst).close(captor.capture());
+        assertEquals(CloseStatus.SERVICE_OVERLOAD.getCode(), captor.getValue().getCode());
+        assertEquals(3, controller.getSessionCount());
+
+        // Al irse una, su puesto vuelve a estar libre
+        controller.afterConnectionClosed(admitted.get(0), CloseStatus.NORMAL);
+        WebSocketSession next = session("session-next");
+        controller.afterConnectionEstablished(next);
+        verify(next, never()).close(any());
+        assertEquals(3, controller.getSessionCount());
+
+        for (WebSocketSession session : admitted.subList(1, 3)) {
+            controller.afterConnectionClosed(session, CloseStatus.NORMAL);
+        }
+        controller.afterConnectionClosed(next, CloseStatus.NORMAL);
+    }
+
+    private static WebSocketSession session(String id) {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn(id);
+        when(session.isOpen()).thenReturn(true);
+        when(session.getUri()).thenReturn(URI.create("ws://localhost/game?room=r1"));
+        return session;
+    }
+}
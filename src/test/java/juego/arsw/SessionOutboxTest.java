@@ -0,0 +1,172 @@
+package juego.arsw;
+
+import juego.arsw.game.SessionOutbox;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class SessionOutboxTest {
+
+    private WebSocketSession session;
+    private Queue<Runnable> tasks;
+
+    @BeforeEach
+    void setUp() {
+        session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn("session-1");
+        when(session.isOpen()).thenReturn(true);
+        tasks = new ArrayDeque<>();
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    @Test
+    void testMessagesAreSentOffTheCallerThreadInOrder() throws Exception {
+        SessionOutbox outbox = new SessionOutbox(session, tasks::add, 1000, 1024);
+
+        outbox.send(new TextMessage("uno"));
+        outbox.send(new TextMessage("dos"));
+
+        // Nada se envía hasta que corre el executor
+        verify(session, never()).sendMessage(any());
+        assertEquals(2, outbox.getQueueDepth());
+        assertEquals(6, outbox.getBufferedBytes());
+
+        runTasks();
+
+        ArgumentCaptor<TextMessage> captor = ArgumentCaptor.forClass(TextMessage.class);
+        verify(session, times(2)).sendMessage(captor.capture());
+        assertEquals("uno", captor.getAllValues().get(0).getPayload());
+        assertEquals("dos", captor.getAllValues().get(1).getPayload());
+        assertEquals(0, outbox.getQueueDepth());
+        assertEquals(0, outbox.getBufferedBytes());
+        assertEquals(2, outbox.getSentMessages());
+    }
+
+    @Test
+    void testStalePositionsAreReplaced() throws Exception {
+        SessionOutbox outbox = new SessionOutbox(session, tasks::add, 1000, 1024);
+
+        outbox.sendPositions(new TextMessage("p1"));
+        outbox.sendPositions(new TextMessage("p2"));
+        outbox.sendPositions(new TextMessage("p3"));
+
+        assertEquals(1, outbox.getQueueDepth());
+        assertEquals(2, outbox.getDroppedPositions());
+
+        runTasks();
+
+        ArgumentCaptor<TextMessage> captor = ArgumentCaptor.forClass(TextMessage.class);
+        verify(session, times(1)).sendMessage(captor.capture());
+        assertEquals("p3", captor.getValue().getPayload());
+    }
+
+    @Test
+    void testBufferLimitDropsPositionsThenDisconnects() throws Exception {
+        SessionOutbox outbox = new SessionOutbox(session, tasks::add, 1000, 10);
+
+        outbox.sendPositions(new TextMessage("pos"));
+        outbox.send(new TextMessage("1234567"));
+        assertEquals(2, outbox.getQueueDepth());
+        assertEquals(10, outbox.getBufferedBytes());
+
+        // Sin espacio: primero se descartan las posiciones pendientes
+        outbox.send(new TextMessage("12"));
+        assertEquals(2, outbox.getQueueDepth());
+        assertEquals(1, outbox.getDroppedPositions());
+        assertFalse(outbox.isClosed());
+
+        // Un snapshot que no cabe se descarta sin desconectar
+        outbox.sendPositions(new TextMessage("pos"));
+        assertEquals(2, outbox.getDroppedPositions());
+        assertFalse(outbox.isClosed());
+
+        // Si aun así no cabe, la sesión se desconecta
+        outbox.send(new TextMessage("12"));
+        assertTrue(outbox.isClosed());
+        assertEquals(0, outbox.getQueueDepth());
+
+        runTasks();
+        verify(session).close(CloseStatus.SESSION_NOT_RELIABLE);
+        verify(session, never()).sendMessage(any());
+
+        // Tras desconectar, lo que llegue se ignora
+        outbox.send(new TextMessage("x"));
+        assertEquals(0, outbox.getQueueDepth());
+    }
+
+    @Test
+    void testSendTimeLimitDisconnects() throws Exception {
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            sending.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(session).sendMessage(any());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            SessionOutbox outbox = new SessionOutbox(session, executor, 10, 1024);
+            outbox.send(new TextMessage("lento"));
+            assertTrue(sending.await(5, TimeUnit.SECONDS));
+            Thread.sleep(30);
+
+            outbox.sendPositions(new TextMessage("pos"));
+            assertTrue(outbox.isClosed());
+
+            release.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+            verify(session).close(CloseStatus.SESSION_NOT_RELIABLE);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testSendFailuresAreCounted() throws Exception {
+        doThrow(new IOException("broken pipe")).when(session).sendMessage(any(WebSocketMessage.class));
+        SessionOutbox outbox = new SessionOutbox(session, Runnable::run, 1000, 1024);
+
+        outbox.send(new TextMessage("uno"));
+        outbox.send(new TextMessage("dos"));
+
+        assertEquals(2, outbox.getSendFailures());
+        assertEquals(0, outbox.getSentMessages());
+        assertFalse(outbox.isClosed());
+    }
+
+    @Test
+    void testClosedSessionIsSkipped() throws Exception {
+        when(session.isOpen()).thenReturn(false);
+        SessionOutbox outbox = new SessionOutbox(session, Runnable::run, 1000, 1024);
+
+        outbox.send(new TextMessage("uno"));
+
+        verify(session, never()).sendMessage(any());
+        assertEquals(0, outbox.getQueueDepth());
+    }
+}
@@ -0,0 +1,112 @@
+package juego.arsw;
+
+import juego.arsw.game.SnapshotFile;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotFileTest {
+
+    @TempDir
+    Path dir;
+
+    private static ByteBuffer bytes(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String text(ByteBuffer buffer) {
+        return StandardCharsets.UTF_8.decode(buffer.duplicate()).toString();
+    }
+
+    @Test
+    void testLatestSnapshotWinsAndSurvivesReopen() throws Exception {
+        Path path = dir.resolve("state.bin");
+        try (SnapshotFile file = SnapshotFile.open(path, 64)) {
+            assertNull(file.readLatest());
+            file.write(bytes("first"));
+            file.write(bytes("second"));
+            file.write(bytes("third"));
+            assertEquals("third", text(file.readLatest()));
+            assertEquals(3, file.getSequence());
+        }
+
+        try (SnapshotFile file = SnapshotFile.open(path, 64)) {
+            assertEquals("third", text(file.readLatest()));
+            // Sigue la secuencia y escribe en el hueco más viejo
+            file.write(bytes("fourth"));
+            assertEquals(4, file.getSequence());
+            assertEquals("fourth", text(file.readLatest()));
+        }
+        assertEquals(2 * (SnapshotFile.SLOT_HEADER + 64), Files.size(path));
+    }
+
+    @Test
+    void testTornWriteFallsBackToThePreviousSnapshot() throws Exception {
+        Path path = dir.resolve("state.bin");
+        try (SnapshotFile file = SnapshotFile.open(path, 64)) {
+            file.write(bytes("older"));
+            file.write(bytes("newer"));
+        }
+
+        // La secuencia 2 está en el hueco 0: se corrompe un byte de sus datos
+        try (RandomAccessFile raw = new RandomAccessFile(path.toFile(), "rw")) {
+            raw.seek(SnapshotFile.SLOT_HEADER);
+            raw.write('X');
+        }
+
+        try (SnapshotFile file = SnapshotFile.open(path, 64)) {
+            assertEquals("older", text(file.readLatest()));
+            assertEquals(1, file.getSequence());
+        }
+    }
+
+    @Test
+    void testInvalidatedSlotIsIgnored() throws Exception {
+        Path path = dir.resolve("state.bin");
+        try (SnapshotFile file = SnapshotFile.open(path, 64)) {
+            file.write(bytes("older"));
+            file.write(bytes("newer"));
+        }
+
+        // Un corte justo después de invalidar la cabecera deja el hueco sin magia
+        try (RandomAccessFile raw = new RandomAccessFile(path.toFile(), "rw")) {
+            raw.seek(0);
+            raw.writeInt(0);
+        }
+
+        try (SnapshotFile file = SnapshotFile.open(path, 64)) {
+            assertEquals("older", text(file.readLatest()));
+        }
+    }
+
+    @Test
+    void testSnapshotThatDoesNotFitIsRejected() throws Exception {
+        try (SnapshotFile file = SnapshotFile.open(dir.resolve("state.bin"), 8)) {
+            file.write(bytes("small"));
+            assertThrows(IllegalArgumentException.class, () -> file.write(bytes("much too large")));
+            assertEquals("small", text(file.readLatest()));
+        }
+    }
+
+    @Test
+    void testChangingTheCapacityKeepsTheLatestSnapshot() throws Exception {
+        Path path = dir.resolve("state.bin");
+        try (SnapshotFile file = SnapshotFile.open(path, 16)) {
+            file.write(bytes("one"));
+            file.write(bytes("two"));
+        }
+
+        try (SnapshotFile file = SnapshotFile.open(path, 128)) {
+            assertEquals("two", text(file.readLatest()));
+        }
+        assertEquals(2 * (SnapshotFile.SLOT_HEADER + 128), Files.size(path));
+    }
+}
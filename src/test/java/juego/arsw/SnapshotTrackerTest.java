@@ -0,0 +1,94 @@
+package juego.arsw;
+
+import juego.arsw.game.SnapshotTracker;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotTrackerTest {
+
+    private SnapshotTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        tracker = new SnapshotTracker(10);
+    }
+
+    @Test
+    void testAdvanceWithoutChanges() {
+        assertFalse(tracker.advance(1));
+        assertEquals(1, tracker.getCurrentTick());
+    }
+
+    @Test
+    void testNewClientNeedsFullSnapshot() {
+        tracker.advance(1);
+
+        assertEquals(SnapshotTracker.FULL_SNAPSHOT, tracker.baselineFor("ABC-123"));
+    }
+
+    @Test
+    void testChangedSinceBaseline() {
+        tracker.markChanged("ABC-123");
+        tracker.markChanged("DEF-456");
+        assertTrue(tracker.advance(1));
+        tracker.acknowledge("ABC-123", 1);
+
+        tracker.markChanged("DEF-456");
+        assertTrue(tracker.advance(2));
+
+        assertEquals(1, tracker.baselineFor("ABC-123"));
+        assertEquals(List.of("DEF-456"), tracker.changedSince(1));
+        assertEquals(2, tracker.changedSince(0).size());
+    }
+
+    @Test
+    void testRemovedSinceBaseline() {
+        tracker.markChanged("ABC-123");
+        tracker.advance(1);
+
+        tracker.markRemoved("ABC-123");
+        assertTrue(tracker.advance(2));
+
+        assertEquals(List.of("ABC-123"), tracker.removedSince(1));
+        assertTrue(tracker.changedSince(0).isEmpty());
+    }
+
+    @Test
+    void testOldRemovalsArePruned() {
+        tracker.markRemoved("ABC-123");
+        tracker.advance(1);
+
+        tracker.advance(20);
+
+        assertTrue(tracker.removedSince(0).isEmpty());
+    }
+
+    @Test
+    void testClientTooFarBehindFallsBackToFull() {
+        tracker.advance(1);
+        tracker.acknowledge("ABC-123", 1);
+        assertEquals(1, tracker.baselineFor("ABC-123"));
+
+        tracker.advance(12);
+
+        assertEquals(SnapshotTracker.FULL_SNAPSHOT, tracker.baselineFor("ABC-123"));
+    }
+
+    @Test
+    void testAcknowledgeIgnoresFutureAndOlderTicks() {
+        tracker.advance(5);
+        tracker.acknowledge("ABC-123", 4);
+        tracker.acknowledge("ABC-123", 3);
+        tracker.acknowledge("ABC-123", 99);
+
+        assertEquals(4, tracker.baselineFor("ABC-123"));
+
+        tracker.forget("ABC-123");
+        assertEquals(SnapshotTracker.FULL_SNAPSHOT, tracker.baselineFor("ABC-123"));
+    }
+}
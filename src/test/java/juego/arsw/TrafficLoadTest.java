@@ -0,0 +1,113 @@
+package juego.arsw;
+
+import juego.arsw.game.TileMap;
+import juego.arsw.game.TrafficRecorder;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledIfSystemProperty;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Carga con {@link LoadGenerator}: buses sintéticos por las calles del mapa o la
+ * reproducción de una grabación, con M clientes a N veces la velocidad original.
+ * Solo corre con {@code mvn -P load test}; se ajusta con
+ * {@code -Dload.clients, -Dload.rooms, -Dload.seconds, -Dload.speed, -Dload.moves-per-second},
+ * y contra un servidor ya arrancado con {@code -Dload.target=ws://host:8080/game}
+ * (más {@code -Dload.recording=fichero.ndjson} para reproducir una grabación).
+ */
+@Tag("load")
+class TrafficLoadTest {
+
+    private static final int CLIENTS = Integer.getInteger("load.clients", 200);
+    private static final int ROOMS = Integer.getInteger("load.rooms", 20);
+    private static final int SECONDS = Integer.getInteger("load.seconds", 10);
+    private static final double SPEED = Double.parseDouble(System.getProperty("load.speed", "4"));
+    private static final double MOVES_PER_SECOND = Double.parseDouble(System.getProperty("load.moves-per-second", "20"));
+    private static final double TILE_SIZE = 78;
+
+    @TempDir
+    Path dir;
+
+    private static LoadGenerator.Options options(URI target, double speed) {
+        return new LoadGenerator.Options(target, CLIENTS, speed, Duration.ofSeconds(SECONDS), 32, 4);
+    }
+
+    private static ConfigurableApplicationContext startServer(String... args) {
+        // Como argumentos para que ganen a application.properties
+        return new SpringApplicationBuilder(ArswApplication.class)
+                .properties("server.port=0", "spring.main.banner-mode=off")
+                .run(args);
+    }
+
+    private static URI targetOf(ConfigurableApplicationContext context) {
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        return URI.create("ws://localhost:" + port + "/game");
+    }
+
+    @Test
+    @DisabledIfSystemProperty(named = "load.target", matches = ".+")
+    void recordSyntheticTrafficAndReplayItFaster() throws Exception {
+        LoadGenerator generator = new LoadGenerator();
+        List<LoadGenerator.ClientScript> synthetic = LoadGenerator.synthetic(TileMap.load(TileMap.DEFAULT_MAP),
+                TILE_SIZE, CLIENTS, ROOMS, MOVES_PER_SECOND, Duration.ofSeconds(SECONDS), 42);
+
+        // Primero se graba una partida sintética a velocidad real...
+        LoadGenerator.Report recorded;
+        try (ConfigurableApplicationContext context = startServer("--game.recording.enabled=true",
+                "--game.recording.directory=" + dir)) {
+            recorded = generator.run(synthetic, options(targetOf(context), 1));
+        }
+        recorded.print(System.out, "synthetic x1, " + CLIENTS + " clients in " + ROOMS + " rooms");
+
+        Path recording;
+        try (Stream<Path> files = Files.list(dir)) {
+            recording = files.filter(path -> path.toString().endsWith(".ndjson")).findFirst().orElseThrow();
+        }
+        assertTrue(TrafficRecorder.read(recording, event -> {
+        }) > CLIENTS);
+
+        // ...y después se reproduce la grabación más rápido contra un servidor nuevo
+        LoadGenerator.Report replayed;
+        try (ConfigurableApplicationContext context = startServer()) {
+            replayed = generator.run(LoadGenerator.fromRecording(recording, CLIENTS),
+                    options(targetOf(context), SPEED));
+        }
+        replayed.print(System.out, "replay x" + SPEED + ", " + CLIENTS + " clients");
+
+        assertTrue(recorded.connected() > 0);
+        assertTrue(recorded.latencyNanos().length > 0);
+        assertTrue(replayed.connected() > 0);
+        assertTrue(replayed.latencyNanos().length > 0);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "load.target", matches = ".+")
+    void loadRunningServer() throws Exception {
+        URI target = URI.create(System.getProperty("load.target"));
+        String recording = System.getProperty("load.recording");
+        List<LoadGenerator.ClientScript> scripts = recording != null
+                ? LoadGenerator.fromRecording(Path.of(recording), CLIENTS)
+                : LoadGenerator.synthetic(TileMap.load(TileMap.DEFAULT_MAP), TILE_SIZE, CLIENTS, ROOMS,
+                        MOVES_PER_SECOND, Duration.ofSeconds((long) Math.ceil(SECONDS * SPEED)), 42);
+
+        LoadGenerator.Report report = new LoadGenerator().run(scripts, options(target, SPEED));
+        report.print(System.out, (recording != null ? "replay of " + recording : "synthetic") + " x" + SPEED
+                + " against " + target);
+
+        assertTrue(report.connected() > 0);
+    }
+}
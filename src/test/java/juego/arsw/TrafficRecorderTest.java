@@ -0,0 +1,110 @@
+package juego.arsw;
+
+import juego.arsw.config.GameProperties;
+import juego.arsw.controller.UserRestController;
+import juego.arsw.game.TrafficRecorder;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TrafficRecorderTest {
+
+    @TempDir
+    Path dir;
+
+    private GameProperties.Recording properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new GameProperties.Recording();
+        // Sin escritura programada: cada prueba decide cuándo escribir
+        properties.setFlushIntervalMillis(0);
+    }
+
+    private static List<TrafficRecorder.Event> readAll(Path file) throws Exception {
+        List<TrafficRecorder.Event> events = new ArrayList<>();
+        TrafficRecorder.read(file, events::add);
+        return events;
+    }
+
+    @Test
+    void testControllerRecordsOpenFramesAndClose() throws Exception {
+        GameProperties game = new GameProperties();
+        game.getTick().setRateHz(1);
+        UserRestController controller = new UserRestController(game, Runnable::run, Runnable::run);
+        TrafficRecorder recorder = TrafficRecorder.start(dir, properties);
+        controller.setRecorder(recorder);
+
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn("session-a");
+        when(session.isOpen()).thenReturn(true);
+        when(session.getUri()).thenReturn(URI.create("ws://localhost/game?room=r1"));
+        controller.afterConnectionEstablished(session);
+        controller.handleTextMessage(session, new TextMessage("{\"x\":10,\"y\":20,\"direction\":\"up\"}"));
+        controller.handleTextMessage(session, new TextMessage("{\"type\":\"ack\",\"tick\":3}"));
+        controller.afterConnectionClosed(session, CloseStatus.NORMAL);
+        recorder.close();
+
+        List<TrafficRecorder.Event> events = readAll(recorder.getFile());
+        assertEquals(4, events.size());
+        assertEquals(TrafficRecorder.OPEN, events.get(0).event());
+        assertEquals("r1", events.get(0).room());
+        assertEquals("{\"x\":10,\"y\":20,\"direction\":\"up\"}", events.get(1).payload());
+        assertEquals(TrafficRecorder.CLOSE, events.get(3).event());
+        for (int i = 0; i < events.size(); i++) {
+            assertEquals("session-a", events.get(i).session());
+            if (i > 0) {
+                // Los instantes no retroceden
+                assertTrue(events.get(i).t() >= events.get(i - 1).t());
+            }
+        }
+        assertEquals(4, recorder.getRecordedCount());
+    }
+
+    @Test
+    void testEventsBeyondThePendingLimitAreDropped() throws Exception {
+        properties.setMaxPendingEvents(2);
+        TrafficRecorder recorder = TrafficRecorder.start(dir, properties);
+        recorder.opened("s1", "default");
+        recorder.frame("s1", "{}");
+        recorder.frame("s1", "{}");
+
+        assertEquals(1, recorder.getDroppedCount());
+        recorder.close();
+        assertEquals(2, readAll(recorder.getFile()).size());
+    }
+
+    @Test
+    void testTornLastLineIsSkipped() throws Exception {
+        TrafficRecorder recorder = TrafficRecorder.start(dir, properties);
+        recorder.opened("s1", "default");
+        recorder.close();
+        Files.writeString(recorder.getFile(), "{\"t\":5,\"session\":\"s1\",\"ev", StandardOpenOption.APPEND);
+
+        assertEquals(1, readAll(recorder.getFile()).size());
+    }
+
+    @Test
+    void testEachStartGetsItsOwnFile() throws Exception {
+        TrafficRecorder first = TrafficRecorder.start(dir, properties);
+        TrafficRecorder second = TrafficRecorder.start(dir, properties);
+        first.close();
+        second.close();
+
+        assertNotEquals(first.getFile(), second.getFile());
+    }
+}
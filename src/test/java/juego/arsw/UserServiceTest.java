@@ -8,6 +8,9 @@ import org.junit.jupiter.api.Test;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -172,4 +175,50 @@ class UserServiceTest {
         // Update name of non-existent user (should not throw exception)
         userService.updateUserName("non-existent", "Another Name");
     }
-}
\ No newline at end of file
+
+    @Test
+    void testGetAllUsersSharesAnImmutableSnapshotUntilMembershipChanges() {
+        userService.createUser(testUser);
+
+        List<User> first = userService.getAllUsers();
+        // Sin altas ni bajas se devuelve la misma lista, sin copiar
+        assertSame(first, userService.getAllUsers());
+        assertThrows(UnsupportedOperationException.class, () -> first.add(new User("other")));
+
+        // Los cambios de posición se ven en la misma lista
+        userService.updateUserPosition("test-id", 1, 2, "up");
+        assertSame(first, userService.getAllUsers());
+        assertEquals(1, first.get(0).getX());
+
+        userService.deleteUser("test-id");
+        assertNotSame(first, userService.getAllUsers());
+        assertTrue(userService.getAllUsers().isEmpty());
+        assertEquals(1, first.size());
+    }
+
+    @Test
+    void testUserWithoutIdIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> userService.processUser(new User()));
+        assertFalse(userService.getUserById(null).isPresent());
+        assertFalse(userService.deleteUser(null));
+    }
+
+    @Test
+    void testConcurrentUpsertsKeepOneUserPerId() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int t = 0; t < 4; t++) {
+                executor.execute(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        userService.processUser(new User("user-" + (i % 100)));
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(100, userService.getAllUsers().size());
+    }
+}
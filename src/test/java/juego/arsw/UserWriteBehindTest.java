@@ -0,0 +1,212 @@
+package juego.arsw;
+
+import juego.arsw.config.GameProperties;
+import juego.arsw.model.User;
+import juego.arsw.persistence.UserBulkWriter;
+import juego.arsw.persistence.UserWriteBehind;
+import juego.arsw.service.UserService;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserWriteBehindTest {
+
+    /** Sustituto en memoria de MongoDB que recuerda cada lote recibido. */
+    static class InMemoryWriter implements UserBulkWriter {
+        final Map<String, User> stored = new ConcurrentHashMap<>();
+        final List<Integer> batchSizes = new ArrayList<>();
+        volatile boolean failing;
+        volatile CountDownLatch written = new CountDownLatch(1);
+
+        @Override
+        public List<User> loadAll() {
+            return new ArrayList<>(stored.values());
+        }
+
+        @Override
+        public synchronized void write(List<User> upserts, List<String> deletes) {
+            if (failing) {
+                throw new IllegalStateException("database unavailable");
+            }
+            for (User user : upserts) {
+                stored.put(user.getId(), user);
+            }
+            for (String id : deletes) {
+                stored.remove(id);
+            }
+            batchSizes.add(upserts.size() + deletes.size());
+            written.countDown();
+        }
+    }
+
+    private InMemoryWriter writer;
+    private GameProperties.Persistence properties;
+    private UserWriteBehind writeBehind;
+
+    @BeforeEach
+    void setUp() {
+        writer = new InMemoryWriter();
+        properties = new GameProperties.Persistence();
+        // Sin volcado programado: cada prueba decide cuándo volcar
+        properties.setFlushIntervalMillis(0);
+        properties.setFlushThreshold(1000);
+        writeBehind = new UserWriteBehind(writer, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        writeBehind.close();
+    }
+
+    @Test
+    void testChangesAreCoalescedPerUser() {
+        User user = new User("AAA-111");
+        for (int i = 0; i < 10; i++) {
+            user.setX(i);
+            writeBehind.save(user);
+        }
+        writeBehind.save(new User("BBB-222"));
+        writeBehind.delete("BBB-222");
+
+        // Nada llega a la base de datos hasta el volcado
+        assertTrue(writer.stored.isEmpty());
+        assertEquals(2, writeBehind.getPendingCount());
+
+        assertTrue(writeBehind.flush());
+
+        assertEquals(List.of(2), writer.batchSizes);
+        assertEquals(9, writer.stored.get("AAA-111").getX());
+        assertFalse(writer.stored.containsKey("BBB-222"));
+        assertEquals(0, writeBehind.getPendingCount());
+    }
+
+    @Test
+    void testSavedStateIsACopy() {
+        User user = new User("AAA-111");
+        user.setX(5);
+        writeBehind.save(user);
+        user.setX(50);
+
+        writeBehind.flush();
+
+        assertEquals(5, writer.stored.get("AAA-111").getX());
+    }
+
+    @Test
+    void testFlushIsSplitIntoBatchesAndMeasured() {
+        writeBehind.close();
+        properties.setMaxBatchSize(4);
+        writeBehind = new UserWriteBehind(writer, properties);
+        for (int i = 0; i < 10; i++) {
+            writeBehind.save(new User("P" + i));
+        }
+
+        writeBehind.flush();
+
+        assertEquals(10, writer.stored.size());
+        assertEquals(List.of(4, 4, 2), writer.batchSizes);
+        UserWriteBehind.Stats stats = writeBehind.getStats();
+        assertEquals(3, stats.flushes());
+        assertEquals(10, stats.flushedChanges());
+        assertEquals(2, stats.lastBatchSize());
+        assertEquals(4, stats.maxBatchSize());
+        assertEquals(0, stats.pending());
+    }
+
+    @Test
+    void testThresholdTriggersFlushWithoutWaitingForTheInterval() throws Exception {
+        writeBehind.close();
+        properties.setFlushThreshold(3);
+        writeBehind = new UserWriteBehind(writer, properties);
+
+        writeBehind.save(new User("P1"));
+        writeBehind.save(new User("P2"));
+        assertEquals(1, writer.written.getCount());
+        writeBehind.save(new User("P3"));
+
+        assertTrue(writer.written.await(5, TimeUnit.SECONDS));
+        assertEquals(3, writer.stored.size());
+    }
+
+    @Test
+    void testScheduledFlush() throws Exception {
+        writeBehind.close();
+        properties.setFlushIntervalMillis(20);
+        writeBehind = new UserWriteBehind(writer, properties);
+
+        writeBehind.save(new User("P1"));
+
+        assertTrue(writer.written.await(5, TimeUnit.SECONDS));
+        assertTrue(writer.stored.containsKey("P1"));
+    }
+
+    @Test
+    void testFailedFlushKeepsChangesUnlessSomethingNewerArrived() {
+        User user = new User("AAA-111");
+        user.setX(1);
+        writeBehind.save(user);
+        writeBehind.save(new User("BBB-222"));
+        writer.failing = true;
+
+        assertFalse(writeBehind.flush());
+        assertEquals(2, writeBehind.getPendingCount());
+        assertEquals(1, writeBehind.getStats().failedFlushes());
+
+        // Un cambio posterior al fallo gana al reintento
+        user.setX(2);
+        writeBehind.save(user);
+        writer.failing = false;
+        assertTrue(writeBehind.flush());
+
+        assertEquals(2, writer.stored.get("AAA-111").getX());
+        assertTrue(writer.stored.containsKey("BBB-222"));
+    }
+
+    @Test
+    void testCloseFlushesPendingChanges() {
+        writeBehind.save(new User("P1"));
+
+        writeBehind.close();
+
+        assertTrue(writer.stored.containsKey("P1"));
+    }
+
+    @Test
+    void testUserServiceLoadsOnStartupAndWritesBehind() {
+        User stored = new User("OLD-001");
+        stored.setName("Saved");
+        writer.stored.put(stored.getId(), stored);
+
+        UserService service = new UserService(writeBehind);
+
+        // El estado guardado sobrevive al reinicio
+        assertEquals("Saved", service.getUserById("OLD-001").get().getName());
+
+        service.processUser(new User("NEW-002"));
+        service.updateUserPosition("NEW-002", 10, 20, "up");
+        service.updateUserName("NEW-002", "Bus");
+        service.deleteUser("OLD-001");
+
+        // Las llamadas no esperan a la base de datos: todo queda pendiente
+        assertEquals(2, writeBehind.getPendingCount());
+        assertTrue(writer.stored.containsKey("OLD-001"));
+
+        writeBehind.flush();
+
+        assertFalse(writer.stored.containsKey("OLD-001"));
+        User written = writer.stored.get("NEW-002");
+        assertEquals("Bus", written.getName());
+        assertEquals(10, written.getX());
+        assertEquals("up", written.getDirection());
+    }
+}
@@ -0,0 +1,181 @@
+package juego.arsw;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Prueba de carga: levanta el servidor dos veces, con hilos de plataforma y con hilos
+ * virtuales, conecta muchos clientes repartidos en salas y mide cuántas conexiones
+ * aguanta y cuánto tarda un movimiento en volver en un snapshot de posiciones (p50/p99).
+ * Solo corre con {@code mvn -P load test}.
+ */
+@Tag("load")
+class VirtualThreadLoadTest {
+
+    private static final int CONNECTIONS = Integer.getInteger("load.connections", 500);
+    private static final int ROOMS = Integer.getInteger("load.rooms", 50);
+    private static final int MOVES = Integer.getInteger("load.moves", 20);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void comparePlatformAndVirtualThreads() throws Exception {
+        Result platform = run(false);
+        Result virtual = run(true);
+
+        System.out.printf("%-10s %12s %10s %10s %10s%n", "mode", "connected", "p50 ms", "p99 ms", "threads");
+        for (Result result : List.of(platform, virtual)) {
+            System.out.printf("%-10s %6d/%-5d %10.1f %10.1f %10d%n", result.mode, result.connected, CONNECTIONS,
+                    result.p50Millis, result.p99Millis, result.peakThreads);
+        }
+
+        assertTrue(platform.connected > 0);
+        assertTrue(virtual.connected > 0);
+    }
+
+    private Result run(boolean virtualThreads) throws Exception {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(ArswApplication.class)
+                .properties("server.port=0", "game.threads.virtual=" + virtualThreads,
+                        "spring.threads.virtual.enabled=" + virtualThreads, "spring.main.banner-mode=off")
+                .run();
+        ExecutorService drivers = Executors.newFixedThreadPool(8);
+        List<LoadClient> clients = new ArrayList<>();
+        try {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            StandardWebSocketClient webSocketClient = new StandardWebSocketClient();
+
+            List<CompletableFuture<WebSocketSession>> pending = new ArrayList<>();
+            for (int i = 0; i < CONNECTIONS; i++) {
+                LoadClient client = new LoadClient();
+                clients.add(client);
+                pending.add(webSocketClient.execute(client, "ws://localhost:" + port + "/game?room=load-" + (i % ROOMS)));
+            }
+            int connected = 0;
+            for (int i = 0; i < pending.size(); i++) {
+                try {
+                    clients.get(i).session = pending.get(i).get(10, TimeUnit.SECONDS);
+                    connected++;
+                } catch (Exception e) {
+                    clients.get(i).session = null;
+                }
+            }
+
+            // Cada cliente mueve su bus cada 50 ms; un hilo conductor por grupo de clientes
+            List<CompletableFuture<Void>> driving = new ArrayList<>();
+            for (int d = 0; d < 8; d++) {
+                int first = d;
+                driving.add(CompletableFuture.runAsync(() -> {
+                    for (int move = 1; move <= MOVES; move++) {
+                        for (int i = first; i < clients.size(); i += 8) {
+                            clients.get(i).move(move);
+                        }
+                        sleep(50);
+                    }
+                }, drivers));
+            }
+            int peakThreads = 0;
+            for (CompletableFuture<Void> future : driving) {
+                while (!future.isDone()) {
+                    peakThreads = Math.max(peakThreads, ManagementFactory.getThreadMXBean().getThreadCount());
+                    sleep(20);
+                }
+            }
+            sleep(500);
+
+            List<Long> latencies = new ArrayList<>();
+            for (LoadClient client : clients) {
+                latencies.addAll(client.latencies);
+            }
+            Collections.sort(latencies);
+            return new Result(virtualThreads ? "virtual" : "platform", connected, percentile(latencies, 0.50),
+                    percentile(latencies, 0.99), peakThreads);
+        } finally {
+            for (LoadClient client : clients) {
+                if (client.session != null && client.session.isOpen()) {
+                    client.session.close();
+                }
+            }
+            drivers.shutdownNow();
+            context.close();
+        }
+    }
+
+    private static double percentile(List<Long> sorted, double p) {
+        if (sorted.isEmpty()) {
+            return Double.NaN;
+        }
+        int index = (int) Math.ceil(p * sorted.size()) - 1;
+        return sorted.get(Math.max(0, index)) / 1_000_000.0;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record Result(String mode, int connected, double p50Millis, double p99Millis, int peakThreads) {
+    }
+
+    /** Cliente que mueve su bus y mide cuándo ve su nueva posición en un snapshot. */
+    private class LoadClient extends TextWebSocketHandler {
+        private volatile WebSocketSession session;
+        private volatile String playerId;
+        private volatile double pendingX = -1;
+        private volatile long sentAt;
+        private final ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+
+        void move(int move) {
+            if (session == null || !session.isOpen() || playerId == null) {
+                return;
+            }
+            double x = 100 + move * 7;
+            sentAt = System.nanoTime();
+            pendingX = x;
+            try {
+                session.sendMessage(new TextMessage("{\"x\":" + x + ",\"y\":100,\"direction\":\"right\"}"));
+            } catch (Exception e) {
+                pendingX = -1;
+            }
+        }
+
+        @Override
+        protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
+            JsonNode data = objectMapper.readTree(message.getPayload());
+            String type = data.path("type").asText();
+            if ("PLAYER_ID".equals(type)) {
+                playerId = data.get("playerId").asText();
+            } else if ("positions".equals(type) && playerId != null && pendingX >= 0) {
+                JsonNode own = data.path("players").path(playerId);
+                if (!own.isMissingNode() && own.path("x").asDouble() == pendingX) {
+                    latencies.add(System.nanoTime() - sentAt);
+                    pendingX = -1;
+                }
+            }
+        }
+    }
+}
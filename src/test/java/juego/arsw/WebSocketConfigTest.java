@@ -1,5 +1,6 @@
 package juego.arsw;
 
+import juego.arsw.config.GameProperties;
 import juego.arsw.config.WebSocketConfig;
 import juego.arsw.controller.UserRestController;
 import org.junit.jupiter.api.Test;
@@ -8,10 +9,13 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.web.socket.WebSocketHandler;
 import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistration;
 import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
+import juego.arsw.game.BinaryPositionEncoder;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -25,6 +29,9 @@ public class WebSocketConfigTest {
     @Mock
     private WebSocketHandlerRegistration registration;
 
+    @Spy
+    private GameProperties gameProperties = new GameProperties();
+
     @InjectMocks
     private WebSocketConfig webSocketConfig;
 
@@ -34,14 +41,15 @@ public class WebSocketConfigTest {
     @Test
     public void testRegisterWebSocketHandlers() {
         // Arrange
-        when(registry.addHandler(any(WebSocketHandler.class), anyString())).thenReturn(registration);
+        when(registry.addHandler(any(WebSocketHandler.class), anyString(), anyString())).thenReturn(registration);
         
         // Act
         webSocketConfig.registerWebSocketHandlers(registry);
         
         // Assert
-        verify(registry).addHandler(handlerCaptor.capture(), eq("/game"));
+        verify(registry).addHandler(handlerCaptor.capture(), eq("/game"), eq("/game/*"));
         verify(registration).setAllowedOrigins("*");
+        verify(registration).setHandshakeHandler(any(DefaultHandshakeHandler.class));
         
         WebSocketHandler capturedHandler = handlerCaptor.getValue();
         assertNotNull(capturedHandler);
@@ -57,4 +65,16 @@ public class WebSocketConfigTest {
         assertNotNull(handler);
         assertTrue(handler instanceof UserRestController);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testHandshakeHandlerOffersBinaryProtocol() {
+        DefaultHandshakeHandler handshakeHandler = webSocketConfig.gameHandshakeHandler();
+
+        assertTrue(java.util.List.of(handshakeHandler.getSupportedProtocols()).contains(BinaryPositionEncoder.PROTOCOL));
+        assertTrue(java.util.List.of(handshakeHandler.getSupportedProtocols()).contains(BinaryPositionEncoder.JSON_PROTOCOL));
+
+        gameProperties.getProtocol().setBinaryEnabled(false);
+        assertFalse(java.util.List.of(webSocketConfig.gameHandshakeHandler().getSupportedProtocols())
+                .contains(BinaryPositionEncoder.PROTOCOL));
+    }
+}